@@ -0,0 +1,92 @@
+package frc.lib.logs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import frc.lib.util.Console;
+import frc.robot.Constants;
+
+/**
+ * Desktop tool that goes through a pile of .wpilog files (a whole event) and writes one compact report,
+ * instead of opening every match in advantagescope:
+ *  - loop time histogram and overruns
+ *  - odometry period and jitter
+ *  - how much of the vision the pose estimator actually used
+ *  - how long shots take to be ready after we start aiming
+ *  - every scoring cycle from StrategyTelemetry
+ *
+ * Each file is memory mapped and streamed, and the files are done in parallel.
+ * Run it with: ./gradlew analyzeLogs --args="path/to/logs [more files or folders] [--out report-folder] [--period seconds]"
+ * It writes report.csv (one row per log plus ALL), cycles.csv and report.json.
+ */
+public class LogAnalyzer {
+    public static void main (String[] args) throws IOException {
+        var inputs = new ArrayList<Path>();
+        var out = Paths.get("log-report");
+        var period = Constants.period;
+        for (int i = 0; i < args.length; i++) {
+            if(args[i].equals("--out") && i + 1 < args.length) out = Paths.get(args[++i]);
+            else if(args[i].equals("--period") && i + 1 < args.length) period = Double.parseDouble(args[++i]);
+            else inputs.add(Paths.get(args[i]));
+        }
+        if(inputs.isEmpty()) {
+            Console.error("usage: LogAnalyzer <log file or folder>... [--out report-folder] [--period seconds]");
+            return;
+        }
+
+        var files = new ArrayList<Path>();
+        for (var input : inputs) {
+            if(Files.isDirectory(input)) {
+                try (var walk = Files.walk(input)) {
+                    walk.filter(path -> path.toString().endsWith(".wpilog")).forEach(files::add);
+                }
+            } else {
+                files.add(input);
+            }
+        }
+        Console.info("Analyzing " + files.size() + " logs...");
+        var start = System.nanoTime();
+
+        final var loopPeriod = period;
+        var reports = files.parallelStream()
+            .map(file -> {
+                try {
+                    return MatchReport.analyze(file, loopPeriod);
+                } catch (IOException | RuntimeException e) {
+                    Console.error("Couldn't read " + file + ": " + e.getMessage());
+                    return null;
+                }
+            })
+            .filter(Objects::nonNull)
+            .sorted(Comparator.comparing(report -> report.name))
+            .collect(Collectors.toList());
+
+        var event = new MatchReport("ALL", period);
+        reports.forEach(event::merge);
+
+        Files.createDirectories(out);
+        var csv = new StringBuilder(MatchReport.csvHeader()).append('\n');
+        for (var report : reports) csv.append(report.toCsv()).append('\n');
+        csv.append(event.toCsv()).append('\n');
+        Files.writeString(out.resolve("report.csv"), csv);
+
+        var cycles = new StringBuilder("log,timestamp_s,type,seconds\n");
+        for (var cycle : event.getCycles()) cycles.append(cycle.toCsv()).append('\n');
+        Files.writeString(out.resolve("cycles.csv"), cycles);
+
+        var json = new StringBuilder("{\"event\":").append(event.toJson()).append(",\"logs\":[");
+        for (int i = 0; i < reports.size(); i++) {
+            if(i > 0) json.append(',');
+            json.append(reports.get(i).toJson());
+        }
+        Files.writeString(out.resolve("report.json"), json.append("]}\n"));
+
+        Console.info("Analyzed " + reports.size() + "/" + files.size() + " logs in " + (System.nanoTime() - start) / 1000000 + "ms, report is in " + out.toAbsolutePath());
+    }
+}
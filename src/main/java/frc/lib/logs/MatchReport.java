@@ -0,0 +1,343 @@
+package frc.lib.logs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import frc.lib.util.Histogram;
+
+/**
+ * Everything the log analyzer pulls out of one .wpilog (or a whole event of them merged together).
+ * The log is streamed record by record (DataLogReader memory maps the file), nothing but the summaries is kept.
+ */
+public class MatchReport {
+    /* WHAT WE LOOK FOR IN THE LOG */
+    private static final String LOOP_STRUCT_SCHEMA = ".schema/struct:ControlSystemHealth";
+    private static final String LOOP_STRUCT_TYPE = "struct:ControlSystemHealth";
+    private static final String LOOP_TIME_FIELD = "rioLoopTime";
+    private static final String ODOMETRY_PERIOD = "Swerve/Odometry Period";
+    private static final String VISION_MEASUREMENTS = "Swerve/Pose Estimator/Vision Measurements";
+    private static final String DROPPED_VISION = "Swerve/Pose Estimator/Dropped Vision";
+    private static final String AIMING = "Shot Readiness/Aiming";
+    private static final String READY = "Shot Readiness/Ready";
+    private static final String CYCLE_TYPE = "Strategy/Cycle Type";
+    private static final String CYCLE_TIME = "Strategy/Cycle Time";
+
+    private static final int NONE = 0, LOOP_STRUCT = 1, LOOP_SCHEMA = 2, ODOMETRY = 3, VISION = 4, DROPPED = 5,
+                             AIM = 6, READY_EDGE = 7, TYPE = 8, TIME = 9;
+
+    public final String name;
+    private final double period;
+
+    /* RESULTS */
+    private double duration = 0; //seconds of log
+    private final Histogram loopTimes = new Histogram(0, 0.1, 1000); //seconds, 0.1ms bins
+    private long loopOverruns = 0;
+    private final Histogram odometryPeriods = new Histogram(0, 0.05, 500); //seconds, 0.1ms bins
+    private double odometrySum = 0;
+    private double odometrySumSquares = 0;
+    private long visionMeasurements = 0;
+    private long droppedVision = 0;
+    private final Histogram readinessLatency = new Histogram(0, 5, 500); //seconds, 10ms bins
+    private long aimsNeverReady = 0;
+    private final ArrayList<Cycle> cycles = new ArrayList<>();
+
+    /**
+     * @param name what to call it in the report (usually the file name)
+     * @param period the loop period, longer loops count as overruns
+     */
+    public MatchReport (String name, double period) {
+        this.name = name;
+        this.period = period;
+    }
+
+    /**
+     * Read a whole log and summarize it
+     * @param file the .wpilog
+     * @param period the loop period, longer loops count as overruns
+     * @throws IOException if the file can't be read or isn't a wpilog
+     */
+    public static MatchReport analyze (Path file, double period) throws IOException {
+        var reader = new DataLogReader(file.toString());
+        if(!reader.isValid()) throw new IOException(file + " isn't a wpilog");
+
+        var report = new MatchReport(file.getFileName().toString(), period);
+        var kinds = new int[64]; //entry id -> what it is, ids are small and handed out in order
+        var loopTimeOffset = -1;
+        var firstTimestamp = Double.NaN;
+        var lastTimestamp = Double.NaN;
+
+        //readiness and cycle state
+        var aimStart = Double.NaN;
+        String pendingCycleType = "UNKNOWN";
+
+        for (var record : reader) {
+            var timestamp = record.getTimestamp() / 1e6;
+            if(Double.isNaN(firstTimestamp)) firstTimestamp = timestamp;
+            lastTimestamp = timestamp;
+
+            if(record.isControl()) {
+                if(record.isStart()) {
+                    var start = record.getStartData();
+                    if(start.entry >= kinds.length) kinds = Arrays.copyOf(kinds, Math.max(kinds.length * 2, start.entry + 1));
+                    kinds[start.entry] = classify(start.name, start.type);
+                } else if(record.isFinish()) {
+                    var entry = record.getFinishEntry();
+                    if(entry < kinds.length) kinds[entry] = NONE;
+                }
+                continue;
+            }
+
+            var entry = record.getEntry();
+            if(entry >= kinds.length) continue;
+            switch (kinds[entry]) {
+                case LOOP_SCHEMA:
+                    loopTimeOffset = fieldOffset(new String(record.getRaw(), StandardCharsets.UTF_8), LOOP_TIME_FIELD);
+                    break;
+                case LOOP_STRUCT:
+                    if(loopTimeOffset < 0) break;
+                    var raw = record.getRaw();
+                    if(raw.length < loopTimeOffset + 8) break;
+                    var loopTime = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN).getDouble(loopTimeOffset);
+                    if(loopTime <= 0) break; //first loop, the timer hadn't started yet
+                    report.loopTimes.record(loopTime);
+                    if(loopTime > period) report.loopOverruns++;
+                    break;
+                case ODOMETRY:
+                    var odometryPeriod = record.getDouble();
+                    if(odometryPeriod <= 0) break;
+                    report.odometryPeriods.record(odometryPeriod);
+                    report.odometrySum += odometryPeriod;
+                    report.odometrySumSquares += odometryPeriod * odometryPeriod;
+                    break;
+                case VISION:
+                    report.visionMeasurements = record.getInteger(); //counts up from boot, the last one is the total
+                    break;
+                case DROPPED:
+                    report.droppedVision = record.getInteger();
+                    break;
+                case AIM:
+                    if(record.getBoolean()) {
+                        aimStart = timestamp;
+                    } else if(!Double.isNaN(aimStart)) {
+                        report.aimsNeverReady++;
+                        aimStart = Double.NaN;
+                    }
+                    break;
+                case READY_EDGE:
+                    if(record.getBoolean() && !Double.isNaN(aimStart)) {
+                        report.readinessLatency.record(timestamp - aimStart);
+                        aimStart = Double.NaN;
+                    }
+                    break;
+                case TYPE:
+                    pendingCycleType = record.getString();
+                    break;
+                case TIME:
+                    report.cycles.add(new Cycle(report.name, timestamp, pendingCycleType, record.getDouble()));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if(!Double.isNaN(firstTimestamp)) report.duration = lastTimestamp - firstTimestamp;
+        return report;
+    }
+
+    private static int classify (String name, String type) {
+        switch (name) {
+            case LOOP_STRUCT_SCHEMA: return LOOP_SCHEMA;
+            case ODOMETRY_PERIOD: return ODOMETRY;
+            case VISION_MEASUREMENTS: return VISION;
+            case DROPPED_VISION: return DROPPED;
+            case AIMING: return AIM;
+            case READY: return READY_EDGE;
+            case CYCLE_TYPE: return TYPE;
+            case CYCLE_TIME: return TIME;
+            default: return type.equals(LOOP_STRUCT_TYPE) ? LOOP_STRUCT : NONE;
+        }
+    }
+
+    /**
+     * Find where a field is in a packed struct from its schema (like "double a;bool b")
+     * @return the byte offset, -1 if it isn't there or the schema has something we can't size
+     */
+    static int fieldOffset (String schema, String field) {
+        var offset = 0;
+        for (var declaration : schema.split(";")) {
+            var parts = declaration.trim().split("\\s+");
+            if(parts.length != 2) continue;
+            if(parts[1].equals(field)) return offset;
+            switch (parts[0]) {
+                case "bool": case "char": case "int8": case "uint8": offset += 1; break;
+                case "int16": case "uint16": offset += 2; break;
+                case "int32": case "uint32": case "float": case "float32": offset += 4; break;
+                case "int64": case "uint64": case "double": case "float64": offset += 8; break;
+                default: return -1; //nested structs and arrays, our telemetry structs don't have any
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add another report into this one (for the whole event)
+     */
+    public void merge (MatchReport other) {
+        duration += other.duration;
+        loopTimes.merge(other.loopTimes);
+        loopOverruns += other.loopOverruns;
+        odometryPeriods.merge(other.odometryPeriods);
+        odometrySum += other.odometrySum;
+        odometrySumSquares += other.odometrySumSquares;
+        visionMeasurements += other.visionMeasurements;
+        droppedVision += other.droppedVision;
+        readinessLatency.merge(other.readinessLatency);
+        aimsNeverReady += other.aimsNeverReady;
+        cycles.addAll(other.cycles);
+    }
+
+    public ArrayList<Cycle> getCycles () {
+        return cycles;
+    }
+
+    private double getOdometryJitter () {
+        var count = odometryPeriods.getCount();
+        if(count < 2) return Double.NaN;
+        var mean = odometrySum / count;
+        return Math.sqrt(Math.max(0, odometrySumSquares / count - mean * mean));
+    }
+
+    private double getVisionAcceptance () {
+        return visionMeasurements == 0 ? Double.NaN : 1 - (double) droppedVision / visionMeasurements;
+    }
+
+    private double getMeanCycleTime (String type) {
+        return cycles.stream().filter(c -> type == null || c.type.equals(type)).mapToDouble(c -> c.time).average().orElse(Double.NaN);
+    }
+
+    private long countCycles (String type) {
+        return cycles.stream().filter(c -> c.type.equals(type)).count();
+    }
+
+    /* OUTPUT */
+
+    public static String csvHeader () {
+        return "log,duration_s,loops,loop_mean_ms,loop_p50_ms,loop_p90_ms,loop_p99_ms,loop_max_ms,overruns,overrun_pct,"
+             + "odometry_samples,odometry_mean_ms,odometry_jitter_ms,odometry_p99_ms,odometry_max_ms,"
+             + "vision_measurements,vision_dropped,vision_acceptance,"
+             + "readiness_count,readiness_p50_s,readiness_p90_s,readiness_max_s,aims_never_ready,"
+             + "cycles,cycle_mean_s,amp_cycles,amp_cycle_mean_s,speaker_cycles,speaker_cycle_mean_s";
+    }
+
+    public String toCsv () {
+        var loops = loopTimes.getCount();
+        return String.join(",",
+            name.replace(',', '_'), number(duration),
+            Long.toString(loops), ms(loopTimes.getMean()), ms(loopTimes.getPercentile(50)), ms(loopTimes.getPercentile(90)),
+            ms(loopTimes.getPercentile(99)), ms(loopTimes.getMax()), Long.toString(loopOverruns),
+            number(loops == 0 ? Double.NaN : 100.0 * loopOverruns / loops),
+            Long.toString(odometryPeriods.getCount()), ms(odometryPeriods.getMean()), ms(getOdometryJitter()),
+            ms(odometryPeriods.getPercentile(99)), ms(odometryPeriods.getMax()),
+            Long.toString(visionMeasurements), Long.toString(droppedVision), number(getVisionAcceptance()),
+            Long.toString(readinessLatency.getCount()), number(readinessLatency.getPercentile(50)),
+            number(readinessLatency.getPercentile(90)), number(readinessLatency.getMax()), Long.toString(aimsNeverReady),
+            Integer.toString(cycles.size()), number(getMeanCycleTime(null)),
+            Long.toString(countCycles("AMP")), number(getMeanCycleTime("AMP")),
+            Long.toString(countCycles("SPEAKER")), number(getMeanCycleTime("SPEAKER"))
+        );
+    }
+
+    /**
+     * @return the report as a json object, with the loop and odometry histograms (only the bins that have anything)
+     */
+    public String toJson () {
+        var json = new StringBuilder("{");
+        json.append("\"log\":").append(quote(name))
+            .append(",\"durationSeconds\":").append(jsonNumber(duration))
+            .append(",\"loopTime\":").append(histogramJson(loopTimes))
+            .append(",\"loopOverruns\":").append(loopOverruns)
+            .append(",\"odometryPeriod\":").append(histogramJson(odometryPeriods))
+            .append(",\"odometryJitterMs\":").append(jsonNumber(getOdometryJitter() * 1000))
+            .append(",\"vision\":{\"measurements\":").append(visionMeasurements)
+            .append(",\"dropped\":").append(droppedVision)
+            .append(",\"acceptance\":").append(jsonNumber(getVisionAcceptance())).append('}')
+            .append(",\"shotReadiness\":{\"count\":").append(readinessLatency.getCount())
+            .append(",\"p50Seconds\":").append(jsonNumber(readinessLatency.getPercentile(50)))
+            .append(",\"p90Seconds\":").append(jsonNumber(readinessLatency.getPercentile(90)))
+            .append(",\"maxSeconds\":").append(jsonNumber(readinessLatency.getMax()))
+            .append(",\"aimsNeverReady\":").append(aimsNeverReady).append('}')
+            .append(",\"cycles\":[");
+        for (int i = 0; i < cycles.size(); i++) {
+            if(i > 0) json.append(',');
+            var cycle = cycles.get(i);
+            json.append("{\"timestamp\":").append(jsonNumber(cycle.timestamp))
+                .append(",\"type\":").append(quote(cycle.type))
+                .append(",\"seconds\":").append(jsonNumber(cycle.time)).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String histogramJson (Histogram histogram) {
+        var json = new StringBuilder("{\"count\":").append(histogram.getCount())
+            .append(",\"meanMs\":").append(jsonNumber(histogram.getMean() * 1000))
+            .append(",\"p50Ms\":").append(jsonNumber(histogram.getPercentile(50) * 1000))
+            .append(",\"p90Ms\":").append(jsonNumber(histogram.getPercentile(90) * 1000))
+            .append(",\"p99Ms\":").append(jsonNumber(histogram.getPercentile(99) * 1000))
+            .append(",\"maxMs\":").append(jsonNumber(histogram.getMax() * 1000))
+            .append(",\"binsMs\":[");
+        var counts = new double[histogram.getBinCount()];
+        histogram.getCounts(counts);
+        var first = true;
+        for (int i = 0; i < counts.length; i++) {
+            if(counts[i] == 0) continue;
+            if(!first) json.append(',');
+            first = false;
+            json.append('[').append(jsonNumber(histogram.getBinCenter(i) * 1000)).append(',').append((long) counts[i]).append(']');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String ms (double seconds) {
+        return number(seconds * 1000);
+    }
+
+    private static String number (double value) {
+        return Double.isFinite(value) ? String.format(Locale.ROOT, "%.4f", value) : "";
+    }
+
+    private static String jsonNumber (double value) {
+        return Double.isFinite(value) ? String.format(Locale.ROOT, "%.4f", value) : "null";
+    }
+
+    private static String quote (String text) {
+        return '"' + text.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    /**
+     * One scoring cycle from StrategyTelemetry
+     */
+    public static class Cycle {
+        public final String log;
+        public final double timestamp; //robot time in seconds when it was logged
+        public final String type;
+        public final double time; //seconds
+
+        public Cycle (String log, double timestamp, String type, double time) {
+            this.log = log;
+            this.timestamp = timestamp;
+            this.type = type;
+            this.time = time;
+        }
+
+        public String toCsv () {
+            return String.join(",", log.replace(',', '_'), number(timestamp), type, number(time));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package frc.lib.motion;
 
 import edu.wpi.first.math.trajectory.TrapezoidProfile.State;
+import frc.lib.util.Console;
 import frc.lib.util.Util;
 
 public class Motion {
@@ -114,14 +115,14 @@ public class Motion {
 
     public static void main(String[] args){
         var test = Motion.fromPositionAcceleration(0, 1, 1);
-        System.out.println(test);
+        Console.info(String.valueOf(test));
         for(double i = 0; i <= test.time; i += 0.01){
-            System.out.println(test.interpolateTime(i).deltaPosition);
+            Console.info(String.valueOf(test.interpolateTime(i).deltaPosition));
         }
         test = test.limitAccelerationConstantPosition(0.1);
-        System.out.println(test);
+        Console.info(String.valueOf(test));
         for(double i = 0; i <= test.time; i += 0.01){
-            System.out.println(test.interpolateTime(i).deltaPosition);
+            Console.info(String.valueOf(test.interpolateTime(i).deltaPosition));
         }
     }
 }
@@ -3,6 +3,7 @@ package frc.lib.motion;
 import edu.wpi.first.math.trajectory.TrapezoidProfile.State;
 
 import java.util.ArrayList;
+import frc.lib.util.Console;
 
 public class Trajectory {
     private Motion[] waypoints;
@@ -117,11 +118,11 @@ public class Trajectory {
                 5,
                 5
         );
-        System.out.println(test.getTotalTime());
-        System.out.println(test.calculate(100).position);
+        Console.info(String.valueOf(test.getTotalTime()));
+        Console.info(String.valueOf(test.calculate(100).position));
         for(int i = 0; i < 100; i++){
             var state = test.calculate((i / 100.0) * test.getTotalTime());
-            System.out.println(state.position);
+            Console.info(String.valueOf(state.position));
         }
     }
 }
@@ -6,6 +6,7 @@ import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.lib.util.Console;
 // import frc.lib.util.ButtonMap;
 // import frc.lib.util.ButtonMap.Password;
 
@@ -217,11 +218,9 @@ public class Inspiration {
         slowPrintTimer.start();
         if(slowPrintTimer.get() > slowPrintDelay){
             if(!slowPrintQueue.isEmpty()){
-                System.out.print("[ROBOT] ");
-                System.out.println(slowPrintQueue.remove());
-                System.out.println();
+                Console.info("[ROBOT] " + slowPrintQueue.remove() + "\n");
             } else {
-                System.out.println("[ROBOT] DOMINATE THIS SEASON!!!"); //just in case
+                Console.info("[ROBOT] DOMINATE THIS SEASON!!!"); //just in case
             }
             slowPrintTimer.reset();
         }
@@ -229,97 +228,97 @@ public class Inspiration {
 
     public static void fullPeacce(Joystick j){
         var command = new InstantCommand(() -> {
-System.out.println("             _____                    _____                    _____                    _____                    _____                _____           ");
-System.out.println("            /\\    \\                  /\\    \\                  /\\    \\                  /\\    \\                  /\\    \\              |\\    \\         ");              
-System.out.println("           /::\\    \\                /::\\    \\                /::\\    \\                /::\\    \\                /::\\    \\             |:\\____\\        ");              
-System.out.println("          /::::\\    \\              /::::\\    \\              /::::\\    \\              /::::\\    \\              /::::\\    \\            |::|   |        ");                
-System.out.println("         /::::::\\    \\            /::::::\\    \\            /::::::\\    \\            /::::::\\    \\            /::::::\\    \\           |::|   |        ");                
-System.out.println("        /:::/\\:::\\    \\          /:::/\\:::\\    \\          /:::/\\:::\\    \\          /:::/\\:::\\    \\          /:::/\\:::\\    \\          |::|   |        ");           
-System.out.println("       /:::/__\\:::\\    \\        /:::/__\\:::\\    \\        /:::/__\\:::\\    \\        /:::/  \\:::\\    \\        /:::/  \\:::\\    \\         |::|   |        ");           
-System.out.println("      /::::\\   \\:::\\    \\      /::::\\   \\:::\\    \\      /::::\\   \\:::\\    \\      /:::/    \\:::\\    \\      /:::/    \\:::\\    \\        |::|   |        ");          
-System.out.println("     /::::::\\   \\:::\\    \\    /::::::\\   \\:::\\    \\    /::::::\\   \\:::\\    \\    /:::/    / \\:::\\    \\    /:::/    / \\:::\\    \\       |::|___|______  ");        
-System.out.println("    /:::/\\:::\\   \\:::\\____\\  /:::/\\:::\\   \\:::\\    \\  /:::/\\:::\\   \\:::\\    \\  /:::/    /   \\:::\\    \\  /:::/    /   \\:::\\    \\      /::::::::\\    \\ ");        
-System.out.println("   /:::/  \\:::\\   \\:::|    |/:::/__\\:::\\   \\:::\\____\\/:::/  \\:::\\   \\:::\\____\\/:::/____/     \\:::\\____\\/:::/____/     \\:::\\____\\    /::::::::::\\____\\");          
-System.out.println("   \\::/    \\:::\\  /:::|____|\\:::\\   \\:::\\   \\::/    /\\::/    \\:::\\  /:::/    /\\:::\\    \\      \\::/    /\\:::\\    \\      \\::/    /   /:::/~~~~/~~      ");                          
-System.out.println("    \\/_____/\\:::\\/:::/    /  \\:::\\   \\:::\\   \\/____/  \\/____/ \\:::\\/:::/    /  \\:::\\    \\      \\/____/  \\:::\\    \\      \\/____/   /:::/    /         ");                          
-System.out.println("             \\::::::/    /    \\:::\\   \\:::\\    \\               \\::::::/    /    \\:::\\    \\               \\:::\\    \\              /:::/    /          ");                          
-System.out.println("              \\::::/    /      \\:::\\   \\:::\\____\\               \\::::/    /      \\:::\\    \\               \\:::\\    \\            /:::/    /           ");                          
-System.out.println("               \\::/____/        \\:::\\   \\::/    /               /:::/    /        \\:::\\    \\               \\:::\\    \\           \\::/    /            ");                          
-System.out.println("                ~~               \\:::\\   \\/____/               /:::/    /          \\:::\\    \\               \\:::\\    \\           \\/____/             ");                          
-System.out.println("                                  \\:::\\    \\                  /:::/    /            \\:::\\    \\               \\:::\\    \\                              ");                          
-System.out.println("                                   \\:::\\____\\                /:::/    /              \\:::\\____\\               \\:::\\____\\                             ");                          
-System.out.println("                                    \\::/    /                \\::/    /                \\::/    /                \\::/    /                             ");                          
-System.out.println("                                     \\/____/                  \\/____/                  \\/____/                  \\/____/                              ");                          
-System.out.println();
-System.out.println("           _____                    _____                    _____           ");
-System.out.println("          /\\    \\                  /\\    \\                  /\\    \\                   ");
-System.out.println("         /::\\____\\                /::\\    \\                /::\\    \\                  ");
-System.out.println("        /:::/    /               /::::\\    \\              /::::\\    \\                   ");
-System.out.println("       /:::/   _/___            /::::::\\    \\            /::::::\\    \\                  ");
-System.out.println("      /:::/   /\\    \\          /:::/\\:::\\    \\          /:::/\\:::\\    \\             ");
-System.out.println("     /:::/   /::\\____\\        /:::/__\\:::\\    \\        /:::/__\\:::\\    \\            ");
-System.out.println("    /:::/   /:::/    /       /::::\\   \\:::\\    \\       \\:::\\   \\:::\\    \\          ");
-System.out.println("   /:::/   /:::/   _/___    /::::::\\   \\:::\\    \\    ___\\:::\\   \\:::\\    \\         ");
-System.out.println("  /:::/___/:::/   /\\    \\  /:::/\\:::\\   \\:::\\    \\  /\\   \\:::\\   \\:::\\    \\    ");
-System.out.println(" |:::|   /:::/   /::\\____\\/:::/  \\:::\\   \\:::\\____\\/::\\   \\:::\\   \\:::\\____\\   ");
-System.out.println(" |:::|__/:::/   /:::/    /\\::/    \\:::\\  /:::/    /\\:::\\   \\:::\\   \\::/    /        ");
-System.out.println("  \\:::\\/:::/   /:::/    /  \\/____/ \\:::\\/:::/    /  \\:::\\   \\:::\\   \\/____/       ");
-System.out.println("   \\::::::/   /:::/    /            \\::::::/    /    \\:::\\   \\:::\\    \\              ");
-System.out.println("    \\::::/___/:::/    /              \\::::/    /      \\:::\\   \\:::\\____\\             ");
-System.out.println("     \\:::\\__/:::/    /               /:::/    /        \\:::\\  /:::/    /                ");
-System.out.println("      \\::::::::/    /               /:::/    /          \\:::\\/:::/    /                  ");
-System.out.println("       \\::::::/    /               /:::/    /            \\::::::/    /                    ");
-System.out.println("        \\::::/    /               /:::/    /              \\::::/    /                     ");
-System.out.println("         \\::/____/                \\::/    /                \\::/    /                     ");
-System.out.println("          ~~                       \\/____/                  \\/____/                       ");
-System.out.println();
-System.out.println("           _____                    _____                    _____                    _____          ");
-System.out.println("          /\\    \\                  /\\    \\                  /\\    \\                  /\\    \\         ");
-System.out.println("         /::\\____\\                /::\\    \\                /::\\    \\                /::\\    \\        ");
-System.out.println("        /:::/    /               /::::\\    \\              /::::\\    \\              /::::\\    \\       ");
-System.out.println("       /:::/    /               /::::::\\    \\            /::::::\\    \\            /::::::\\    \\      ");
-System.out.println("      /:::/    /               /:::/\\:::\\    \\          /:::/\\:::\\    \\          /:::/\\:::\\    \\     ");
-System.out.println("     /:::/____/               /:::/__\\:::\\    \\        /:::/__\\:::\\    \\        /:::/__\\:::\\    \\    ");
-System.out.println("    /::::\\    \\              /::::\\   \\:::\\    \\      /::::\\   \\:::\\    \\      /::::\\   \\:::\\    \\   ");
-System.out.println("   /::::::\\    \\   _____    /::::::\\   \\:::\\    \\    /::::::\\   \\:::\\    \\    /::::::\\   \\:::\\    \\  ");
-System.out.println("  /:::/\\:::\\    \\ /\\    \\  /:::/\\:::\\   \\:::\\    \\  /:::/\\:::\\   \\:::\\____\\  /:::/\\:::\\   \\:::\\    \\ ");
-System.out.println(" /:::/  \\:::\\    /::\\____\\/:::/__\\:::\\   \\:::\\____\\/:::/  \\:::\\   \\:::|    |/:::/__\\:::\\   \\:::\\____\\");
-System.out.println(" \\::/    \\:::\\  /:::/    /\\:::\\   \\:::\\   \\::/    /\\::/   |::::\\  /:::|____|\\:::\\   \\:::\\   \\::/    /");
-System.out.println("  \\/____/ \\:::\\/:::/    /  \\:::\\   \\:::\\   \\/____/  \\/____|:::::\\/:::/    /  \\:::\\   \\:::\\   \\/____/ ");
-System.out.println("           \\::::::/    /    \\:::\\   \\:::\\    \\            |:::::::::/    /    \\:::\\   \\:::\\    \\     ");
-System.out.println("            \\::::/    /      \\:::\\   \\:::\\____\\           |::|\\::::/    /      \\:::\\   \\:::\\____\\    ");
-System.out.println("            /:::/    /        \\:::\\   \\::/    /           |::| \\::/____/        \\:::\\   \\::/    /    ");
-System.out.println("           /:::/    /          \\:::\\   \\/____/            |::|  ~|               \\:::\\   \\/____/     ");
-System.out.println("          /:::/    /            \\:::\\    \\                |::|   |                \\:::\\    \\         ");
-System.out.println("         /:::/    /              \\:::\\____\\               \\::|   |                 \\:::\\____\\        ");
-System.out.println("         \\::/    /                \\::/    /                \\:|   |                  \\::/    /        ");
-System.out.println("          \\/____/                  \\/____/                  \\|___|                   \\/____/         ");
-System.out.println();
-System.out.println();
-System.out.println("           ___");
-System.out.println("          |_|_|");
-System.out.println("          |_|_|              _____");
-System.out.println("          |_|_|     ____    |*_*_*|");
-System.out.println(" _______   _\\__\\___/ __ \\____|_|_   _______");
-System.out.println("/ ____  |=|      \\  <_+>  /      |=|  ____ \\");
-System.out.println("~|    |\\|=|======\\\\______//======|=|/|    |~");
-System.out.println(" |_   |    \\      |      |      /    |    |");
-System.out.println("  \\==-|     \\     |  2D  |     /     |----|~~/");
-System.out.println("  |   |      |    |      |    |      |____/~/");
-System.out.println("  |   |       \\____\\____/____/      /    / /");
-System.out.println("  |   |         {----------}       /____/ /");
-System.out.println("  |___|        /~~~~~~~~~~~~\\     |_/~|_|/");
-System.out.println("   \\_/        |/~~~~~||~~~~~\\|     /__|\\");
-System.out.println("   | |         |    ||||    |     (/|| \\)");
-System.out.println("   | |        /     |  |     \\       \\\\");
-System.out.println("   |_|        |     |  |     |");
-System.out.println("              |_____|  |_____|");
-System.out.println("              (_____)  (_____)");
-System.out.println("              |     |  |     |");
-System.out.println("              |     |  |     |");
-System.out.println("              |/~~~\\|  |/~~~\\|");
-System.out.println("              /|___|\\  /|___|\\");
-System.out.println("             <_______><_______>");
+Console.info("             _____                    _____                    _____                    _____                    _____                _____           ");
+Console.info("            /\\    \\                  /\\    \\                  /\\    \\                  /\\    \\                  /\\    \\              |\\    \\         ");              
+Console.info("           /::\\    \\                /::\\    \\                /::\\    \\                /::\\    \\                /::\\    \\             |:\\____\\        ");              
+Console.info("          /::::\\    \\              /::::\\    \\              /::::\\    \\              /::::\\    \\              /::::\\    \\            |::|   |        ");                
+Console.info("         /::::::\\    \\            /::::::\\    \\            /::::::\\    \\            /::::::\\    \\            /::::::\\    \\           |::|   |        ");                
+Console.info("        /:::/\\:::\\    \\          /:::/\\:::\\    \\          /:::/\\:::\\    \\          /:::/\\:::\\    \\          /:::/\\:::\\    \\          |::|   |        ");           
+Console.info("       /:::/__\\:::\\    \\        /:::/__\\:::\\    \\        /:::/__\\:::\\    \\        /:::/  \\:::\\    \\        /:::/  \\:::\\    \\         |::|   |        ");           
+Console.info("      /::::\\   \\:::\\    \\      /::::\\   \\:::\\    \\      /::::\\   \\:::\\    \\      /:::/    \\:::\\    \\      /:::/    \\:::\\    \\        |::|   |        ");          
+Console.info("     /::::::\\   \\:::\\    \\    /::::::\\   \\:::\\    \\    /::::::\\   \\:::\\    \\    /:::/    / \\:::\\    \\    /:::/    / \\:::\\    \\       |::|___|______  ");        
+Console.info("    /:::/\\:::\\   \\:::\\____\\  /:::/\\:::\\   \\:::\\    \\  /:::/\\:::\\   \\:::\\    \\  /:::/    /   \\:::\\    \\  /:::/    /   \\:::\\    \\      /::::::::\\    \\ ");        
+Console.info("   /:::/  \\:::\\   \\:::|    |/:::/__\\:::\\   \\:::\\____\\/:::/  \\:::\\   \\:::\\____\\/:::/____/     \\:::\\____\\/:::/____/     \\:::\\____\\    /::::::::::\\____\\");          
+Console.info("   \\::/    \\:::\\  /:::|____|\\:::\\   \\:::\\   \\::/    /\\::/    \\:::\\  /:::/    /\\:::\\    \\      \\::/    /\\:::\\    \\      \\::/    /   /:::/~~~~/~~      ");                          
+Console.info("    \\/_____/\\:::\\/:::/    /  \\:::\\   \\:::\\   \\/____/  \\/____/ \\:::\\/:::/    /  \\:::\\    \\      \\/____/  \\:::\\    \\      \\/____/   /:::/    /         ");                          
+Console.info("             \\::::::/    /    \\:::\\   \\:::\\    \\               \\::::::/    /    \\:::\\    \\               \\:::\\    \\              /:::/    /          ");                          
+Console.info("              \\::::/    /      \\:::\\   \\:::\\____\\               \\::::/    /      \\:::\\    \\               \\:::\\    \\            /:::/    /           ");                          
+Console.info("               \\::/____/        \\:::\\   \\::/    /               /:::/    /        \\:::\\    \\               \\:::\\    \\           \\::/    /            ");                          
+Console.info("                ~~               \\:::\\   \\/____/               /:::/    /          \\:::\\    \\               \\:::\\    \\           \\/____/             ");                          
+Console.info("                                  \\:::\\    \\                  /:::/    /            \\:::\\    \\               \\:::\\    \\                              ");                          
+Console.info("                                   \\:::\\____\\                /:::/    /              \\:::\\____\\               \\:::\\____\\                             ");                          
+Console.info("                                    \\::/    /                \\::/    /                \\::/    /                \\::/    /                             ");                          
+Console.info("                                     \\/____/                  \\/____/                  \\/____/                  \\/____/                              ");                          
+Console.info("");
+Console.info("           _____                    _____                    _____           ");
+Console.info("          /\\    \\                  /\\    \\                  /\\    \\                   ");
+Console.info("         /::\\____\\                /::\\    \\                /::\\    \\                  ");
+Console.info("        /:::/    /               /::::\\    \\              /::::\\    \\                   ");
+Console.info("       /:::/   _/___            /::::::\\    \\            /::::::\\    \\                  ");
+Console.info("      /:::/   /\\    \\          /:::/\\:::\\    \\          /:::/\\:::\\    \\             ");
+Console.info("     /:::/   /::\\____\\        /:::/__\\:::\\    \\        /:::/__\\:::\\    \\            ");
+Console.info("    /:::/   /:::/    /       /::::\\   \\:::\\    \\       \\:::\\   \\:::\\    \\          ");
+Console.info("   /:::/   /:::/   _/___    /::::::\\   \\:::\\    \\    ___\\:::\\   \\:::\\    \\         ");
+Console.info("  /:::/___/:::/   /\\    \\  /:::/\\:::\\   \\:::\\    \\  /\\   \\:::\\   \\:::\\    \\    ");
+Console.info(" |:::|   /:::/   /::\\____\\/:::/  \\:::\\   \\:::\\____\\/::\\   \\:::\\   \\:::\\____\\   ");
+Console.info(" |:::|__/:::/   /:::/    /\\::/    \\:::\\  /:::/    /\\:::\\   \\:::\\   \\::/    /        ");
+Console.info("  \\:::\\/:::/   /:::/    /  \\/____/ \\:::\\/:::/    /  \\:::\\   \\:::\\   \\/____/       ");
+Console.info("   \\::::::/   /:::/    /            \\::::::/    /    \\:::\\   \\:::\\    \\              ");
+Console.info("    \\::::/___/:::/    /              \\::::/    /      \\:::\\   \\:::\\____\\             ");
+Console.info("     \\:::\\__/:::/    /               /:::/    /        \\:::\\  /:::/    /                ");
+Console.info("      \\::::::::/    /               /:::/    /          \\:::\\/:::/    /                  ");
+Console.info("       \\::::::/    /               /:::/    /            \\::::::/    /                    ");
+Console.info("        \\::::/    /               /:::/    /              \\::::/    /                     ");
+Console.info("         \\::/____/                \\::/    /                \\::/    /                     ");
+Console.info("          ~~                       \\/____/                  \\/____/                       ");
+Console.info("");
+Console.info("           _____                    _____                    _____                    _____          ");
+Console.info("          /\\    \\                  /\\    \\                  /\\    \\                  /\\    \\         ");
+Console.info("         /::\\____\\                /::\\    \\                /::\\    \\                /::\\    \\        ");
+Console.info("        /:::/    /               /::::\\    \\              /::::\\    \\              /::::\\    \\       ");
+Console.info("       /:::/    /               /::::::\\    \\            /::::::\\    \\            /::::::\\    \\      ");
+Console.info("      /:::/    /               /:::/\\:::\\    \\          /:::/\\:::\\    \\          /:::/\\:::\\    \\     ");
+Console.info("     /:::/____/               /:::/__\\:::\\    \\        /:::/__\\:::\\    \\        /:::/__\\:::\\    \\    ");
+Console.info("    /::::\\    \\              /::::\\   \\:::\\    \\      /::::\\   \\:::\\    \\      /::::\\   \\:::\\    \\   ");
+Console.info("   /::::::\\    \\   _____    /::::::\\   \\:::\\    \\    /::::::\\   \\:::\\    \\    /::::::\\   \\:::\\    \\  ");
+Console.info("  /:::/\\:::\\    \\ /\\    \\  /:::/\\:::\\   \\:::\\    \\  /:::/\\:::\\   \\:::\\____\\  /:::/\\:::\\   \\:::\\    \\ ");
+Console.info(" /:::/  \\:::\\    /::\\____\\/:::/__\\:::\\   \\:::\\____\\/:::/  \\:::\\   \\:::|    |/:::/__\\:::\\   \\:::\\____\\");
+Console.info(" \\::/    \\:::\\  /:::/    /\\:::\\   \\:::\\   \\::/    /\\::/   |::::\\  /:::|____|\\:::\\   \\:::\\   \\::/    /");
+Console.info("  \\/____/ \\:::\\/:::/    /  \\:::\\   \\:::\\   \\/____/  \\/____|:::::\\/:::/    /  \\:::\\   \\:::\\   \\/____/ ");
+Console.info("           \\::::::/    /    \\:::\\   \\:::\\    \\            |:::::::::/    /    \\:::\\   \\:::\\    \\     ");
+Console.info("            \\::::/    /      \\:::\\   \\:::\\____\\           |::|\\::::/    /      \\:::\\   \\:::\\____\\    ");
+Console.info("            /:::/    /        \\:::\\   \\::/    /           |::| \\::/____/        \\:::\\   \\::/    /    ");
+Console.info("           /:::/    /          \\:::\\   \\/____/            |::|  ~|               \\:::\\   \\/____/     ");
+Console.info("          /:::/    /            \\:::\\    \\                |::|   |                \\:::\\    \\         ");
+Console.info("         /:::/    /              \\:::\\____\\               \\::|   |                 \\:::\\____\\        ");
+Console.info("         \\::/    /                \\::/    /                \\:|   |                  \\::/    /        ");
+Console.info("          \\/____/                  \\/____/                  \\|___|                   \\/____/         ");
+Console.info("");
+Console.info("");
+Console.info("           ___");
+Console.info("          |_|_|");
+Console.info("          |_|_|              _____");
+Console.info("          |_|_|     ____    |*_*_*|");
+Console.info(" _______   _\\__\\___/ __ \\____|_|_   _______");
+Console.info("/ ____  |=|      \\  <_+>  /      |=|  ____ \\");
+Console.info("~|    |\\|=|======\\\\______//======|=|/|    |~");
+Console.info(" |_   |    \\      |      |      /    |    |");
+Console.info("  \\==-|     \\     |  2D  |     /     |----|~~/");
+Console.info("  |   |      |    |      |    |      |____/~/");
+Console.info("  |   |       \\____\\____/____/      /    / /");
+Console.info("  |   |         {----------}       /____/ /");
+Console.info("  |___|        /~~~~~~~~~~~~\\     |_/~|_|/");
+Console.info("   \\_/        |/~~~~~||~~~~~\\|     /__|\\");
+Console.info("   | |         |    ||||    |     (/|| \\)");
+Console.info("   | |        /     |  |     \\       \\\\");
+Console.info("   |_|        |     |  |     |");
+Console.info("              |_____|  |_____|");
+Console.info("              (_____)  (_____)");
+Console.info("              |     |  |     |");
+Console.info("              |     |  |     |");
+Console.info("              |/~~~\\|  |/~~~\\|");
+Console.info("              /|___|\\  /|___|\\");
+Console.info("             <_______><_______>");
         });
 
         // var wow = new ButtonMap(j);
@@ -0,0 +1,146 @@
+package frc.lib.swerve;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.mechanisms.swerve.SwerveModule;
+
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Everything about every module at one point in time, as arrays indexed by module.
+ * All the signals are grabbed once and refreshed together in one call, and the arrays are filled in place,
+ * so reading a module current or error is just an array lookup instead of its own signal fetch.
+ * Position, velocity and angle come from the odometry thread's cached state, so they don't touch CAN at all.
+ *
+ * Refresh it from one thread (once per loop). Reading it from other threads is fine for telemetry,
+ * but a reader can see half of one refresh and half of the next.
+ */
+public class ModuleSnapshot {
+    private static final int SIGNALS_PER_MODULE = 10;
+    private static final double TEMPERATURE_FREQUENCY = 4; //Hz
+
+    public final int moduleCount;
+
+    /* FROM ODOMETRY */
+    public final double[] drivePosition; //meters
+    public final double[] driveVelocity; //m/s
+    public final double[] angle; //radians
+
+    /* FROM SIGNALS */
+    public final double[] absoluteAngle; //rotations (cancoder)
+    public final double[] steerVelocity; //rotations per second (cancoder)
+    public final double[] steerError; //closed loop error
+    public final double[] driveError; //closed loop error
+    public final double[] driveStatorCurrent; //amps
+    public final double[] driveSupplyCurrent; //amps
+    public final double[] steerStatorCurrent; //amps
+    public final double[] steerSupplyCurrent; //amps
+    public final double[] driveTemperature; //celsius
+    public final double[] steerTemperature; //celsius
+
+    private volatile double totalDriveStatorCurrent = 0;
+    private volatile double timestamp = 0;
+
+    private final StatusSignal<?>[] signals;
+
+    /**
+     * @param modules the modules to snapshot
+     */
+    public ModuleSnapshot (SwerveModule[] modules) {
+        moduleCount = modules.length;
+        drivePosition = new double[moduleCount];
+        driveVelocity = new double[moduleCount];
+        angle = new double[moduleCount];
+        absoluteAngle = new double[moduleCount];
+        steerVelocity = new double[moduleCount];
+        steerError = new double[moduleCount];
+        driveError = new double[moduleCount];
+        driveStatorCurrent = new double[moduleCount];
+        driveSupplyCurrent = new double[moduleCount];
+        steerStatorCurrent = new double[moduleCount];
+        steerSupplyCurrent = new double[moduleCount];
+        driveTemperature = new double[moduleCount];
+        steerTemperature = new double[moduleCount];
+
+        signals = new StatusSignal<?>[moduleCount * SIGNALS_PER_MODULE];
+        for (int i = 0; i < moduleCount; i++) {
+            var drive = modules[i].getDriveMotor();
+            var steer = modules[i].getSteerMotor();
+            var encoder = modules[i].getCANcoder();
+            var o = i * SIGNALS_PER_MODULE;
+            signals[o] = encoder.getAbsolutePosition();
+            signals[o + 1] = encoder.getVelocity();
+            signals[o + 2] = steer.getClosedLoopError();
+            signals[o + 3] = drive.getClosedLoopError();
+            signals[o + 4] = drive.getStatorCurrent();
+            signals[o + 5] = drive.getSupplyCurrent();
+            signals[o + 6] = steer.getStatorCurrent();
+            signals[o + 7] = steer.getSupplyCurrent();
+            signals[o + 8] = drive.getDeviceTemp();
+            signals[o + 9] = steer.getDeviceTemp();
+        }
+    }
+
+    /**
+     * Refresh all the signals at once and fill everything in.
+     * @param states the cached module states from the odometry thread (can be null before the first update)
+     * @param positions the cached module positions from the odometry thread
+     * @param timestamp the time of this refresh in seconds
+     */
+    public void refresh (SwerveModuleState[] states, SwerveModulePosition[] positions, double timestamp) {
+        BaseStatusSignal.refreshAll(signals);
+
+        var total = 0.0;
+        for (int i = 0; i < moduleCount; i++) {
+            if(states != null) {
+                driveVelocity[i] = states[i].speedMetersPerSecond;
+                angle[i] = states[i].angle.getRadians();
+            }
+            if(positions != null) drivePosition[i] = positions[i].distanceMeters;
+
+            var o = i * SIGNALS_PER_MODULE;
+            absoluteAngle[i] = signals[o].getValueAsDouble();
+            steerVelocity[i] = signals[o + 1].getValueAsDouble();
+            steerError[i] = signals[o + 2].getValueAsDouble();
+            driveError[i] = signals[o + 3].getValueAsDouble();
+            driveStatorCurrent[i] = signals[o + 4].getValueAsDouble();
+            driveSupplyCurrent[i] = signals[o + 5].getValueAsDouble();
+            steerStatorCurrent[i] = signals[o + 6].getValueAsDouble();
+            steerSupplyCurrent[i] = signals[o + 7].getValueAsDouble();
+            driveTemperature[i] = signals[o + 8].getValueAsDouble();
+            steerTemperature[i] = signals[o + 9].getValueAsDouble();
+            total += driveStatorCurrent[i];
+        }
+        totalDriveStatorCurrent = total;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Set how fast the snapshot signals are sent. Temperatures change slowly so they're always sent at {@link #TEMPERATURE_FREQUENCY}.
+     * Needed after optimizing bus utilization, which turns off everything that isn't set.
+     * @param frequency the update frequency in Hz
+     */
+    public void setUpdateFrequency (double frequency) {
+        for (int i = 0; i < moduleCount; i++) {
+            var o = i * SIGNALS_PER_MODULE;
+            BaseStatusSignal.setUpdateFrequencyForAll(frequency, signals[o], signals[o + 1], signals[o + 2], signals[o + 3],
+                signals[o + 4], signals[o + 5], signals[o + 6], signals[o + 7]);
+            BaseStatusSignal.setUpdateFrequencyForAll(TEMPERATURE_FREQUENCY, signals[o + 8], signals[o + 9]);
+        }
+    }
+
+    /**
+     * @return the sum of the drive stator currents in amps (safe to read from any thread)
+     */
+    public double getTotalDriveStatorCurrent () {
+        return totalDriveStatorCurrent;
+    }
+
+    /**
+     * @return when this was last refreshed in seconds
+     */
+    public double getTimestamp () {
+        return timestamp;
+    }
+}
@@ -1,5 +1,7 @@
 package frc.lib.swerve;
 
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.CurrentLimitsConfigs;
 import com.ctre.phoenix6.configs.Slot0Configs;
 import com.ctre.phoenix6.hardware.ParentDevice;
@@ -9,10 +11,12 @@ import com.ctre.phoenix6.mechanisms.swerve.SwerveModule;
 import com.ctre.phoenix6.mechanisms.swerve.SwerveModuleConstants;
 import com.ctre.phoenix6.mechanisms.swerve.SwerveRequest;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
-import edu.wpi.first.math.geometry.Quaternion;
 import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
@@ -21,6 +25,7 @@ import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.wpilibj.RobotState;
 import edu.wpi.first.wpilibj.Timer;
+import frc.lib.util.Console;
 
 /**
  * OH MY LORD DONT MAKE ME EXTEND YOUR STUPID CLASS TO ADD BASIC FUNCTIONALITY.
@@ -38,13 +43,55 @@ import edu.wpi.first.wpilibj.Timer;
  * -Peaccy
  */
 public class PeaccefulSwerve extends SwerveDrivetrain {
-    private Rotation3d pigeonOdometryOffset = new Rotation3d();
-    private double visionZ = 0;
+    private double odometryFrequency = 0; //0 is CTRE's default
 
+    /* 3D POSE */
+    private static final double VISION_ATTITUDE_TIME_CONSTANT = 2; //seconds for vision to pull the pitch/roll bias and height most of the way
+    private static final double MAX_ODOMETRY_STEP = 0.1; //meters, bigger steps are resets or vision
+    private static final double FLAT_TILT = Math.toRadians(2); //tilt under which we're just on the floor
+    private static final double FLAT_HEIGHT_DECAY = 0.02; //per update, how fast the height goes back to 0 on the floor
 
+    private final StatusSignal<Double> quatW = m_pigeon2.getQuatW();
+    private final StatusSignal<Double> quatX = m_pigeon2.getQuatX();
+    private final StatusSignal<Double> quatY = m_pigeon2.getQuatY();
+    private final StatusSignal<Double> quatZ = m_pigeon2.getQuatZ();
+    private final BaseStatusSignal[] attitudeSignals = {quatW, quatX, quatY, quatZ};
+
+    //shared between the odometry thread and vision on the main thread
+    private final Object attitudeLock = new Object();
+    private double rollBias = 0, pitchBias = 0; //pigeon mounting error, corrected by vision
+    private double lastImuRoll = 0, lastImuPitch = 0;
+    private double height = 0;
+    private double tiltCorrectionX = 0, tiltCorrectionY = 0; //how much less horizontal distance we went than 2d odometry thinks
+    private double lastOdometryX = 0, lastOdometryY = 0;
+    private double lastVisionTime = Double.NaN;
+    private volatile Pose3d pose3d = new Pose3d();
+
+    //pigeon signals for the pose estimator, grabbed once and refreshed together
+    private final StatusSignal<Double> accelerationX = m_pigeon2.getAccelerationX();
+    private final StatusSignal<Double> accelerationY = m_pigeon2.getAccelerationY();
+    private final StatusSignal<Double> gravityX = m_pigeon2.getGravityVectorX();
+    private final StatusSignal<Double> gravityY = m_pigeon2.getGravityVectorY();
+    private final StatusSignal<Double> yawRate = m_pigeon2.getAngularVelocityZWorld();
+    private final BaseStatusSignal[] imuSignals = {accelerationX, accelerationY, gravityX, gravityY, yawRate};
+    //the rio bus is CAN 2.0, at the odometry rate these would add about a quarter of the bus (8 frames * 250 Hz * ~130 bits)
+    private static final double IMU_AUX_FREQUENCY = 100; //Hz, for the quaternion, acceleration and gravity
+    private static final double GRAVITY = 9.80665; //m/s^2
+
+    //every module signal we care about outside of odometry, refreshed together once a loop
+    private final ModuleSnapshot moduleSnapshot = new ModuleSnapshot(Modules);
+    private static final double MODULE_SNAPSHOT_FREQUENCY = 50; //Hz, about the main loop rate
+    private static final Console.Site TEST_MODE_WARNING = Console.site(1); //spinAngleMotors gets called every loop
+
+    /**
+     * @param OdometryUpdateFrequency how fast to run the odometry thread in Hz.
+     * CTRE sets the odometry signals to this rate, this also raises the other signals read on the odometry thread to match.
+     */
     public PeaccefulSwerve(SwerveDrivetrainConstants driveTrainConstants, double OdometryUpdateFrequency,
-            SwerveModuleConstants[] modules) {
+            SwerveModuleConstants... modules) {
         super(driveTrainConstants, OdometryUpdateFrequency, modules);
+        this.odometryFrequency = OdometryUpdateFrequency;
+        setOdometryThreadSignalFrequency(OdometryUpdateFrequency);
     }
 
     public PeaccefulSwerve(SwerveDrivetrainConstants driveTrainConstants,
@@ -61,6 +108,57 @@ public class PeaccefulSwerve extends SwerveDrivetrain {
         for(SwerveModule i : Modules) {
             ParentDevice.optimizeBusUtilizationForAll(i.getCANcoder(), i.getDriveMotor(), i.getSteerMotor());
         }
+        if(odometryFrequency > 0) setOdometryThreadSignalFrequency(odometryFrequency);
+        moduleSnapshot.setUpdateFrequency(MODULE_SNAPSHOT_FREQUENCY);
+    }
+
+    /**
+     * Set the rate of the signals that aren't odometry signals but still get read on the odometry thread.
+     * Only the yaw rate goes at the odometry rate, the pigeon quaternion (for the 3d pose) and acceleration (for the pose estimator
+     * and traction control) are capped at {@link #IMU_AUX_FREQUENCY} so they don't crowd the bus, the odometry thread just reuses
+     * the last value in between. Drive current comes from the module snapshot at the main loop rate.
+     * @param frequency the odometry update frequency in Hz
+     */
+    public void setOdometryThreadSignalFrequency(double frequency) {
+        var auxFrequency = Math.min(frequency, IMU_AUX_FREQUENCY);
+        BaseStatusSignal.setUpdateFrequencyForAll(frequency, yawRate);
+        BaseStatusSignal.setUpdateFrequencyForAll(auxFrequency, attitudeSignals);
+        BaseStatusSignal.setUpdateFrequencyForAll(auxFrequency, accelerationX, accelerationY, gravityX, gravityY);
+    }
+
+    /**
+     * refresh the pigeon acceleration and yaw rate all at once (doesn't allocate)
+     */
+    public void refreshImuSignals() {
+        BaseStatusSignal.refreshAll(imuSignals);
+    }
+
+    /**
+     * @return robot relative x acceleration with gravity taken out, in m/s^2 (as of the last {@link #refreshImuSignals()})
+     */
+    public double getLinearAccelerationX() {
+        return (accelerationX.getValue() - gravityX.getValue()) * GRAVITY;
+    }
+
+    /**
+     * @return robot relative y acceleration with gravity taken out, in m/s^2 (as of the last {@link #refreshImuSignals()})
+     */
+    public double getLinearAccelerationY() {
+        return (accelerationY.getValue() - gravityY.getValue()) * GRAVITY;
+    }
+
+    /**
+     * @return yaw rate in rad/s, counterclockwise positive (as of the last {@link #refreshImuSignals()})
+     */
+    public double getYawRate() {
+        return Math.toRadians(yawRate.getValue());
+    }
+
+    /**
+     * @return the odometry frequency this was made with in Hz, 0 for CTRE's default
+     */
+    public double getOdometryFrequency() {
+        return odometryFrequency;
     }
 
 
@@ -83,29 +181,40 @@ public class PeaccefulSwerve extends SwerveDrivetrain {
     }
 
     /**
-     * get angle motor closed loop errors for all modules 
-     * @return a double array of the closed loop errors
+     * where the modules are relative to the center of the robot, in the same order as the modules
+     */
+    public Translation2d[] getModuleLocations() {
+        return m_moduleLocations;
+    }
+
+    /**
+     * refresh the module snapshot, all the module signals at once. call this once a loop (doesn't allocate)
+     */
+    public void refreshModuleSnapshot() {
+        moduleSnapshot.refresh(getState().ModuleStates, m_modulePositions, Timer.getFPGATimestamp());
+    }
+
+    /**
+     * the module snapshot, filled in place by {@link #refreshModuleSnapshot()}. don't hang on to the arrays expecting them to stay the same.
+     */
+    public ModuleSnapshot getModuleSnapshot() {
+        return moduleSnapshot;
+    }
+
+    /**
+     * get angle motor closed loop errors for all modules, as of the last snapshot
+     * @return a double array of the closed loop errors (reused, don't change it)
      */
     public double[] getAngleClosedLoopErrors() {
-        double[] errors = new double[4];
-        int i = 0;
-        for (SwerveModule module : Modules) {
-            errors[i] = module.getSteerMotor().getClosedLoopError().getValueAsDouble();
-        }
-        return errors;
+        return moduleSnapshot.steerError;
     }
 
     /**
-     * get drive motor closed loop errors for all modules
-     * @return a double array of the closed loop errors
+     * get drive motor closed loop errors for all modules, as of the last snapshot
+     * @return a double array of the closed loop errors (reused, don't change it)
      */
     public double[] getDriveClosedLoopErrors() {
-        double[] errors = new double[4];
-        int i = 0;
-        for (SwerveModule module : Modules) {
-            errors[i] = module.getDriveMotor().getClosedLoopError().getValueAsDouble();
-        }
-        return errors;
+        return moduleSnapshot.driveError;
     }
 
     /**
@@ -141,73 +250,152 @@ public class PeaccefulSwerve extends SwerveDrivetrain {
         }
     }
 
+    /**
+     * Update the 3d pose from the latest odometry. Call once per odometry update, on the odometry thread.
+     * Pitch and roll come from the pigeon (gravity keeps them honest) plus a mounting bias that vision slowly corrects.
+     * The wheels only ever move the robot along whatever it's sitting on, so when the robot is tilted (riding up on a note or the stage)
+     * each step of wheel odometry is tipped by the tilt: only part of it is actually horizontal, the rest is height.
+     * CTRE's 2d odometry counts all of it as horizontal, so we keep track of the difference.
+     * @param odometryPose CTRE's odometry pose from this update
+     */
+    public void update3d(Pose2d odometryPose) {
+        BaseStatusSignal.refreshAll(attitudeSignals);
+        var w = quatW.getValue();
+        var x = quatX.getValue();
+        var y = quatY.getValue();
+        var z = quatZ.getValue();
+        var imuRoll = Math.atan2(2 * (w * x + y * z), 1 - 2 * (x * x + y * y));
+        var imuPitch = Math.asin(MathUtil.clamp(2 * (w * y - z * x), -1, 1));
+
+        synchronized (attitudeLock) {
+            lastImuRoll = imuRoll;
+            lastImuPitch = imuPitch;
+            var roll = imuRoll + rollBias;
+            var pitch = imuPitch + pitchBias;
+
+            var heading = odometryPose.getRotation().getRadians();
+            var dx = odometryPose.getX() - lastOdometryX;
+            var dy = odometryPose.getY() - lastOdometryY;
+            lastOdometryX = odometryPose.getX();
+            lastOdometryY = odometryPose.getY();
+
+            //anything bigger than this in one update is a reset or vision, not the wheels
+            if(Math.hypot(dx, dy) < MAX_ODOMETRY_STEP) {
+                //the step in the robot frame
+                var cos = Math.cos(heading);
+                var sin = Math.sin(heading);
+                var bodyX = dx * cos + dy * sin;
+                var bodyY = -dx * sin + dy * cos;
+
+                //tip it by the roll and pitch
+                var cosRoll = Math.cos(roll);
+                var sinRoll = Math.sin(roll);
+                var cosPitch = Math.cos(pitch);
+                var sinPitch = Math.sin(pitch);
+                var levelX = bodyX * cosPitch + bodyY * sinRoll * sinPitch;
+                var levelY = bodyY * cosRoll;
+                var rise = -bodyX * sinPitch + bodyY * sinRoll * cosPitch;
+
+                //back to the field frame
+                tiltCorrectionX += levelX * cos - levelY * sin - dx;
+                tiltCorrectionY += levelX * sin + levelY * cos - dy;
+                height += rise;
+            }
+
+            //on flat ground the floor is the floor
+            if(Math.abs(roll) < FLAT_TILT && Math.abs(pitch) < FLAT_TILT) height *= 1 - FLAT_HEIGHT_DECAY;
+
+            pose3d = new Pose3d(
+                new Translation3d(odometryPose.getX() + tiltCorrectionX, odometryPose.getY() + tiltCorrectionY, height),
+                new Rotation3d(roll, pitch, heading)
+            );
+        }
+    }
+
+    /**
+     * The 3d pose as of the last {@link #update3d}. Doesn't touch CAN, so it's free to call.
+     * @return the 3d pose (blue origin)
+     */
     public Pose3d getPose3d(){
-        var odometry = getState().Pose;
-        var imu = new Rotation3d(new Quaternion(
-            m_pigeon2.getQuatW().getValueAsDouble(), 
-            m_pigeon2.getQuatX().getValueAsDouble(),
-            m_pigeon2.getQuatY().getValueAsDouble(),
-            m_pigeon2.getQuatZ().getValueAsDouble()
-        ));//.minus(pigeonOdometryOffset);
-        return new Pose3d(new Translation3d(odometry.getX(), odometry.getY(), visionZ), imu);
+        return pose3d;
     }
 
     @Override
     public void tareEverything(){
-        //TODO zero pigeon for 3d pose
         super.tareEverything();
+        synchronized (attitudeLock) {
+            rollBias = 0;
+            pitchBias = 0;
+            height = 0;
+            tiltCorrectionX = 0;
+            tiltCorrectionY = 0;
+            lastVisionTime = Double.NaN;
+        }
     }
 
-    public void updateVision(Pose3d pose, double latency, Matrix<N3, N1> stdevs){
-        //TODO update pigeon offset
-        visionZ = pose.getTranslation().getZ();
+    /**
+     * Add a vision measurement, for the 2d odometry and the 3d attitude and height.
+     * @param pose the (combined) 2d vision pose
+     * @param pose3d the full 3d vision pose
+     * @param timestamp when the picture was taken in seconds
+     * @param stdevs the vision standard deviations (x, y, heading)
+     * @param numTags how many tags were seen (pitch and roll from one tag aren't worth anything)
+     */
+    public void updateVision(Pose2d pose, Pose3d pose3d, double timestamp, Matrix<N3, N1> stdevs, int numTags){
+        //write the vision pose to the odometry
+        addVisionMeasurement(pose, timestamp, stdevs);
 
-        var imu = new Rotation3d(new Quaternion(
-            m_pigeon2.getQuatW().getValueAsDouble(), 
-            m_pigeon2.getQuatX().getValueAsDouble(),
-            m_pigeon2.getQuatY().getValueAsDouble(),
-            m_pigeon2.getQuatZ().getValueAsDouble()
-        )).minus(pigeonOdometryOffset);
+        synchronized (attitudeLock) {
+            var dt = Double.isNaN(lastVisionTime) ? 0 : Math.max(0, timestamp - lastVisionTime);
+            lastVisionTime = timestamp;
+            if(dt == 0) return;
 
-        //update pigeon offset with vision, by moving it towards the vision pose by a small multiple (for now)
-        //TODO better way of doing this
-        var visionOffset = pose.getRotation().minus(imu).times(0.02);
-        pigeonOdometryOffset = pigeonOdometryOffset.plus(visionOffset);
+            //complementary filter: the pigeon is good over short times, vision keeps it from wandering over long times.
+            //the less we trust vision the slower it pulls
+            var timeConstant = VISION_ATTITUDE_TIME_CONSTANT * (1 + stdevs.get(0, 0));
+            var gain = dt / (timeConstant + dt);
 
-        //write the vision pose to the odometry
-        addVisionMeasurement(pose.toPose2d(), Timer.getFPGATimestamp() - latency, stdevs);
+            //vision just corrected the 2d pose, so the tilt correction we were holding onto is already baked in
+            tiltCorrectionX *= 1 - gain;
+            tiltCorrectionY *= 1 - gain;
+            height += gain * (pose3d.getZ() - height);
+
+            if(numTags < 2) return;
+            var rotation = pose3d.getRotation();
+            rollBias += gain * (MathUtil.angleModulus(rotation.getX() - lastImuRoll) - rollBias);
+            pitchBias += gain * (MathUtil.angleModulus(rotation.getY() - lastImuPitch) - pitchBias);
+        }
     }
 
     public double getModuleSteerCurrent(int i) {
-        return Modules[i].getSteerMotor().getStatorCurrent().getValueAsDouble();
+        return moduleSnapshot.steerStatorCurrent[i];
     }
 
     public double getModuleDriveCurrent(int i) {
-        return Modules[i].getDriveMotor().getStatorCurrent().getValueAsDouble();
+        return moduleSnapshot.driveStatorCurrent[i];
     }
 
     public double getModuleAngle(int i) {
-        return Modules[i].getCANcoder().getAbsolutePosition().getValueAsDouble();
+        return moduleSnapshot.absoluteAngle[i];
     }
 
     public double getModuleAngleError(int i) {
-        return Modules[i].getSteerMotor().getClosedLoopError().getValueAsDouble();
+        return moduleSnapshot.steerError[i];
     }
 
     public double getModuleRotationalRate(int i) {
-        return Modules[i].getCANcoder().getVelocity().getValueAsDouble();
+        return moduleSnapshot.steerVelocity[i];
     }
 
     public double getModuleDriveError(int i) {
-        return Modules[i].getDriveMotor().getClosedLoopError().getValueAsDouble();
+        return moduleSnapshot.driveError[i];
     }
 
+    /**
+     * the total drive stator current as of the last snapshot, safe to call from the odometry thread
+     */
     public double getTotalDriveCurrent(){
-        double total = 0;
-        for (SwerveModule module : Modules) {
-            total += module.getDriveMotor().getStatorCurrent().getValueAsDouble();
-        }
-        return total;
+        return moduleSnapshot.getTotalDriveStatorCurrent();
     }
 
     /**
@@ -216,7 +404,7 @@ public class PeaccefulSwerve extends SwerveDrivetrain {
      */
     public void spinAngleMotors(double speed) {
         if(!RobotState.isTest()){
-            System.err.println("WARNING (PeaccefulSwerve.spinAngleMotors): This method can only be used in test mode.");
+            TEST_MODE_WARNING.warning("PeaccefulSwerve.spinAngleMotors can only be used in test mode.");
             return;
         }
         setControl(new SwerveRequest.Idle());
@@ -1,5 +1,6 @@
 package frc.lib.swerve;
 
+import java.lang.invoke.VarHandle;
 import java.util.LinkedList;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
@@ -15,13 +16,14 @@ import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.math.trajectory.TrapezoidProfile.State;
 import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.lib.motion.Trajectory;
 import frc.lib.telemetry.SwerveTelemetry;
 import frc.lib.util.AllianceFlipUtil;
+import frc.lib.util.Console;
 import frc.lib.util.Util;
 import frc.robot.subsystems.Swerve;
 
@@ -59,23 +61,17 @@ import frc.robot.subsystems.Swerve;
 public class PeaccyRequest implements SwerveRequest {
 
     /* INPUT PARAMETERS */
-    public double VelocityX = 0;
-    public double VelocityY = 0;
-    public double RotationalRate = 0;
-    public double Heading = 0; //will hold both the target heading when explicitly set, and the current heading when holding the heading
-    public double RotationalDeadband = 0;
-    public double LockHeadingVelocity = 0;
-
-    public boolean HoldHeading = false; //keeps the robot facing Heading unless RotationalRate is over the RotationalDeadband
-    public boolean LockHeading = false; //HoldHeading but way faster and more aggressive
-    public boolean SoftHoldHeading = false; //scales HoldHeading by an allowed total drive current draw to prevent tread wear and brownouts
-    public boolean IsOpenLoop = false; //if true, the robot will not use the drive velocity controller
-    public boolean IsFieldCentric = false; //if false, position correction will not be applied
-
-    //integrates the requested velocities on top of the past robot pose to figure out where we actually wanted the robot to be,
-    //and modify the requested velocities to compensate for the error
-    public double PositionCorrectionIterations = 0; //how many past inputs to integrate
-    public double PositionCorrectionWeight = 1;
+    //the with methods fill this in on the main thread, and publish() hands it to the odometry thread all at once.
+    //the odometry thread never sees it half written, and it never waits for the main thread.
+    private final Parameters pending = new Parameters(); //main thread only
+    private final Parameters[] published = {new Parameters(), new Parameters()};
+    private volatile long publishedVersion = 0; //odd while the main thread is copying into the buffer that isn't being read
+    private final Parameters applied = new Parameters(); //odometry thread only, what apply() actually uses
+
+    //the heading we're holding, owned by the odometry thread since it updates it to the current heading while rotating.
+    //only replaced by the published heading when the main thread actually sets a new one.
+    private double heading = 0;
+    private long appliedHeadingVersion = 0;
 
     /* HEADING CONTROLLER */
     private Trajectory headingTrajectory = new Trajectory(new TrapezoidProfile.State(0, 0)); //make it smooth
@@ -109,6 +105,16 @@ public class PeaccyRequest implements SwerveRequest {
     private final SlewRateLimiter currentLimitSmoother = new SlewRateLimiter(10); //limit the amps per second for the current to change, to help find equilibrium.
     private double maxLinearVelocity;
 
+    /* SETPOINT GENERATOR */
+    private SwerveSetpointGenerator setpointGenerator = null; //null to send the raw kinematics straight to the modules
+
+    /* TRACTION CONTROL */
+    private TractionController tractionController = null; //null to let the slip current limit handle it
+
+    /* TELEOP SAMPLING */
+    private TeleopSampler teleopSampler = null; //null to only use the velocities from the main thread
+    private final double[] sampledVelocities = new double[3];
+
 
     /**
      * The most epic swerve request ever. Does all the things.
@@ -152,20 +158,70 @@ public class PeaccyRequest implements SwerveRequest {
         robotMovingTimer.start();
         robotNotMovingTimer.start();
 
-        System.out.println("PeaccyRequest Initialized");
+        Console.info("PeaccyRequest Initialized");
+    }
+
+    /**
+     * Hand everything set with the with methods to the odometry thread, all at once.
+     * Call this from the main thread after setting up the request for this loop, before driving with it.
+     * Doesn't allocate or lock.
+     * @return this (so you can chain em nicely :D)
+     */
+    public PeaccyRequest publish() {
+        var version = publishedVersion;
+        //write into the buffer that isn't the latest, so the odometry thread can keep reading the latest while we copy
+        var target = published[(int) ((version >> 1) + 1) & 1];
+        publishedVersion = version + 1;
+        VarHandle.storeStoreFence();
+        target.copyFrom(pending);
+        publishedVersion = version + 2;
+        return this;
+    }
+
+    /**
+     * grab the latest published parameters into applied. only call this from the odometry thread.
+     * it only has to try again if the main thread publishes twice while we're copying, which is like never.
+     */
+    private void readPublished() {
+        while (true) {
+            var version = publishedVersion;
+            //if it's odd the main thread is writing the other buffer, so the one at this index is still complete
+            var index = (int) (version >> 1) & 1;
+            applied.copyFrom(published[index]);
+            VarHandle.loadLoadFence();
+            //the main thread starts writing this buffer again on the second publish after this version
+            if(publishedVersion < (version & ~1L) + 3) return;
+        }
     }
 
     @Override
     public StatusCode apply(SwerveControlRequestParameters parameters, SwerveModule... modulesToApply) {
-        Translation2d toApplyTranslation = new Translation2d(VelocityX, VelocityY);
-        double toApplyRotation = RotationalRate;
+        readPublished();
+        if(applied.headingVersion != appliedHeadingVersion) {
+            heading = applied.heading;
+            appliedHeadingVersion = applied.headingVersion;
+        }
 
-        if(IsOpenLoop) {
+        var velocityX = applied.velocityX;
+        var velocityY = applied.velocityY;
+        var rotationalRate = applied.rotationalRate;
+        //let the sampler smooth the sticks at the odometry rate instead of using what the main loop smoothed
+        if(applied.sampleTeleop && teleopSampler != null) {
+            teleopSampler.sample(sampledVelocities);
+            velocityX = sampledVelocities[0];
+            velocityY = sampledVelocities[1];
+            rotationalRate = sampledVelocities[2];
+        }
+
+        Translation2d toApplyTranslation = new Translation2d(velocityX, velocityY);
+        double toApplyRotation = rotationalRate;
+
+        if(applied.isOpenLoop) {
             toApplyTranslation = toApplyTranslation.times(12/maxLinearVelocity);
         }
 
         //position correction only works for field centric :|
-        if(IsFieldCentric) toApplyTranslation = applyPositionCorrection(toApplyTranslation, parameters.currentPose, parameters.updatePeriod);
+        if(applied.isFieldCentric) toApplyTranslation = applyPositionCorrection(toApplyTranslation, parameters.currentPose, parameters.updatePeriod);
 
         if(toApplyTranslation.getNorm() < 0.1){
             robotMovingTimer.reset();
@@ -176,45 +232,74 @@ public class PeaccyRequest implements SwerveRequest {
         }
 
         //we only do auto heading if there is no manually requested rotational rate
-        if(Math.abs(toApplyRotation) <= RotationalDeadband) {
+        if(Math.abs(toApplyRotation) <= applied.rotationalDeadband) {
             toApplyRotation = 0;
-            if ((HoldHeading || SoftHoldHeading)) {
+            if ((applied.holdHeading || applied.softHoldHeading)) {
                 toApplyRotation = applyAutoHeading(parameters);
             } 
         } else {
             //Update the set heading to the current heading. This means that when there is no rotational rate requested,
             //the robot will hold its current heading if HoldHeading or SoftHoldHeading is true,
             //unless Heading is explicitly set to something else.
-            Heading = Swerve.getInstance().getPose().getRotation().getRadians();
-            if(AllianceFlipUtil.shouldFlip()) Heading += Math.PI;
+            heading = Swerve.getInstance().getPose().getRotation().getRadians();
+            if(AllianceFlipUtil.shouldFlip()) heading += Math.PI;
         }
 
-        SmartDashboard.putNumber("Requested X Velocity", toApplyTranslation.getX());
-        SmartDashboard.putNumber("Requested Y Velocity", toApplyTranslation.getY());
-        
+        SwerveTelemetry.updateAppliedVelocity(toApplyTranslation.getX(), toApplyTranslation.getY());
 
         //very standard ChassisSpeeds blah blah blah.
-        ChassisSpeeds speeds = ChassisSpeeds.discretize(
-            IsFieldCentric ? ChassisSpeeds.fromFieldRelativeSpeeds(
-                toApplyTranslation.getX(), 
-                toApplyTranslation.getY(), 
-                toApplyRotation,
-                parameters.currentPose.getRotation()
-            ) : new ChassisSpeeds(
-                toApplyTranslation.getX(), 
-                toApplyTranslation.getY(), 
-                toApplyRotation
-            ),
-            parameters.updatePeriod
+        ChassisSpeeds speeds = applied.isFieldCentric ? ChassisSpeeds.fromFieldRelativeSpeeds(
+            toApplyTranslation.getX(), 
+            toApplyTranslation.getY(), 
+            toApplyRotation,
+            parameters.currentPose.getRotation()
+        ) : new ChassisSpeeds(
+            toApplyTranslation.getX(), 
+            toApplyTranslation.getY(), 
+            toApplyRotation
         );
+        //the setpoint generator's second order kinematics already compensates for the skew
+        if(setpointGenerator == null) speeds = ChassisSpeeds.discretize(speeds, parameters.updatePeriod);
 
         //wowie make it go.
-        var states = parameters.kinematics.toSwerveModuleStates(speeds, new Translation2d());
+        SwerveModuleState[] states;
+        if(setpointGenerator != null) {
+            //only ask for what the modules can actually do by the next update
+            setpointGenerator.generate(
+                parameters.swervePositions,
+                modulesToApply,
+                parameters.currentChassisSpeed,
+                speeds.vxMetersPerSecond,
+                speeds.vyMetersPerSecond,
+                speeds.omegaRadiansPerSecond,
+                parameters.timestamp,
+                parameters.updatePeriod
+            );
+            states = setpointGenerator.getModuleStates();
+        } else {
+            states = parameters.kinematics.toSwerveModuleStates(speeds, new Translation2d());
+        }
+
+        //take torque off the wheels that are spinning out
+        if(tractionController != null) {
+            var commandScale = applied.isOpenLoop ? 12/maxLinearVelocity : 1;
+            tractionController.apply(
+                states,
+                modulesToApply,
+                parameters.swervePositions,
+                (setpointGenerator != null ? setpointGenerator.getSetpointVx() : speeds.vxMetersPerSecond) / commandScale,
+                (setpointGenerator != null ? setpointGenerator.getSetpointVy() : speeds.vyMetersPerSecond) / commandScale,
+                parameters.timestamp,
+                parameters.updatePeriod,
+                commandScale
+            );
+            SwerveTelemetry.updateTractionControl(tractionController.getSlipRatios(), tractionController.getCommandScales());
+        }
 
         SwerveTelemetry.updateRequestedState(states);
 
         for (int i = 0; i < modulesToApply.length; ++i) {
-            modulesToApply[i].apply(states[i], IsOpenLoop ? DriveRequestType.OpenLoopVoltage : DriveRequestType.Velocity, SteerRequestType.MotionMagic); //TODO change to motion magic expo
+            modulesToApply[i].apply(states[i], applied.isOpenLoop ? DriveRequestType.OpenLoopVoltage : DriveRequestType.Velocity, SteerRequestType.MotionMagic); //TODO change to motion magic expo
         }
 
         return StatusCode.OK;
@@ -226,7 +311,7 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :D)
      */
     public PeaccyRequest withVelocityX(double velocityX) {
-        this.VelocityX = velocityX;
+        pending.velocityX = velocityX;
         return this;
     }
 
@@ -236,7 +321,7 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :D)
      */
     public PeaccyRequest withVelocityY(double velocityY) {
-        this.VelocityY = velocityY;
+        pending.velocityY = velocityY;
         return this;
     }
 
@@ -247,7 +332,7 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :D)
      */
     public PeaccyRequest withRotationalRate(double rotationalRate) {
-        this.RotationalRate = rotationalRate;
+        pending.rotationalRate = rotationalRate;
         return this;
     }
 
@@ -258,7 +343,8 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :D)
      */
     public PeaccyRequest withHeading(double heading) {
-        this.Heading = heading;
+        pending.heading = heading;
+        pending.headingVersion++;
         return this;
     }
 
@@ -269,7 +355,7 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :D)
      */
     public PeaccyRequest withRotationalDeadband(double rotationalDeadband) {
-        this.RotationalDeadband = rotationalDeadband;
+        pending.rotationalDeadband = rotationalDeadband;
         return this;
     }
 
@@ -279,7 +365,7 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :D)
      */
     public PeaccyRequest withHoldHeading(boolean holdHeading) {
-        this.HoldHeading = holdHeading;
+        pending.holdHeading = holdHeading;
         return this;
     }
 
@@ -289,7 +375,7 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :D)
      */
     public PeaccyRequest withLockHeading(boolean lockHeading) {
-        this.LockHeading = lockHeading;
+        pending.lockHeading = lockHeading;
         return this;
     }
 
@@ -299,7 +385,7 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :I)
      */
     public PeaccyRequest withLockHeadingVelocity(double lockHeadingVelocity) {
-        this.LockHeadingVelocity = lockHeadingVelocity;
+        pending.lockHeadingVelocity = lockHeadingVelocity;
         return this;
     }
 
@@ -311,7 +397,7 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :D)
      */
     public PeaccyRequest withSoftHoldHeading(boolean softHoldHeading) {
-        this.SoftHoldHeading = softHoldHeading;
+        pending.softHoldHeading = softHoldHeading;
         return this;
     }
 
@@ -322,7 +408,7 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :D)
      */
     public PeaccyRequest withIsOpenLoop(boolean isOpenLoop) {
-        this.IsOpenLoop = isOpenLoop;
+        pending.isOpenLoop = isOpenLoop;
         return this;
     }
 
@@ -335,7 +421,50 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :D)
      */
     public PeaccyRequest withIsFieldCentric(boolean isFieldCentric) {
-        this.IsFieldCentric = isFieldCentric;
+        pending.isFieldCentric = isFieldCentric;
+        return this;
+    }
+
+    /**
+     * Limit the module setpoints to what the modules can actually reach by the next update
+     * (acceleration, steering rate, free speed) instead of sending the raw kinematics.
+     * @param setpointGenerator the generator to use, or null to turn it off
+     * @return this (so you can chain em nicely :D)
+     */
+    public PeaccyRequest withSetpointGenerator(SwerveSetpointGenerator setpointGenerator) {
+        this.setpointGenerator = setpointGenerator;
+        return this;
+    }
+
+    /**
+     * Back off the modules that are spinning out.
+     * @param tractionController the traction controller to use, or null to turn it off
+     * @return this (so you can chain em nicely :D)
+     */
+    public PeaccyRequest withTractionController(TractionController tractionController) {
+        this.tractionController = tractionController;
+        return this;
+    }
+
+    /**
+     * Give the request a way to read the driver's sticks itself, on the odometry thread.
+     * Only used while {@link #withSampleTeleop(boolean)} is true.
+     * @param teleopSampler the sampler, or null to turn it off
+     * @return this (so you can chain em nicely :D)
+     */
+    public PeaccyRequest withTeleopSampler(TeleopSampler teleopSampler) {
+        this.teleopSampler = teleopSampler;
+        return this;
+    }
+
+    /**
+     * Set whether to get the velocities from the teleop sampler every update, instead of the ones from withVelocityX/Y and withRotationalRate.
+     * The sticks only change once a main loop either way (see HIDSnapshot), this just smooths them every update.
+     * @param sampleTeleop whether to use the teleop sampler
+     * @return this (so you can chain em nicely :D)
+     */
+    public PeaccyRequest withSampleTeleop(boolean sampleTeleop) {
+        pending.sampleTeleop = sampleTeleop;
         return this;
     }
 
@@ -348,7 +477,7 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :D)
      */
     public PeaccyRequest withPositionCorrectionIterations(double positionCorrectionIterations) {
-        this.PositionCorrectionIterations = positionCorrectionIterations;
+        pending.positionCorrectionIterations = positionCorrectionIterations;
         return this;
     }
 
@@ -358,7 +487,7 @@ public class PeaccyRequest implements SwerveRequest {
      * @return this (so you can chain em nicely :D)
      */
     public PeaccyRequest withPositionCorrectionWeight(double positionCorrectionWeight) {
-        this.PositionCorrectionWeight = Util.limit(positionCorrectionWeight,0,1);
+        pending.positionCorrectionWeight = Util.limit(positionCorrectionWeight,0,1);
         return this;
     }
     
@@ -372,8 +501,8 @@ public class PeaccyRequest implements SwerveRequest {
         if(AllianceFlipUtil.shouldFlip()) currentHeading += Math.PI;
 
         //make sure our odometry heading is within +/- 180 degrees of the target heading to prevent it from wrapping LIKE CTRE DOES >:(
-        while (Math.abs(currentHeading - Heading) > Math.PI) {
-            if (currentHeading > Heading) {
+        while (Math.abs(currentHeading - heading) > Math.PI) {
+            if (currentHeading > heading) {
                 currentHeading -= 2 * Math.PI;
             } else {
                 currentHeading += 2 * Math.PI;
@@ -381,12 +510,12 @@ public class PeaccyRequest implements SwerveRequest {
         }
 
         //regenerate the trajectory if the target heading has changed
-        if(Heading != headingTrajectory.getTarget().position || Math.abs(currentHeading - prevHeading) > (Math.PI/4)) {
+        if(heading != headingTrajectory.getTarget().position || Math.abs(currentHeading - prevHeading) > (Math.PI/4)) {
             headingTrajectory = Trajectory.trapezoidTrajectory(
                 new State(currentHeading, 0), 
-                new State(Heading, 0), 
-                LockHeading ? lockHeadingVelocity : holdHeadingVelocity,
-                LockHeading ? lockHeadingAcceleration : holdHeadingAcceleration 
+                new State(heading, 0), 
+                applied.lockHeading ? lockHeadingVelocity : holdHeadingVelocity,
+                applied.lockHeading ? lockHeadingAcceleration : holdHeadingAcceleration 
             );
             
             holdHeadingTrajectoryTimer.reset();
@@ -398,36 +527,36 @@ public class PeaccyRequest implements SwerveRequest {
         
         //calculate the correction
         var target = headingTrajectory.calculate(holdHeadingTrajectoryTimer.get() + (parameters.updatePeriod*1.5));
-        if (LockHeading) {
-            target.position = Heading;
-            target.velocity = LockHeadingVelocity;
+        if (applied.lockHeading) {
+            target.position = heading;
+            target.velocity = applied.lockHeadingVelocity;
         }
-        var kP = LockHeading ? lockHeadingkP : holdHeadingkP;
+        var kP = applied.lockHeading ? lockHeadingkP : holdHeadingkP;
         var error = target.position - currentHeading;
 
         var acceleration = (target.velocity - getChassisSpeeds.get().omegaRadiansPerSecond);
 
-        if(robotMovingTimer.get() < 0.3 && Math.abs(error) < 0.01 && !LockHeading){
+        if(robotMovingTimer.get() < 0.3 && Math.abs(error) < 0.01 && !applied.lockHeading){
             return 0;
         }
 
         var feedforward = headingFeedforward.calculate(target.velocity, acceleration);
         var pGain = error * kP * parameters.updatePeriod;
-        if(SoftHoldHeading) {
+        if(applied.softHoldHeading) {
             var currentDraw = currentLimitSmoother.calculate(totalDriveCurrent.getAsDouble());
             pGain = pGain * compress(currentDraw, totalDriveCurrentLimit, CURRENT_LIMIT_THRESHOLD);
         }
         var delta = pGain + feedforward;
 
         SwerveTelemetry.updateAutoHeading(
-            Heading,
+            heading,
             error,
             pGain,
             feedforward,
             target.velocity,
             acceleration,
             target.position,
-            SoftHoldHeading
+            applied.softHoldHeading
         );
 
         return delta;
@@ -441,16 +570,16 @@ public class PeaccyRequest implements SwerveRequest {
      * @return the more gooder velocity
      */
     private Translation2d applyPositionCorrection(Translation2d requestedTranslation, Pose2d currentPose, double updatePeriod){
-        if(PositionCorrectionIterations == 0) return requestedTranslation;
+        if(applied.positionCorrectionIterations == 0) return requestedTranslation;
 
         positionCorrectionRealPositions.add(currentPose.getTranslation());
         positionCorrectionRequestedVelocities.add(requestedTranslation);
 
-        if (positionCorrectionRealPositions.size() > PositionCorrectionIterations) {
+        if (positionCorrectionRealPositions.size() > applied.positionCorrectionIterations) {
             positionCorrectionRealPositions.removeFirst();
         }
 
-        if (positionCorrectionRequestedVelocities.size() > PositionCorrectionIterations) {
+        if (positionCorrectionRequestedVelocities.size() > applied.positionCorrectionIterations) {
             positionCorrectionRequestedVelocities.removeFirst();
         }
 
@@ -470,7 +599,7 @@ public class PeaccyRequest implements SwerveRequest {
             realPositionDelta
         );
 
-        Translation2d newRequestedVelocity = requestedTranslation.plus(positionError.times(PositionCorrectionWeight));
+        Translation2d newRequestedVelocity = requestedTranslation.plus(positionError.times(applied.positionCorrectionWeight));
         return newRequestedVelocity;
     }
 
@@ -489,4 +618,59 @@ public class PeaccyRequest implements SwerveRequest {
         var linear = (limit/l)-((1/l)*value);
         return Util.limit(linear, 0, 1);
     }
+
+    /**
+     * Reads and smooths the driver's inputs, called on the odometry thread every update.
+     * Has to be safe to call from there and shouldn't allocate.
+     */
+    public interface TeleopSampler {
+        /**
+         * @param velocities where to put the requested [x velocity, y velocity, rotational rate]
+         */
+        void sample(double[] velocities);
+    }
+
+    /**
+     * Everything the main thread tells the request, in one block so it can be copied between threads in one go.
+     * Plain fields on purpose, {@link PeaccyRequest#publish()} is what makes handing it over safe.
+     */
+    private static final class Parameters {
+        double velocityX = 0;
+        double velocityY = 0;
+        double rotationalRate = 0;
+        double heading = 0; //the target heading when explicitly set
+        long headingVersion = 0; //goes up every time the heading is set, so a held heading isn't overwritten by an old target
+        double rotationalDeadband = 0;
+        double lockHeadingVelocity = 0;
+
+        boolean holdHeading = false; //keeps the robot facing heading unless rotationalRate is over the rotationalDeadband
+        boolean lockHeading = false; //holdHeading but way faster and more aggressive
+        boolean softHoldHeading = false; //scales holdHeading by an allowed total drive current draw to prevent tread wear and brownouts
+        boolean isOpenLoop = false; //if true, the robot will not use the drive velocity controller
+        boolean isFieldCentric = false; //if false, position correction will not be applied
+        boolean sampleTeleop = false; //if true, the velocities come from the teleop sampler instead
+
+        //integrates the requested velocities on top of the past robot pose to figure out where we actually wanted the robot to be,
+        //and modify the requested velocities to compensate for the error
+        double positionCorrectionIterations = 0; //how many past inputs to integrate
+        double positionCorrectionWeight = 1;
+
+        void copyFrom(Parameters other) {
+            velocityX = other.velocityX;
+            velocityY = other.velocityY;
+            rotationalRate = other.rotationalRate;
+            heading = other.heading;
+            headingVersion = other.headingVersion;
+            rotationalDeadband = other.rotationalDeadband;
+            lockHeadingVelocity = other.lockHeadingVelocity;
+            holdHeading = other.holdHeading;
+            lockHeading = other.lockHeading;
+            softHoldHeading = other.softHoldHeading;
+            isOpenLoop = other.isOpenLoop;
+            isFieldCentric = other.isFieldCentric;
+            sampleTeleop = other.sampleTeleop;
+            positionCorrectionIterations = other.positionCorrectionIterations;
+            positionCorrectionWeight = other.positionCorrectionWeight;
+        }
+    }
 }
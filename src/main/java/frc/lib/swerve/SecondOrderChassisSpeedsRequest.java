@@ -0,0 +1,105 @@
+package frc.lib.swerve;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.mechanisms.swerve.SwerveModule;
+import com.ctre.phoenix6.mechanisms.swerve.SwerveRequest;
+import com.ctre.phoenix6.mechanisms.swerve.SwerveModule.DriveRequestType;
+import com.ctre.phoenix6.mechanisms.swerve.SwerveModule.SteerRequestType;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import frc.lib.telemetry.SwerveTelemetry;
+
+/**
+ * Drop in replacement for CTRE's ApplyChassisSpeeds (robot relative) that uses {@link SecondOrderSwerveKinematics},
+ * so paths that rotate while they translate don't drift off to the side.
+ * The acceleration comes from how the requested speeds change between calls to {@link #withSpeeds(ChassisSpeeds)}.
+ * The main thread sets the speeds and the odometry thread applies them, so the setpoint is handed over as one immutable object.
+ */
+public class SecondOrderChassisSpeedsRequest implements SwerveRequest {
+    private static final double MAX_ACCELERATION_DT = 0.1; //seconds, longer than this between setpoints and we assume no acceleration
+
+    private final SecondOrderSwerveKinematics kinematics;
+    private DriveRequestType driveRequestType = DriveRequestType.Velocity;
+
+    private volatile Setpoint setpoint = new Setpoint(0, 0, 0, 0, 0, 0);
+    private double lastSetpointTime = Double.NaN;
+
+    /**
+     * @param kinematics the kinematics to use. Only use it for this request, it keeps its results between updates.
+     */
+    public SecondOrderChassisSpeedsRequest (SecondOrderSwerveKinematics kinematics) {
+        this.kinematics = kinematics;
+    }
+
+    @Override
+    public StatusCode apply (SwerveControlRequestParameters parameters, SwerveModule... modulesToApply) {
+        var setpoint = this.setpoint;
+        kinematics.calculate(
+            parameters.swervePositions,
+            setpoint.vx, setpoint.vy, setpoint.omega,
+            setpoint.ax, setpoint.ay, setpoint.alpha,
+            parameters.updatePeriod
+        );
+        var states = kinematics.getModuleStates();
+
+        SwerveTelemetry.updateRequestedState(states);
+
+        for (int i = 0; i < modulesToApply.length; ++i) {
+            modulesToApply[i].apply(states[i], driveRequestType, SteerRequestType.MotionMagic);
+        }
+        return StatusCode.OK;
+    }
+
+    /**
+     * Set the robot relative speeds to drive at. Call this from one thread only.
+     * @param speeds the robot relative chassis speeds
+     * @return this
+     */
+    public SecondOrderChassisSpeedsRequest withSpeeds (ChassisSpeeds speeds) {
+        var now = Timer.getFPGATimestamp();
+        var last = setpoint;
+        var dt = now - lastSetpointTime;
+        lastSetpointTime = now;
+
+        if(Double.isNaN(dt) || dt <= 0 || dt > MAX_ACCELERATION_DT) {
+            setpoint = new Setpoint(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond, 0, 0, 0);
+        } else {
+            setpoint = new Setpoint(
+                speeds.vxMetersPerSecond,
+                speeds.vyMetersPerSecond,
+                speeds.omegaRadiansPerSecond,
+                (speeds.vxMetersPerSecond - last.vx) / dt,
+                (speeds.vyMetersPerSecond - last.vy) / dt,
+                (speeds.omegaRadiansPerSecond - last.omega) / dt
+            );
+        }
+        return this;
+    }
+
+    /**
+     * @param driveRequestType how to control the drive motors
+     * @return this
+     */
+    public SecondOrderChassisSpeedsRequest withDriveRequestType (DriveRequestType driveRequestType) {
+        this.driveRequestType = driveRequestType;
+        return this;
+    }
+
+    /**
+     * Robot relative speeds and how fast they're changing
+     */
+    private static class Setpoint {
+        public final double vx, vy, omega;
+        public final double ax, ay, alpha;
+
+        public Setpoint (double vx, double vy, double omega, double ax, double ay, double alpha) {
+            this.vx = vx;
+            this.vy = vy;
+            this.omega = omega;
+            this.ax = ax;
+            this.ay = ay;
+            this.alpha = alpha;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package frc.lib.swerve;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Swerve inverse kinematics that also looks at the chassis acceleration, so it can figure out
+ * how fast each module needs to steer and where each module needs to be pointing by the time the command actually takes effect.
+ *
+ * First order kinematics (what toSwerveModuleStates does) assumes the robot-relative velocity stays put for the whole update.
+ * But when we translate and rotate at the same time the robot turns underneath the command before the next update,
+ * so the robot drifts in the direction it's rotating. This rotates the translation back by however much the robot
+ * will have turned by the middle of the next update plus the actuation delay (skew compensation),
+ * and looks ahead along the acceleration by the same amount.
+ *
+ * Everything is preallocated after the first call, so it's safe to use on the odometry thread.
+ */
+public class SecondOrderSwerveKinematics {
+    private static final double STOPPED_SPEED = 1e-3; //m/s, slower than this and we keep the last angle
+
+    private final double actuationDelay;
+
+    private double[] moduleVx = new double[0];
+    private double[] moduleVy = new double[0];
+    private double[] moduleSteerVelocity = new double[0];
+    private double[] moduleAcceleration = new double[0];
+    private SwerveModuleState[] moduleStates = new SwerveModuleState[0];
+
+    /**
+     * @param actuationDelay how long it takes for a module command to actually do anything (CAN + motor response), in seconds
+     */
+    public SecondOrderSwerveKinematics (double actuationDelay) {
+        this.actuationDelay = actuationDelay;
+    }
+
+    /**
+     * Calculate the module velocities, steer velocities and accelerations.
+     * Read them with the getters, or {@link #getModuleStates()}.
+     * @param modulePositions where the modules are relative to the center of the robot
+     * @param vx robot relative x velocity in m/s
+     * @param vy robot relative y velocity in m/s
+     * @param omega angular velocity in rad/s
+     * @param ax rate of change of the robot relative x velocity command in m/s^2
+     * @param ay rate of change of the robot relative y velocity command in m/s^2
+     * @param alpha angular acceleration in rad/s^2
+     * @param dt the time until the next update in seconds
+     */
+    public void calculate (Translation2d[] modulePositions,
+                           double vx, double vy, double omega,
+                           double ax, double ay, double alpha,
+                           double dt) {
+        if(moduleVx.length != modulePositions.length) allocate(modulePositions.length);
+
+        //the robot relative command changes just from the robot turning underneath it, take that out to get the real acceleration
+        var trueAx = ax - omega * vy;
+        var trueAy = ay + omega * vx;
+
+        var lookahead = dt / 2 + actuationDelay;
+
+        //where the chassis velocity is going to be, in the frame the robot will be in by then
+        var futureVx = vx + trueAx * lookahead;
+        var futureVy = vy + trueAy * lookahead;
+        var skew = -omega * lookahead;
+        var cos = Math.cos(skew);
+        var sin = Math.sin(skew);
+        var compensatedVx = futureVx * cos - futureVy * sin;
+        var compensatedVy = futureVx * sin + futureVy * cos;
+        var compensatedOmega = omega + alpha * lookahead;
+
+        for (int i = 0; i < modulePositions.length; i++) {
+            var x = modulePositions[i].getX();
+            var y = modulePositions[i].getY();
+
+            var mvx = compensatedVx - compensatedOmega * y;
+            var mvy = compensatedVy + compensatedOmega * x;
+
+            //how fast the module's velocity vector is changing in the robot frame
+            var max = ax - alpha * y;
+            var may = ay + alpha * x;
+
+            var speedSquared = mvx * mvx + mvy * mvy;
+            moduleVx[i] = mvx;
+            moduleVy[i] = mvy;
+            if(speedSquared < STOPPED_SPEED * STOPPED_SPEED) {
+                moduleSteerVelocity[i] = 0;
+                moduleAcceleration[i] = 0;
+            } else {
+                moduleSteerVelocity[i] = (mvx * may - mvy * max) / speedSquared;
+                moduleAcceleration[i] = (mvx * max + mvy * may) / Math.sqrt(speedSquared);
+            }
+        }
+    }
+
+    /**
+     * Fill the module states from the last {@link #calculate}.
+     * Modules that are stopped keep their last angle.
+     * @return the module states. These are reused every call, don't hang on to them.
+     */
+    public SwerveModuleState[] getModuleStates () {
+        for (int i = 0; i < moduleStates.length; i++) {
+            var speed = Math.hypot(moduleVx[i], moduleVy[i]);
+            moduleStates[i].speedMetersPerSecond = speed < STOPPED_SPEED ? 0 : speed;
+            if(speed >= STOPPED_SPEED) moduleStates[i].angle = new Rotation2d(moduleVx[i], moduleVy[i]);
+        }
+        return moduleStates;
+    }
+
+    /**
+     * @return the robot relative x velocity of a module in m/s
+     */
+    public double getModuleVx (int module) {
+        return moduleVx[module];
+    }
+
+    /**
+     * @return the robot relative y velocity of a module in m/s
+     */
+    public double getModuleVy (int module) {
+        return moduleVy[module];
+    }
+
+    /**
+     * @return how fast a module needs to steer to keep up, in rad/s (steer feedforward)
+     */
+    public double getModuleSteerVelocity (int module) {
+        return moduleSteerVelocity[module];
+    }
+
+    /**
+     * @return the acceleration of a module along the direction it's driving, in m/s^2
+     */
+    public double getModuleAcceleration (int module) {
+        return moduleAcceleration[module];
+    }
+
+    private void allocate (int moduleCount) {
+        moduleVx = new double[moduleCount];
+        moduleVy = new double[moduleCount];
+        moduleSteerVelocity = new double[moduleCount];
+        moduleAcceleration = new double[moduleCount];
+        moduleStates = new SwerveModuleState[moduleCount];
+        for (int i = 0; i < moduleCount; i++) moduleStates[i] = new SwerveModuleState();
+    }
+}
@@ -38,6 +38,7 @@ public class SwerveDescription {
      * @param angleGains the PID gains for the steer motors
      * @param pigeonCANId the CAN bus ID of the pigeon
      * @param invertSteerMotors whether or not to invert the steer motors
+     * @param odometryFrequency how fast to run odometry (and the signals it uses) in Hz
      * @return a CTRE swerve drivetrain
      */
     public static PeaccefulSwerve generateDrivetrain (
@@ -53,7 +54,8 @@ public class SwerveDescription {
                                 PidGains driveGains,
                                 PidGains angleGains,
                                 int pigeonCANId,
-                                boolean invertSteerMotors){
+                                boolean invertSteerMotors,
+                                double odometryFrequency){
         SwerveDrivetrainConstants swerveConstants = new SwerveDrivetrainConstants()
                                                     .withPigeon2Id(pigeonCANId)
                                                     .withCANbusName("rio");
@@ -116,6 +118,7 @@ public class SwerveDescription {
 
         return new PeaccefulSwerve(
             swerveConstants,
+            odometryFrequency,
             frontLeft,
             frontRight,
             rearLeft,
@@ -460,13 +460,16 @@ public class SwerveSelfCheck extends Command {
         }
 
         public static ModuleIterData getModuleData(int i, PeaccefulSwerve swerve, double setpoint){
+            //the snapshot is refreshed once a loop by the swerve subsystem
+            var snapshot = swerve.getModuleSnapshot();
+            var angle = Math.abs(snapshot.absoluteAngle[i]);
             return new ModuleIterData(
-                swerve.getModuleSteerCurrent(i),
-                swerve.getModuleDriveCurrent(i),
-                Math.abs(swerve.getModuleAngle(i)),
-                Math.abs(swerve.getModuleAngle(i)) - setpoint,
-                swerve.getModuleRotationalRate(i),
-                swerve.getModuleDriveError(i)
+                snapshot.steerStatorCurrent[i],
+                snapshot.driveStatorCurrent[i],
+                angle,
+                angle - setpoint,
+                snapshot.steerVelocity[i],
+                snapshot.driveError[i]
             );
         }
     }
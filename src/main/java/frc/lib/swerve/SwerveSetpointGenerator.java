@@ -0,0 +1,189 @@
+package frc.lib.swerve;
+
+import com.ctre.phoenix6.mechanisms.swerve.SwerveModule;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.lib.swerve.SwerveDescription.Physics;
+
+/**
+ * Turns the chassis speeds we want into module setpoints the modules can actually reach by the next update.
+ * Plain inverse kinematics will happily ask a module to flip direction or jump to full speed in one update,
+ * which just makes the modules fight each other and spikes the drive current.
+ * This keeps track of the last setpoint and:
+ *  - slows the whole chassis down together if any wheel would go over the free speed
+ *  - moves the chassis setpoint only as far toward the target as the worst module's acceleration limit allows
+ *  - limits how fast each module steers, and scales the wheel speed by how far it still has to steer
+ *    so wheels don't drive sideways while they're turning.
+ * The module vectors come from {@link SecondOrderSwerveKinematics}, fed with how fast the setpoint is changing,
+ * so the modules are already pointed where they need to be by the time the command takes effect.
+ * Made to run on the odometry thread, so it doesn't allocate anything after the first update
+ * (other than the Rotation2d for a module whose angle actually changed).
+ */
+public class SwerveSetpointGenerator {
+    private static final double STOPPED_SPEED = 1e-3; //m/s, slower than this and we don't bother steering
+    private static final double RESET_TIMEOUT = 0.1; //seconds without an update before we start over from the measured state
+
+    private final double maxModuleSpeed;
+    private final double maxModuleAcceleration;
+    private final double maxSteerVelocity;
+    private final SecondOrderSwerveKinematics kinematics;
+
+    //the last setpoint, robot relative
+    private double setpointVx = 0, setpointVy = 0, setpointOmega = 0;
+    private double lastTimestamp = Double.NaN;
+
+    private double[] moduleSpeeds = new double[0];
+    private double[] moduleAngles = new double[0];
+    private SwerveModuleState[] moduleStates = new SwerveModuleState[0];
+
+    /**
+     * @param physics the drivetrain physics (the free speed is the max module speed)
+     * @param maxModuleAcceleration the most any one module can accelerate, in m/s^2
+     * @param maxSteerVelocity the fastest a module can steer, in rad/s
+     * @param kinematics the kinematics to turn the chassis setpoint into module vectors
+     */
+    public SwerveSetpointGenerator (Physics physics, double maxModuleAcceleration, double maxSteerVelocity, SecondOrderSwerveKinematics kinematics) {
+        this.maxModuleSpeed = physics.freeSpeed;
+        this.maxModuleAcceleration = maxModuleAcceleration;
+        this.maxSteerVelocity = maxSteerVelocity;
+        this.kinematics = kinematics;
+    }
+
+    /**
+     * Generate the next setpoint. Read it with {@link #getModuleStates()} and {@link #getSetpointVx()} etc.
+     * @param modulePositions where the modules are relative to the center of the robot
+     * @param modules the modules, to start over from where they're actually pointing
+     * @param currentSpeeds the measured robot relative chassis speeds, to start over from
+     * @param vx the wanted robot relative x velocity in m/s
+     * @param vy the wanted robot relative y velocity in m/s
+     * @param omega the wanted angular velocity in rad/s
+     * @param timestamp the time of this update in seconds
+     * @param dt the time until the next update in seconds
+     */
+    public void generate (Translation2d[] modulePositions, SwerveModule[] modules, ChassisSpeeds currentSpeeds,
+                          double vx, double vy, double omega, double timestamp, double dt) {
+        if(moduleSpeeds.length != modulePositions.length) allocate(modulePositions.length);
+        if(Double.isNaN(lastTimestamp) || timestamp - lastTimestamp > RESET_TIMEOUT) reset(modules, currentSpeeds);
+        lastTimestamp = timestamp;
+
+        //don't ask for more than the wheels can do, and slow everything down together so we still go the right direction
+        var fastestModule = 0.0;
+        for (int i = 0; i < modulePositions.length; i++) {
+            var x = modulePositions[i].getX();
+            var y = modulePositions[i].getY();
+            fastestModule = Math.max(fastestModule, Math.hypot(vx - omega * y, vy + omega * x));
+        }
+        if(fastestModule > maxModuleSpeed) {
+            var scale = maxModuleSpeed / fastestModule;
+            vx *= scale;
+            vy *= scale;
+            omega *= scale;
+        }
+
+        //go as far from the last setpoint toward the new one as the module with the biggest change can accelerate
+        var dvx = vx - setpointVx;
+        var dvy = vy - setpointVy;
+        var dOmega = omega - setpointOmega;
+        var maxStep = maxModuleAcceleration * dt;
+        var fraction = 1.0;
+        for (int i = 0; i < modulePositions.length; i++) {
+            var x = modulePositions[i].getX();
+            var y = modulePositions[i].getY();
+            var moduleChange = Math.hypot(dvx - dOmega * y, dvy + dOmega * x);
+            if(moduleChange * fraction > maxStep) fraction = maxStep / moduleChange;
+        }
+        setpointVx += dvx * fraction;
+        setpointVy += dvy * fraction;
+        setpointOmega += dOmega * fraction;
+
+        kinematics.calculate(
+            modulePositions,
+            setpointVx, setpointVy, setpointOmega,
+            dvx * fraction / dt, dvy * fraction / dt, dOmega * fraction / dt,
+            dt
+        );
+
+        //limit how fast the modules steer
+        var maxSteerStep = maxSteerVelocity * dt;
+        for (int i = 0; i < modulePositions.length; i++) {
+            var moduleVx = kinematics.getModuleVx(i);
+            var moduleVy = kinematics.getModuleVy(i);
+            var speed = Math.hypot(moduleVx, moduleVy);
+
+            if(speed < STOPPED_SPEED) {
+                //leave the module pointed wherever it was
+                moduleSpeeds[i] = 0;
+                continue;
+            }
+
+            var error = MathUtil.angleModulus(Math.atan2(moduleVy, moduleVx) - moduleAngles[i]);
+            //never steer more than 90 degrees, just drive the other way
+            if(Math.abs(error) > Math.PI / 2) {
+                error = MathUtil.angleModulus(error + Math.PI);
+                speed = -speed;
+            }
+
+            var step = MathUtil.clamp(error, -maxSteerStep, maxSteerStep);
+            moduleAngles[i] = MathUtil.angleModulus(moduleAngles[i] + step);
+            //only push as much as the wheel is pointed the right way
+            moduleSpeeds[i] = speed * Math.cos(error - step);
+        }
+
+        for (int i = 0; i < moduleStates.length; i++) {
+            moduleStates[i].speedMetersPerSecond = moduleSpeeds[i];
+            if(moduleStates[i].angle.getRadians() != moduleAngles[i]) moduleStates[i].angle = new Rotation2d(moduleAngles[i]);
+        }
+    }
+
+    /**
+     * Start over from the measured state of the drivetrain
+     * (after being disabled, or after another request has been driving the modules)
+     */
+    private void reset (SwerveModule[] modules, ChassisSpeeds currentSpeeds) {
+        setpointVx = currentSpeeds.vxMetersPerSecond;
+        setpointVy = currentSpeeds.vyMetersPerSecond;
+        setpointOmega = currentSpeeds.omegaRadiansPerSecond;
+        for (int i = 0; i < moduleAngles.length && i < modules.length; i++) {
+            moduleAngles[i] = modules[i].getCurrentState().angle.getRadians();
+        }
+    }
+
+    private void allocate (int moduleCount) {
+        moduleSpeeds = new double[moduleCount];
+        moduleAngles = new double[moduleCount];
+        moduleStates = new SwerveModuleState[moduleCount];
+        for (int i = 0; i < moduleCount; i++) moduleStates[i] = new SwerveModuleState();
+    }
+
+    /**
+     * The module states for the last setpoint. These are reused every update, don't hang on to them.
+     */
+    public SwerveModuleState[] getModuleStates () {
+        return moduleStates;
+    }
+
+    /**
+     * @return the robot relative x velocity of the last setpoint in m/s
+     */
+    public double getSetpointVx () {
+        return setpointVx;
+    }
+
+    /**
+     * @return the robot relative y velocity of the last setpoint in m/s
+     */
+    public double getSetpointVy () {
+        return setpointVy;
+    }
+
+    /**
+     * @return the angular velocity of the last setpoint in rad/s
+     */
+    public double getSetpointOmega () {
+        return setpointOmega;
+    }
+}
@@ -0,0 +1,151 @@
+package frc.lib.swerve;
+
+import java.util.function.DoubleSupplier;
+
+import com.ctre.phoenix6.mechanisms.swerve.SwerveModule;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Traction control for the drive motors. The slip current limit only stops the wheels from slipping
+ * at whatever current we guessed once, this watches each wheel and backs off only the ones that are actually slipping.
+ *
+ * The slip ratio of a module is how much faster the wheel is spinning than the ground is moving under it,
+ * relative to the ground speed. The ground speed can't come from the wheels, or all four spinning up together
+ * (like when we're pushing) would look like no slip at all. Instead it's integrated from the pigeon's acceleration,
+ * and the rotation comes straight from the pigeon's yaw rate. The integrated speed drifts, so it's slowly pulled toward
+ * the commanded chassis speed, which means a slip that lasts much longer than the time constant stops being seen.
+ * When a module is spinning out in the direction we're pushing it, its command is cut back to what it would be at the max slip ratio,
+ * which takes torque off of it. The modules that still have grip are left alone, raising their setpoints would make the
+ * module states stop matching one chassis motion and the modules would fight each other.
+ *
+ * Made to run on the odometry thread, it changes the module states in place and doesn't allocate after the first update.
+ */
+public class TractionController {
+    private static final double RESET_TIMEOUT = 0.1; //seconds without an update before the ground speed starts over
+
+    private final double maxSlipRatio;
+    private final double speedFloor;
+    private final double smoothing;
+    private final double groundSpeedTimeConstant;
+    private final DoubleSupplier accelerationX, accelerationY, yawRate;
+
+    //robot relative ground speed in m/s
+    private double groundVx = 0, groundVy = 0;
+    private double lastTimestamp = Double.NaN;
+
+    private double[] slipRatios = new double[0];
+    private double[] commandScales = new double[0];
+
+    /**
+     * @param maxSlipRatio the most a wheel is allowed to slip before we take torque off of it
+     * @param speedFloor speed in m/s added under the ground speed so the ratio doesn't blow up when starting from a stop
+     * @param smoothing how much of each new slip ratio to take, 0-1 (1 is no smoothing)
+     * @param groundSpeedTimeConstant how long in seconds the integrated ground speed takes to settle on the commanded speed
+     * @param accelerationX robot relative x acceleration with gravity taken out, in m/s^2
+     * @param accelerationY robot relative y acceleration with gravity taken out, in m/s^2
+     * @param yawRate yaw rate in rad/s, counterclockwise positive
+     */
+    public TractionController (double maxSlipRatio, double speedFloor, double smoothing, double groundSpeedTimeConstant,
+                               DoubleSupplier accelerationX, DoubleSupplier accelerationY, DoubleSupplier yawRate) {
+        this.maxSlipRatio = maxSlipRatio;
+        this.speedFloor = speedFloor;
+        this.smoothing = smoothing;
+        this.groundSpeedTimeConstant = groundSpeedTimeConstant;
+        this.accelerationX = accelerationX;
+        this.accelerationY = accelerationY;
+        this.yawRate = yawRate;
+    }
+
+    /**
+     * Cut back the slipping modules.
+     * @param states the module states about to be sent, changed in place
+     * @param modules the modules, for the measured wheel speeds
+     * @param modulePositions where the modules are relative to the center of the robot
+     * @param commandedVx the commanded robot relative x velocity in m/s
+     * @param commandedVy the commanded robot relative y velocity in m/s
+     * @param timestamp the time of this update in seconds
+     * @param dt the time since the last update in seconds
+     * @param commandScale what the module speeds have been multiplied by to get the command (e.g. for open loop), 1 if they're in m/s
+     */
+    public void apply (SwerveModuleState[] states, SwerveModule[] modules, Translation2d[] modulePositions,
+                       double commandedVx, double commandedVy, double timestamp, double dt, double commandScale) {
+        if(slipRatios.length != states.length) allocate(states.length);
+        var omega = yawRate.getAsDouble();
+        updateGroundSpeed(commandedVx, commandedVy, omega, timestamp, dt);
+
+        for (int i = 0; i < states.length; i++) {
+            var current = modules[i].getCurrentState();
+            var cos = current.angle.getCos();
+            var sin = current.angle.getSin();
+
+            //how fast the ground is going under the wheel, in the direction the wheel is pointed
+            var moduleGroundVx = groundVx - omega * modulePositions[i].getY();
+            var moduleGroundVy = groundVy + omega * modulePositions[i].getX();
+            var ground = moduleGroundVx * cos + moduleGroundVy * sin;
+
+            var slip = (current.speedMetersPerSecond - ground) / (Math.abs(ground) + speedFloor);
+            slipRatios[i] += smoothing * (slip - slipRatios[i]);
+
+            //the part of the command along where the wheel is pointed right now
+            var command = states[i].speedMetersPerSecond / commandScale
+                * (states[i].angle.getCos() * cos + states[i].angle.getSin() * sin);
+            var direction = Math.signum(command);
+
+            commandScales[i] = 1;
+            if(direction == 0 || slipRatios[i] * direction <= maxSlipRatio) continue;
+
+            //what the wheel speed would be at the max slip ratio
+            var limit = (ground + direction * maxSlipRatio * (Math.abs(ground) + speedFloor)) * direction;
+            var limited = Math.max(0, Math.min(Math.abs(command), limit));
+            commandScales[i] = limited / Math.abs(command);
+            states[i].speedMetersPerSecond *= commandScales[i];
+        }
+    }
+
+    /**
+     * Integrate the pigeon's acceleration into the robot relative ground speed,
+     * pulling it toward the commanded speed so the drift doesn't build up.
+     */
+    private void updateGroundSpeed (double commandedVx, double commandedVy, double omega, double timestamp, double dt) {
+        if(Double.isNaN(lastTimestamp) || timestamp - lastTimestamp > RESET_TIMEOUT) {
+            groundVx = commandedVx;
+            groundVy = commandedVy;
+        }
+        lastTimestamp = timestamp;
+
+        //the robot turned under the velocity we had, so carry it into the new robot frame
+        var turn = -omega * dt;
+        var cos = Math.cos(turn);
+        var sin = Math.sin(turn);
+        var vx = groundVx * cos - groundVy * sin;
+        var vy = groundVx * sin + groundVy * cos;
+
+        vx += accelerationX.getAsDouble() * dt;
+        vy += accelerationY.getAsDouble() * dt;
+
+        var blend = dt / (groundSpeedTimeConstant + dt);
+        groundVx = vx + blend * (commandedVx - vx);
+        groundVy = vy + blend * (commandedVy - vy);
+    }
+
+    private void allocate (int moduleCount) {
+        slipRatios = new double[moduleCount];
+        commandScales = new double[moduleCount];
+    }
+
+    /**
+     * The smoothed slip ratio of each module. Reused every update, don't hang on to it.
+     */
+    public double[] getSlipRatios () {
+        return slipRatios;
+    }
+
+    /**
+     * What each module's command was multiplied by in the last update. Reused every update, don't hang on to it.
+     */
+    public double[] getCommandScales () {
+        return commandScales;
+    }
+}
@@ -0,0 +1,705 @@
+package frc.lib.swerve;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * Unscented Kalman filter for the robot pose, fusing the module odometry, the pigeon and vision together
+ * instead of trusting odometry and guessing how wrong it is.
+ *
+ * The state is [x, y, heading, vx, vy, omega] with the velocities field relative.
+ *  - predict: constant velocity, pushed along by the pigeon's linear acceleration (rotated into the field frame),
+ *    with white noise acceleration as the process noise
+ *  - module odometry: measures the robot relative chassis speeds (worse while the wheels are slipping)
+ *  - pigeon: measures the yaw rate
+ *  - vision: measures the pose at the time the picture was taken. The last few updates are kept so the measurement is
+ *    applied where it belongs and then everything since is run again, instead of dragging a stale pose onto the current one.
+ *
+ * {@link #update} runs on the odometry thread and doesn't allocate. Vision and resets can come from any thread,
+ * they get queued up and handled at the next update. The pose, velocity and covariance can be read from any thread.
+ */
+public class UnscentedPoseEstimator {
+    private static final int N = 6;
+    private static final int SIGMAS = 2 * N + 1;
+    private static final int X = 0, Y = 1, THETA = 2, VX = 3, VY = 4, OMEGA = 5;
+
+    //merwe scaled sigma points with alpha = 1, beta = 2, kappa = 0
+    private static final double SIGMA_SPREAD = Math.sqrt(N);
+    private static final double MEAN_WEIGHT_0 = 0;
+    private static final double COVARIANCE_WEIGHT_0 = 2;
+    private static final double WEIGHT = 1.0 / (2 * N);
+
+    private static final int WHEELS = 0, GYRO = 1, VISION = 2;
+    private static final int VISION_QUEUE = 8;
+
+    private final double accelerationVariance;
+    private final double angularAccelerationVariance;
+    private final double wheelVelocityVariance;
+    private final double wheelOmegaVariance;
+    private final double gyroVariance;
+
+    /* FILTER STATE */
+    private final double[] x = new double[N];
+    private final double[] P = new double[N * N];
+
+    /* SCRATCH, so nothing gets allocated in the update */
+    private final double[] L = new double[N * N];
+    private final double[] sigmas = new double[SIGMAS * N];
+    private final double[] measurementSigmas = new double[SIGMAS * 3];
+    private final double[] z = new double[3];
+    private final double[] r = new double[3];
+    private final double[] zMean = new double[3];
+    private final double[] S = new double[9];
+    private final double[] SInverse = new double[9];
+    private final double[] inversionScratch = new double[18];
+    private final double[] Pxz = new double[N * 3];
+    private final double[] K = new double[N * 3];
+    private final double[] KS = new double[N * 3];
+    private final double[] innovation = new double[3];
+
+    /* HISTORY, for putting late vision measurements where they belong */
+    private final int historySize;
+    private final double[] historyTime;
+    private final double[] historyDt;
+    private final double[] historyAcceleration; //robot relative ax, ay
+    private final double[] historyWheels; //robot relative vx, vy, omega
+    private final double[] historyWheelScale;
+    private final double[] historyGyro;
+    private final double[] historyState;
+    private final double[] historyCovariance;
+    private int historyHead = 0; //where the next update goes
+    private int historyCount = 0;
+
+    /* VISION QUEUE (any thread -> odometry thread) */
+    private final Object inputLock = new Object();
+    private final double[] visionQueueTime = new double[VISION_QUEUE];
+    private final double[] visionQueuePose = new double[VISION_QUEUE * 3];
+    private final double[] visionQueueVariance = new double[VISION_QUEUE * 3];
+    private int visionQueueCount = 0;
+    private long droppedVision = 0;
+    private final double[] visionTime = new double[VISION_QUEUE];
+    private final double[] visionPose = new double[VISION_QUEUE * 3];
+    private final double[] visionVariance = new double[VISION_QUEUE * 3];
+    private boolean resetPending = false;
+    private double resetX, resetY, resetTheta;
+    private boolean headingResetPending = false;
+    private double resetHeading;
+
+    /* OUTPUT (odometry thread -> any thread) */
+    private final Object outputLock = new Object();
+    private final double[] publishedState = new double[N];
+    private final double[] publishedCovariance = new double[N * N];
+
+    /**
+     * @param accelerationStdDev how much the acceleration can change that the pigeon doesn't see, in m/s^2
+     * @param angularAccelerationStdDev how much the angular acceleration can change, in rad/s^2
+     * @param wheelVelocityStdDev how far off the module odometry chassis velocity is, in m/s
+     * @param wheelOmegaStdDev how far off the module odometry angular velocity is, in rad/s
+     * @param gyroStdDev how far off the pigeon yaw rate is, in rad/s
+     * @param historySize how many updates to keep for late vision measurements (should cover the worst vision latency)
+     */
+    public UnscentedPoseEstimator (double accelerationStdDev, double angularAccelerationStdDev,
+                                   double wheelVelocityStdDev, double wheelOmegaStdDev, double gyroStdDev,
+                                   int historySize) {
+        accelerationVariance = accelerationStdDev * accelerationStdDev;
+        angularAccelerationVariance = angularAccelerationStdDev * angularAccelerationStdDev;
+        wheelVelocityVariance = wheelVelocityStdDev * wheelVelocityStdDev;
+        wheelOmegaVariance = wheelOmegaStdDev * wheelOmegaStdDev;
+        gyroVariance = gyroStdDev * gyroStdDev;
+
+        this.historySize = historySize;
+        historyTime = new double[historySize];
+        historyDt = new double[historySize];
+        historyAcceleration = new double[historySize * 2];
+        historyWheels = new double[historySize * 3];
+        historyWheelScale = new double[historySize];
+        historyGyro = new double[historySize];
+        historyState = new double[historySize * N];
+        historyCovariance = new double[historySize * N * N];
+
+        //we don't know where we are until vision tells us
+        P[X * N + X] = 100;
+        P[Y * N + Y] = 100;
+        P[THETA * N + THETA] = Math.PI * Math.PI;
+        P[VX * N + VX] = 0.01;
+        P[VY * N + VY] = 0.01;
+        P[OMEGA * N + OMEGA] = 0.01;
+        publish();
+    }
+
+    /**
+     * Run the filter forward one odometry update. Only call from one thread.
+     * @param timestamp the time of this update in seconds (same timebase as the vision timestamps)
+     * @param dt the time since the last update in seconds
+     * @param accelerationX robot relative x acceleration from the pigeon in m/s^2, without gravity
+     * @param accelerationY robot relative y acceleration from the pigeon in m/s^2, without gravity
+     * @param wheelVx robot relative x velocity from the modules in m/s
+     * @param wheelVy robot relative y velocity from the modules in m/s
+     * @param wheelOmega angular velocity from the modules in rad/s
+     * @param wheelStdDevScale how much less to trust the modules right now (1 normally, more while the wheels are slipping)
+     * @param gyroRate yaw rate from the pigeon in rad/s
+     */
+    public void update (double timestamp, double dt,
+                        double accelerationX, double accelerationY,
+                        double wheelVx, double wheelVy, double wheelOmega, double wheelStdDevScale,
+                        double gyroRate) {
+        var visionCount = takeInputs();
+
+        //remember what went into this update so it can be run again
+        var slot = historyHead;
+        historyTime[slot] = timestamp;
+        historyDt[slot] = dt;
+        historyAcceleration[slot * 2] = accelerationX;
+        historyAcceleration[slot * 2 + 1] = accelerationY;
+        historyWheels[slot * 3] = wheelVx;
+        historyWheels[slot * 3 + 1] = wheelVy;
+        historyWheels[slot * 3 + 2] = wheelOmega;
+        historyWheelScale[slot] = wheelStdDevScale;
+        historyGyro[slot] = gyroRate;
+        historyHead = (historyHead + 1) % historySize;
+        if(historyCount < historySize) historyCount++;
+
+        step(slot);
+        saveState(slot);
+
+        for (int i = 0; i < visionCount; i++) applyLateVision(i);
+
+        publish();
+    }
+
+    /**
+     * Add a vision measurement. Safe to call from any thread, it gets applied at the next update.
+     * @param pose the robot pose from vision
+     * @param timestamp when the picture was taken, in seconds
+     * @param stdDevs the x, y and heading standard deviations
+     */
+    public void addVisionMeasurement (Pose2d pose, double timestamp, Matrix<N3, N1> stdDevs) {
+        synchronized (inputLock) {
+            if(visionQueueCount == VISION_QUEUE) {
+                droppedVision++;
+                return;
+            }
+            var i = visionQueueCount++;
+            visionQueueTime[i] = timestamp;
+            visionQueuePose[i * 3] = pose.getX();
+            visionQueuePose[i * 3 + 1] = pose.getY();
+            visionQueuePose[i * 3 + 2] = pose.getRotation().getRadians();
+            for (int j = 0; j < 3; j++) visionQueueVariance[i * 3 + j] = stdDevs.get(j, 0) * stdDevs.get(j, 0);
+        }
+    }
+
+    /**
+     * Move the estimate to a known pose (keeps the velocity). Safe to call from any thread, happens at the next update.
+     */
+    public void resetPose (Pose2d pose) {
+        synchronized (inputLock) {
+            resetPending = true;
+            headingResetPending = false; //the whole pose wins over an older heading reset
+            resetX = pose.getX();
+            resetY = pose.getY();
+            resetTheta = pose.getRotation().getRadians();
+            visionQueueCount = 0;
+        }
+    }
+
+    /**
+     * Point the estimate at a known heading without touching what it knows about x and y (like when the driver zeroes the gyro).
+     * Keeps the field relative velocity pointed the same way relative to the robot. Safe to call from any thread, happens at the next update.
+     */
+    public void resetHeading (Rotation2d heading) {
+        synchronized (inputLock) {
+            headingResetPending = true;
+            resetHeading = heading.getRadians();
+            visionQueueCount = 0;
+        }
+    }
+
+    /**
+     * Grab whatever the other threads gave us, so the lock isn't held while the filter runs.
+     * @return how many vision measurements there are to apply
+     */
+    private int takeInputs () {
+        synchronized (inputLock) {
+            if(resetPending) {
+                resetPending = false;
+                x[X] = resetX;
+                x[Y] = resetY;
+                x[THETA] = resetTheta;
+                for (int i = 0; i < N; i++) {
+                    for (int j = 0; j < N; j++) {
+                        if(i <= THETA || j <= THETA) P[i * N + j] = 0;
+                    }
+                }
+                P[X * N + X] = 1e-4;
+                P[Y * N + Y] = 1e-4;
+                P[THETA * N + THETA] = 1e-4;
+                historyCount = 0; //the old history is from before the reset, don't run vision against it
+            }
+            if(headingResetPending) {
+                headingResetPending = false;
+                applyHeadingReset(resetHeading);
+            }
+            var count = visionQueueCount;
+            System.arraycopy(visionQueueTime, 0, visionTime, 0, count);
+            System.arraycopy(visionQueuePose, 0, visionPose, 0, count * 3);
+            System.arraycopy(visionQueueVariance, 0, visionVariance, 0, count * 3);
+            visionQueueCount = 0;
+            return count;
+        }
+    }
+
+    /**
+     * Set the heading and only the heading's covariance, x and y keep whatever uncertainty they had.
+     * The field relative velocity (and its covariance) is turned with the heading so it's the same relative to the robot.
+     */
+    private void applyHeadingReset (double heading) {
+        var turn = MathUtil.angleModulus(heading - x[THETA]);
+        var cos = Math.cos(turn);
+        var sin = Math.sin(turn);
+        var vx = x[VX];
+        x[VX] = vx * cos - x[VY] * sin;
+        x[VY] = vx * sin + x[VY] * cos;
+        //P = R P R^T with R turning the velocity block
+        for (int j = 0; j < N; j++) {
+            var a = P[VX * N + j];
+            var b = P[VY * N + j];
+            P[VX * N + j] = a * cos - b * sin;
+            P[VY * N + j] = a * sin + b * cos;
+        }
+        for (int i = 0; i < N; i++) {
+            var a = P[i * N + VX];
+            var b = P[i * N + VY];
+            P[i * N + VX] = a * cos - b * sin;
+            P[i * N + VY] = a * sin + b * cos;
+        }
+
+        x[THETA] = heading;
+        for (int i = 0; i < N; i++) {
+            P[i * N + THETA] = 0;
+            P[THETA * N + i] = 0;
+        }
+        P[THETA * N + THETA] = 1e-4;
+        historyCount = 0; //the old history has the old heading, don't run vision against it
+    }
+
+    /**
+     * Apply a vision measurement at the update it belongs to, then run all the updates since again.
+     */
+    private void applyLateVision (int measurement) {
+        if(historyCount == 0) return;
+        var timestamp = visionTime[measurement];
+
+        //the newest update from before the picture was taken
+        var newest = (historyHead - 1 + historySize) % historySize;
+        var slot = -1;
+        var age = 0;
+        for (int i = 0; i < historyCount; i++) {
+            var candidate = (newest - i + historySize) % historySize;
+            if(historyTime[candidate] <= timestamp) {
+                slot = candidate;
+                age = i;
+                break;
+            }
+        }
+        if(slot == -1) {
+            //older than anything we remember, it's not worth anything anymore
+            synchronized (inputLock) {
+                droppedVision++;
+            }
+            return;
+        }
+
+        loadState(slot);
+        z[0] = visionPose[measurement * 3];
+        z[1] = visionPose[measurement * 3 + 1];
+        z[2] = visionPose[measurement * 3 + 2];
+        r[0] = visionVariance[measurement * 3];
+        r[1] = visionVariance[measurement * 3 + 1];
+        r[2] = visionVariance[measurement * 3 + 2];
+        correct(VISION, 3);
+        saveState(slot);
+
+        for (int i = age - 1; i >= 0; i--) {
+            var replay = (newest - i + historySize) % historySize;
+            step(replay);
+            saveState(replay);
+        }
+    }
+
+    /**
+     * predict and correct with the inputs stored in a history slot
+     */
+    private void step (int slot) {
+        predict(historyDt[slot], historyAcceleration[slot * 2], historyAcceleration[slot * 2 + 1]);
+
+        var scale = historyWheelScale[slot] * historyWheelScale[slot];
+        z[0] = historyWheels[slot * 3];
+        z[1] = historyWheels[slot * 3 + 1];
+        z[2] = historyWheels[slot * 3 + 2];
+        r[0] = wheelVelocityVariance * scale;
+        r[1] = wheelVelocityVariance * scale;
+        r[2] = wheelOmegaVariance * scale;
+        correct(WHEELS, 3);
+
+        z[0] = historyGyro[slot];
+        r[0] = gyroVariance;
+        correct(GYRO, 1);
+    }
+
+    private void predict (double dt, double accelerationX, double accelerationY) {
+        if(dt <= 0) return;
+        generateSigmas();
+
+        for (int s = 0; s < SIGMAS; s++) {
+            var o = s * N;
+            var theta = sigmas[o + THETA];
+            var cos = Math.cos(theta);
+            var sin = Math.sin(theta);
+            var ax = accelerationX * cos - accelerationY * sin;
+            var ay = accelerationX * sin + accelerationY * cos;
+
+            sigmas[o + X] += sigmas[o + VX] * dt + 0.5 * ax * dt * dt;
+            sigmas[o + Y] += sigmas[o + VY] * dt + 0.5 * ay * dt * dt;
+            sigmas[o + THETA] += sigmas[o + OMEGA] * dt;
+            sigmas[o + VX] += ax * dt;
+            sigmas[o + VY] += ay * dt;
+        }
+
+        //new mean
+        for (int i = 0; i < N; i++) {
+            if(i == THETA) {
+                x[i] = angleMean(sigmas, N, THETA);
+                continue;
+            }
+            var mean = MEAN_WEIGHT_0 * sigmas[i];
+            for (int s = 1; s < SIGMAS; s++) mean += WEIGHT * sigmas[s * N + i];
+            x[i] = mean;
+        }
+
+        //new covariance
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j <= i; j++) {
+                var sum = 0.0;
+                for (int s = 0; s < SIGMAS; s++) {
+                    var w = s == 0 ? COVARIANCE_WEIGHT_0 : WEIGHT;
+                    sum += w * stateResidual(s, i) * stateResidual(s, j);
+                }
+                P[i * N + j] = sum;
+                P[j * N + i] = sum;
+            }
+        }
+        x[THETA] = MathUtil.angleModulus(x[THETA]);
+
+        //white noise acceleration
+        var dt2 = dt * dt;
+        var dt3 = dt2 * dt;
+        var dt4 = dt3 * dt;
+        addProcessNoise(X, VX, accelerationVariance, dt2, dt3, dt4);
+        addProcessNoise(Y, VY, accelerationVariance, dt2, dt3, dt4);
+        addProcessNoise(THETA, OMEGA, angularAccelerationVariance, dt2, dt3, dt4);
+    }
+
+    private void addProcessNoise (int position, int velocity, double variance, double dt2, double dt3, double dt4) {
+        P[position * N + position] += variance * dt4 / 4;
+        P[position * N + velocity] += variance * dt3 / 2;
+        P[velocity * N + position] += variance * dt3 / 2;
+        P[velocity * N + velocity] += variance * dt2;
+    }
+
+    /**
+     * Unscented measurement update with whatever is in z and r
+     * @param type which measurement
+     * @param m how many values it has
+     */
+    private void correct (int type, int m) {
+        generateSigmas();
+
+        for (int s = 0; s < SIGMAS; s++) measure(type, s);
+
+        for (int k = 0; k < m; k++) {
+            if(type == VISION && k == 2) {
+                zMean[k] = angleMean(measurementSigmas, 3, 2);
+                continue;
+            }
+            var mean = MEAN_WEIGHT_0 * measurementSigmas[k];
+            for (int s = 1; s < SIGMAS; s++) mean += WEIGHT * measurementSigmas[s * 3 + k];
+            zMean[k] = mean;
+        }
+
+        //innovation covariance and cross covariance
+        for (int a = 0; a < m; a++) {
+            for (int b = 0; b < m; b++) S[a * m + b] = a == b ? r[a] : 0;
+            for (int i = 0; i < N; i++) Pxz[i * m + a] = 0;
+        }
+        for (int s = 0; s < SIGMAS; s++) {
+            var w = s == 0 ? COVARIANCE_WEIGHT_0 : WEIGHT;
+            for (int a = 0; a < m; a++) {
+                var za = measurementResidual(type, s, a);
+                for (int b = 0; b < m; b++) S[a * m + b] += w * za * measurementResidual(type, s, b);
+                for (int i = 0; i < N; i++) Pxz[i * m + a] += w * stateResidual(s, i) * za;
+            }
+        }
+
+        if(!invert(S, SInverse, m)) return;
+
+        //K = Pxz * S^-1
+        for (int i = 0; i < N; i++) {
+            for (int a = 0; a < m; a++) {
+                var sum = 0.0;
+                for (int b = 0; b < m; b++) sum += Pxz[i * m + b] * SInverse[b * m + a];
+                K[i * m + a] = sum;
+            }
+        }
+
+        for (int a = 0; a < m; a++) {
+            innovation[a] = z[a] - zMean[a];
+            if(type == VISION && a == 2) innovation[a] = MathUtil.angleModulus(innovation[a]);
+        }
+
+        for (int i = 0; i < N; i++) {
+            for (int a = 0; a < m; a++) x[i] += K[i * m + a] * innovation[a];
+        }
+        x[THETA] = MathUtil.angleModulus(x[THETA]);
+
+        //P -= K S K^T
+        for (int i = 0; i < N; i++) {
+            for (int a = 0; a < m; a++) {
+                var sum = 0.0;
+                for (int b = 0; b < m; b++) sum += K[i * m + b] * S[b * m + a];
+                KS[i * m + a] = sum;
+            }
+        }
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j <= i; j++) {
+                var sum = 0.0;
+                for (int a = 0; a < m; a++) sum += KS[i * m + a] * K[j * m + a];
+                var value = (P[i * N + j] + P[j * N + i]) / 2 - sum;
+                P[i * N + j] = value;
+                P[j * N + i] = value;
+            }
+        }
+    }
+
+    /**
+     * what a measurement would be if the robot were at a sigma point
+     */
+    private void measure (int type, int s) {
+        var o = s * N;
+        var mo = s * 3;
+        switch (type) {
+            case WHEELS: {
+                var cos = Math.cos(sigmas[o + THETA]);
+                var sin = Math.sin(sigmas[o + THETA]);
+                measurementSigmas[mo] = sigmas[o + VX] * cos + sigmas[o + VY] * sin;
+                measurementSigmas[mo + 1] = -sigmas[o + VX] * sin + sigmas[o + VY] * cos;
+                measurementSigmas[mo + 2] = sigmas[o + OMEGA];
+                break;
+            }
+            case GYRO:
+                measurementSigmas[mo] = sigmas[o + OMEGA];
+                break;
+            case VISION:
+                measurementSigmas[mo] = sigmas[o + X];
+                measurementSigmas[mo + 1] = sigmas[o + Y];
+                measurementSigmas[mo + 2] = sigmas[o + THETA];
+                break;
+        }
+    }
+
+    private double stateResidual (int s, int i) {
+        var residual = sigmas[s * N + i] - x[i];
+        return i == THETA ? MathUtil.angleModulus(residual) : residual;
+    }
+
+    private double measurementResidual (int type, int s, int k) {
+        var residual = measurementSigmas[s * 3 + k] - zMean[k];
+        return type == VISION && k == 2 ? MathUtil.angleModulus(residual) : residual;
+    }
+
+    private static double angleMean (double[] points, int stride, int index) {
+        var sin = MEAN_WEIGHT_0 * Math.sin(points[index]);
+        var cos = MEAN_WEIGHT_0 * Math.cos(points[index]);
+        for (int s = 1; s < SIGMAS; s++) {
+            sin += WEIGHT * Math.sin(points[s * stride + index]);
+            cos += WEIGHT * Math.cos(points[s * stride + index]);
+        }
+        return Math.atan2(sin, cos);
+    }
+
+    /**
+     * sigma points around x, spread by the square root of P
+     */
+    private void generateSigmas () {
+        if(!cholesky()) {
+            //numerical trouble, throw out the correlations and keep going
+            for (int i = 0; i < N; i++) {
+                for (int j = 0; j < N; j++) {
+                    if(i != j) P[i * N + j] = 0;
+                    else P[i * N + j] = Math.max(Math.abs(P[i * N + j]), 1e-9);
+                }
+            }
+            cholesky();
+        }
+
+        System.arraycopy(x, 0, sigmas, 0, N);
+        for (int c = 0; c < N; c++) {
+            var plus = (1 + c) * N;
+            var minus = (1 + N + c) * N;
+            for (int i = 0; i < N; i++) {
+                var offset = SIGMA_SPREAD * L[i * N + c];
+                sigmas[plus + i] = x[i] + offset;
+                sigmas[minus + i] = x[i] - offset;
+            }
+        }
+    }
+
+    /**
+     * lower triangular L where L L^T = P
+     * @return false if P isn't positive definite
+     */
+    private boolean cholesky () {
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                if(j > i) {
+                    L[i * N + j] = 0;
+                    continue;
+                }
+                var sum = P[i * N + j];
+                for (int k = 0; k < j; k++) sum -= L[i * N + k] * L[j * N + k];
+                if(i == j) {
+                    if(sum <= 0 || Double.isNaN(sum)) return false;
+                    L[i * N + i] = Math.sqrt(sum);
+                } else {
+                    L[i * N + j] = sum / L[j * N + j];
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gauss-Jordan inversion of a small matrix
+     * @return false if it's singular
+     */
+    private boolean invert (double[] matrix, double[] out, int m) {
+        var width = 2 * m;
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < m; j++) {
+                inversionScratch[i * width + j] = matrix[i * m + j];
+                inversionScratch[i * width + m + j] = i == j ? 1 : 0;
+            }
+        }
+        for (int col = 0; col < m; col++) {
+            var pivot = col;
+            for (int row = col + 1; row < m; row++) {
+                if(Math.abs(inversionScratch[row * width + col]) > Math.abs(inversionScratch[pivot * width + col])) pivot = row;
+            }
+            if(Math.abs(inversionScratch[pivot * width + col]) < 1e-12) return false;
+            if(pivot != col) {
+                for (int j = 0; j < width; j++) {
+                    var temp = inversionScratch[col * width + j];
+                    inversionScratch[col * width + j] = inversionScratch[pivot * width + j];
+                    inversionScratch[pivot * width + j] = temp;
+                }
+            }
+            var scale = 1 / inversionScratch[col * width + col];
+            for (int j = 0; j < width; j++) inversionScratch[col * width + j] *= scale;
+            for (int row = 0; row < m; row++) {
+                if(row == col) continue;
+                var factor = inversionScratch[row * width + col];
+                for (int j = 0; j < width; j++) inversionScratch[row * width + j] -= factor * inversionScratch[col * width + j];
+            }
+        }
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < m; j++) out[i * m + j] = inversionScratch[i * width + m + j];
+        }
+        return true;
+    }
+
+    private void saveState (int slot) {
+        System.arraycopy(x, 0, historyState, slot * N, N);
+        System.arraycopy(P, 0, historyCovariance, slot * N * N, N * N);
+    }
+
+    private void loadState (int slot) {
+        System.arraycopy(historyState, slot * N, x, 0, N);
+        System.arraycopy(historyCovariance, slot * N * N, P, 0, N * N);
+    }
+
+    private void publish () {
+        synchronized (outputLock) {
+            System.arraycopy(x, 0, publishedState, 0, N);
+            System.arraycopy(P, 0, publishedCovariance, 0, N * N);
+        }
+    }
+
+    /**
+     * @return the estimated pose (blue origin)
+     */
+    public Pose2d getPose () {
+        synchronized (outputLock) {
+            return new Pose2d(publishedState[X], publishedState[Y], new Rotation2d(publishedState[THETA]));
+        }
+    }
+
+    /**
+     * @return the estimated field relative velocity
+     */
+    public ChassisSpeeds getFieldRelativeSpeeds () {
+        synchronized (outputLock) {
+            return new ChassisSpeeds(publishedState[VX], publishedState[VY], publishedState[OMEGA]);
+        }
+    }
+
+    /**
+     * Copy the state out without allocating: [x, y, heading, vx, vy, omega]
+     * @param out at least 6 long
+     */
+    public void getState (double[] out) {
+        synchronized (outputLock) {
+            System.arraycopy(publishedState, 0, out, 0, N);
+        }
+    }
+
+    /**
+     * Copy the covariance out without allocating, row major in the same order as the state
+     * @param out at least 36 long
+     */
+    public void getCovariance (double[] out) {
+        synchronized (outputLock) {
+            System.arraycopy(publishedCovariance, 0, out, 0, N * N);
+        }
+    }
+
+    /**
+     * @return the standard deviation of the position estimate in meters (the bigger of x and y)
+     */
+    public double getPositionStdDev () {
+        synchronized (outputLock) {
+            return Math.sqrt(Math.max(publishedCovariance[X * N + X], publishedCovariance[Y * N + Y]));
+        }
+    }
+
+    /**
+     * @return the standard deviation of the heading estimate in radians
+     */
+    public double getHeadingStdDev () {
+        synchronized (outputLock) {
+            return Math.sqrt(publishedCovariance[THETA * N + THETA]);
+        }
+    }
+
+    /**
+     * @return how many vision measurements were thrown out for being too old or coming in too fast
+     */
+    public long getDroppedVisionCount () {
+        synchronized (inputLock) {
+            return droppedVision;
+        }
+    }
+}
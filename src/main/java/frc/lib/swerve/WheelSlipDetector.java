@@ -0,0 +1,194 @@
+package frc.lib.swerve;
+
+import java.util.concurrent.atomic.DoubleAccumulator;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Finds wheels that are slipping by checking the measured module velocities against each other.
+ * If every wheel has grip the modules all move as one rigid body, so there's some chassis speed that explains all of them exactly.
+ * We find the chassis speed that fits best (least squares), and whatever a module is doing that the fit can't explain is slip.
+ * The slip score is that leftover velocity divided by how fast the module should be going, so it means about the same thing at any speed.
+ *
+ * Made to run on the odometry thread: no allocation after the first update.
+ * Skids are also collected for another thread to pick up with {@link #pollSkidSeverity()}.
+ */
+public class WheelSlipDetector {
+    private final double skidThreshold;
+    private final double speedFloor;
+    private final double smoothing;
+
+    private double[] moduleX = new double[0];
+    private double[] moduleY = new double[0];
+    private double[] slipScores = new double[0];
+    //inverse of the normal equations matrix, only depends on where the modules are so it's only calculated once
+    private final double[][] inverseNormal = new double[3][3];
+
+    private double fitVx = 0, fitVy = 0, fitOmega = 0;
+    private double maxSlipScore = 0;
+    private boolean skidding = false;
+    private int skidModule = -1;
+    private long skidCount = 0;
+
+    //worst slip score seen while skidding, since the last poll
+    private final DoubleAccumulator skidSeverity = new DoubleAccumulator(Math::max, 0);
+
+    /**
+     * @param skidThreshold slip score over which a module counts as skidding (it stops skidding at half of this)
+     * @param speedFloor speed in m/s added under the expected module speed so we don't divide by ~0 when stopped
+     * @param smoothing how much of each new slip score to take, 0-1 (1 is no smoothing)
+     */
+    public WheelSlipDetector (double skidThreshold, double speedFloor, double smoothing) {
+        this.skidThreshold = skidThreshold;
+        this.speedFloor = speedFloor;
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Check the latest module states for slip.
+     * @param modulePositions where the modules are relative to the center of the robot
+     * @param states the measured module states, in the same order
+     */
+    public void update (Translation2d[] modulePositions, SwerveModuleState[] states) {
+        if(moduleX.length != modulePositions.length) allocate(modulePositions);
+
+        //right hand side of the normal equations
+        double bx = 0, by = 0, bw = 0;
+        for (int i = 0; i < moduleX.length; i++) {
+            var speed = states[i].speedMetersPerSecond;
+            var angle = states[i].angle.getRadians();
+            var vx = speed * Math.cos(angle);
+            var vy = speed * Math.sin(angle);
+            bx += vx;
+            by += vy;
+            bw += moduleX[i] * vy - moduleY[i] * vx;
+        }
+        fitVx = inverseNormal[0][0] * bx + inverseNormal[0][1] * by + inverseNormal[0][2] * bw;
+        fitVy = inverseNormal[1][0] * bx + inverseNormal[1][1] * by + inverseNormal[1][2] * bw;
+        fitOmega = inverseNormal[2][0] * bx + inverseNormal[2][1] * by + inverseNormal[2][2] * bw;
+
+        var worstScore = 0.0;
+        var worstModule = -1;
+        for (int i = 0; i < moduleX.length; i++) {
+            var speed = states[i].speedMetersPerSecond;
+            var angle = states[i].angle.getRadians();
+            var expectedVx = fitVx - fitOmega * moduleY[i];
+            var expectedVy = fitVy + fitOmega * moduleX[i];
+            var residual = Math.hypot(speed * Math.cos(angle) - expectedVx, speed * Math.sin(angle) - expectedVy);
+            var score = residual / (Math.hypot(expectedVx, expectedVy) + speedFloor);
+
+            slipScores[i] += smoothing * (score - slipScores[i]);
+            if(slipScores[i] > worstScore) {
+                worstScore = slipScores[i];
+                worstModule = i;
+            }
+        }
+
+        maxSlipScore = worstScore;
+
+        //hysteresis so one skid doesn't count as a bunch of them
+        if(!skidding && worstScore > skidThreshold) {
+            skidding = true;
+            skidCount++;
+        } else if(skidding && worstScore < skidThreshold / 2) {
+            skidding = false;
+        }
+        skidModule = skidding ? worstModule : -1;
+        if(skidding) skidSeverity.accumulate(worstScore);
+    }
+
+    private void allocate (Translation2d[] modulePositions) {
+        var n = modulePositions.length;
+        moduleX = new double[n];
+        moduleY = new double[n];
+        slipScores = new double[n];
+
+        //the model is: module vx = vx - omega * y, module vy = vy + omega * x
+        //so the normal equations matrix is [[n, 0, -sum y], [0, n, sum x], [-sum y, sum x, sum x^2 + y^2]]
+        double sumX = 0, sumY = 0, sumR2 = 0;
+        for (int i = 0; i < n; i++) {
+            moduleX[i] = modulePositions[i].getX();
+            moduleY[i] = modulePositions[i].getY();
+            sumX += moduleX[i];
+            sumY += moduleY[i];
+            sumR2 += moduleX[i] * moduleX[i] + moduleY[i] * moduleY[i];
+        }
+        double a = n, c = -sumY, e = sumX, f = sumR2;
+        //symmetric matrix [[a, 0, c], [0, a, e], [c, e, f]], inverted with cofactors
+        var det = a * (a * f - e * e) + c * (-a * c);
+        inverseNormal[0][0] = (a * f - e * e) / det;
+        inverseNormal[0][1] = (c * e) / det;
+        inverseNormal[0][2] = (-a * c) / det;
+        inverseNormal[1][0] = inverseNormal[0][1];
+        inverseNormal[1][1] = (a * f - c * c) / det;
+        inverseNormal[1][2] = (-a * e) / det;
+        inverseNormal[2][0] = inverseNormal[0][2];
+        inverseNormal[2][1] = inverseNormal[1][2];
+        inverseNormal[2][2] = (a * a) / det;
+    }
+
+    /**
+     * The smoothed slip scores of each module from the last update. Reused every update, don't hang on to it.
+     */
+    public double[] getSlipScores () {
+        return slipScores;
+    }
+
+    /**
+     * @return the worst smoothed slip score from the last update
+     */
+    public double getMaxSlipScore () {
+        return maxSlipScore;
+    }
+
+    /**
+     * @return whether any module is skidding right now
+     */
+    public boolean isSkidding () {
+        return skidding;
+    }
+
+    /**
+     * @return the module that's skidding the worst, or -1 if none are
+     */
+    public int getSkidModule () {
+        return skidModule;
+    }
+
+    /**
+     * @return how many separate skids have been detected
+     */
+    public long getSkidCount () {
+        return skidCount;
+    }
+
+    /**
+     * @return the robot relative x velocity that best fits all the modules, in m/s
+     */
+    public double getFitVx () {
+        return fitVx;
+    }
+
+    /**
+     * @return the robot relative y velocity that best fits all the modules, in m/s
+     */
+    public double getFitVy () {
+        return fitVy;
+    }
+
+    /**
+     * @return the angular velocity that best fits all the modules, in rad/s
+     */
+    public double getFitOmega () {
+        return fitOmega;
+    }
+
+    /**
+     * Safe to call from any thread.
+     * @return the worst slip score seen while skidding since the last call, 0 if there weren't any skids
+     */
+    public double pollSkidSeverity () {
+        return skidSeverity.getThenReset();
+    }
+}
@@ -1,7 +1,5 @@
 package frc.lib.telemetry;
 
-import edu.wpi.first.networktables.BooleanPublisher;
-import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.StringPublisher;
@@ -12,23 +10,43 @@ import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.PneumaticsBase;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
 
 public class ControlSystemTelemetry {
     private static final NetworkTable controlSystemTable = NetworkTableInstance.getDefault().getTable("Control System");
-    private static final NetworkTable roboRIOTable = controlSystemTable.getSubTable("RoboRIO");
     private static final NetworkTable pneumaticsTable = controlSystemTable.getSubTable("Pneumatics");
-    private static final NetworkTable canTable = controlSystemTable.getSubTable("CAN");
 
     private static final DataLog log = DataLogManager.getLog();
+
+    private static final double MEDIUM_FREQUENCY = 10; //Hz
+    private static final double SLOW_FREQUENCY = 1; //Hz
+    private static final int MEDIUM_LOOPS = Math.max(1, (int) Math.round(1 / (MEDIUM_FREQUENCY * Constants.period)));
+    private static final int SLOW_SAMPLES = 8; //how many slow signals there are (see sampleSlow), one is read per loop
+    private static final int SLOW_LOOPS = Math.max(SLOW_SAMPLES, (int) Math.round(1 / (SLOW_FREQUENCY * Constants.period)));
     
+    //everything we watch every loop goes out as one struct
+    private static final TelemetryStruct healthStruct = new TelemetryStruct("ControlSystemHealth");
+    private static final int LOOP_TIME = healthStruct.addDouble("rioLoopTime");
+    private static final int SOFTWARE_RUN_TIME = healthStruct.addDouble("softwareRunTime");
+    private static final int BROWNOUT = healthStruct.addBoolean("brownout");
+    private static final int BATTERY_VOLTAGE = healthStruct.addDouble("batteryVoltage");
+    private static final int BROWNOUT_VOLTAGE = healthStruct.addDouble("brownoutVoltage");
+    private static final int INPUT_VOLTAGE = healthStruct.addDouble("inputVoltage");
+    private static final int INPUT_CURRENT = healthStruct.addDouble("inputCurrent");
+    private static final int CAN_UTILIZATION = healthStruct.addDouble("canBusUtilization");
+    private static final int CAN_BUS_OFF = healthStruct.addDouble("canBusOffCount");
+    private static final int CAN_RX_ERRORS = healthStruct.addDouble("canRxErrorCount");
+    private static final int CAN_TX_ERRORS = healthStruct.addDouble("canTxErrorCount");
+    private static final int CAN_TX_FULL = healthStruct.addDouble("canTxFullCount");
+    private static final int COMPRESSOR_ENABLED = healthStruct.addBoolean("compressorEnabled");
+    private static final int PNEUMATIC_PRESSURE = healthStruct.addDouble("pneumaticPressure");
+    private static final int FAST_TIER_COST = healthStruct.addDouble("fastTierCostMicros");
+    private static final int MEDIUM_TIER_COST = healthStruct.addDouble("mediumTierCostMicros");
+    private static final int SLOW_TIER_COST = healthStruct.addDouble("slowTierCostMicros");
+    private static final int AVERAGE_COST = healthStruct.addDouble("averageCostMicros");
+    private static final TelemetryStruct.Channel healthChannel = healthStruct.open(controlSystemTable, "Health", log, "Control System/Health");
+
     //rio
-    private static final DoublePublisher loopTimePublisher = roboRIOTable.getDoubleTopic("RIO Loop Time").publish();
-    private static final DoublePublisher commandsOverheadPublisher = roboRIOTable.getDoubleTopic("Software Run Time").publish();
-    private static final BooleanPublisher brownoutPublisher = roboRIOTable.getBooleanTopic("Brownout").publish();
-    private static final DoublePublisher batteryVoltagePublisher = roboRIOTable.getDoubleTopic("Battery Voltage").publish();
-    private static final DoublePublisher brownoutVoltagePublisher = roboRIOTable.getDoubleTopic("Brownout Voltage").publish();  
-    private static final DoublePublisher inputVoltagePublisher = roboRIOTable.getDoubleTopic("Input Voltage").publish();
-    private static final DoublePublisher inputCurrentPublisher = roboRIOTable.getDoubleTopic("Input Current").publish();
     private static final DoubleLogEntry v3_3FaultsLog = new DoubleLogEntry(log, "Control System/RoboRIO/3.3v Rail Faults");
     private static final DoubleLogEntry v3_3CurrentLog = new DoubleLogEntry(log, "Control System/RoboRIO/3.3v Rail Current");
     private static final DoubleLogEntry v5FaultsLog = new DoubleLogEntry(log, "Control System/RoboRIO/5v Rail Faults");
@@ -39,60 +57,90 @@ public class ControlSystemTelemetry {
    
     private static final BooleanLogEntry outputsEnabledLog = new BooleanLogEntry(log, "Control System/RoboRIO/Outputs Enabled");
 
-    //can
-    private static final DoublePublisher canBusUtilization = canTable.getDoubleTopic("Bus Utilization").publish();
-    private static final DoublePublisher canBusOffCount = canTable.getDoubleTopic("Bus Off Count").publish();
-    private static final DoublePublisher canRxErrorCount = canTable.getDoubleTopic("Rx Error Count").publish();
-    private static final DoublePublisher canTxErrorCount = canTable.getDoubleTopic("Tx Error Count").publish();
-    private static final DoublePublisher canTxFullCount = canTable.getDoubleTopic("Tx Full Count").publish();
-
     //pneumatics
-    private static final BooleanPublisher compressorEnabled = pneumaticsTable.getBooleanTopic("Compressor Enabled").publish();
-    private static final DoublePublisher pneumaticPressure = pneumaticsTable.getDoubleTopic("Pneumatic Pressure").publish();
     private static final StringPublisher pneumaticSolenoidStates = pneumaticsTable.getStringTopic("Solenoid States").publish();
 
     private static Timer time = new Timer();
 
+    private static long loopCount = 0;
+    private static double averageCost = 0;
+
+    /**
+     * Sample the control system and send it all out. Stuff that barely changes is read less often to save HAL calls:
+     * the fast tier (loop time, battery, brownout) is read every loop, the medium tier (CAN, input power) at {@link #MEDIUM_FREQUENCY},
+     * and the slow tier (rails, faults, temperature) at {@link #SLOW_FREQUENCY}, one reading per loop so they don't all land on the same loop.
+     * @param pcm the pneumatics module, or null if there isn't one
+     * @param schedulerTime how long the robot code took this loop
+     */
     public static void update(PneumaticsBase pcm, double schedulerTime) {
-        loopTimePublisher.accept(time.get());
-        commandsOverheadPublisher.accept(schedulerTime);
+        var start = System.nanoTime();
+        healthChannel.set(LOOP_TIME, time.get())
+                     .set(SOFTWARE_RUN_TIME, schedulerTime);
         time.reset();
         time.start();
 
-        brownoutPublisher.accept(RobotController.isBrownedOut());
-        batteryVoltagePublisher.accept(RobotController.getBatteryVoltage());
-        brownoutVoltagePublisher.accept(RobotController.getBrownoutVoltage());
-        inputVoltagePublisher.accept(RobotController.getInputVoltage());
-        inputCurrentPublisher.accept(RobotController.getInputCurrent());
-        v3_3FaultsLog.append(RobotController.getFaultCount3V3());
-        v3_3CurrentLog.append(RobotController.getVoltage3V3());
-        v5FaultsLog.append(RobotController.getFaultCount5V());
-        v5CurrentLog.append(RobotController.getVoltage5V());
-        v6FaultsLog.append(RobotController.getFaultCount6V());
-        v6CurrentLog.append(RobotController.getVoltage6V());
-        cpuTempLog.append(RobotController.getCPUTemp());
-
+        healthChannel.set(BROWNOUT, RobotController.isBrownedOut())
+                     .set(BATTERY_VOLTAGE, RobotController.getBatteryVoltage());
         outputsEnabledLog.append(RobotController.isSysActive());
 
-        var canStatus = RobotController.getCANStatus();
+        if(pcm != null){
+            healthChannel.set(COMPRESSOR_ENABLED, pcm.getCompressor())
+                         .set(PNEUMATIC_PRESSURE, pcm.getPressure(0));
+        }
+        var fastDone = System.nanoTime();
+        var fastCost = (fastDone - start) / 1000.0;
+        healthChannel.set(FAST_TIER_COST, fastCost);
 
-        canBusUtilization.accept(canStatus.percentBusUtilization);
-        canBusOffCount.accept(canStatus.busOffCount);
-        canRxErrorCount.accept(canStatus.receiveErrorCount);
-        canTxErrorCount.accept(canStatus.transmitErrorCount);
-        canTxFullCount.accept(canStatus.txFullCount);
+        if(loopCount % MEDIUM_LOOPS == 0) {
+            sampleMedium(pcm);
+            healthChannel.set(MEDIUM_TIER_COST, (System.nanoTime() - fastDone) / 1000.0);
+        }
 
+        var slowIndex = (int) (loopCount % SLOW_LOOPS);
+        if(slowIndex < SLOW_SAMPLES) {
+            var slowStart = System.nanoTime();
+            sampleSlow(slowIndex);
+            healthChannel.set(SLOW_TIER_COST, (System.nanoTime() - slowStart) / 1000.0);
+        }
+        loopCount++;
+
+        averageCost += ((System.nanoTime() - start) / 1000.0 - averageCost) * 0.05;
+        healthChannel.set(AVERAGE_COST, averageCost)
+                     .send();
+    }
+
+    private static void sampleMedium(PneumaticsBase pcm) {
+        healthChannel.set(INPUT_VOLTAGE, RobotController.getInputVoltage())
+                     .set(INPUT_CURRENT, RobotController.getInputCurrent());
+
+        var canStatus = RobotController.getCANStatus();
+        healthChannel.set(CAN_UTILIZATION, canStatus.percentBusUtilization)
+                     .set(CAN_BUS_OFF, canStatus.busOffCount)
+                     .set(CAN_RX_ERRORS, canStatus.receiveErrorCount)
+                     .set(CAN_TX_ERRORS, canStatus.transmitErrorCount)
+                     .set(CAN_TX_FULL, canStatus.txFullCount);
 
         if(pcm != null){
-            compressorEnabled.accept(pcm.getCompressor());
-            pneumaticPressure.accept(pcm.getPressure(0));
             pneumaticSolenoidStates.accept(Integer.toBinaryString(pcm.getSolenoids()));
         } else {
-            compressorEnabled.accept(false);
-            pneumaticPressure.accept(0.0);
             pneumaticSolenoidStates.accept("Pneumatics-free robot :)");
         }
+    }
 
-        RobotController.getBatteryVoltage();
+    /**
+     * Read one of the slow signals
+     * @param index which one, 0 to SLOW_SAMPLES - 1
+     */
+    private static void sampleSlow(int index) {
+        switch (index) {
+            case 0: v3_3FaultsLog.append(RobotController.getFaultCount3V3()); break;
+            case 1: v3_3CurrentLog.append(RobotController.getVoltage3V3()); break;
+            case 2: v5FaultsLog.append(RobotController.getFaultCount5V()); break;
+            case 3: v5CurrentLog.append(RobotController.getVoltage5V()); break;
+            case 4: v6FaultsLog.append(RobotController.getFaultCount6V()); break;
+            case 5: v6CurrentLog.append(RobotController.getVoltage6V()); break;
+            case 6: cpuTempLog.append(RobotController.getCPUTemp()); break;
+            default: healthChannel.set(BROWNOUT_VOLTAGE, RobotController.getBrownoutVoltage()); break;
+        }
     }
 }
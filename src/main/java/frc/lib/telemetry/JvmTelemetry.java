@@ -0,0 +1,116 @@
+package frc.lib.telemetry;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DataLogManager;
+
+/**
+ * Watches the garbage collector and how much the main and odometry threads allocate, so a loop spike
+ * can be blamed on GC (gc time shows up in the same loop) or on our own code (it doesn't).
+ * Everything is logged as a per-loop delta right next to the loop time, in one struct.
+ *
+ * Call {@link #registerOdometryThread()} from the odometry thread and {@link #update()} once a loop from the main thread.
+ */
+public class JvmTelemetry {
+    private static final int HEAP_DETAIL_LOOPS = 50; //MemoryMXBean allocates a MemoryUsage every call, so it's only read this often
+
+    private static final GarbageCollectorMXBean[] collectors = ManagementFactory.getGarbageCollectorMXBeans().toArray(new GarbageCollectorMXBean[0]);
+    private static final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private static final com.sun.management.ThreadMXBean threads = getThreadBean();
+    private static final Runtime runtime = Runtime.getRuntime();
+
+    private static final TelemetryStruct jvmStruct = new TelemetryStruct("JvmHealth");
+    private static final int LOOP_TIME = jvmStruct.addDouble("loopTimeMs");
+    private static final int GC_COUNT = jvmStruct.addDouble("gcCount");
+    private static final int GC_TIME = jvmStruct.addDouble("gcTimeMs");
+    private static final int GC_IN_LOOP = jvmStruct.addBoolean("gcThisLoop");
+    private static final int HEAP_USED = jvmStruct.addDouble("heapUsedMB");
+    private static final int HEAP_COMMITTED = jvmStruct.addDouble("heapCommittedMB");
+    private static final int NON_HEAP_USED = jvmStruct.addDouble("nonHeapUsedMB");
+    private static final int MAIN_ALLOCATED = jvmStruct.addDouble("mainAllocatedKB");
+    private static final int ODOMETRY_ALLOCATED = jvmStruct.addDouble("odometryAllocatedKB");
+    private static final int TOTAL_GC_COUNT = jvmStruct.addDouble("totalGcCount");
+    private static final int TOTAL_GC_TIME = jvmStruct.addDouble("totalGcTimeMs");
+    private static final TelemetryStruct.Channel jvmChannel = jvmStruct.open(NetworkTableInstance.getDefault().getTable("JVM"), "Health", DataLogManager.getLog(), "JVM/Health");
+
+    private static volatile long odometryThreadId = -1;
+    private static long mainThreadId = -1;
+
+    private static long lastLoop = -1;
+    private static long lastGcCount = 0;
+    private static long lastGcTime = 0;
+    private static long lastMainAllocated = 0;
+    private static long lastOdometryAllocated = -1;
+    private static long loopCount = 0;
+
+    private static com.sun.management.ThreadMXBean getThreadBean () {
+        //per thread allocation counting is a hotspot/openjdk thing, if it's not there we just don't log it
+        if(!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) return null;
+        var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if(!bean.isThreadAllocatedMemorySupported()) return null;
+        if(!bean.isThreadAllocatedMemoryEnabled()) bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+
+    /**
+     * Call from the odometry thread so we know which thread to watch. Only does anything the first time.
+     */
+    public static void registerOdometryThread () {
+        if(odometryThreadId < 0) odometryThreadId = Thread.currentThread().getId();
+    }
+
+    /**
+     * Sample everything and log the change since last loop. Call once a loop from the main thread.
+     */
+    public static void update () {
+        var now = System.nanoTime();
+        if(mainThreadId < 0) mainThreadId = Thread.currentThread().getId();
+
+        long gcCount = 0;
+        long gcTime = 0;
+        for (int i = 0; i < collectors.length; i++) {
+            gcCount += Math.max(0, collectors[i].getCollectionCount()); //-1 means the collector doesn't know
+            gcTime += Math.max(0, collectors[i].getCollectionTime());
+        }
+
+        var first = lastLoop < 0;
+        if(!first) {
+            jvmChannel.set(LOOP_TIME, (now - lastLoop) / 1e6)
+                      .set(GC_COUNT, gcCount - lastGcCount)
+                      .set(GC_TIME, gcTime - lastGcTime)
+                      .set(GC_IN_LOOP, gcCount != lastGcCount);
+        }
+        jvmChannel.set(TOTAL_GC_COUNT, gcCount)
+                  .set(TOTAL_GC_TIME, gcTime)
+                  .set(HEAP_USED, (runtime.totalMemory() - runtime.freeMemory()) / 1e6);
+        lastLoop = now;
+        lastGcCount = gcCount;
+        lastGcTime = gcTime;
+
+        if(loopCount++ % HEAP_DETAIL_LOOPS == 0) {
+            jvmChannel.set(HEAP_COMMITTED, memory.getHeapMemoryUsage().getCommitted() / 1e6)
+                      .set(NON_HEAP_USED, memory.getNonHeapMemoryUsage().getUsed() / 1e6);
+        }
+
+        if(threads != null) {
+            var mainAllocated = threads.getThreadAllocatedBytes(mainThreadId);
+            if(!first) jvmChannel.set(MAIN_ALLOCATED, (mainAllocated - lastMainAllocated) / 1e3);
+            lastMainAllocated = mainAllocated;
+
+            var odometryThread = odometryThreadId;
+            if(odometryThread >= 0) {
+                var odometryAllocated = threads.getThreadAllocatedBytes(odometryThread);
+                //-1 if the thread died, don't log a giant negative number
+                if(odometryAllocated >= 0) {
+                    if(lastOdometryAllocated >= 0) jvmChannel.set(ODOMETRY_ALLOCATED, (odometryAllocated - lastOdometryAllocated) / 1e3);
+                    lastOdometryAllocated = odometryAllocated;
+                }
+            }
+        }
+
+        jvmChannel.send();
+    }
+}
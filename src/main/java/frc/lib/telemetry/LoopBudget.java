@@ -0,0 +1,190 @@
+package frc.lib.telemetry;
+
+import java.util.ArrayList;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import frc.lib.util.Console;
+
+/**
+ * Times every stage of the robot loop against a time budget, and figures out which stage to blame when it runs over.
+ * Stages marked deferrable (telemetry, dashboard stuff) get skipped when running them would blow the budget,
+ * so the stuff that actually moves the robot always gets its time. A deferred stage can't be skipped forever,
+ * after {@link #MAX_DEFERRED_LOOPS} loops in a row it runs no matter what.
+ *
+ * Add all the stages first, then each loop: {@link #startLoop()}, {@link #stage(int)} right before each stage
+ * (it also ends the one before), and {@link #finish()} at the end.
+ * <pre>
+ * if(loop.stage(DASHBOARD)) updateDashboard();
+ * </pre>
+ * The time of every stage goes out as one struct, and overruns are logged with the stage that caused them.
+ */
+public class LoopBudget {
+    private static final int MAX_DEFERRED_LOOPS = 10; //longest a deferrable stage can be put off
+    private static final double AVERAGE_WEIGHT = 0.05; //how fast a stage's usual time follows new times
+
+    private final String name;
+    private final long budgetNanos;
+    private final TelemetryStruct struct;
+    private final ArrayList<String> stageNames = new ArrayList<>();
+    private final ArrayList<Boolean> stageDeferrable = new ArrayList<>();
+    private final int totalField;
+    private final int overrunField;
+    private final int culpritField;
+    private final int deferredField;
+    private final int overrunCountField;
+    private final Console.Site overrunWarning = Console.site(1);
+
+    private TelemetryStruct.Channel channel = null; //opened on the first loop, once all the stages are in
+    private StringLogEntry culpritLog;
+    private boolean[] deferrable;
+    private int[] timeFields;
+    private long[] times; //nanos this loop, 0 if it didn't run
+    private double[] averages; //usual nanos
+    private int[] deferredLoops;
+    private long[] overrunCounts;
+
+    private long loopStart = 0;
+    private long period = 0; //nanos between the starts of the last two loops
+    private long stageStart = 0;
+    private int current = -1;
+    private int deferredThisLoop = 0;
+    private long overruns = 0;
+
+    /**
+     * @param name the name of the loop, used for the topic/log names and the struct type (no spaces)
+     * @param budget how long the loop is allowed to take in seconds
+     */
+    public LoopBudget (String name, double budget) {
+        this.name = name;
+        this.budgetNanos = (long) (budget * 1e9);
+        struct = new TelemetryStruct(name + "Budget");
+        totalField = struct.addDouble("totalMs");
+        overrunField = struct.addBoolean("overrun");
+        culpritField = struct.addDouble("culpritStage");
+        deferredField = struct.addDouble("deferredStages");
+        overrunCountField = struct.addDouble("overrunCount");
+    }
+
+    /**
+     * Add a stage to the loop
+     * @param stageName the name of the stage, no spaces
+     * @param canDefer whether the stage can be skipped for a loop when we're out of time
+     * @return the ID to pass to {@link #stage(int)}
+     */
+    public int addStage (String stageName, boolean canDefer) {
+        if(channel != null) throw new IllegalStateException("Can't add " + stageName + " to " + name + " after it's started");
+        stageNames.add(stageName);
+        stageDeferrable.add(canDefer);
+        return stageNames.size() - 1;
+    }
+
+    private void open () {
+        var count = stageNames.size();
+        deferrable = new boolean[count];
+        timeFields = new int[count];
+        times = new long[count];
+        averages = new double[count];
+        deferredLoops = new int[count];
+        overrunCounts = new long[count];
+        for (int i = 0; i < count; i++) {
+            deferrable[i] = stageDeferrable.get(i);
+            timeFields[i] = struct.addDouble(stageNames.get(i) + "Ms");
+        }
+        channel = struct.open(NetworkTableInstance.getDefault().getTable("Loop Budget"), name, DataLogManager.getLog(), "Loop Budget/" + name);
+        culpritLog = new StringLogEntry(DataLogManager.getLog(), "Loop Budget/" + name + " Overrun Culprit");
+    }
+
+    /**
+     * Call at the very start of the loop
+     */
+    public void startLoop () {
+        if(channel == null) open();
+        var now = System.nanoTime();
+        period = loopStart == 0 ? budgetNanos : now - loopStart;
+        loopStart = now;
+        stageStart = loopStart;
+        current = -1;
+        deferredThisLoop = 0;
+        for (int i = 0; i < times.length; i++) times[i] = 0;
+    }
+
+    /**
+     * @return the time between the start of the last loop and the start of this one in seconds (the budget on the first loop)
+     */
+    public double getPeriod () {
+        return period / 1e9;
+    }
+
+    /**
+     * End the stage that's running (if any) and start a new one
+     * @param stage the stage ID from {@link #addStage}
+     * @return false if the stage should be skipped this loop (only ever for deferrable stages)
+     */
+    public boolean stage (int stage) {
+        var now = System.nanoTime();
+        endCurrent(now);
+
+        if(deferrable[stage] && deferredLoops[stage] < MAX_DEFERRED_LOOPS && (now - loopStart) + averages[stage] > budgetNanos) {
+            deferredLoops[stage]++;
+            deferredThisLoop++;
+            return false;
+        }
+
+        deferredLoops[stage] = 0;
+        current = stage;
+        stageStart = now;
+        return true;
+    }
+
+    private void endCurrent (long now) {
+        if(current < 0) return;
+        times[current] += now - stageStart;
+        current = -1;
+    }
+
+    /**
+     * Call at the very end of the loop. Sends the stage times and blames a stage if we went over.
+     */
+    public void finish () {
+        var now = System.nanoTime();
+        endCurrent(now);
+        var total = now - loopStart;
+        var overrun = total > budgetNanos;
+
+        //blame whoever took the most longer than usual (not just the slowest stage, that one's probably always slow)
+        var culprit = -1;
+        if(overrun) {
+            var worstExcess = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < times.length; i++) {
+                if(times[i] == 0) continue;
+                var excess = times[i] - averages[i];
+                if(excess > worstExcess) {
+                    worstExcess = excess;
+                    culprit = i;
+                }
+            }
+            overruns++;
+            if(culprit >= 0) {
+                overrunCounts[culprit]++;
+                culpritLog.append(stageNames.get(culprit));
+                //check the rate limit first so we don't build the string every loop we're overrunning
+                if(overrunWarning.ready()) overrunWarning.warning(name + " loop overran (" + total / 1000000 + "ms), mostly " + stageNames.get(culprit)
+                    + " (" + times[culprit] / 1000000 + "ms, usually " + (long) averages[culprit] / 1000000 + "ms, "
+                    + overrunCounts[culprit] + " overruns so far)");
+            }
+        }
+
+        for (int i = 0; i < times.length; i++) {
+            channel.set(timeFields[i], times[i] / 1e6);
+            if(times[i] > 0) averages[i] += (times[i] - averages[i]) * AVERAGE_WEIGHT;
+        }
+        channel.set(totalField, total / 1e6)
+               .set(overrunField, overrun)
+               .set(culpritField, culprit)
+               .set(deferredField, deferredThisLoop)
+               .set(overrunCountField, overruns)
+               .send();
+    }
+}
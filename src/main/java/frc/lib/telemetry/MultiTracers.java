@@ -3,6 +3,7 @@ package frc.lib.telemetry;
 import java.util.HashMap;
 import edu.wpi.first.wpilibj.Tracer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.util.Console;
 
 /**
  * A class to manage multiple WPILib Tracers,
@@ -40,7 +41,7 @@ public class MultiTracers {
     public static void print(String tracer) {
         if (!enabled) return;
         if (tracers.containsKey(tracer)) {
-            tracers.get(tracer).printEpochs();
+            tracers.get(tracer).printEpochs(Console::info);
         }
     }
 
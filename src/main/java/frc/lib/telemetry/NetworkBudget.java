@@ -0,0 +1,280 @@
+package frc.lib.telemetry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import edu.wpi.first.networktables.GenericPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringArrayPublisher;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import frc.lib.util.Util;
+import frc.robot.Constants;
+
+/**
+ * Puts stuff on the dashboard without blowing up the field network.
+ * Works like SmartDashboard.put (same keys, same table, so dashboard layouts don't change), but:
+ *  - values are only sent when they change (numbers only when they move more than their deadband)
+ *  - everything sent counts against a bytes per second budget (a lot tighter when the FMS is attached)
+ *  - when we're over budget or the loop is running late, LOW priority topics get sent less and less often,
+ *    then NORMAL ones. CRITICAL topics always go out.
+ *  - a throttled topic isn't lost, the latest value goes out as soon as there's room.
+ *  - what got throttled (and how much we're sending) is reported under "Network Budget"
+ *
+ * Values are only staged by the put methods, they're actually sent in {@link #update(double)}, which should be called once a loop.
+ * Only use this from the main thread.
+ */
+public class NetworkBudget {
+    public enum Priority {
+        CRITICAL, //the drivers need this, never throttled
+        NORMAL, //useful to watch, throttled once LOW is as slow as it goes
+        LOW //debug stuff, first to go
+    }
+
+    private static final double PIT_BYTES_PER_SECOND = 100000;
+    private static final double FMS_BYTES_PER_SECOND = 20000; //field is 4Mbit for everything incl. cameras, we get a small slice
+    private static final double BURST_SECONDS = 0.5; //how much unused budget can pile up
+    private static final double OVERRUN_RATIO = 1.5; //a loop this much longer than the period counts as pressure
+    private static final int MAX_DECIMATION = 16; //slowest a throttled topic gets (every 16 loops)
+    private static final int CALM_LOOPS = 50; //loops without pressure before we speed back up
+    private static final int VALUE_OVERHEAD = 12; //rough bytes of nt4 framing per value (id, timestamp, type)
+
+    private static final NetworkTable dashboardTable = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+    private static final NetworkTable budgetTable = NetworkTableInstance.getDefault().getTable("Network Budget");
+
+    private static final TelemetryStruct budgetStruct = new TelemetryStruct("NetworkBudget");
+    private static final int BYTES_PER_SECOND = budgetStruct.addDouble("bytesPerSecond");
+    private static final int BUDGET = budgetStruct.addDouble("budget");
+    private static final int TOKENS = budgetStruct.addDouble("tokens");
+    private static final int LOW_DECIMATION = budgetStruct.addDouble("lowDecimation");
+    private static final int NORMAL_DECIMATION = budgetStruct.addDouble("normalDecimation");
+    private static final int THROTTLED = budgetStruct.addDouble("throttledTopics");
+    private static final int THROTTLED_TOTAL = budgetStruct.addDouble("throttledTotal");
+    private static final int LOOP_PRESSURE = budgetStruct.addBoolean("loopPressure");
+    private static final int BANDWIDTH_PRESSURE = budgetStruct.addBoolean("bandwidthPressure");
+    private static final int FMS_ATTACHED = budgetStruct.addBoolean("fmsAttached");
+    private static final TelemetryStruct.Channel budgetChannel = budgetStruct.open(budgetTable, "Status", DataLogManager.getLog(), "Network Budget/Status");
+    private static final StringArrayPublisher throttledPublisher = budgetTable.getStringArrayTopic("Throttled").publish();
+
+    private static final HashMap<String, Topic> topics = new HashMap<>();
+    private static final ArrayList<Topic> topicList = new ArrayList<>(); //sorted by priority, critical first
+
+    private static double lastUpdate = -1;
+    private static double tokens = 0;
+    private static double bytesPerSecond = 0;
+    private static boolean pressure = false;
+    private static int calmLoops = 0;
+    private static int lowDecimation = 1;
+    private static int normalDecimation = 1;
+    private static long loopCount = 0;
+    private static long throttledTotal = 0;
+    private static boolean throttledChanged = false;
+
+    /**
+     * Put a string on the dashboard (only sent when it changes)
+     * @param key the SmartDashboard key
+     * @param value the value, null is sent as "null"
+     * @param priority how much we care
+     */
+    public static void putString (String key, String value, Priority priority) {
+        if(value == null) value = "null";
+        var topic = getTopic(key, priority, "string", 0);
+        topic.pendingString = value;
+        topic.dirty = !value.equals(topic.sentString);
+    }
+
+    /**
+     * Put a number on the dashboard (only sent when it moves more than the deadband)
+     * @param key the SmartDashboard key
+     * @param value the value
+     * @param priority how much we care
+     * @param deadband how much it has to change from the last sent value to be sent again
+     */
+    public static void putNumber (String key, double value, Priority priority, double deadband) {
+        var topic = getTopic(key, priority, "double", deadband);
+        topic.pendingNumber = value;
+        topic.dirty = !topic.hasSent
+                    || Math.abs(value - topic.sentNumber) > topic.deadband
+                    || Double.isNaN(value) != Double.isNaN(topic.sentNumber);
+    }
+
+    /**
+     * Put a number on the dashboard (only sent when it changes)
+     * @param key the SmartDashboard key
+     * @param value the value
+     * @param priority how much we care
+     */
+    public static void putNumber (String key, double value, Priority priority) {
+        putNumber(key, value, priority, 0);
+    }
+
+    /**
+     * Put a boolean on the dashboard (only sent when it changes)
+     * @param key the SmartDashboard key
+     * @param value the value
+     * @param priority how much we care
+     */
+    public static void putBoolean (String key, boolean value, Priority priority) {
+        var topic = getTopic(key, priority, "boolean", 0);
+        topic.pendingNumber = value ? 1 : 0;
+        topic.dirty = !topic.hasSent || topic.pendingNumber != topic.sentNumber;
+    }
+
+    private static Topic getTopic (String key, Priority priority, String type, double deadband) {
+        var topic = topics.get(key);
+        if(topic != null) return topic;
+
+        topic = new Topic(key, priority, dashboardTable.getTopic(key).genericPublish(type), type, deadband, topics.size());
+        topics.put(key, topic);
+
+        //keep the list sorted so critical topics get the budget first
+        var index = 0;
+        while(index < topicList.size() && topicList.get(index).priority.ordinal() <= priority.ordinal()) index++;
+        topicList.add(index, topic);
+        return topic;
+    }
+
+    /**
+     * Send everything that changed and fits in the budget. Call once a loop, after everything has been put.
+     * @param period how long the main loop took this time in seconds. Not the time since the last update,
+     *               that's longer when this got put off, and refilling or judging the loop by it would be wrong.
+     */
+    public static void update (double period) {
+        var now = Timer.getFPGATimestamp();
+        var dt = lastUpdate < 0 ? Constants.period : Util.limit(now - lastUpdate, 0.001, 0.1);
+        lastUpdate = now;
+
+        //only refill for this loop, loops where this was put off don't get budget (that's what putting it off is for)
+        var fmsAttached = DriverStation.isFMSAttached();
+        var budget = fmsAttached ? FMS_BYTES_PER_SECOND : PIT_BYTES_PER_SECOND;
+        tokens = Math.min(tokens + budget * period, budget * BURST_SECONDS);
+
+        //slow down when last loop ran out of budget or this loop is late, speed back up once it's been calm for a bit
+        var loopPressure = period > Constants.period * OVERRUN_RATIO;
+        if(pressure || loopPressure) {
+            calmLoops = 0;
+            if(lowDecimation < MAX_DECIMATION) lowDecimation *= 2;
+            else if(normalDecimation < MAX_DECIMATION) normalDecimation *= 2;
+        } else if(++calmLoops >= CALM_LOOPS) {
+            calmLoops = 0;
+            if(normalDecimation > 1) normalDecimation /= 2;
+            else if(lowDecimation > 1) lowDecimation /= 2;
+        }
+        loopCount++;
+
+        var sentBytes = 0;
+        var throttled = 0;
+        var bandwidthPressure = false;
+        for (int i = 0; i < topicList.size(); i++) {
+            var topic = topicList.get(i);
+            if(!topic.dirty) {
+                topic.setThrottled(false);
+                continue;
+            }
+
+            if(topic.priority != Priority.CRITICAL) {
+                var decimation = topic.priority == Priority.LOW ? lowDecimation : normalDecimation;
+                //each topic is offset so they don't all go out on the same loop
+                var skip = (loopCount + topic.offset) % decimation != 0;
+                if(!skip && topic.estimateSize() > tokens) {
+                    skip = true;
+                    bandwidthPressure = true;
+                }
+                if(skip) {
+                    topic.setThrottled(true);
+                    throttled++;
+                    throttledTotal++;
+                    continue;
+                }
+            }
+
+            var size = topic.send();
+            tokens -= size;
+            sentBytes += size;
+            topic.setThrottled(false);
+        }
+        pressure = bandwidthPressure || tokens < 0;
+        bytesPerSecond += (sentBytes / dt - bytesPerSecond) * 0.1;
+
+        budgetChannel.set(BYTES_PER_SECOND, bytesPerSecond)
+                     .set(BUDGET, budget)
+                     .set(TOKENS, tokens)
+                     .set(LOW_DECIMATION, lowDecimation)
+                     .set(NORMAL_DECIMATION, normalDecimation)
+                     .set(THROTTLED, throttled)
+                     .set(THROTTLED_TOTAL, throttledTotal)
+                     .set(LOOP_PRESSURE, loopPressure)
+                     .set(BANDWIDTH_PRESSURE, bandwidthPressure)
+                     .set(FMS_ATTACHED, fmsAttached)
+                     .send();
+
+        //the list of names only goes out when it changes
+        if(throttledChanged) {
+            throttledChanged = false;
+            var names = new String[throttled];
+            var n = 0;
+            for (int i = 0; i < topicList.size() && n < throttled; i++) {
+                if(topicList.get(i).throttled) names[n++] = topicList.get(i).key;
+            }
+            throttledPublisher.set(names);
+        }
+    }
+
+    private static class Topic {
+        private final String key;
+        private final Priority priority;
+        private final GenericPublisher publisher;
+        private final boolean isString;
+        private final boolean isBoolean; //stored as 1 or 0
+        private final double deadband;
+        private final int offset; //which loop of the decimation it goes out on
+
+        private String pendingString = "";
+        private double pendingNumber = 0;
+        private String sentString = null;
+        private double sentNumber = 0;
+        private boolean hasSent = false;
+        private boolean dirty = false;
+        private boolean throttled = false;
+
+        private Topic (String key, Priority priority, GenericPublisher publisher, String type, double deadband, int offset) {
+            this.key = key;
+            this.priority = priority;
+            this.publisher = publisher;
+            this.isString = type.equals("string");
+            this.isBoolean = type.equals("boolean");
+            this.deadband = deadband;
+            this.offset = offset;
+        }
+
+        private int estimateSize () {
+            return VALUE_OVERHEAD + (isString ? pendingString.length() : 8);
+        }
+
+        /**
+         * @return roughly how many bytes it took
+         */
+        private int send () {
+            var size = estimateSize();
+            if(isString) {
+                publisher.setString(pendingString);
+                sentString = pendingString;
+            } else {
+                if(isBoolean) publisher.setBoolean(pendingNumber != 0);
+                else publisher.setDouble(pendingNumber);
+                sentNumber = pendingNumber;
+            }
+            hasSent = true;
+            dirty = false;
+            return size;
+        }
+
+        private void setThrottled (boolean throttled) {
+            if(this.throttled == throttled) return;
+            this.throttled = throttled;
+            throttledChanged = true;
+        }
+    }
+}
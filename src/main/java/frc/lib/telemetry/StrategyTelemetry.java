@@ -1,58 +1,265 @@
 package frc.lib.telemetry;
 
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Timer;
+import frc.lib.util.Console;
+import frc.lib.util.Histogram;
+import frc.robot.RobotStatemachine.SuperstructureState;
 import frc.robot.TeleopInputs;
 import frc.robot.TeleopInputs.TeleopMode;
-import frc.robot.planners.NoteTracker;
 import frc.robot.planners.NoteTracker.NoteLocation;
 
 import java.util.ArrayList;
 
 /**
- * Log timing data for strategic analysis of the robot's performance
+ * Log timing data for strategic analysis of the robot's performance.
+ *
+ * Every cycle is split into phases, so we can see which part of the robot is holding up our cycles:
+ *  - drive: last shot (or enable) until we start intaking
+ *  - intake: start intaking until the note trips the trigger switch
+ *  - index: switch tripped until the note is sitting in the shooter
+ *  - carry: note in the shooter until we start aiming
+ *  - aim: start aiming until the shot is ready (or the shot, if it never got ready), split into how long
+ *    the flywheel, pivot and heading each took to get in tolerance
+ *  - shoot: ready until the note is gone
+ * The timestamps come from the hooks, which are called right where things change (superstructure state changes,
+ * the note tracker and the shot readiness planner), so it doesn't matter that {@link #update()} gets put off sometimes.
  */
 public class StrategyTelemetry {
-    private static Timer cycleTimer = new Timer();
+    private static final double PHASE_HISTOGRAM_MAX = 10; //seconds, longer phases all go in the last bin
+    private static final int PHASE_HISTOGRAM_BINS = 200;
+
+    private static final int DRIVE = 0, INTAKE = 1, INDEX = 2, CARRY = 3, AIM = 4, SHOOT = 5, FLYWHEEL = 6, PIVOT = 7, HEADING = 8;
+    private static final String[] PHASE_NAMES = {"Drive", "Intake", "Index", "Carry", "Aim", "Shoot", "Flywheel", "Pivot", "Heading"};
+
     private static ArrayList<Cycle> cycles = new ArrayList<>();
-    private static NoteLocation lastNoteLocation = NoteLocation.NONE;
 
     private static boolean hasMatchStarted = false;
 
+    /* TRANSITION TIMESTAMPS (fpga seconds, NaN if it hasn't happened this cycle) */
+    private static double cycleStart = Double.NaN;
+    private static double intakeStart = Double.NaN;
+    private static double acquired = Double.NaN;
+    private static double indexed = Double.NaN;
+    private static double aimStart = Double.NaN;
+    private static double aimed = Double.NaN;
+    private static boolean wasReady = false;
+    private static boolean hasAimSample = false;
+    private static double flywheelSettled = Double.NaN;
+    private static double pivotSettled = Double.NaN;
+    private static double headingSettled = Double.NaN;
+
+    /* FINISHED CYCLE, waiting for update() to log it */
+    private static final double[] phases = new double[PHASE_NAMES.length];
+    private static final Histogram[] phaseHistograms = new Histogram[PHASE_NAMES.length];
+    private static boolean cyclePending = false;
+    private static double pendingCycleTime = 0;
+    private static CycleType pendingCycleType = CycleType.SPEAKER;
+
+    private static final StringLogEntry cycleTypeLog = new StringLogEntry(DataLogManager.getLog(), "Strategy/Cycle Type");
+    private static final DoubleLogEntry cycleTimeLog = new DoubleLogEntry(DataLogManager.getLog(), "Strategy/Cycle Time");
+    private static final StringLogEntry aimLimiterLog = new StringLogEntry(DataLogManager.getLog(), "Strategy/Aim Limiter");
+
+    private static final TelemetryStruct phaseStruct = new TelemetryStruct("CyclePhases");
+    private static final int CYCLE_TIME = phaseStruct.addDouble("cycleTime");
+    private static final int CYCLE_COUNT = phaseStruct.addDouble("cycleCount");
+    private static final int[] PHASE_FIELDS = new int[PHASE_NAMES.length];
+    private static final int[] P50_FIELDS = new int[PHASE_NAMES.length];
+    private static final int[] P90_FIELDS = new int[PHASE_NAMES.length];
+    static {
+        for (int i = 0; i < PHASE_NAMES.length; i++) {
+            var name = PHASE_NAMES[i].toLowerCase();
+            PHASE_FIELDS[i] = phaseStruct.addDouble(name);
+            P50_FIELDS[i] = phaseStruct.addDouble(name + "P50");
+            P90_FIELDS[i] = phaseStruct.addDouble(name + "P90");
+            phaseHistograms[i] = new Histogram(0, PHASE_HISTOGRAM_MAX, PHASE_HISTOGRAM_BINS);
+        }
+    }
+    private static final TelemetryStruct.Channel phaseChannel = phaseStruct.open(NetworkTableInstance.getDefault().getTable("Strategy"), "Cycle Phases", DataLogManager.getLog(), "Strategy/Cycle Phases");
+
     public static void update() {
         if(!hasMatchStarted) {
             if(DriverStation.isEnabled()) {
                 hasMatchStarted = true;
-                cycleTimer.start();
-                cycleTimer.reset();
+                cyclePending = false;
+                clearCycle(Timer.getFPGATimestamp());
             } else {
                 return;
             }
         } else {
             if(DriverStation.isDisabled()) {
-                cycleTimer.stop();
                 hasMatchStarted = false;
                 var averageCycleTime = cycles.stream().mapToDouble(c -> c.time).average().orElse(0);
                 var averageAmpCycleTime = cycles.stream().filter(c -> c.type == CycleType.AMP).mapToDouble(c -> c.time).average().orElse(0);
                 var averageSpeakerCycleTime = cycles.stream().filter(c -> c.type == CycleType.SPEAKER).mapToDouble(c -> c.time).average().orElse(0);
 
-                System.out.println("Match Complete!");
-                System.out.println("Average Cycle Time: " + averageCycleTime);
-                System.out.println("Average Amp Cycle Time: " + averageAmpCycleTime);
-                System.out.println("Average Speaker Cycle Time: " + averageSpeakerCycleTime);
-                System.out.println("Total Cycles: " + cycles.size());
-                System.out.println("Total Amp Cycles: " + cycles.stream().filter(c -> c.type == CycleType.AMP).count());
-                System.out.println("Total Speaker Cycles: " + cycles.stream().filter(c -> c.type == CycleType.SPEAKER).count());
-                System.out.println("Cycles: ");
-                cycles.forEach((c) -> System.out.println("   > " + c));
+                Console.info("Match Complete!");
+                Console.info("Average Cycle Time: " + averageCycleTime);
+                Console.info("Average Amp Cycle Time: " + averageAmpCycleTime);
+                Console.info("Average Speaker Cycle Time: " + averageSpeakerCycleTime);
+                Console.info("Total Cycles: " + cycles.size());
+                Console.info("Total Amp Cycles: " + cycles.stream().filter(c -> c.type == CycleType.AMP).count());
+                Console.info("Total Speaker Cycles: " + cycles.stream().filter(c -> c.type == CycleType.SPEAKER).count());
+                Console.info("Median Phase Times: ");
+                for (int i = 0; i < PHASE_NAMES.length; i++) {
+                    Console.info("   > " + PHASE_NAMES[i] + ": " + phaseHistograms[i].getPercentile(50) + " (p90 " + phaseHistograms[i].getPercentile(90) + ")");
+                }
+                Console.info("Cycles: ");
+                cycles.forEach((c) -> Console.info("   > " + c));
             }
         }
-        if(NoteTracker.getLocation() == NoteLocation.NONE && lastNoteLocation != NoteLocation.NONE) {
-            if(TeleopInputs.getInstance().getMode() == TeleopMode.CLIMB) return;
-            var cycle = new Cycle(cycleTimer.get(), TeleopInputs.getInstance().getMode() == TeleopMode.AMP ? CycleType.AMP : CycleType.SPEAKER);
-            cycles.add(cycle);
-            System.out.println(cycle);
+
+        if(cyclePending) {
+            cyclePending = false;
+            logCycle();
+        }
+    }
+
+    /**
+     * Call when the superstructure changes state (from the main loop)
+     * @param from the state it was in
+     * @param to the new state
+     */
+    public static void stateChanged (SuperstructureState from, SuperstructureState to) {
+        var now = Timer.getFPGATimestamp();
+        //only the last time counts, toggling the intake on the way to the source is still driving
+        if(to.isIntaking() && !from.isIntaking() && Double.isNaN(acquired)) intakeStart = now;
+        //switching between aim states (like layup to auto aim) is still the same aim
+        if(to.isAiming() && !from.isAiming()) aimStart = now;
+    }
+
+    /**
+     * Call when the note tracker thinks the note moved (from the main loop)
+     * @param location where the note is now
+     */
+    public static void noteMoved (NoteLocation location) {
+        var now = Timer.getFPGATimestamp();
+        switch (location) {
+            case INDEXING:
+                if(Double.isNaN(acquired)) acquired = now; //the note can bounce back onto the switch, the first trip is when we got it
+                break;
+            case SHOOTER:
+                indexed = now;
+                break;
+            case NONE:
+                finishCycle(now);
+                break;
+        }
+    }
+
+    /**
+     * Call every loop the shot readiness planner is aiming
+     * @param ready whether it thinks the shot is ready
+     * @param flywheelSince when the flywheel error got in tolerance (fpga seconds), NaN if it isn't
+     * @param pivotSince when the pivot error got in tolerance, NaN if it isn't
+     * @param headingSince when the heading error got in tolerance, NaN if it isn't
+     */
+    public static void aimUpdate (boolean ready, double flywheelSince, double pivotSince, double headingSince) {
+        if(ready && !wasReady) aimed = Timer.getFPGATimestamp();
+        //keep what it looked like when the shot got ready, not after
+        if(!ready || !wasReady) {
+            flywheelSettled = flywheelSince;
+            pivotSettled = pivotSince;
+            headingSettled = headingSince;
+        }
+        wasReady = ready;
+        hasAimSample = true;
+    }
+
+    /**
+     * Call when the shot readiness planner stops aiming, so the next time it's ready counts
+     */
+    public static void aimStopped () {
+        wasReady = false;
+    }
+
+    private static void finishCycle (double now) {
+        if(!hasMatchStarted) return;
+        if(TeleopInputs.getInstance().getMode() == TeleopMode.CLIMB) {
+            clearCycle(now);
+            return;
+        }
+
+        var carryStart = Double.isNaN(indexed) ? acquired : indexed;
+        var aimFrom = Double.isNaN(aimStart) || aimStart < carryStart ? carryStart : aimStart;
+        var gotReady = !Double.isNaN(aimed) && aimed >= aimFrom;
+        var aimTo = gotReady ? aimed : now;
+
+        phases[DRIVE] = between(cycleStart, intakeStart);
+        phases[INTAKE] = between(intakeStart, acquired);
+        phases[INDEX] = between(acquired, indexed);
+        phases[CARRY] = between(indexed, aimFrom);
+        phases[AIM] = between(aimFrom, aimTo);
+        phases[SHOOT] = gotReady ? between(aimTo, now) : Double.NaN;
+        phases[FLYWHEEL] = settleTime(flywheelSettled, aimFrom, aimTo);
+        phases[PIVOT] = settleTime(pivotSettled, aimFrom, aimTo);
+        phases[HEADING] = settleTime(headingSettled, aimFrom, aimTo);
+
+        pendingCycleTime = now - cycleStart;
+        pendingCycleType = TeleopInputs.getInstance().getMode() == TeleopMode.AMP ? CycleType.AMP : CycleType.SPEAKER;
+        cyclePending = true;
+        clearCycle(now); //the next cycle starts now
+    }
+
+    private static void clearCycle (double now) {
+        cycleStart = now;
+        intakeStart = Double.NaN;
+        acquired = Double.NaN;
+        indexed = Double.NaN;
+        aimStart = Double.NaN;
+        aimed = Double.NaN;
+        hasAimSample = false;
+        flywheelSettled = Double.NaN;
+        pivotSettled = Double.NaN;
+        headingSettled = Double.NaN;
+    }
+
+    /**
+     * @return the time from start to end, NaN if either didn't happen or they're out of order
+     */
+    private static double between (double start, double end) {
+        if(Double.isNaN(start) || Double.isNaN(end) || end < start) return Double.NaN;
+        return end - start;
+    }
+
+    /**
+     * @return how much of the aim a mechanism spent out of tolerance, all of it if it never got there,
+     *         NaN if the readiness planner wasn't tracking this aim (like amp shots)
+     */
+    private static double settleTime (double settled, double aimFrom, double aimTo) {
+        if(Double.isNaN(aimFrom) || !hasAimSample) return Double.NaN;
+        if(Double.isNaN(settled)) return aimTo - aimFrom;
+        return Math.max(0, Math.min(settled, aimTo) - aimFrom);
+    }
+
+    private static void logCycle () {
+        var cycle = new Cycle(pendingCycleTime, pendingCycleType);
+        cycles.add(cycle);
+        cycleTypeLog.append(cycle.type.name()); //type first, the log analyzer pairs it with the next time
+        cycleTimeLog.append(cycle.time);
+
+        for (int i = 0; i < phases.length; i++) {
+            phaseHistograms[i].record(phases[i]);
+            phaseChannel.set(PHASE_FIELDS[i], phases[i])
+                        .set(P50_FIELDS[i], phaseHistograms[i].getPercentile(50))
+                        .set(P90_FIELDS[i], phaseHistograms[i].getPercentile(90));
+        }
+        phaseChannel.set(CYCLE_TIME, cycle.time)
+                    .set(CYCLE_COUNT, cycles.size())
+                    .send();
+
+        //whichever mechanism took the longest is the one to go fix
+        var limiter = -1;
+        for (int i = FLYWHEEL; i <= HEADING; i++) {
+            if(!Double.isNaN(phases[i]) && (limiter < 0 || phases[i] > phases[limiter])) limiter = i;
         }
+        if(limiter >= 0 && phases[limiter] > 0) aimLimiterLog.append(PHASE_NAMES[limiter]);
+
+        Console.info(cycle.toString());
     }
 
     private static class Cycle {
@@ -1,6 +1,8 @@
 package frc.lib.telemetry;
 
 import com.ctre.phoenix6.mechanisms.swerve.SwerveDrivetrain.SwerveDriveState;
+import java.util.function.Supplier;
+
 import com.pathplanner.lib.util.PathPlannerLogging;
 
 import edu.wpi.first.math.geometry.Pose2d;
@@ -8,7 +10,10 @@ import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
 import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.StructArrayPublisher;
@@ -17,6 +22,7 @@ import edu.wpi.first.util.datalog.BooleanLogEntry;
 import edu.wpi.first.util.datalog.DataLog;
 import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
 import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
 import edu.wpi.first.util.datalog.StructLogEntry;
 import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
@@ -24,6 +30,8 @@ import edu.wpi.first.wpilibj.smartdashboard.Mechanism2d;
 import edu.wpi.first.wpilibj.smartdashboard.MechanismLigament2d;
 import edu.wpi.first.wpilibj.smartdashboard.MechanismRoot2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.swerve.ModuleSnapshot;
+import frc.lib.util.Histogram;
 import frc.robot.Constants;
 import frc.robot.Robot;
 
@@ -40,6 +48,15 @@ public class SwerveTelemetry {
     
     private static final DoubleArrayLogEntry swerveDataPublisher = new DoubleArrayLogEntry(log, "Swerve/Swerve Measured Data");
     private static final DoubleArrayLogEntry swerveRequestedData = new DoubleArrayLogEntry(log, "Swerve/Swerve Requested Data");
+    private static final StructLogEntry <Pose2d> swervePoseLog = StructLogEntry.create(log, "Swerve/Pose", Pose2d.struct);
+    //reused every update so the odometry thread doesn't make garbage
+    private static final double[] swerveData = new double[8];
+    private static final double[] swerveRequestedDataArray = new double[8];
+
+    //everything on the odometry thread goes to the datalog every update, but only to networktables (and Field2d and Mechanism2d) at this rate
+    private static final double NETWORK_PERIOD = 1.0 / Constants.Swerve.telemetryNetworkFrequency;
+    private static double networkTime = NETWORK_PERIOD;
+    private static boolean networkDue = true;
 
     private static final DoublePublisher measuredXVelocity = swerveTable.getDoubleTopic("Measured X Velocity").publish();
     private static final DoublePublisher measuredYVelocity = swerveTable.getDoubleTopic("Measured Y Velocity").publish();
@@ -47,12 +64,62 @@ public class SwerveTelemetry {
     
     private static final DoubleLogEntry odometryPeriod = new DoubleLogEntry(log, "Swerve/Odometry Period");
 
+    //odometry period distribution: percentiles over the last window, and the bin counts since boot
+    private static final double ODOMETRY_PERIOD_WINDOW = 1; //seconds
+    private static final Histogram odometryPeriodWindow = new Histogram(0, 0.05, 250);
+    private static final Histogram odometryPeriodTotal = new Histogram(0, 0.05, 250);
+    private static final double[] odometryPeriodCounts = new double[odometryPeriodTotal.getBinCount()];
+    private static final double[] odometryPeriodPercentiles = new double[5];
+    private static double odometryPeriodWindowTime = 0;
+    private static final NetworkTable odometryPeriodTable = swerveTable.getSubTable("Odometry Period");
+    private static final DoublePublisher odometryPeriodP50Publisher = odometryPeriodTable.getDoubleTopic("p50").publish();
+    private static final DoublePublisher odometryPeriodP90Publisher = odometryPeriodTable.getDoubleTopic("p90").publish();
+    private static final DoublePublisher odometryPeriodP99Publisher = odometryPeriodTable.getDoubleTopic("p99").publish();
+    private static final DoublePublisher odometryPeriodMaxPublisher = odometryPeriodTable.getDoubleTopic("Max").publish();
+    private static final DoublePublisher odometryFrequencyPublisher = odometryPeriodTable.getDoubleTopic("Achieved Frequency").publish();
+    //[p50, p90, p99, max, mean]
+    private static final DoubleArrayLogEntry odometryPeriodPercentileLog = new DoubleArrayLogEntry(log, "Swerve/Odometry Period Percentiles");
+    private static final DoubleArrayLogEntry odometryPeriodHistogramLog = new DoubleArrayLogEntry(log, "Swerve/Odometry Period Histogram");
+
+    private static final NetworkTable wheelSlipTable = swerveTable.getSubTable("Wheel Slip");
+    private static final DoubleArrayPublisher wheelSlipScorePublisher = wheelSlipTable.getDoubleArrayTopic("Slip Scores").publish();
+    private static final BooleanPublisher wheelSkiddingPublisher = wheelSlipTable.getBooleanTopic("Skidding").publish();
+    private static final IntegerPublisher wheelSkidCountPublisher = wheelSlipTable.getIntegerTopic("Skid Count").publish();
+    private static final DoubleArrayLogEntry wheelSlipScoreLog = new DoubleArrayLogEntry(log, "Swerve/Wheel Slip Scores");
+    private static final IntegerLogEntry wheelSkidModuleLog = new IntegerLogEntry(log, "Swerve/Wheel Skid Module");
+    private static boolean lastSkidding = false;
+
+    private static final NetworkTable poseEstimatorTable = swerveTable.getSubTable("Pose Estimator");
+    private static final StructPublisher<Pose2d> estimatedPosePublisher = poseEstimatorTable.getStructTopic("Estimated Pose", Pose2d.struct).publish();
+    private static final DoublePublisher estimatedPositionStdDevPublisher = poseEstimatorTable.getDoubleTopic("Position StdDev").publish();
+    private static final DoublePublisher estimatedHeadingStdDevPublisher = poseEstimatorTable.getDoubleTopic("Heading StdDev").publish();
+    private static final IntegerPublisher estimatorDroppedVisionPublisher = poseEstimatorTable.getIntegerTopic("Dropped Vision").publish();
+    private static final IntegerLogEntry visionMeasurementsLog = new IntegerLogEntry(log, "Swerve/Pose Estimator/Vision Measurements");
+    private static final IntegerLogEntry droppedVisionLog = new IntegerLogEntry(log, "Swerve/Pose Estimator/Dropped Vision");
+    private static long visionMeasurements = 0;
+    private static long lastDroppedVision = 0;
+
+    private static final DoubleArrayLogEntry moduleSteerErrorLog = new DoubleArrayLogEntry(log, "Swerve/Module Steer Errors");
+    private static final DoubleArrayLogEntry moduleDriveErrorLog = new DoubleArrayLogEntry(log, "Swerve/Module Drive Errors");
+    private static final DoubleArrayLogEntry moduleDriveStatorCurrentLog = new DoubleArrayLogEntry(log, "Swerve/Module Drive Stator Currents");
+    private static final DoubleArrayLogEntry moduleDriveSupplyCurrentLog = new DoubleArrayLogEntry(log, "Swerve/Module Drive Supply Currents");
+    private static final DoubleArrayLogEntry moduleSteerStatorCurrentLog = new DoubleArrayLogEntry(log, "Swerve/Module Steer Stator Currents");
+    private static final DoubleArrayLogEntry moduleSteerSupplyCurrentLog = new DoubleArrayLogEntry(log, "Swerve/Module Steer Supply Currents");
+    private static final DoubleArrayLogEntry moduleDriveTemperatureLog = new DoubleArrayLogEntry(log, "Swerve/Module Drive Temperatures");
+    private static final DoubleArrayLogEntry moduleSteerTemperatureLog = new DoubleArrayLogEntry(log, "Swerve/Module Steer Temperatures");
+    private static final DoublePublisher totalDriveCurrentPublisher = swerveTable.getDoubleTopic("Total Drive Current").publish();
+
+    private static final DoubleArrayLogEntry tractionSlipRatioLog = new DoubleArrayLogEntry(log, "Swerve/Traction Slip Ratios");
+    private static final DoubleArrayLogEntry tractionCommandScaleLog = new DoubleArrayLogEntry(log, "Swerve/Traction Command Scales");
+
 
     
     private static final DoubleLogEntry swerveRequestedXVelocity = new DoubleLogEntry(log, "Swerve/Requested X Velocity");
     private static final DoubleLogEntry swerveRequestedYVelocity = new DoubleLogEntry(log, "Swerve/Requested Y Velocity");
     private static final DoubleLogEntry swerveRequestedRawXVelocity = new DoubleLogEntry(log, "Swerve/Requested Raw X Velocity");
     private static final DoubleLogEntry swerveRequestedRawYVelocity = new DoubleLogEntry(log, "Swerve/Requested Raw Y Velocity");
+    private static final DoubleLogEntry swerveAppliedXVelocity = new DoubleLogEntry(log, "Swerve/Applied X Velocity");
+    private static final DoubleLogEntry swerveAppliedYVelocity = new DoubleLogEntry(log, "Swerve/Applied Y Velocity");
 
     private static final DoubleLogEntry swerveRequestedAngularVelocity = new DoubleLogEntry(log, "Swerve/Requested Angular Velocity");
     private static final DoubleLogEntry swerveRequestedAutoHeadingAngle = new DoubleLogEntry(log, "Swerve/Requested Auto Heading Angle");
@@ -65,6 +132,8 @@ public class SwerveTelemetry {
     private static final NetworkTable autoHeadingTable = swerveTable.getSubTable("Auto Heading");
     private static final DoublePublisher autoHeadingAngle = autoHeadingTable.getDoubleTopic("Target").publish();
     private static final DoublePublisher autoHeadingError = autoHeadingTable.getDoubleTopic("Error").publish();
+    private static final DoubleLogEntry autoHeadingTargetLog = new DoubleLogEntry(log, "Swerve/Auto Heading Target");
+    private static final DoubleLogEntry autoHeadingErrorLog = new DoubleLogEntry(log, "Swerve/Auto Heading Error");
     private static final DoubleLogEntry autoHeadingPComponent = new DoubleLogEntry(log, "Swerve/Auto Heading P Component");
     private static final DoubleLogEntry autoHeadingFeedForward = new DoubleLogEntry(log, "Swerve/Auto Heading Feed Forward");
     private static final DoubleLogEntry autoHeadingTrajectoryVelocity = new DoubleLogEntry(log, "Swerve/Auto Heading Trajectory Velocity");
@@ -110,19 +179,18 @@ public class SwerveTelemetry {
         });
     }
 
-    public static void updateSwerveState(SwerveDriveState state, ChassisSpeeds measuredSpeeds, Pose3d pose) {
-        swervePosePublisher.accept(pose);//TODO update once have 3d odometry stuff
-        field.setRobotPose(state.Pose);
-
-        frontLeftLigament.setAngle(state.ModuleStates[0].angle.getDegrees());
-        frontRightLigament.setAngle(state.ModuleStates[1].angle.getDegrees());
-        rearLeftLigament.setAngle(state.ModuleStates[2].angle.getDegrees());
-        rearRightLigament.setAngle(state.ModuleStates[3].angle.getDegrees());
-
-        frontLeftLigament.setLength(state.ModuleStates[0].speedMetersPerSecond / Constants.Swerve.pathfollowingMaxVelocity);
-        frontRightLigament.setLength(state.ModuleStates[1].speedMetersPerSecond / Constants.Swerve.pathfollowingMaxVelocity);
-        rearLeftLigament.setLength(state.ModuleStates[2].speedMetersPerSecond / Constants.Swerve.pathfollowingMaxVelocity);
-        rearRightLigament.setLength(state.ModuleStates[3].speedMetersPerSecond / Constants.Swerve.pathfollowingMaxVelocity);
+    /**
+     * Log the swerve state, called on the odometry thread every update.
+     * Everything goes to the datalog, the networktables stuff only goes out at Constants.Swerve.telemetryNetworkFrequency.
+     * This also decides whether the other odometry thread updates publish this time, so call it first.
+     * @param state the state from CTRE
+     * @param measuredSpeeds the field relative speeds, only calculated when they're actually published
+     * @param pose the 3d pose, only grabbed when it's actually published
+     */
+    public static void updateSwerveState(SwerveDriveState state, Supplier<ChassisSpeeds> measuredSpeeds, Supplier<Pose3d> pose) {
+        networkTime += state.OdometryPeriod;
+        networkDue = networkTime >= NETWORK_PERIOD;
+        if(networkDue) networkTime %= NETWORK_PERIOD;
 
         /*
         format needed for advantagescope:
@@ -133,18 +201,64 @@ public class SwerveTelemetry {
             rotation_4, velocity_4
         ]
          */
-        double[] swerveData = new double[]{
-            state.ModuleStates[0].angle.getDegrees(), state.ModuleStates[0].speedMetersPerSecond,
-            state.ModuleStates[1].angle.getDegrees(), state.ModuleStates[1].speedMetersPerSecond,
-            state.ModuleStates[2].angle.getDegrees(), state.ModuleStates[2].speedMetersPerSecond,
-            state.ModuleStates[3].angle.getDegrees(), state.ModuleStates[3].speedMetersPerSecond
-        };
-        swerveDataPublisher.append(swerveData);
-
-        measuredXVelocity.accept(measuredSpeeds.vxMetersPerSecond);
-        measuredYVelocity.accept(measuredSpeeds.vyMetersPerSecond);
-        measuredAngularVelocity.accept(measuredSpeeds.omegaRadiansPerSecond);
+        if(state.ModuleStates != null) {
+            for (int i = 0; i < 4; i++) {
+                swerveData[2 * i] = state.ModuleStates[i].angle.getDegrees();
+                swerveData[2 * i + 1] = state.ModuleStates[i].speedMetersPerSecond;
+            }
+            swerveDataPublisher.append(swerveData);
+        }
+        if(state.Pose != null) swervePoseLog.append(state.Pose);
+
         odometryPeriod.append(state.OdometryPeriod);
+        updateOdometryPeriod(state.OdometryPeriod);
+
+        if(!networkDue) return;
+
+        swervePosePublisher.accept(pose.get());
+        if(state.Pose != null) field.setRobotPose(state.Pose);
+
+        if(state.ModuleStates != null) {
+            frontLeftLigament.setAngle(swerveData[0]);
+            frontRightLigament.setAngle(swerveData[2]);
+            rearLeftLigament.setAngle(swerveData[4]);
+            rearRightLigament.setAngle(swerveData[6]);
+
+            frontLeftLigament.setLength(swerveData[1] / Constants.Swerve.pathfollowingMaxVelocity);
+            frontRightLigament.setLength(swerveData[3] / Constants.Swerve.pathfollowingMaxVelocity);
+            rearLeftLigament.setLength(swerveData[5] / Constants.Swerve.pathfollowingMaxVelocity);
+            rearRightLigament.setLength(swerveData[7] / Constants.Swerve.pathfollowingMaxVelocity);
+        }
+
+        var speeds = measuredSpeeds.get();
+        measuredXVelocity.accept(speeds.vxMetersPerSecond);
+        measuredYVelocity.accept(speeds.vyMetersPerSecond);
+        measuredAngularVelocity.accept(speeds.omegaRadiansPerSecond);
+    }
+
+    private static void updateOdometryPeriod(double period) {
+        odometryPeriodWindow.record(period);
+        odometryPeriodTotal.record(period);
+        odometryPeriodWindowTime += period;
+        if(odometryPeriodWindowTime < ODOMETRY_PERIOD_WINDOW) return;
+
+        odometryPeriodPercentiles[0] = odometryPeriodWindow.getPercentile(50);
+        odometryPeriodPercentiles[1] = odometryPeriodWindow.getPercentile(90);
+        odometryPeriodPercentiles[2] = odometryPeriodWindow.getPercentile(99);
+        odometryPeriodPercentiles[3] = odometryPeriodWindow.getMax();
+        odometryPeriodPercentiles[4] = odometryPeriodWindow.getMean();
+        odometryPeriodPercentileLog.append(odometryPeriodPercentiles);
+        odometryPeriodP50Publisher.accept(odometryPeriodPercentiles[0]);
+        odometryPeriodP90Publisher.accept(odometryPeriodPercentiles[1]);
+        odometryPeriodP99Publisher.accept(odometryPeriodPercentiles[2]);
+        odometryPeriodMaxPublisher.accept(odometryPeriodPercentiles[3]);
+        odometryFrequencyPublisher.accept(odometryPeriodWindow.getCount() / odometryPeriodWindowTime);
+
+        odometryPeriodTotal.getCounts(odometryPeriodCounts);
+        odometryPeriodHistogramLog.append(odometryPeriodCounts);
+
+        odometryPeriodWindow.reset();
+        odometryPeriodWindowTime = 0;
     }
 
     public static void updateSwerveCommand(double requestedXVelocity, 
@@ -171,6 +285,14 @@ public class SwerveTelemetry {
         requestZeroOdometryPublisher.append(isZeroOdometry);
     }
 
+    /**
+     * The translation the request actually applied (after position correction), runs on the odometry thread
+     */
+    public static void updateAppliedVelocity(double xVelocity, double yVelocity) {
+        swerveAppliedXVelocity.append(xVelocity);
+        swerveAppliedYVelocity.append(yVelocity);
+    }
+
     public static void updateAutoHeading(double targetAngle, 
                                         double error, 
                                         double pComponent, 
@@ -179,8 +301,12 @@ public class SwerveTelemetry {
                                         double trajectoryAcceleration, 
                                         double trajectoryPosition, 
                                         boolean isCurrentLimited) {
-        autoHeadingAngle.accept(targetAngle);
-        autoHeadingError.accept(error);
+        autoHeadingTargetLog.append(targetAngle);
+        autoHeadingErrorLog.append(error);
+        if(networkDue) {
+            autoHeadingAngle.accept(targetAngle);
+            autoHeadingError.accept(error);
+        }
         autoHeadingPComponent.append(pComponent);
         autoHeadingFeedForward.append(feedForward);
         autoHeadingTrajectoryVelocity.append(trajectoryVelocity);
@@ -198,13 +324,67 @@ public class SwerveTelemetry {
         //     rotation_4, velocity_4
         // ]
 
-        double[] swerveRequestedData = new double[]{
-            states[0].angle.getDegrees(), states[0].speedMetersPerSecond,
-            states[1].angle.getDegrees(), states[1].speedMetersPerSecond,
-            states[2].angle.getDegrees(), states[2].speedMetersPerSecond,
-            states[3].angle.getDegrees(), states[3].speedMetersPerSecond
-        };
-        SwerveTelemetry.swerveRequestedData.append(swerveRequestedData);
+        for (int i = 0; i < 4; i++) {
+            swerveRequestedDataArray[2 * i] = states[i].angle.getDegrees();
+            swerveRequestedDataArray[2 * i + 1] = states[i].speedMetersPerSecond;
+        }
+        swerveRequestedData.append(swerveRequestedDataArray);
+    }
+
+    /**
+     * @param slipScores the slip score of each module
+     * @param skidding whether any module is skidding
+     * @param skidModule the module skidding the worst, -1 if none
+     * @param skidCount how many skids there have been
+     */
+    public static void updateWheelSlip(double[] slipScores, boolean skidding, int skidModule, long skidCount){
+        if(networkDue) wheelSlipScorePublisher.accept(slipScores);
+        wheelSlipScoreLog.append(slipScores);
+        //only log the skid events, not every update
+        if(skidding != lastSkidding) {
+            wheelSkiddingPublisher.accept(skidding);
+            wheelSkidCountPublisher.accept(skidCount);
+            wheelSkidModuleLog.append(skidModule);
+            lastSkidding = skidding;
+        }
+    }
+
+    public static void updatePoseEstimator(Pose2d pose, double positionStdDev, double headingStdDev, long droppedVision){
+        estimatedPosePublisher.accept(pose);
+        estimatedPositionStdDevPublisher.accept(positionStdDev);
+        estimatedHeadingStdDevPublisher.accept(headingStdDev);
+        estimatorDroppedVisionPublisher.accept(droppedVision);
+        if(droppedVision != lastDroppedVision) {
+            droppedVisionLog.append(droppedVision);
+            lastDroppedVision = droppedVision;
+        }
+    }
+
+    /**
+     * Count a vision measurement given to the pose estimator (dropped ones are counted by the estimator)
+     */
+    public static void countVisionMeasurement(){
+        visionMeasurementsLog.append(++visionMeasurements);
+    }
+
+    /**
+     * log the module snapshot, straight from its arrays so nothing gets allocated
+     */
+    public static void updateModuleSnapshot(ModuleSnapshot snapshot){
+        moduleSteerErrorLog.append(snapshot.steerError);
+        moduleDriveErrorLog.append(snapshot.driveError);
+        moduleDriveStatorCurrentLog.append(snapshot.driveStatorCurrent);
+        moduleDriveSupplyCurrentLog.append(snapshot.driveSupplyCurrent);
+        moduleSteerStatorCurrentLog.append(snapshot.steerStatorCurrent);
+        moduleSteerSupplyCurrentLog.append(snapshot.steerSupplyCurrent);
+        moduleDriveTemperatureLog.append(snapshot.driveTemperature);
+        moduleSteerTemperatureLog.append(snapshot.steerTemperature);
+        totalDriveCurrentPublisher.accept(snapshot.getTotalDriveStatorCurrent());
+    }
+
+    public static void updateTractionControl(double[] slipRatios, double[] commandScales){
+        tractionSlipRatioLog.append(slipRatios);
+        tractionCommandScaleLog.append(commandScales);
     }
 
     public static void updatePositionCorrection(Translation2d delta, Translation2d measured){
@@ -0,0 +1,186 @@
+package frc.lib.telemetry;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.StructPublisher;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.StructLogEntry;
+import edu.wpi.first.util.struct.Struct;
+
+/**
+ * A WPILib struct made of a bunch of doubles and booleans, so a whole subsystem's telemetry can go out
+ * as one topic (and one datalog entry) instead of a publisher for every number.
+ * Everything in one sample is sent together, so advantagescope never sees half of one loop and half of the next.
+ *
+ * Add all the fields first (they give you back the index to set them with), then open channels with {@link #open}.
+ * Samples are reused and packed when they're sent, so sending doesn't allocate.
+ */
+public class TelemetryStruct implements Struct<TelemetryStruct.Sample> {
+    private final String name;
+    private final ArrayList<String> fieldNames = new ArrayList<>();
+    private final ArrayList<Boolean> fieldIsBoolean = new ArrayList<>();
+    private boolean[] isBoolean = null; //set once the layout is locked in
+    private int size = 0;
+
+    /**
+     * @param name the struct type name (shows up as struct:name), has to be unique
+     */
+    public TelemetryStruct (String name) {
+        this.name = name;
+    }
+
+    /**
+     * Add a double field
+     * @param fieldName the name of the field, no spaces
+     * @return the index to set it with
+     */
+    public int addDouble (String fieldName) {
+        return addField(fieldName, false);
+    }
+
+    /**
+     * Add a boolean field
+     * @param fieldName the name of the field, no spaces
+     * @return the index to set it with
+     */
+    public int addBoolean (String fieldName) {
+        return addField(fieldName, true);
+    }
+
+    private int addField (String fieldName, boolean bool) {
+        if(isBoolean != null) throw new IllegalStateException("Can't add " + fieldName + " to " + name + " after it's been used");
+        fieldNames.add(fieldName);
+        fieldIsBoolean.add(bool);
+        return fieldNames.size() - 1;
+    }
+
+    private void lock () {
+        if(isBoolean != null) return;
+        isBoolean = new boolean[fieldNames.size()];
+        size = 0;
+        for (int i = 0; i < isBoolean.length; i++) {
+            isBoolean[i] = fieldIsBoolean.get(i);
+            size += isBoolean[i] ? 1 : 8;
+        }
+    }
+
+    /**
+     * Make a new sample with every field at 0/false
+     */
+    public Sample newSample () {
+        lock();
+        return new Sample(isBoolean.length);
+    }
+
+    /**
+     * Open a networktables topic and a datalog entry for this struct, with a sample to fill in.
+     * @param table the table to put the topic in
+     * @param topicName the name of the topic
+     * @param log the datalog
+     * @param logName the name of the datalog entry
+     */
+    public Channel open (NetworkTable table, String topicName, DataLog log, String logName) {
+        return new Channel(
+            newSample(),
+            table.getStructTopic(topicName, this).publish(),
+            StructLogEntry.create(log, logName, this)
+        );
+    }
+
+    @Override
+    public Class<Sample> getTypeClass () {
+        return Sample.class;
+    }
+
+    @Override
+    public String getTypeString () {
+        return "struct:" + name;
+    }
+
+    @Override
+    public int getSize () {
+        lock();
+        return size;
+    }
+
+    @Override
+    public String getSchema () {
+        lock();
+        var schema = new StringBuilder();
+        for (int i = 0; i < isBoolean.length; i++) {
+            schema.append(isBoolean[i] ? "bool " : "double ").append(fieldNames.get(i)).append(';');
+        }
+        return schema.toString();
+    }
+
+    @Override
+    public Sample unpack (ByteBuffer bb) {
+        var sample = newSample();
+        for (int i = 0; i < isBoolean.length; i++) {
+            sample.values[i] = isBoolean[i] ? bb.get() : bb.getDouble();
+        }
+        return sample;
+    }
+
+    @Override
+    public void pack (ByteBuffer bb, Sample value) {
+        for (int i = 0; i < isBoolean.length; i++) {
+            if(isBoolean[i]) bb.put((byte) (value.values[i] != 0 ? 1 : 0));
+            else bb.putDouble(value.values[i]);
+        }
+    }
+
+    /**
+     * One set of values for a TelemetryStruct. Booleans are stored as 1 or 0.
+     */
+    public static class Sample {
+        public final double[] values;
+
+        private Sample (int fields) {
+            values = new double[fields];
+        }
+    }
+
+    /**
+     * A sample with a topic and datalog entry to send it to.
+     * Fill in the sample with set, then send it all at once.
+     */
+    public static class Channel {
+        private final Sample sample;
+        private final StructPublisher<Sample> publisher;
+        private final StructLogEntry<Sample> logEntry;
+
+        private Channel (Sample sample, StructPublisher<Sample> publisher, StructLogEntry<Sample> logEntry) {
+            this.sample = sample;
+            this.publisher = publisher;
+            this.logEntry = logEntry;
+        }
+
+        public Channel set (int field, double value) {
+            sample.values[field] = value;
+            return this;
+        }
+
+        public Channel set (int field, boolean value) {
+            sample.values[field] = value ? 1 : 0;
+            return this;
+        }
+
+        /**
+         * @return the value of a field as it is right now (might not have been sent yet)
+         */
+        public double get (int field) {
+            return sample.values[field];
+        }
+
+        /**
+         * Send the sample to networktables and the datalog
+         */
+        public void send () {
+            publisher.set(sample);
+            logEntry.append(sample);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package frc.lib.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prints to the console without blocking the robot loop.
+ * On the rio, System.out goes through netconsole and can stall for milliseconds, so messages are put
+ * in a fixed size lock-free queue and printed by a daemon thread instead.
+ * Any thread can log. If the queue fills up (something is spamming) new messages are dropped and counted,
+ * and the writer prints how many it lost.
+ *
+ * For stuff that could get called every loop, grab a {@link Site} with {@link #site(double)} and log through it,
+ * it only lets one message through every so often and counts the rest.
+ */
+public class Console {
+    public enum Level {
+        DEBUG, INFO, WARNING, ERROR
+    }
+
+    private static final int CAPACITY = 1024; //power of 2, big enough for the peacce banner and the desktop mains
+    private static final long WRITE_PERIOD_NANOS = 10_000_000; //how often the writer checks the queue
+
+    private static final int mask = CAPACITY - 1;
+    private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    private static final String[] messages = new String[CAPACITY];
+    private static final Level[] levels = new Level[CAPACITY];
+    private static final AtomicLong enqueuePosition = new AtomicLong(0);
+    private static long dequeuePosition = 0; //only touched while holding writeLock
+
+    private static final AtomicLong dropped = new AtomicLong(0);
+    private static final AtomicLong rateLimited = new AtomicLong(0);
+    private static long reportedDropped = 0;
+
+    private static final Object writeLock = new Object();
+    private static final StringBuilder output = new StringBuilder();
+    private static volatile Level minimumLevel = Level.DEBUG;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) sequences.set(i, i);
+
+        var writer = new Thread(() -> {
+            while (true) {
+                flush();
+                LockSupport.parkNanos(WRITE_PERIOD_NANOS);
+            }
+        }, "Console Writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        //daemon threads just die when the program ends, so print whatever's left (matters for the desktop mains)
+        Runtime.getRuntime().addShutdownHook(new Thread(Console::flush, "Console Flush"));
+    }
+
+    /**
+     * Queue a message to be printed. Safe to call from any thread, never blocks.
+     * @param level how bad it is, errors go to System.err
+     * @param message the message
+     * @return false if it was dropped (below the minimum level or the queue was full)
+     */
+    public static boolean log (Level level, String message) {
+        if(level.ordinal() < minimumLevel.ordinal()) return false;
+
+        long position = enqueuePosition.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) break;
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                dropped.incrementAndGet();
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+
+        messages[index] = message;
+        levels[index] = level;
+        sequences.set(index, position + 1); //publishes the slot to the writer
+        return true;
+    }
+
+    public static void debug (String message) {
+        log(Level.DEBUG, message);
+    }
+
+    public static void info (String message) {
+        log(Level.INFO, message);
+    }
+
+    public static void warning (String message) {
+        log(Level.WARNING, message);
+    }
+
+    public static void error (String message) {
+        log(Level.ERROR, message);
+    }
+
+    /**
+     * Messages below this level are thrown away before they're queued
+     * @param level the minimum level to print
+     */
+    public static void setMinimumLevel (Level level) {
+        minimumLevel = level;
+    }
+
+    /**
+     * Print everything in the queue right now. The writer thread does this on its own, you shouldn't need to.
+     */
+    public static void flush () {
+        synchronized (writeLock) {
+            output.setLength(0);
+            var errors = false;
+            while (true) {
+                int index = (int) (dequeuePosition & mask);
+                if (sequences.get(index) != dequeuePosition + 1) break;
+
+                var level = levels[index];
+                if(level != Level.INFO) output.append('[').append(level.name()).append("] ");
+                output.append(messages[index]).append('\n');
+                errors |= level == Level.ERROR;
+
+                messages[index] = null; //don't hang on to old strings
+                sequences.set(index, dequeuePosition + mask + 1); //hand the slot back to the producers
+                dequeuePosition++;
+            }
+
+            var droppedNow = dropped.get();
+            if(droppedNow != reportedDropped) {
+                output.append("[WARNING] Console dropped ").append(droppedNow - reportedDropped).append(" messages (queue full)\n");
+                reportedDropped = droppedNow;
+            }
+
+            if(output.length() == 0) return;
+            //one print per batch, errors make the whole batch go to stderr so nothing gets reordered
+            if(errors) System.err.print(output);
+            else System.out.print(output);
+        }
+    }
+
+    /**
+     * @return how many messages were dropped because the queue was full
+     */
+    public static long getDroppedCount () {
+        return dropped.get();
+    }
+
+    /**
+     * @return how many messages were dropped by call site rate limits
+     */
+    public static long getRateLimitedCount () {
+        return rateLimited.get();
+    }
+
+    /**
+     * Make a rate limited call site. Keep it in a static final field next to where it's used.
+     * @param minPeriod the least time between printed messages in seconds
+     */
+    public static Site site (double minPeriod) {
+        return new Site(minPeriod);
+    }
+
+    /**
+     * One place in the code that logs. Only lets a message through every minPeriod seconds,
+     * the next one that gets through says how many were skipped.
+     */
+    public static class Site {
+        private final long minPeriodNanos;
+        private long lastPrint = 0;
+        private boolean printed = false;
+        private int suppressed = 0;
+
+        private Site (double minPeriod) {
+            minPeriodNanos = (long) (minPeriod * 1e9);
+        }
+
+        /**
+         * Check the rate limit before building a message that's expensive to make.
+         * If this says no, it's counted as suppressed already, so don't log it anyway.
+         * @return whether a message logged right now would get through the rate limit
+         */
+        public synchronized boolean ready () {
+            if(printed && System.nanoTime() - lastPrint < minPeriodNanos) {
+                suppressed++;
+                rateLimited.incrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * @return false if it was rate limited or dropped
+         */
+        public synchronized boolean log (Level level, String message) {
+            var now = System.nanoTime();
+            if(printed && now - lastPrint < minPeriodNanos) {
+                suppressed++;
+                rateLimited.incrementAndGet();
+                return false;
+            }
+            printed = true;
+            lastPrint = now;
+            if(suppressed > 0) {
+                message += " (" + suppressed + " more suppressed)";
+                suppressed = 0;
+            }
+            return Console.log(level, message);
+        }
+
+        public void debug (String message) {
+            log(Level.DEBUG, message);
+        }
+
+        public void info (String message) {
+            log(Level.INFO, message);
+        }
+
+        public void warning (String message) {
+            log(Level.WARNING, message);
+        }
+
+        public void error (String message) {
+            log(Level.ERROR, message);
+        }
+    }
+}
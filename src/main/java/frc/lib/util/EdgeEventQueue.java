@@ -0,0 +1,100 @@
+package frc.lib.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size, lock-free queue for timestamped digital edges.
+ * Any number of threads can push (e.g. one interrupt thread per sensor),
+ * but only ONE thread should ever poll (usually the main robot thread).
+ * Nothing is allocated after construction, events are copied in and out of preallocated arrays.
+ * If the queue fills up (nobody is polling) new events are dropped and counted.
+ */
+public class EdgeEventQueue {
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final int[] sources;
+    private final boolean[] risings;
+    private final double[] timestamps;
+
+    private final AtomicLong enqueuePosition = new AtomicLong(0);
+    private long dequeuePosition = 0; //single consumer so no need for atomics
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    /**
+     * @param capacity the number of events the queue can hold, rounded up to a power of 2
+     */
+    public EdgeEventQueue (int capacity) {
+        var size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        sources = new int[size];
+        risings = new boolean[size];
+        timestamps = new double[size];
+        for(int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    /**
+     * Add an edge to the queue. Safe to call from any thread.
+     * @param source which sensor the edge came from
+     * @param rising true for a rising edge, false for falling
+     * @param timestamp the FPGA timestamp of the edge in seconds
+     * @return false if the queue was full and the edge was dropped
+     */
+    public boolean push (int source, boolean rising, double timestamp) {
+        long position = enqueuePosition.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) break;
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                dropped.incrementAndGet();
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+
+        sources[index] = source;
+        risings[index] = rising;
+        timestamps[index] = timestamp;
+        sequences.set(index, position + 1); //publishes the slot to the consumer
+        return true;
+    }
+
+    /**
+     * Take the oldest edge out of the queue. ONLY call from the one consumer thread.
+     * @param out the event to copy the edge into
+     * @return false if the queue was empty
+     */
+    public boolean poll (EdgeEvent out) {
+        int index = (int) (dequeuePosition & mask);
+        if (sequences.get(index) != dequeuePosition + 1) return false;
+
+        out.source = sources[index];
+        out.rising = risings[index];
+        out.timestamp = timestamps[index];
+        sequences.set(index, dequeuePosition + mask + 1); //hand the slot back to the producers
+        dequeuePosition++;
+        return true;
+    }
+
+    /**
+     * @return how many edges have been dropped because the queue was full
+     */
+    public long getDroppedCount () {
+        return dropped.get();
+    }
+
+    /**
+     * Reusable holder for a polled edge, so polling doesn't allocate.
+     */
+    public static class EdgeEvent {
+        public int source;
+        public boolean rising;
+        public double timestamp;
+    }
+}
@@ -0,0 +1,42 @@
+package frc.lib.util;
+
+import edu.wpi.first.hal.DriverStationJNI;
+
+/**
+ * The axes of a joystick, read from the HAL without going through Joystick/DriverStation,
+ * so it can be read from another thread (like the odometry thread) without their locks.
+ * It isn't any fresher than Joystick: the HAL hands back its cached copy of the axes, and that cache
+ * is only swapped to the newest packet by DriverStation.refreshData() on the main thread, once a main loop.
+ *
+ * Each thread should have its own, the axes are copied into a preallocated array on refresh.
+ */
+public class HIDSnapshot {
+    private static final int MAX_AXES = 12; //the most axes the HAL supports
+
+    private final byte port;
+    private final float[] axes = new float[MAX_AXES];
+    private int axisCount = 0;
+
+    /**
+     * @param port the driver station port of the joystick
+     */
+    public HIDSnapshot (int port) {
+        this.port = (byte) port;
+    }
+
+    /**
+     * Grab the latest axes from the HAL (doesn't allocate)
+     */
+    public void refresh () {
+        axisCount = DriverStationJNI.getJoystickAxes(port, axes);
+    }
+
+    /**
+     * @param axis the axis index, same as Joystick.getRawAxis
+     * @return the axis value as of the last refresh, 0 if the joystick doesn't have that axis
+     */
+    public double getAxis (int axis) {
+        if(axis < 0 || axis >= axisCount) return 0;
+        return axes[axis];
+    }
+}
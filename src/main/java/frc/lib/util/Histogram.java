@@ -0,0 +1,126 @@
+package frc.lib.util;
+
+/**
+ * A fixed bin histogram for keeping track of how something is distributed (like loop times) without keeping every sample.
+ * Everything is allocated up front so it can be used on the fast threads.
+ * Samples outside the range go into the first or last bin, so the percentiles are only as good as the range and bin width.
+ * Not thread safe, only use it from one thread.
+ */
+public class Histogram {
+    private final double min;
+    private final double binWidth;
+    private final long[] counts;
+
+    private long total = 0;
+    private double sum = 0;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param min the bottom of the first bin
+     * @param max the top of the last bin
+     * @param bins how many bins to split the range into
+     */
+    public Histogram (double min, double max, int bins) {
+        this.min = min;
+        this.binWidth = (max - min) / bins;
+        this.counts = new long[bins];
+    }
+
+    /**
+     * Add a sample. NaN is ignored.
+     */
+    public void record (double value) {
+        if(Double.isNaN(value)) return;
+        var bin = (int) ((value - min) / binWidth);
+        if(bin < 0) bin = 0;
+        if(bin >= counts.length) bin = counts.length - 1;
+        counts[bin]++;
+        total++;
+        sum += value;
+        if(value > max) max = value;
+    }
+
+    /**
+     * @param percentile the percentile to find, 0-100
+     * @return the middle of the bin the percentile falls in, NaN if there aren't any samples
+     */
+    public double getPercentile (double percentile) {
+        if(total == 0) return Double.NaN;
+        var target = (long) Math.ceil(total * percentile / 100.0);
+        if(target < 1) target = 1;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= target) return min + (i + 0.5) * binWidth;
+        }
+        return min + (counts.length - 0.5) * binWidth;
+    }
+
+    /**
+     * @return the mean of all the samples, NaN if there aren't any
+     */
+    public double getMean () {
+        return total == 0 ? Double.NaN : sum / total;
+    }
+
+    /**
+     * @return the biggest sample, NaN if there aren't any
+     */
+    public double getMax () {
+        return total == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * @return how many samples there are
+     */
+    public long getCount () {
+        return total;
+    }
+
+    /**
+     * Copy the bin counts into an array (so the histogram itself can be logged)
+     * @param out where to put the counts, needs to be at least as long as the number of bins
+     */
+    public void getCounts (double[] out) {
+        for (int i = 0; i < counts.length; i++) out[i] = counts[i];
+    }
+
+    /**
+     * @return how many bins there are
+     */
+    public int getBinCount () {
+        return counts.length;
+    }
+
+    /**
+     * @param bin the bin index
+     * @return the value in the middle of the bin
+     */
+    public double getBinCenter (int bin) {
+        return min + (bin + 0.5) * binWidth;
+    }
+
+    /**
+     * Add all the samples from another histogram, it has to have the same range and bins
+     * @param other the histogram to add
+     */
+    public void merge (Histogram other) {
+        if(other.counts.length != counts.length || other.min != min || other.binWidth != binWidth) {
+            throw new IllegalArgumentException("Can't merge histograms with different bins");
+        }
+        for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+        total += other.total;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forget all the samples
+     */
+    public void reset () {
+        for (int i = 0; i < counts.length; i++) counts[i] = 0;
+        total = 0;
+        sum = 0;
+        max = Double.NEGATIVE_INFINITY;
+    }
+}
@@ -48,7 +48,7 @@ public class LinearInterpolate {
         LinearInterpolate li = new LinearInterpolate(x, y);
 
         for(double i = -1; i < 6; i += 0.1) {
-            System.out.println(i + "," + li.interpolate(i));
+            Console.info(i + "," + li.interpolate(i));
         }
     }
 }
@@ -0,0 +1,107 @@
+package frc.lib.util;
+
+/**
+ * Recursive least squares estimator for a linear model y = regressor . parameters,
+ * with exponential forgetting so it follows parameters that drift over time.
+ * Everything is preallocated so it's safe to update every loop on a control thread.
+ * Not thread safe, only update and read it from one thread.
+ */
+public class RecursiveLeastSquares {
+    private final int size;
+    private final double forgettingFactor;
+    private final double maxCovarianceTrace;
+
+    private final double[] initialEstimate;
+    private final double initialCovariance;
+
+    private final double[] estimate;
+    private final double[] covariance; //size x size, row major
+    private final double[] covarianceTimesRegressor;
+    private final double[] gain;
+
+    private double lastError = 0;
+
+    /**
+     * @param initialEstimate the starting guess for the parameters (also sets how many parameters there are)
+     * @param initialCovariance how unsure we are of the starting guess, bigger means it moves away from it faster
+     * @param forgettingFactor 0-1, how much to weight old samples. 1 never forgets, 0.999 at 200hz remembers ~5 seconds
+     * @param maxCovarianceTrace limits covariance windup when the input isn't exciting all the parameters
+     */
+    public RecursiveLeastSquares (double[] initialEstimate, double initialCovariance, double forgettingFactor, double maxCovarianceTrace) {
+        this.size = initialEstimate.length;
+        this.forgettingFactor = forgettingFactor;
+        this.maxCovarianceTrace = maxCovarianceTrace;
+        this.initialEstimate = initialEstimate.clone();
+        this.initialCovariance = initialCovariance;
+
+        estimate = new double[size];
+        covariance = new double[size * size];
+        covarianceTimesRegressor = new double[size];
+        gain = new double[size];
+        reset();
+    }
+
+    /**
+     * Go back to the initial estimate and covariance
+     */
+    public void reset () {
+        System.arraycopy(initialEstimate, 0, estimate, 0, size);
+        for(int i = 0; i < size * size; i++) covariance[i] = 0;
+        for(int i = 0; i < size; i++) covariance[i * size + i] = initialCovariance;
+        lastError = 0;
+    }
+
+    /**
+     * Add a sample
+     * @param regressor the model inputs for this sample (must be the same length as the estimate)
+     * @param measurement the measured output for this sample
+     */
+    public void update (double[] regressor, double measurement) {
+        //P * phi
+        var denominator = forgettingFactor;
+        for(int row = 0; row < size; row++) {
+            var sum = 0.0;
+            for(int col = 0; col < size; col++) sum += covariance[row * size + col] * regressor[col];
+            covarianceTimesRegressor[row] = sum;
+            denominator += regressor[row] * sum;
+        }
+
+        var prediction = 0.0;
+        for(int i = 0; i < size; i++) {
+            gain[i] = covarianceTimesRegressor[i] / denominator;
+            prediction += regressor[i] * estimate[i];
+        }
+
+        lastError = measurement - prediction;
+        for(int i = 0; i < size; i++) estimate[i] += gain[i] * lastError;
+
+        //P = (P - k * (P * phi)^T) / lambda
+        var trace = 0.0;
+        for(int row = 0; row < size; row++) {
+            for(int col = 0; col < size; col++) {
+                covariance[row * size + col] = (covariance[row * size + col] - gain[row] * covarianceTimesRegressor[col]) / forgettingFactor;
+            }
+            trace += covariance[row * size + row];
+        }
+
+        if(trace > maxCovarianceTrace) {
+            var scale = maxCovarianceTrace / trace;
+            for(int i = 0; i < size * size; i++) covariance[i] *= scale;
+        }
+    }
+
+    /**
+     * @param index which parameter
+     * @return the current estimate of that parameter
+     */
+    public double getEstimate (int index) {
+        return estimate[index];
+    }
+
+    /**
+     * @return the prediction error of the last sample (before it was used to update the estimate)
+     */
+    public double getLastError () {
+        return lastError;
+    }
+}
@@ -1,5 +1,7 @@
 package frc.lib.util;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 import com.ctre.phoenix6.StatusCode;
@@ -8,13 +10,137 @@ import com.revrobotics.REVLibError;
 import edu.wpi.first.util.datalog.StringLogEntry;
 import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-
-import java.util.LinkedList;
+import edu.wpi.first.wpilibj.Timer;
+import frc.lib.telemetry.NetworkBudget;
+import frc.lib.telemetry.NetworkBudget.Priority;
 
+/**
+ * Reports errors (mostly failed CAN calls) to the driver station, the console, the datalog and the dashboard,
+ * without letting a device that fails every loop eat the loop.
+ *
+ * Every place that reports gets a call site ID from {@link #register}. For each one we count how many times it's failed,
+ * the first failure is reported right away and after that you only get a summary every {@link #SUMMARY_PERIOD} seconds
+ * (if it kept failing). Nothing is allocated unless something is actually being reported.
+ * The last few reports are kept in a ring for the dashboard, which is only rebuilt when a new one comes in.
+ *
+ * The methods that take a message string look up (or register) the call site by message, which is fine for
+ * configuring stuff once. Anything that runs every loop should register its ID once and use the ID versions.
+ * Only use this from the main thread.
+ */
 public class Reporter {
-    private static LinkedList<String> meesageBuffer = new LinkedList<>();
-    private static int messageLimit = 10;
+    private static final double SUMMARY_PERIOD = 5; //seconds between summaries of the same call site
+    private static final int RECENT_LIMIT = 10; //how many reports show up on the dashboard
+
+    /* CALL SITES */
+    private static final ArrayList<String> messages = new ArrayList<>();
+    private static final ArrayList<StringLogEntry> logEntries = new ArrayList<>();
+    private static final HashMap<String, Integer> siteIds = new HashMap<>();
+    private static long[] counts = new long[16];
+    private static long[] reportedCounts = new long[16];
+    private static double[] lastReportTimes = new double[16];
+
+    /* RECENT REPORTS (ring) */
+    private static final int[] recentSites = new int[RECENT_LIMIT];
+    private static final String[] recentStatuses = new String[RECENT_LIMIT];
+    private static final long[] recentCounts = new long[RECENT_LIMIT];
+    private static int recentNext = 0;
+    private static int recentSize = 0;
+    private static boolean recentChanged = false;
+    private static final StringBuilder dashboardText = new StringBuilder();
+
+    /**
+     * Get an ID for a place in the code that reports errors. Call once and keep it (static final is good).
+     * Registering the same message twice gives back the same ID.
+     * @param message what went wrong, e.g. "couldn't set pivot position"
+     * @return the call site ID
+     */
+    public static int register (String message) {
+        var existing = siteIds.get(message);
+        if(existing != null) return existing;
+
+        var id = messages.size();
+        messages.add(message);
+        logEntries.add(new StringLogEntry(DataLogManager.getLog(), "Reporter/" + message));
+        siteIds.put(message, id);
+        if(id >= counts.length) {
+            counts = Arrays.copyOf(counts, counts.length * 2);
+            reportedCounts = Arrays.copyOf(reportedCounts, counts.length);
+            lastReportTimes = Arrays.copyOf(lastReportTimes, counts.length);
+        }
+        return id;
+    }
+
+    /**
+     * Count a failure at a call site, and report it if it's the first one or a summary is due.
+     * @param site the call site ID from {@link #register}
+     * @param status what the failure was (should be a constant string, like a status code description)
+     * @param error also send it to the driver station as an error
+     */
+    public static void fail (int site, String status, boolean error) {
+        var count = ++counts[site];
+        var now = Timer.getFPGATimestamp();
+        var first = count == 1;
+        if(!first && now - lastReportTimes[site] < SUMMARY_PERIOD) return;
+
+        var since = count - reportedCounts[site];
+        reportedCounts[site] = count;
+        lastReportTimes[site] = now;
+
+        //only here do we build any strings
+        var text = first
+                ? messages.get(site) + ": " + status
+                : messages.get(site) + ": " + status + " (" + since + " times in the last " + (int) SUMMARY_PERIOD + "s, " + count + " total)";
+        logEntries.get(site).append(text);
+        if(error) {
+            DriverStation.reportError(text, false);
+            Console.error(text);
+        } else {
+            Console.warning(text);
+        }
+
+        recentSites[recentNext] = site;
+        recentStatuses[recentNext] = status;
+        recentCounts[recentNext] = count;
+        recentNext = (recentNext + 1) % RECENT_LIMIT;
+        if(recentSize < RECENT_LIMIT) recentSize++;
+        recentChanged = true;
+    }
+
+    /**
+     * Report a CTRE status code if it's an error
+     * @param site the call site ID from {@link #register}
+     * @param status the status code
+     */
+    public static void report (int site, StatusCode status) {
+        if (!status.isOK()) fail(site, status.getDescription(), true);
+    }
+
+    /**
+     * Report a REVLib status code if it's an error
+     * @param site the call site ID from {@link #register}
+     * @param status the status code
+     */
+    public static void report (int site, REVLibError status) {
+        if (status != REVLibError.kOk) fail(site, status.name(), true);
+    }
+
+    /**
+     * Log a CTRE status code if it's an error, but don't bother the driver station with it
+     * @param site the call site ID from {@link #register}
+     * @param status the status code
+     */
+    public static void log (int site, StatusCode status) {
+        if (!status.isOK()) fail(site, status.getDescription(), false);
+    }
+
+    /**
+     * Log a REVLib status code if it's an error, but don't bother the driver station with it
+     * @param site the call site ID from {@link #register}
+     * @param status the status code
+     */
+    public static void log (int site, REVLibError status) {
+        if (status != REVLibError.kOk) fail(site, status.name(), false);
+    }
 
     /**
      * Reports a message to the dashboard
@@ -22,11 +148,7 @@ public class Reporter {
      * @param error prints the message to the driver station as an error if true
      */
     public static void report(String message, boolean error) {
-        meesageBuffer.add(message);
-        if(meesageBuffer.size() > messageLimit) {
-            meesageBuffer.removeFirst();
-        }
-        if (error) DriverStation.reportError(message, false);
+        fail(register(message), "reported", error);
     }
 
     /**
@@ -44,9 +166,7 @@ public class Reporter {
      * @param message the message to report with the status code
      */
     public static void report (StatusCode status, String message) {
-        if (!status.isOK()) {
-            report(message + ": " + status.getDescription(), true);
-        }
+        if (!status.isOK()) report(register(message), status);
     }
 
     /**
@@ -56,13 +176,9 @@ public class Reporter {
      * @param message the message to report with the status code
      */
     public static void report (REVLibError status, String message) {
-        if (status != REVLibError.kOk) {
-            report(message + ": " + status.toString(), true);
-        }
+        if (status != REVLibError.kOk) report(register(message), status);
     }
 
-    private static HashMap<String, StringLogEntry> logEntries = new HashMap<>();
-
     /**
      * Logs a CTRE status code to the data logger
      * if it is an error code.
@@ -70,13 +186,7 @@ public class Reporter {
      * @param message the message to log with the status code
      */
     public static void log (StatusCode status, String message) {
-        if (!status.isOK()) {
-            if(logEntries.containsKey(message)){
-                logEntries.get(message).append(status.getDescription());
-            } else {
-                logEntries.put(message, new StringLogEntry(DataLogManager.getLog(), "Reporter/CTRE errors/" + message));
-            }
-        }
+        if (!status.isOK()) log(register(message), status);
     }
 
     /**
@@ -86,20 +196,31 @@ public class Reporter {
      * @param message the message to log with the status code
      */
     public static void log (REVLibError status, String message) {
-        if (status != REVLibError.kOk) {
-            if(logEntries.containsKey(message)){
-                logEntries.get(message).append(status.toString());
-            } else {
-                logEntries.put(message, new StringLogEntry(DataLogManager.getLog(), "Reporter/REV errors/" + message));
-            }
-        }
+        if (status != REVLibError.kOk) log(register(message), status);
     }
 
+    /**
+     * @param site the call site ID
+     * @return how many times it's failed
+     */
+    public static long getCount (int site) {
+        return counts[site];
+    }
+
+    /**
+     * Put the recent reports on the dashboard, newest first. Only rebuilds the text when there's a new report.
+     */
     public static void putDashboard() {
-        String message = "";
-        for(String s : meesageBuffer) {
-            message += s + "\n";
+        if(!recentChanged) return;
+        recentChanged = false;
+
+        dashboardText.setLength(0);
+        for (int i = 1; i <= recentSize; i++) {
+            var index = (recentNext - i + RECENT_LIMIT) % RECENT_LIMIT;
+            dashboardText.append(messages.get(recentSites[index]))
+                         .append(": ").append(recentStatuses[index])
+                         .append(" (x").append(recentCounts[index]).append(")\n");
         }
-        SmartDashboard.putString("Reporter Messages", message);
+        NetworkBudget.putString("Reporter Messages", dashboardText.toString(), Priority.NORMAL);
     }
 }
@@ -399,7 +399,7 @@ public class Util {
 
     public static void main(String args[]){
         for(double i = -1; i < 1; i += 0.02){
-            System.out.println(i + " " + Util.handleDeadbandWithSlopeIncrease(i, 0.4));
+            Console.info(i + " " + Util.handleDeadbandWithSlopeIncrease(i, 0.4));
         }
     }
 }
\ No newline at end of file
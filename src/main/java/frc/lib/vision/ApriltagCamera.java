@@ -31,7 +31,8 @@ public interface ApriltagCamera {
                 result.pose,
                 result.tagCount,
                 result.timestampSeconds,
-                result.timestampSeconds > last.getTimestamp()
+                result.timestampSeconds > last.getTimestamp(),
+                result.avgTagDist
             );
             return last;
         }
@@ -59,11 +60,15 @@ public interface ApriltagCamera {
             poseEstimator.setReferencePose(referencePose);
             var result = poseEstimator.update();
             if(result.isEmpty()) return last.stale();
+            var targets = result.get().targetsUsed;
+            var totalDistance = 0.0;
+            for (var target : targets) totalDistance += target.getBestCameraToTarget().getTranslation().getNorm();
             last = new VisionResults(
                 result.get().estimatedPose,
-                result.get().targetsUsed.size(),
+                targets.size(),
                 result.get().timestampSeconds,
-                result.get().timestampSeconds > last.getTimestamp()
+                result.get().timestampSeconds > last.getTimestamp(),
+                targets.isEmpty() ? 0 : totalDistance / targets.size()
             );
 
             return last;
@@ -25,6 +25,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import frc.lib.util.Console;
 
 public class LimelightHelpers {
 
@@ -500,7 +501,7 @@ public class LimelightHelpers {
             url = new URL(urlString);
             return url;
         } catch (MalformedURLException e) {
-            System.err.println("bad LL URL");
+            Console.error("bad LL URL");
         }
         return null;
     }
@@ -824,10 +825,10 @@ public class LimelightHelpers {
             if (responseCode == 200) {
                 return true;
             } else {
-                System.err.println("Bad LL Request");
+                Console.error("Bad LL Request");
             }
         } catch (IOException e) {
-            System.err.println(e.getMessage());
+            Console.error(e.getMessage());
         }
         return false;
     }
@@ -853,7 +854,7 @@ public class LimelightHelpers {
         double millis = (end - start) * .000001;
         results.targetingResults.latency_jsonParse = millis;
         if (profileJSON) {
-            System.out.printf("lljson: %.2f\r\n", millis);
+            Console.debug(String.format("lljson: %.2f", millis));
         }
 
         return results;
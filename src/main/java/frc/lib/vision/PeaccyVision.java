@@ -5,13 +5,15 @@ import java.util.Optional;
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.telemetry.NetworkBudget;
+import frc.lib.telemetry.NetworkBudget.Priority;
 import frc.lib.util.Util;
 import frc.lib.vision.ApriltagCamera.*;
 import frc.robot.OI;
@@ -29,8 +31,11 @@ public class PeaccyVision {
     private static final double INITIALIZE_ERROR = 100;
     private static final double TAG_ERROR_REDUCTION = 0.87;
     private static final double ACCELERATION_PENALTY = 5;
-    private static final double ACCELERATION_PENALTY_THRESHOLD = 3;
+    private static final double ACCELERATION_PENALTY_THRESHOLD = 20; //m/s^2 of linear acceleration, so basically only when we hit something
     private static final double VISION_DISTANCE_FROM_CURRENT_ERROR_WEIGHT = 0.01;
+    private static final double WHEEL_SKID_PENALTY = 10; //odometry error per unit of slip score while skidding
+    private static final double WHEEL_SKID_AUTO_TRUST = 2; //how much more to trust vision in auto per unit of slip score
+    private static final double WHEEL_SKID_DECAY = 0.9; //per update
 
     private static final double MIN_STDEV = 0.02;
     private static final double MAX_STDEV = 7.5;
@@ -44,11 +49,15 @@ public class PeaccyVision {
     private double odometryError = INITIALIZE_ERROR;
 
     private Pose2d visionPose = new Pose2d();
+    private Pose3d visionPose3d = new Pose3d();
+    private int numTags = 0;
+    private double averageTagDistance = Double.NaN;
     // private Pose2d prevOdometryPose = new Pose2d();
     private double stDev = MAX_STDEV;
     private double timestamp = Timer.getFPGATimestamp();
 
     private boolean hasUpdated = false;
+    private double recentSkidSeverity = 0;
 
     /**
      * Create a new PeaccyVision object with the given cameras.
@@ -60,7 +69,13 @@ public class PeaccyVision {
         this.cameras = cameras;
     }
 
-    public void update(Pose2d odometryPose, double acceleration, double swerveVelocity) {
+    /**
+     * @param odometryPose the current odometry pose
+     * @param acceleration the horizontal linear acceleration from the pigeon in m/s^2 (no gravity)
+     * @param swerveVelocity how fast the robot is driving in m/s
+     * @param wheelSkidSeverity the worst wheel slip score while skidding since the last update, 0 if no wheels skidded
+     */
+    public void update(Pose2d odometryPose, double acceleration, double swerveVelocity, double wheelSkidSeverity) {
         var visionResult = getMeasurement(odometryPose);
         // var deltaDistance = odometryPose.getTranslation().getDistance(prevOdometryPose.getTranslation());
         // prevOdometryPose = odometryPose;
@@ -68,17 +83,22 @@ public class PeaccyVision {
 
         odometryError += swerveVelocity * 0.5;//deltaDistance * DISTANCE_DRIVEN_ERROR_WEIGHT;
         odometryError += accelerationPenalty;
+        //a skidding wheel drags the odometry with it, so lean on vision harder until it's caught up
+        odometryError += wheelSkidSeverity * WHEEL_SKID_PENALTY;
+        recentSkidSeverity = Math.max(recentSkidSeverity * WHEEL_SKID_DECAY, wheelSkidSeverity);
         if(visionResult.isEmpty()) {
             hasUpdated = false;
             return;
         }
         
         this.visionPose = visionResult.get().pose;
-        SmartDashboard.putString("vision pose", visionPose.toString());
+        this.visionPose3d = visionResult.get().pose3d;
+        NetworkBudget.putString("vision pose", visionPose.toString(), Priority.LOW);
         this.timestamp = visionResult.get().timestamp;
-        var numTags = visionResult.get().numTags;
+        this.numTags = visionResult.get().numTags;
+        this.averageTagDistance = visionResult.get().averageTagDistance;
 
-        SmartDashboard.putNumber("num tags", numTags);
+        NetworkBudget.putNumber("num tags", numTags, Priority.NORMAL);
 
         var visionDiscrepancy = visionPose.getTranslation().getDistance(odometryPose.getTranslation());
         odometryError += visionDiscrepancy * VISION_DISTANCE_FROM_CURRENT_ERROR_WEIGHT;
@@ -89,8 +109,8 @@ public class PeaccyVision {
         stDev += Util.limit(swerveVelocity * 10, 5);
         stDev = Util.limit(stDev, MIN_STDEV, MAX_STDEV);
 
-        SmartDashboard.putNumber("Odometry Error", odometryError);
-        SmartDashboard.putNumber("stdev", stDev);
+        NetworkBudget.putNumber("Odometry Error", odometryError, Priority.LOW, 0.01);
+        NetworkBudget.putNumber("stdev", stDev, Priority.LOW, 0.01);
         hasUpdated = true;
     }
 
@@ -98,10 +118,30 @@ public class PeaccyVision {
         return visionPose;
     }
 
+    /**
+     * the full 3d pose from the most trusted camera that saw tags (not averaged, for pitch, roll and height)
+     */
+    public Pose3d getPose3d(){
+        return visionPose3d;
+    }
+
+    public int getNumTags(){
+        return numTags;
+    }
+
+    /**
+     * how far away the tags in the latest measurement were on average, in meters
+     * (weighted by how many tags each camera saw). NaN if none of the cameras said.
+     */
+    public double getAverageTagDistance(){
+        return averageTagDistance;
+    }
+
     public Matrix<N3, N1> getStDev(){
         if(DriverStation.isAutonomousEnabled()) {
-            if(RobotContainer.getInstance().getTeleopStatemachine().getState() != SuperstructureState.AUTO_AIM) return VecBuilder.fill(2,2,10);
-            return VecBuilder.fill(10,10,20);
+            var skidTrust = 1 + recentSkidSeverity * WHEEL_SKID_AUTO_TRUST;
+            if(RobotContainer.getInstance().getTeleopStatemachine().getState() != SuperstructureState.AUTO_AIM) return VecBuilder.fill(2 / skidTrust, 2 / skidTrust, 10);
+            return VecBuilder.fill(10 / skidTrust, 10 / skidTrust, 20);
         }
         return VecBuilder.fill(stDev, stDev, stDev * STDEV_YAW_MULTIPLIER);
     }
@@ -129,6 +169,7 @@ public class PeaccyVision {
         //use the timestamp of the most trusted camera with a target as the timestamp of the vision pose.
         var totalWeight = 0.0;
         var timestamp = Timer.getFPGATimestamp();
+        var pose3d = new Pose3d();
         var hasSetTimestamp = false;
         
         for(int i = 0; i < results.length; i++){
@@ -136,6 +177,7 @@ public class PeaccyVision {
                 totalWeight += cameras[i].getTrust();
                 if(!hasSetTimestamp){
                     timestamp = results[i].getTimestamp();
+                    pose3d = results[i].getPose();
                     hasSetTimestamp = true;
                 }
             }
@@ -144,9 +186,15 @@ public class PeaccyVision {
         if(totalWeight == 0) return Optional.empty();
         
         var numTags = 0;
+        var distanceTags = 0;
+        var totalTagDistance = 0.0;
         var weightedPose = new Pose2d();
         for(int i = 0; i < results.length; i++){
             if(!results[i].hasUpdated() || results[i].getNumTags() == 0) continue;
+            if(results[i].hasAverageDistance()) {
+                totalTagDistance += results[i].getAverageDistance() * results[i].getNumTags();
+                distanceTags += results[i].getNumTags();
+            }
             weightedPose = new Pose2d(
                 weightedPose.getX() + results[i].getPose2d().getX() * cameras[i].getTrust(),
                 weightedPose.getY() + results[i].getPose2d().getY() * cameras[i].getTrust(),
@@ -161,18 +209,23 @@ public class PeaccyVision {
             new Rotation2d(weightedPose.getRotation().getRadians() / totalWeight)
         );
 
-        return Optional.of(new ApriltagPoseMeasurement(weightedPose, timestamp, numTags));
+        var averageTagDistance = distanceTags > 0 ? totalTagDistance / distanceTags : Double.NaN;
+        return Optional.of(new ApriltagPoseMeasurement(weightedPose, pose3d, timestamp, numTags, averageTagDistance));
     }
 
     private static class ApriltagPoseMeasurement{
         public final Pose2d pose;
+        public final Pose3d pose3d;
         public final double timestamp;
         public final int numTags;
+        public final double averageTagDistance;
 
-        public ApriltagPoseMeasurement(Pose2d pose, double timestamp, int numTags){
+        public ApriltagPoseMeasurement(Pose2d pose, Pose3d pose3d, double timestamp, int numTags, double averageTagDistance){
             this.pose = pose;
+            this.pose3d = pose3d;
             this.timestamp = timestamp;
             this.numTags = numTags;
+            this.averageTagDistance = averageTagDistance;
         }
     }
 }
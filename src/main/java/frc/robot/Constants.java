@@ -88,12 +88,25 @@ public final class Constants {
     public static final double flywheelEncoderStDev = 0.01;
     public static final double flywheelControlEffort = 12;
     public static final double flywheelErrorTolerance = 7;
+    public static final double flywheelControlFrequency = 200; //hz, the flywheel loops run on their own notifier at this rate
+    public static final double flywheelControlPeriod = 1.0 / flywheelControlFrequency;
+
+    /* ONLINE FLYWHEEL IDENTIFICATION */
+    public static final double flywheelIdentificationForgettingFactor = 0.999; //~5 seconds of memory at the flywheel loop rate
+    public static final double flywheelIdentificationInitialCovariance = 0.01;
+    public static final double flywheelIdentificationMaxCovarianceTrace = 1;
+    public static final double flywheelIdentificationMinVelocity = 5; //rps, below this the model is mostly friction
+    public static final double flywheelIdentificationMaxVoltage = 11; //volts, above this the battery might not be delivering what we asked for
+    public static final double flywheelModelRebuildThreshold = 0.1; //rebuild the loops when kV or kA drift this fraction from the model they were built with
+    public static final double flywheelModelMinRebuildInterval = 1; //seconds
 
     public static final double shotDetectionAccelerationThreshold = -70;
     public static final double shotDetectionTimeThreshold = 0.05;
     public static final double shotDetectionMinVelocity = 10;
     public static final double shotDetectionResetTime = 0.5;
 
+    public static final int beamBreakQueueCapacity = 64;
+
     public static final TalonFXConfiguration flywheelConfigs = new TalonFXConfiguration();
     static {
       flywheelConfigs.CurrentLimits.StatorCurrentLimit = 65;
@@ -109,6 +122,23 @@ public final class Constants {
 
     public static final double flywheelEfficiency = 2.4; // percentage of flywheel surface speed to exit velocity
     public static final double flywheelTolerance = 4; //how close to the target velocity the flywheel needs to be considered ready
+
+    /* SHOT READINESS */
+    public static final double shotTriggerToExitDelay = 0.06; //seconds from running the trigger to the note leaving the flywheels
+    public static final double shotReadinessMaxSpeed = 0.05; //m/s, how still we need to be when we aren't shooting on the move
+    public static final double shotReadinessMaxOdometryError = 25;
+    public static final double shotReadinessRateSmoothing = 0.5; //0-1, how much each new sample moves the error rate estimate
+    public static final double shotReadinessMaxHoldTime = 0.3; //seconds, fire anyway if the driver has been holding the trigger this long
+
+    /* PRESPIN */
+    public static final double prespinSpinupRate = 80; //rps/s, roughly how fast the flywheels spin up against the current limit
+    public static final double prespinLeadTime = 0.25; //seconds, extra margin to start spinning up before we think we'll shoot
+    public static final double prespinShotDistance = 5; //meters, distance from the speaker we usually shoot within
+    public static final double prespinMinClosingVelocity = 0.3; //m/s, slower than this and we're not really heading to the speaker
+    public static final double prespinIndexTime = 0.4; //seconds, how long a note usually takes to index
+    public static final double prespinMinBatteryVoltage = 10.5; //no prespin below this voltage
+    public static final double prespinFullBatteryVoltage = 11.5; //full prespin above this voltage
+    public static final double prespinDriveCurrentBudget = 240; //amps, total drive current above which we stop prespinning
   }
   public static final class TriggerIntake {
     public static final int triggerIntakeRollerMotorId = 16;
@@ -255,6 +285,10 @@ public final class Constants {
     public static final DoubleFunction <Double> teleopLinearSpeedCurve = (double linearSpeed) -> JoystickCurves.herraFCurve(linearSpeed, 6, 4.5); //a nice gentle curve which is Peaccy's (me!!) favorite :)
     public static final DoubleFunction <Double> teleopAngularVelocityCurve = (double angularVelocity) -> JoystickCurves.powerCurve(angularVelocity, 2); //TODO decide if the driver (me) wants a curve on this or not.
 
+    //read and smooth the sticks on the odometry thread every update instead of once a main loop.
+    //the sticks themselves still only change once a main loop (see HIDSnapshot), this only runs the smoothing at the odometry rate
+    public static final boolean teleopSampleOnOdometryThread = false;
+
     //number of loops to keep track of position correction for (so multiply by 20ms to get the duration the correction is considering)
     //todo too slow?
     public static final int teleopPositionCorrectionIters = 0; 
@@ -292,11 +326,49 @@ public final class Constants {
     //inertia only used for simulation
     public static final Physics physics = new Physics(0.05,0.01, Robot.isReal() ? 80 : 800, 7);
     public static final double steerMotorCurrentLimit = Robot.isReal() ? 40 : 120; //amps
+
+    //setpoint generator limits, so we never ask the modules for more than they can do in one update
+    public static final double setpointMaxModuleAcceleration = 10; //m/s^2
+    public static final double setpointMaxSteerVelocity = Units.rotationsToRadians(2); //rad/s
+    //how long a module command takes to actually do anything, for second order kinematics to look ahead by
+    public static final double secondOrderActuationDelay = 0.015; //seconds
+
+    //wheel slip detection, slip score is how much of a module's velocity the rigid body fit can't explain
+    public static final double wheelSkidThreshold = 0.35; //slip score
+    public static final double wheelSlipSpeedFloor = 0.25; //m/s
+    public static final double wheelSlipSmoothing = 0.3;
+
+    //traction control, slip ratio is how much faster the wheel spins than the ground moves under it
+    public static final boolean useTractionControl = false; //not tuned yet
+    public static final double tractionMaxSlipRatio = 0.15;
+    public static final double tractionSpeedFloor = 0.3; //m/s
+    public static final double tractionSmoothing = 0.5;
+    public static final double tractionGroundSpeedTimeConstant = 1; //seconds for the pigeon ground speed to settle on the command
+
+    //unscented pose estimator noise
+    public static final boolean useUnscentedPoseEstimator = false; //use it for getPose(), otherwise it just runs alongside CTRE's
+    public static final double poseEstimatorAccelerationStdDev = 2; //m/s^2
+    public static final double poseEstimatorAngularAccelerationStdDev = 6; //rad/s^2
+    public static final double poseEstimatorWheelVelocityStdDev = 0.05; //m/s
+    public static final double poseEstimatorWheelOmegaStdDev = 0.1; //rad/s
+    public static final double poseEstimatorGyroStdDev = 0.01; //rad/s
+    public static final double poseEstimatorSkidStdDevScale = 10; //how much less to trust the wheels while skidding
+    public static final double poseEstimatorHistory = 0.5; //seconds of updates to keep for late vision
+    //vision noise for the pose estimator, for one tag right at the camera. grows with tag distance squared, shrinks with more tags
+    public static final double poseEstimatorVisionXYStdDev = 0.02; //m
+    public static final double poseEstimatorVisionThetaStdDev = 0.05; //rad
+    public static final double poseEstimatorVisionSingleTagThetaScale = 20; //one tag barely says anything about heading
+    public static final double poseEstimatorVisionDefaultTagDistance = 4; //m, for cameras that don't say how far the tags are
     
     public static final PidGains driveGains = new PidGains(2, 0, 0, 0.2, 0.4); 
     public static final PidGains angleGains = new PidGains(90, 0, 0.001, 0, 0);
 
     public static final int pigeonCANId = 3;
+    //faster odometry is more accurate but costs CAN bandwidth, check the odometry period percentiles and the
+    //canBusUtilization in ControlSystemHealth before raising it. only module position/velocity and the pigeon yaw go this fast,
+    //that's about 18 frames * 250 Hz * ~130 bits, a bit over half of the 1 Mbit rio bus on its own (estimated, not measured yet)
+    public static final double odometryFrequency = 250; //Hz
+    public static final double telemetryNetworkFrequency = 50; //Hz, how often the odometry thread telemetry goes to networktables (the datalog gets all of it)
     public static final boolean invertSteerMotors = Robot.isReal(); //cant invert in simulation which is dumb.
 
     /* HEADING CONTROLLER CONSTANTS */
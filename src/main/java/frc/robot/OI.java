@@ -14,12 +14,17 @@ import frc.robot.subsystems.Shooter;
  * make it easier to modify the inputs.
  */
 public class OI {
-    private static final Joystick driverJoystick = new Joystick(0);
+    private static final Joystick driverJoystick = new Joystick(Swerve.driverPort);
     private static final Joystick operatorJoystick = new Joystick(1);
     public static class Swerve{
-        public static final DoubleSupplier translation = () -> -driverJoystick.getRawAxis(5); //how fast the robot should be going forward
-        public static final DoubleSupplier strafe = () -> -driverJoystick.getRawAxis(4); //how fast the robot should be going sideways
-        public static final DoubleSupplier rotation = () -> -driverJoystick.getRawAxis(0); //how fast the robot should be rotating
+        //the raw driving axes, so the odometry thread can read the same sticks straight from the driver station
+        public static final int driverPort = 0;
+        public static final int translationAxis = 5, strafeAxis = 4, rotationAxis = 0;
+        public static final double axisSign = -1; //the sticks are backwards
+
+        public static final DoubleSupplier translation = () -> axisSign * driverJoystick.getRawAxis(translationAxis); //how fast the robot should be going forward
+        public static final DoubleSupplier strafe = () -> axisSign * driverJoystick.getRawAxis(strafeAxis); //how fast the robot should be going sideways
+        public static final DoubleSupplier rotation = () -> axisSign * driverJoystick.getRawAxis(rotationAxis); //how fast the robot should be rotating
         
         public static final DoubleSupplier heading = () -> 0;//(double) -driverJoystick.getPOV(); //the angle the robot should be facing
         public static final BooleanSupplier useHeading = () -> false;//driverJoystick.getPOV() != -1; //whether the robot should use the heading above
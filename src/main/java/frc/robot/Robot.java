@@ -9,7 +9,9 @@ import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.Timer;
 import frc.lib.telemetry.ControlSystemTelemetry;
+import frc.lib.telemetry.JvmTelemetry;
 import frc.lib.telemetry.MultiTracers;
+import frc.lib.util.Console;
 import frc.robot.auto.Autonomous;
 import frc.robot.subsystems.Swerve;
 
@@ -30,8 +32,8 @@ public class Robot extends TimedRobot {
     DataLogManager.logNetworkTables(false); 
     DriverStation.startDataLog(DataLogManager.getLog());
 
-    System.out.println("Robot Initialized");
-    System.out.println("yay the software didn't crash yet");
+    Console.info("Robot Initialized");
+    Console.info("yay the software didn't crash yet");
   }
 
   @Override
@@ -41,16 +43,18 @@ public class Robot extends TimedRobot {
     scheduleTimer.start();
 
     RobotContainer.getInstance().run(); // This does all the important stuff
+    RobotContainer.getInstance().runTelemetry(); // dashboard and match stats, put off a loop if run() took too long
 
     //log loop time and other RIO data
     ControlSystemTelemetry.update(null, scheduleTimer.get());
+    JvmTelemetry.update(); //gc and allocation, so loop spikes can be blamed on gc or on us
   }
 
   @Override
   public void disabledInit() {
     DataLogManager.logNetworkTables(false); //stop logging network tables data when the robot is disabled
-    System.out.println("Robot Disabled");
-    System.out.println("let's hope it doesn't move lol");
+    Console.info("Robot Disabled");
+    Console.info("let's hope it doesn't move lol");
   }
 
   @Override
@@ -64,22 +68,22 @@ public class Robot extends TimedRobot {
   public void autonomousInit() {
     RobotContainer.getInstance().resetAuto();
     DataLogManager.logNetworkTables(true); //start logging network tables data when the robot is enabled
-    System.out.println("Robot Autonomous");
-    System.out.println("EVERYBODY PANIC PEACCY IS RUNNING AUTONOMOUS AND HE DOESN'T KNOW WHAT HE'S DOING");
+    Console.info("Robot Autonomous");
+    Console.info("EVERYBODY PANIC PEACCY IS RUNNING AUTONOMOUS AND HE DOESN'T KNOW WHAT HE'S DOING");
   }
 
   @Override
   public void teleopInit() {
     DataLogManager.logNetworkTables(true); //start logging network tables data when the robot is enabled
     Swerve.getInstance().attemptProperFieldCentricZeroing();
-    System.out.println("Robot Teleop");
-    System.out.println("EVERYBODY RUN PEACCY IS DRIVING THE ROBOT AND HE WILL CRASH IT VERY SOON");
+    Console.info("Robot Teleop");
+    Console.info("EVERYBODY RUN PEACCY IS DRIVING THE ROBOT AND HE WILL CRASH IT VERY SOON");
   }
 
   @Override
   public void testInit() {
     DataLogManager.logNetworkTables(true);
-    System.out.println("Robot Test");
-    System.out.println("ok but what are yall doing i don't even know why you'd be running in test mode");
+    Console.info("Robot Test");
+    Console.info("ok but what are yall doing i don't even know why you'd be running in test mode");
   }
 }
@@ -1,22 +1,29 @@
 package frc.robot;
 
+import frc.lib.telemetry.NetworkBudget;
+import frc.lib.telemetry.NetworkBudget.Priority;
 import frc.robot.subsystems.Swerve;
 import edu.wpi.first.wpilibj.RobotState;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.telemetry.LoopBudget;
 import frc.lib.telemetry.MultiTracers;
 import frc.lib.telemetry.StrategyTelemetry;
+import frc.lib.util.Reporter;
 import frc.robot.RobotStatemachine.SuperstructureState;
 import frc.robot.auto.Autonomous;
 import frc.robot.auto.Autonomous.TimedAuto;
 import frc.robot.planners.AimPlanner;
 import frc.robot.planners.MotionPlanner;
 import frc.robot.planners.NoteTracker;
+import frc.robot.planners.PrespinPlanner;
+import frc.robot.planners.ShotReadinessPlanner;
 import frc.robot.statemachines.ClimberStatemachine;
 import frc.robot.statemachines.PivotStatemachine;
 import frc.robot.statemachines.ShooterStatemachine;
 import frc.robot.statemachines.SwerveStatemachine;
+import frc.robot.statemachines.SwerveStatemachine.SwerveState;
 import frc.robot.statemachines.TriggerIntakeStatemachine;
 import frc.robot.subsystems.Climber;
 import frc.robot.subsystems.Pivot;
@@ -46,13 +53,32 @@ public class RobotContainer {
         OI.Inputs.enableShootWhileMoving
     );
 
+    private final PrespinPlanner prespinPlanner = new PrespinPlanner(
+        aimPlanner,
+        () -> swerve.getPose(),
+        () -> swerve.getChassisSpeeds(),
+        () -> swerve.getTotalDriveCurrent()
+    );
+
     /* STATE MACHINES */
     private final SwerveStatemachine swerveStatemachine = new SwerveStatemachine(swerve, aimPlanner);
     private final TriggerIntakeStatemachine triggerIntakeStatemachine = new TriggerIntakeStatemachine(triggerIntake, motionPlanner);
     private final PivotStatemachine pivotStatemachine = new PivotStatemachine(pivot, aimPlanner, motionPlanner);
-    private final ShooterStatemachine shooterStatemachine = new ShooterStatemachine(shooter, aimPlanner, this::readyToShoot);
+    private final ShooterStatemachine shooterStatemachine = new ShooterStatemachine(shooter, aimPlanner, prespinPlanner, this::readyToShoot);
     private final ClimberStatemachine climberStatemachine = new ClimberStatemachine(climber, () -> swerve.getGyroAngle().getX());
 
+    private final ShotReadinessPlanner shotReadinessPlanner = new ShotReadinessPlanner(
+        aimPlanner,
+        () -> swerve.getPose(),
+        () -> swerve.getChassisSpeeds(),
+        () -> shooter.getFlywheelError(),
+        () -> pivot.getClosedLoopError(),
+        () -> swerve.getEyes().getOdometryError(),
+        () -> shooterStatemachine.getState().isAiming(),
+        () -> swerveStatemachine.getState() == SwerveState.AIM,
+        OI.Inputs.enableShootWhileMoving
+    );
+
     private final RobotStatemachine teleopStatemachine = new RobotStatemachine(
         swerveStatemachine,
         triggerIntakeStatemachine,
@@ -65,6 +91,23 @@ public class RobotContainer {
 
     private SendableChooser<TimedAuto> autoChooser = new SendableChooser<>();
 
+    /* LOOP BUDGET */
+    private final LoopBudget loopBudget = new LoopBudget("Main", Constants.period);
+    private final int PLANNERS_STAGE = loopBudget.addStage("planners", false);
+    private final int SHOT_READINESS_STAGE = loopBudget.addStage("shotReadiness", false);
+    private final int INPUTS_STAGE = loopBudget.addStage("inputs", false);
+    private final int ROBOT_STATEMACHINE_STAGE = loopBudget.addStage("robotStatemachine", false);
+    private final int SWERVE_STAGE = loopBudget.addStage("swerveAndVision", false);
+    private final int INTAKE_STAGE = loopBudget.addStage("triggerIntake", false);
+    private final int PIVOT_STAGE = loopBudget.addStage("pivot", false);
+    private final int SHOOTER_STAGE = loopBudget.addStage("shooter", false);
+    private final int CLIMBER_STAGE = loopBudget.addStage("climber", false);
+    private final int AUTO_STAGE = loopBudget.addStage("auto", false);
+    private final int NOTE_TRACKER_STAGE = loopBudget.addStage("noteTracker", false);
+    private final int STRATEGY_STAGE = loopBudget.addStage("strategyTelemetry", true);
+    private final int REPORTER_STAGE = loopBudget.addStage("reporter", true);
+    private final int DASHBOARD_STAGE = loopBudget.addStage("dashboard", true);
+
     private RobotContainer() {
         autoChooser.setDefaultOption("do nothing", Autonomous.doNothing);
         autoChooser.addOption("LAYUP", Autonomous.layupOnly);
@@ -95,32 +138,12 @@ public class RobotContainer {
         return instance;
     }
 
-    Timer readyTimer = new Timer();
-    public boolean kindaReadyToShoot(){
-        if(!shooter.flywheelAtTargetVelocity()) return false;
-        if(!pivot.atSetpoint()) return false;
-        if(!swerveStatemachine.transitioning()) return false;
-        if((swerve.getChassisSpeeds().vxMetersPerSecond > 0.005 && swerve.getChassisSpeeds().vyMetersPerSecond > 0.005) && !OI.Inputs.enableShootWhileMoving.getAsBoolean()) return false;
-        if(swerve.getEyes().getOdometryError() > 25) return false;
-        return true;
-    }
-
+    /**
+     * Whether the shot will be good if we pull the trigger right now,
+     * predicted from how fast the flywheel, pivot, and heading errors are converging.
+     */
     public boolean readyToAutoShoot() {
-        if(OI.Inputs.wantsPlace.getAsBoolean()) {
-            // if(OI.Inputs.enableShootWhileMoving.getAsBoolean()) return true;
-            return false;
-        } else if (OI.Inputs.enableShootWhileMoving.getAsBoolean()) {
-            return true;
-        }
-        if(kindaReadyToShoot()) {
-            readyTimer.start();
-        }
-        if(readyTimer.get() > aimPlanner.getDistanceToTarget()/6){
-            readyTimer.stop();
-            readyTimer.reset();
-            return true;
-        }
-        return false;
+        return shotReadinessPlanner.isReady();
     }
 
     public boolean wantsDisableAutoHeading() {
@@ -129,8 +152,14 @@ public class RobotContainer {
             || teleopStatemachine.getState() == SuperstructureState.INTAKE_SOURCE;
     }
 
+    private final Timer fireHeldTimer = new Timer();
+    /**
+     * Fire as soon as the driver wants to and the shot will be good,
+     * but don't hold out forever if something never quite gets there.
+     */
     public boolean readyToShoot(){
-        return OI.Inputs.wantsPlace.getAsBoolean();
+        return OI.Inputs.wantsPlace.getAsBoolean()
+            && (readyToAutoShoot() || fireHeldTimer.hasElapsed(Constants.Shooter.shotReadinessMaxHoldTime));
     }
 
     public double getOdometryError() {
@@ -155,15 +184,27 @@ public class RobotContainer {
      * It updates the supersystem state, planners, and state machines.
      */
     public void run() {
+        loopBudget.startLoop();
         MultiTracers.trace("RobotContainer::run", "RobotContainer::run");
 
         /* UPDATE PLANNERS */
+        loopBudget.stage(PLANNERS_STAGE);
+        shooter.update(); //beam break edges and shot detection, first so the whole loop sees the same ones
+        MultiTracers.trace("RobotContainer::run", "shooter.update");
         motionPlanner.update();
         MultiTracers.trace("RobotContainer::run", "motionPlanner.update");
         aimPlanner.update();
         MultiTracers.trace("RobotContainer::run", "aimPlanner.update");
-        StrategyTelemetry.update();
-        MultiTracers.trace("RobotContainer::run", "StrategyTelemetry.update");
+        prespinPlanner.update(shooter.getFlywheelVelocity());
+        MultiTracers.trace("RobotContainer::run", "prespinPlanner.update");
+        loopBudget.stage(SHOT_READINESS_STAGE);
+        shotReadinessPlanner.update();
+        MultiTracers.trace("RobotContainer::run", "shotReadinessPlanner.update");
+        if(OI.Inputs.wantsPlace.getAsBoolean()) fireHeldTimer.start();
+        else {
+            fireHeldTimer.stop();
+            fireHeldTimer.reset();
+        }
 
         /* TEST DASHBOARD */
         if(RobotState.isTest()) {
@@ -173,51 +214,77 @@ public class RobotContainer {
         /* LET THE DRIVERS COOK */
         if(RobotState.isTeleop()) {
             // update with the state the driver wants
+            loopBudget.stage(INPUTS_STAGE);
             teleopStatemachine.requestState(TeleopInputs.getInstance().getWantedTeleopState());
             MultiTracers.trace("RobotContainer::run", "teleopStatemachine.requestState");
             swerveStatemachine.requestState(TeleopInputs.getInstance().getWantedSwerveState());
             MultiTracers.trace("RobotContainer::run", "swerveStatemachine.requestState");
 
             //run all the state machines
+            loopBudget.stage(ROBOT_STATEMACHINE_STAGE);
             teleopStatemachine.update();
             MultiTracers.trace("RobotContainer::run", "teleopStatemachine.update");
+            loopBudget.stage(SWERVE_STAGE);
             swerveStatemachine.update();
             MultiTracers.trace("RobotContainer::run", "swerveStatemachine.update");
+            loopBudget.stage(INTAKE_STAGE);
             triggerIntakeStatemachine.update();
             MultiTracers.trace("RobotContainer::run", "triggerIntakeStatemachine.update");
+            loopBudget.stage(PIVOT_STAGE);
             pivotStatemachine.update();
             MultiTracers.trace("RobotContainer::run", "pivotStatemachine.update");
+            loopBudget.stage(SHOOTER_STAGE);
             shooterStatemachine.update();
             MultiTracers.trace("RobotContainer::run", "shooterStatemachine.update");
+            loopBudget.stage(CLIMBER_STAGE);
             climberStatemachine.update();
             MultiTracers.trace("RobotContainer::run", "climberStatemachine.update");
             
             // handle driver overrides
+            loopBudget.stage(INPUTS_STAGE);
             TeleopInputs.getInstance().handleOverrides();
 
             OI.updateRumble();
 
             MultiTracers.trace("RobotContainer::run", "TeleopInputs.getInstance().handleOverrides");
-            SmartDashboard.putString("Note Location", NoteTracker.getLocation().name());
+            NetworkBudget.putString("Note Location", NoteTracker.getLocation().name(), Priority.CRITICAL);
         }
 
         /* AUTONOMOUS */
+        loopBudget.stage(AUTO_STAGE);
         if(RobotState.isAutonomous()) {
             autoChooser.getSelected().run(teleopStatemachine);
+            loopBudget.stage(ROBOT_STATEMACHINE_STAGE);
             teleopStatemachine.update();
+            loopBudget.stage(SWERVE_STAGE);
             swerveStatemachine.update();
             // flywheelIntakeStatemachine.update();
+            loopBudget.stage(INTAKE_STAGE);
             triggerIntakeStatemachine.update();
+            loopBudget.stage(PIVOT_STAGE);
             pivotStatemachine.update();
+            loopBudget.stage(SHOOTER_STAGE);
             shooterStatemachine.update();
         } else {
             autoChooser.getSelected().reset();
         }
+        loopBudget.stage(NOTE_TRACKER_STAGE);
         NoteTracker.update(teleopStatemachine.getState());
 
         MultiTracers.print("RobotContainer::run");
     }
 
+    /**
+     * Everything that only reports on what the robot did, run after {@link #run()} in every mode.
+     * These get put off for a loop when run() used up the loop's time, so they never make the control outputs late.
+     */
+    public void runTelemetry() {
+        if(loopBudget.stage(STRATEGY_STAGE)) StrategyTelemetry.update();
+        if(loopBudget.stage(REPORTER_STAGE)) Reporter.putDashboard();
+        if(loopBudget.stage(DASHBOARD_STAGE)) NetworkBudget.update(loopBudget.getPeriod());
+        loopBudget.finish();
+    }
+
     public void resetAuto(){
         autoChooser.getSelected().reset();
     }
@@ -2,10 +2,12 @@ package frc.robot;
 
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.lib.state.StateMachine;
 import frc.lib.telemetry.MultiTracers;
+import frc.lib.telemetry.NetworkBudget;
+import frc.lib.telemetry.NetworkBudget.Priority;
+import frc.lib.telemetry.StrategyTelemetry;
 import frc.robot.planners.AimPlanner;
 import frc.robot.planners.MotionPlanner;
 import frc.robot.statemachines.ClimberStatemachine;
@@ -61,6 +63,7 @@ public class RobotStatemachine extends StateMachine<RobotStatemachine.Superstruc
         if(state == SuperstructureState.INTAKE_FRONT && this.state == SuperstructureState.CLIMB_RETRACT) return;
         if(state == SuperstructureState.INTAKE_BACK && this.state == SuperstructureState.CLIMB_RETRACT) return;
         
+        if(state != this.state) StrategyTelemetry.stateChanged(this.state, state);
         this.state = state;
     }
 
@@ -84,7 +87,7 @@ public class RobotStatemachine extends StateMachine<RobotStatemachine.Superstruc
     public void update(){
         if (state == SuperstructureState.INTAKE_BACK) timeSinceIntake.restart();
 
-        SmartDashboard.putString("Robot State", state.name());
+        NetworkBudget.putString("Robot State", state.name(), Priority.CRITICAL);
         MultiTracers.trace("TeleopStatemachine", "start update");
         triggerIntakeStatemachine.requestState(state.getTriggerIntakeState());
         MultiTracers.trace("TeleopStatemachine", "triggerIntakeStatemachine.requestState");
@@ -233,6 +236,30 @@ public class RobotStatemachine extends StateMachine<RobotStatemachine.Superstruc
             return climberState;
         }
 
+        /**
+         * Whether this state is trying to pick up a note
+         */
+        public boolean isIntaking(){
+            return this == INTAKE_FRONT
+                || this == INTAKE_BACK
+                || this == INTAKE_SOURCE
+                || this == INTAKE_N_AIM
+                || this == INTAKE_N_PIVOT_AIM
+                || this == INTAKE_N_SHOOT;
+        }
+
+        /**
+         * Whether this state is lining up a shot (speaker or amp)
+         */
+        public boolean isAiming(){
+            return shooterState.isAiming()
+                || this == SHOOT
+                || this == ALIGN_AMP
+                || this == INTAKE_N_AIM
+                || this == INTAKE_N_PIVOT_AIM
+                || this == INTAKE_N_SHOOT;
+        }
+
         private SuperstructureState (TriggerIntakeState triggerIntakeState,
                                 ShooterState shooterState,
                                 PivotState pivotState,
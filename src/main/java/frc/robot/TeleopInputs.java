@@ -2,7 +2,8 @@ package frc.robot;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.telemetry.NetworkBudget;
+import frc.lib.telemetry.NetworkBudget.Priority;
 import frc.lib.util.AllianceFlipUtil;
 import frc.robot.RobotStatemachine.SuperstructureState;
 import frc.robot.planners.NoteTracker;
@@ -103,12 +104,12 @@ public class TeleopInputs {
         if(OI.Modes.wantsSpeakerMode.getAsBoolean()) mode = TeleopMode.SPEAKER;
         if(OI.Modes.wantsPanicMode.getAsBoolean()) mode = TeleopMode.PANIC;
 
-        SmartDashboard.putString("Teleop Mode", mode.name());
+        NetworkBudget.putString("Teleop Mode", mode.name(), Priority.CRITICAL);
 
         // reset the climb mode if we're not climbing
         if(mode != TeleopMode.CLIMB) climbMode = ClimbMode.ALIGN;
 
-        SmartDashboard.putString("Climb Mode", climbMode.name());
+        NetworkBudget.putString("Climb Mode", climbMode.name(), Priority.CRITICAL);
 
         // operator overrides - these take precedence over everything else
         if(OI.Inputs.wantsStow.getAsBoolean())  return SuperstructureState.STOW;
@@ -116,7 +117,7 @@ public class TeleopInputs {
 
         //handle the drivers' intaking requests, these take precedence over modes & automation
         intakingMode = wantedIntakeMode();
-        SmartDashboard.putString("Intaking Mode", intakingMode.name());
+        NetworkBudget.putString("Intaking Mode", intakingMode.name(), Priority.CRITICAL);
         if(intakingMode != IntakingMode.NONE) {
             return SuperstructureState.INTAKE_BACK;
         }
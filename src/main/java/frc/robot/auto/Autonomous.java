@@ -1,6 +1,7 @@
 package frc.robot.auto;
 
 import frc.robot.Constants;
+import frc.robot.RobotContainer;
 import frc.robot.RobotStatemachine;
 import frc.robot.RobotStatemachine.SuperstructureState;
 import frc.robot.statemachines.SwerveStatemachine.SwerveState;
@@ -232,7 +233,8 @@ public class Autonomous {
     private static Action[] shoot() {
         return new Action[]{
             // new Action(SuperstructureState.REST, 0.5), //allow the shooter to index
-            new Action(SuperstructureState.AUTO_AIM, 1.25),
+            //shoot as soon as the shot will be good, the timeout is just a backstop
+            new Action(SuperstructureState.AUTO_AIM, 1.25, () -> RobotContainer.getInstance().readyToAutoShoot()),
             new Action(SuperstructureState.SHOOT, 0.15)
         };
     }
@@ -11,10 +11,10 @@ import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.util.Units;
-import edu.wpi.first.networktables.DoublePublisher;
-import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.Timer;
+import frc.lib.telemetry.TelemetryStruct;
 import frc.lib.util.AllianceFlipUtil;
 import frc.lib.util.LinearInterpolate;
 import frc.lib.vision.LimelightHelpers;
@@ -95,20 +95,24 @@ public class AimPlanner {
     private double limelighttXOffset = 0; //difference between tx and wanted rotation for target center
 
     /* TELEMETRY */ //note: SOTM = Shoot on the Move
-    private final NetworkTable aimTable = NetworkTableInstance.getDefault().getTable("Aim Planner");
-    private final DoublePublisher distanceToTargetPublisher = aimTable.getDoubleTopic("Distance to Target").publish();
-    private final DoublePublisher angleToTargetPublisher = aimTable.getDoubleTopic("Angle to Target").publish();
-    private final DoublePublisher pivotAnglePublisher = aimTable.getDoubleTopic("Pivot Angle Regression (deg)").publish();
-    private final DoublePublisher shooterVelocityPublisher = aimTable.getDoubleTopic("Shooter Velocity Regression (rps)").publish();
-    private final DoublePublisher exitVelocityPublisher = aimTable.getDoubleTopic("Exit Velocity Conversion (m/s)").publish();
-
-    private final DoublePublisher sotmPivotAnglePublisher = aimTable.getDoubleTopic("SOTM Corrected Pivot Angle").publish();
-    private final DoublePublisher sotmExitVelocityPublisher = aimTable.getDoubleTopic("SOTM Corrected Exit Velocity").publish();
-    private final DoublePublisher sotmDrivetrainAnglePublisher = aimTable.getDoubleTopic("SOTM Corrected Drivetrain Angle").publish();
-
-    private final DoublePublisher drivetrainAngularVelocityPublisher = aimTable.getDoubleTopic("SuperSOTM Drivetrain Angular Velocity").publish();
-    private final DoublePublisher pivotAngularVelocityPublisher = aimTable.getDoubleTopic("SuperSOTM Pivot Angular Velocity").publish();
-    private final DoublePublisher shooterAngularAccelerationPublisher = aimTable.getDoubleTopic("SuperSOTM Shooter Angular Acceleration").publish();
+    //the whole solution goes out as one struct so every field is from the same loop
+    private static final TelemetryStruct solutionStruct = new TelemetryStruct("AimSolution");
+    private static final int DISTANCE_TO_TARGET = solutionStruct.addDouble("distanceToTarget");
+    private static final int ANGLE_TO_TARGET = solutionStruct.addDouble("angleToTargetDeg");
+    private static final int PIVOT_ANGLE = solutionStruct.addDouble("pivotAngleRegressionDeg");
+    private static final int SHOOTER_VELOCITY = solutionStruct.addDouble("shooterVelocityRegressionRps");
+    private static final int EXIT_VELOCITY = solutionStruct.addDouble("exitVelocity");
+    private static final int IS_SOTM = solutionStruct.addBoolean("isSotm");
+    private static final int SOTM_PIVOT_ANGLE = solutionStruct.addDouble("sotmPivotAngleDeg");
+    private static final int SOTM_EXIT_VELOCITY = solutionStruct.addDouble("sotmExitVelocity");
+    private static final int SOTM_DRIVETRAIN_ANGLE = solutionStruct.addDouble("sotmDrivetrainAngleDeg");
+    private static final int DRIVETRAIN_ANGULAR_VELOCITY = solutionStruct.addDouble("drivetrainAngularVelocity");
+    private static final int PIVOT_ANGULAR_VELOCITY = solutionStruct.addDouble("pivotAngularVelocity");
+    private static final int SHOOTER_ANGULAR_ACCELERATION = solutionStruct.addDouble("shooterAngularAcceleration");
+    private final TelemetryStruct.Channel solutionChannel = solutionStruct.open(
+        NetworkTableInstance.getDefault().getTable("Aim Planner"), "Solution",
+        DataLogManager.getLog(), "Aim Planner/Solution"
+    );
 
     private final Timer returnToOdometryTimer = new Timer();
 
@@ -176,11 +180,11 @@ public class AimPlanner {
         double flywheelAngularVelocity = flywheelAngularVelocityInterpolater.interpolate(distanceToTarget);
         double exitVelocity = RPSToExitVelocity(flywheelAngularVelocity);
 
-        distanceToTargetPublisher.accept(distanceToTarget);
-        angleToTargetPublisher.accept(angleToTarget.getDegrees());
-        pivotAnglePublisher.accept(pivotAngle.getDegrees());
-        shooterVelocityPublisher.accept(flywheelAngularVelocity);
-        exitVelocityPublisher.accept(exitVelocity);
+        solutionChannel.set(DISTANCE_TO_TARGET, distanceToTarget)
+                       .set(ANGLE_TO_TARGET, angleToTarget.getDegrees())
+                       .set(PIVOT_ANGLE, pivotAngle.getDegrees())
+                       .set(SHOOTER_VELOCITY, flywheelAngularVelocity)
+                       .set(EXIT_VELOCITY, exitVelocity);
 
         uncorrectedShotAngle = new ShotAngle(angleToTarget, pivotAngle, exitVelocity);
         measuredShotAngle = new ShotAngle(
@@ -198,7 +202,10 @@ public class AimPlanner {
             this.drivetrainAngle = angleToTarget;
             isSotm = false;
         }
-        if(!shootWhileMoving.getAsBoolean()) return;
+        if(!shootWhileMoving.getAsBoolean()) {
+            publishSolution();
+            return;
+        }
         isSotm = true;
 
         ChassisSpeeds robotVelocity = ChassisSpeeds.fromRobotRelativeSpeeds(robotRelativeChassisSpeeds.get(), blueOriginPose.getRotation());
@@ -206,9 +213,9 @@ public class AimPlanner {
         robotVelocity.vxMetersPerSecond *= 0.5; //avoid overcorrecting x velocity
 
         correctedShotAngle = ShotAngle.correctFromChassisSpeeds(uncorrectedShotAngle, robotVelocity, blueOriginPose.getRotation());
-        sotmPivotAnglePublisher.accept(correctedShotAngle.getPivotAngle().getDegrees());
-        sotmExitVelocityPublisher.accept(correctedShotAngle.getExitVelocity());
-        sotmDrivetrainAnglePublisher.accept(correctedShotAngle.getDrivetrainAngle().getDegrees());
+        solutionChannel.set(SOTM_PIVOT_ANGLE, correctedShotAngle.getPivotAngle().getDegrees())
+                       .set(SOTM_EXIT_VELOCITY, correctedShotAngle.getExitVelocity())
+                       .set(SOTM_DRIVETRAIN_ANGLE, correctedShotAngle.getDrivetrainAngle().getDegrees());
         this.pivotAngle = correctedShotAngle.getPivotAngle();
         this.flywheelAngularVelocity = exitVelocityToRPS(correctedShotAngle.getExitVelocity());
         this.drivetrainAngle = correctedShotAngle.getDrivetrainAngle();
@@ -225,9 +232,18 @@ public class AimPlanner {
         pivotAngularVelocity = pivotInterpolator.derivative(distanceToTarget) * deltaDistance;
         shooterAngularAcceleration = flywheelAngularVelocityInterpolater.derivative(distanceToTarget) * deltaDistance;
 
-        drivetrainAngularVelocityPublisher.accept(drivetrainAngularVelocity);
-        pivotAngularVelocityPublisher.accept(pivotAngularVelocity);
-        shooterAngularAccelerationPublisher.accept(shooterAngularAcceleration);
+        publishSolution();
+    }
+
+    /**
+     * send the whole aim solution at once
+     */
+    private void publishSolution() {
+        solutionChannel.set(IS_SOTM, isSotm)
+                       .set(DRIVETRAIN_ANGULAR_VELOCITY, drivetrainAngularVelocity)
+                       .set(PIVOT_ANGULAR_VELOCITY, pivotAngularVelocity)
+                       .set(SHOOTER_ANGULAR_ACCELERATION, shooterAngularAcceleration)
+                       .send();
     }
 
     public Rotation2d getTargetDrivetrainAngle() {
@@ -266,6 +282,16 @@ public class AimPlanner {
         return flywheelAngularVelocity;
     }
 
+    /**
+     * Look up the flywheel velocity we'd want to shoot from a given distance,
+     * without any shoot-on-the-move correction.
+     * @param distance the distance to the target in meters
+     * @return the flywheel velocity in RPS
+     */
+    public double getFlywheelVelocityForDistance(double distance) {
+        return flywheelAngularVelocityInterpolater.interpolate(distance);
+    }
+
     public double getDrivetrainAngularVelocity() {
         return drivetrainAngularVelocity;
     }
@@ -1,5 +1,6 @@
 package frc.robot.planners;
 
+import frc.lib.telemetry.StrategyTelemetry;
 import frc.robot.RobotStatemachine.SuperstructureState;
 import frc.robot.subsystems.Shooter;
 
@@ -10,9 +11,16 @@ import frc.robot.subsystems.Shooter;
  */
 public class NoteTracker {
     private static NoteLocation location = NoteLocation.NONE;
+    private static double lastTriggerSwitchTrippedTime = Double.NEGATIVE_INFINITY;
 
     public static void update (SuperstructureState state) {
-        if(Shooter.getInstance().triggerSwitchTripped()) {
+        //the interrupt catches notes that trip and clear the switch between two loops
+        var trippedTime = Shooter.getInstance().getLastTriggerSwitchTrippedTime();
+        var trippedSinceLastUpdate = trippedTime > lastTriggerSwitchTrippedTime;
+        lastTriggerSwitchTrippedTime = trippedTime;
+        var lastLocation = location;
+
+        if(Shooter.getInstance().triggerSwitchTripped() || trippedSinceLastUpdate) {
             location = NoteLocation.INDEXING;
         } else {
             if (location == NoteLocation.INDEXING) location = NoteLocation.SHOOTER;
@@ -21,6 +29,8 @@ public class NoteTracker {
         if(Shooter.getInstance().shotDetected()) {
             location = NoteLocation.NONE;
         }
+
+        if(location != lastLocation) StrategyTelemetry.noteMoved(location);
     }
 
     public static NoteLocation getLocation () {
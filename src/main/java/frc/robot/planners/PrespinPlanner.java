@@ -0,0 +1,167 @@
+package frc.robot.planners;
+
+import static frc.robot.Constants.Shooter.*;
+
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.lib.util.AllianceFlipUtil;
+import frc.lib.util.Util;
+import frc.robot.FieldConstants;
+import frc.robot.TeleopInputs;
+import frc.robot.TeleopInputs.TeleopMode;
+import frc.robot.planners.NoteTracker.NoteLocation;
+
+/**
+ * Figures out when we're probably going to shoot next, so the flywheels can already
+ * be at speed by the time the shooter state machine starts aiming.
+ * Looks at whether we have a note, how far we are from the speaker and how fast we're closing on it,
+ * what mode the operator has us in, and how much of auto is left.
+ * Backs off when the battery is sagging or the drivetrain is already pulling a lot of current.
+ */
+public class PrespinPlanner {
+    private final AimPlanner aimPlanner;
+    private final Supplier<Pose2d> robotPose;
+    private final Supplier<ChassisSpeeds> robotRelativeChassisSpeeds;
+    private final DoubleSupplier totalDriveCurrent;
+
+    private final Translation2d targetCenterTranslation = new Translation2d(
+        FieldConstants.Speaker.centerSpeakerOpening.getX(),
+        FieldConstants.Speaker.centerSpeakerOpening.getY()
+    );
+
+    private double timeToShot = Double.POSITIVE_INFINITY;
+    private double spinupTime = 0;
+    private double closingVelocity = 0;
+    private double budgetScale = 1;
+    private double prespinVelocity = 0;
+    private boolean wantsPrespin = false;
+
+    /* TELEMETRY */
+    private final NetworkTable prespinTable = NetworkTableInstance.getDefault().getTable("Prespin Planner");
+    private final DoublePublisher timeToShotPublisher = prespinTable.getDoubleTopic("Time to Shot").publish();
+    private final DoublePublisher spinupTimePublisher = prespinTable.getDoubleTopic("Spinup Time").publish();
+    private final DoublePublisher closingVelocityPublisher = prespinTable.getDoubleTopic("Closing Velocity").publish();
+    private final DoublePublisher budgetScalePublisher = prespinTable.getDoubleTopic("Budget Scale").publish();
+    private final DoublePublisher prespinVelocityPublisher = prespinTable.getDoubleTopic("Prespin Velocity").publish();
+    private final BooleanPublisher wantsPrespinPublisher = prespinTable.getBooleanTopic("Wants Prespin").publish();
+
+    /**
+     * @param aimPlanner for the distance to the speaker and the distance to flywheel speed lookup
+     * @param robotPose supplier for the robot pose (blue origin)
+     * @param robotRelativeChassisSpeeds supplier for the robot relative chassis speeds
+     * @param totalDriveCurrent supplier for the sum of the drive motor currents, for the current budget
+     */
+    public PrespinPlanner (AimPlanner aimPlanner,
+                        Supplier<Pose2d> robotPose,
+                        Supplier<ChassisSpeeds> robotRelativeChassisSpeeds,
+                        DoubleSupplier totalDriveCurrent) {
+        this.aimPlanner = aimPlanner;
+        this.robotPose = robotPose;
+        this.robotRelativeChassisSpeeds = robotRelativeChassisSpeeds;
+        this.totalDriveCurrent = totalDriveCurrent;
+    }
+
+    /**
+     * Update the time-to-shot estimate and the prespin target.
+     * Call after the aim planner has been updated.
+     * @param currentFlywheelVelocity the current average flywheel velocity in RPS
+     */
+    public void update (double currentFlywheelVelocity) {
+        timeToShot = estimateTimeToShot();
+
+        var distance = aimPlanner.getDistanceToTarget();
+        //where we'll probably be when we take the shot
+        var predictedDistance = distance;
+        if(Double.isFinite(timeToShot)) predictedDistance = distance - (closingVelocity * timeToShot);
+        predictedDistance = Util.limit(predictedDistance, 1, prespinShotDistance);
+
+        var targetVelocity = aimPlanner.getFlywheelVelocityForDistance(predictedDistance);
+        spinupTime = Math.max(0, targetVelocity - currentFlywheelVelocity) / prespinSpinupRate;
+
+        budgetScale = calculateBudgetScale();
+        prespinVelocity = targetVelocity * budgetScale;
+        wantsPrespin = budgetScale > 0 && timeToShot <= spinupTime + prespinLeadTime;
+
+        timeToShotPublisher.accept(timeToShot);
+        spinupTimePublisher.accept(spinupTime);
+        closingVelocityPublisher.accept(closingVelocity);
+        budgetScalePublisher.accept(budgetScale);
+        prespinVelocityPublisher.accept(prespinVelocity);
+        wantsPrespinPublisher.accept(wantsPrespin);
+    }
+
+    /**
+     * Whether the flywheels should already be spinning up for the next shot
+     */
+    public boolean wantsPrespin () {
+        return wantsPrespin;
+    }
+
+    /**
+     * The flywheel velocity to spin up to ahead of the shot, in RPS.
+     * Already scaled down by the battery / current budget.
+     */
+    public double getPrespinVelocity () {
+        return prespinVelocity;
+    }
+
+    /**
+     * How long until we expect to shoot, in seconds. Infinite if we don't expect to shoot.
+     */
+    public double getTimeToShot () {
+        return timeToShot;
+    }
+
+    private double estimateTimeToShot () {
+        //how fast we're closing on the speaker, before the early returns so it's never left over from an old loop
+        var pose = robotPose.get();
+        var fieldSpeeds = ChassisSpeeds.fromRobotRelativeSpeeds(robotRelativeChassisSpeeds.get(), pose.getRotation());
+        var toTarget = AllianceFlipUtil.apply(targetCenterTranslation).minus(pose.getTranslation());
+        var distance = toTarget.getNorm();
+        closingVelocity = distance < Util.EPSILON ? 0 :
+            (fieldSpeeds.vxMetersPerSecond * toTarget.getX() + fieldSpeeds.vyMetersPerSecond * toTarget.getY()) / distance;
+
+        var isAuto = DriverStation.isAutonomous();
+        if(!isAuto && TeleopInputs.getInstance().getMode() != TeleopMode.SPEAKER) return Double.POSITIVE_INFINITY;
+
+        var location = NoteTracker.getLocation();
+        if(location == NoteLocation.NONE) return Double.POSITIVE_INFINITY;
+
+        var travelTime = 0.0;
+        var remainingDistance = distance - prespinShotDistance;
+        if(remainingDistance > 0) {
+            travelTime = closingVelocity > prespinMinClosingVelocity ? remainingDistance / closingVelocity : Double.POSITIVE_INFINITY;
+        }
+
+        var time = travelTime;
+        if(location == NoteLocation.INDEXING) time = Math.max(time, prespinIndexTime);
+
+        //whatever's left of auto is the latest we could possibly be shooting
+        var matchTime = DriverStation.getMatchTime();
+        if(isAuto && matchTime > 0) time = Math.min(time, matchTime);
+
+        return time;
+    }
+
+    /**
+     * Scale the prespin down when the battery is low or the drivetrain is already pulling a lot,
+     * so getting ready early never costs us a brownout.
+     * @return 0 (no prespin) to 1 (full prespin)
+     */
+    private double calculateBudgetScale () {
+        var voltageScale = (RobotController.getBatteryVoltage() - prespinMinBatteryVoltage) / (prespinFullBatteryVoltage - prespinMinBatteryVoltage);
+        //full prespin until the drivetrain is using half the budget, then back off to nothing at the full budget
+        var currentScale = (prespinDriveCurrentBudget - totalDriveCurrent.getAsDouble()) / (prespinDriveCurrentBudget / 2);
+        return Util.limit(Math.min(voltageScale, currentScale), 0, 1);
+    }
+}
@@ -0,0 +1,238 @@
+package frc.robot.planners;
+
+import static frc.robot.Constants.Shooter.*;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Timer;
+import frc.lib.telemetry.StrategyTelemetry;
+import frc.robot.Constants;
+
+/**
+ * Decides when to take the shot. Instead of waiting until every error is already in tolerance
+ * (and then some), it tracks how fast each error is converging and fires as soon as every error
+ * will be in tolerance by the time the note actually leaves the shooter.
+ * Tracks the flywheel, pivot and heading errors and the chassis speed (when we aren't shooting on the move),
+ * with the odometry error as a plain pass/fail check.
+ */
+public class ShotReadinessPlanner {
+    private final AimPlanner aimPlanner;
+    private final Supplier<Pose2d> robotPose;
+    private final Supplier<ChassisSpeeds> robotRelativeChassisSpeeds;
+    private final DoubleSupplier flywheelError;
+    private final DoubleSupplier pivotError;
+    private final DoubleSupplier odometryError;
+    private final BooleanSupplier aiming;
+    private final BooleanSupplier aimingHeading;
+    private final BooleanSupplier shootWhileMoving;
+
+    private final NetworkTable readinessTable = NetworkTableInstance.getDefault().getTable("Shot Readiness");
+
+    private final TrackedError flywheel = new TrackedError("Flywheel", flywheelTolerance);
+    private final TrackedError pivot = new TrackedError("Pivot", Constants.Pivot.pivotTolerance);
+    private final TrackedError heading = new TrackedError("Heading", Constants.Swerve.aimTolerance);
+    private final TrackedError speed = new TrackedError("Speed", shotReadinessMaxSpeed);
+    private final TrackedError[] errors = {flywheel, pivot, heading, speed};
+
+    private double lastUpdateTime = Double.NaN;
+    private int aimingUpdates = 0;
+    private double timeToReady = Double.POSITIVE_INFINITY;
+    private boolean ready = false;
+
+    /* TELEMETRY */
+    private final DoublePublisher timeToReadyPublisher = readinessTable.getDoubleTopic("Time to Ready").publish();
+    private final BooleanPublisher readyPublisher = readinessTable.getBooleanTopic("Ready").publish();
+    private final StringPublisher limitingPublisher = readinessTable.getStringTopic("Limiting Error").publish();
+    //only logged when they change, the log analyzer uses the edges to time how long it takes to get ready
+    private final BooleanLogEntry aimingLog = new BooleanLogEntry(DataLogManager.getLog(), "Shot Readiness/Aiming");
+    private final BooleanLogEntry readyLog = new BooleanLogEntry(DataLogManager.getLog(), "Shot Readiness/Ready");
+    private boolean lastAiming = false;
+    private boolean lastReady = false;
+
+    /**
+     * @param aimPlanner for the target drivetrain angle
+     * @param robotPose supplier for the robot pose (blue origin)
+     * @param robotRelativeChassisSpeeds supplier for the robot relative chassis speeds
+     * @param flywheelError supplier for the flywheel velocity error in RPS
+     * @param pivotError supplier for the pivot closed loop error
+     * @param odometryError supplier for the disagreement between vision and odometry
+     * @param aiming whether the shooter is in an aiming state (the errors mean nothing otherwise)
+     * @param aimingHeading whether the drivetrain is pointing itself at the target
+     * @param shootWhileMoving whether we're allowed to shoot while moving
+     */
+    public ShotReadinessPlanner (AimPlanner aimPlanner,
+                                Supplier<Pose2d> robotPose,
+                                Supplier<ChassisSpeeds> robotRelativeChassisSpeeds,
+                                DoubleSupplier flywheelError,
+                                DoubleSupplier pivotError,
+                                DoubleSupplier odometryError,
+                                BooleanSupplier aiming,
+                                BooleanSupplier aimingHeading,
+                                BooleanSupplier shootWhileMoving) {
+        this.aimPlanner = aimPlanner;
+        this.robotPose = robotPose;
+        this.robotRelativeChassisSpeeds = robotRelativeChassisSpeeds;
+        this.flywheelError = flywheelError;
+        this.pivotError = pivotError;
+        this.odometryError = odometryError;
+        this.aiming = aiming;
+        this.aimingHeading = aimingHeading;
+        this.shootWhileMoving = shootWhileMoving;
+    }
+
+    /**
+     * Sample all the errors and update the prediction. Call once per loop, after the aim planner.
+     */
+    public void update () {
+        var now = Timer.getFPGATimestamp();
+        var dt = Double.isNaN(lastUpdateTime) ? 0 : now - lastUpdateTime;
+        lastUpdateTime = now;
+
+        var isAiming = aiming.getAsBoolean();
+        if(isAiming != lastAiming) {
+            aimingLog.append(isAiming);
+            lastAiming = isAiming;
+            if(!isAiming) StrategyTelemetry.aimStopped();
+        }
+
+        if(!isAiming) {
+            //the old trends are about some other setpoint, start fresh when we start aiming
+            aimingUpdates = 0;
+            for (var error : errors) error.reset();
+            publish(Double.POSITIVE_INFINITY, false, "Not Aiming");
+            return;
+        }
+        aimingUpdates++;
+
+        //only grab these once, they aren't free
+        var pose = robotPose.get();
+        var speeds = robotRelativeChassisSpeeds.get();
+
+        flywheel.update(flywheelError.getAsDouble(), dt, now);
+        pivot.update(pivotError.getAsDouble(), dt, now);
+        heading.update(aimingHeading.getAsBoolean() ? pose.getRotation().minus(aimPlanner.getTargetDrivetrainAngle()).getDegrees() : 0, dt, now);
+        speed.update(shootWhileMoving.getAsBoolean() ? 0 : Math.hypot(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond), dt, now);
+
+        var time = 0.0;
+        var converged = true;
+        TrackedError limiting = null;
+        for (var error : errors) {
+            var errorTime = error.timeToTolerance();
+            if(errorTime >= time) {
+                time = errorTime;
+                limiting = error;
+            }
+            //will it be in tolerance when the note leaves, if we pull the trigger right now?
+            converged &= error.predict(shotTriggerToExitDelay) <= error.tolerance;
+        }
+
+        //need a loop for the new setpoints to show up in the errors, and another for a trend
+        var settled = aimingUpdates > 2;
+        var localized = odometryError.getAsDouble() < shotReadinessMaxOdometryError;
+
+        publish(time, settled && localized && converged, !localized ? "Odometry" : limiting == null ? "None" : limiting.name);
+        StrategyTelemetry.aimUpdate(ready, flywheel.inToleranceSince, pivot.inToleranceSince, heading.inToleranceSince);
+    }
+
+    private void publish (double time, boolean ready, String limiting) {
+        this.timeToReady = time;
+        this.ready = ready;
+        if(ready != lastReady) {
+            readyLog.append(ready);
+            lastReady = ready;
+        }
+        timeToReadyPublisher.accept(time);
+        readyPublisher.accept(ready);
+        limitingPublisher.accept(limiting);
+    }
+
+    /**
+     * Whether pulling the trigger now means the note leaves just as everything is in tolerance
+     */
+    public boolean isReady () {
+        return ready;
+    }
+
+    /**
+     * How long until every error is in tolerance, based on how fast they're converging.
+     * Infinite if something isn't converging.
+     */
+    public double getTimeToReady () {
+        return timeToReady;
+    }
+
+    /**
+     * An absolute error and how fast it's changing.
+     */
+    private class TrackedError {
+        private final String name;
+        private final double tolerance;
+        private final DoublePublisher errorPublisher;
+        private final DoublePublisher ratePublisher;
+
+        private double error = Double.NaN;
+        private double rate = 0;
+        private boolean hasRate = false;
+        private double inToleranceSince = Double.NaN; //fpga time it last got in tolerance, NaN if it's out
+
+        public TrackedError (String name, double tolerance) {
+            this.name = name;
+            this.tolerance = tolerance;
+            errorPublisher = readinessTable.getDoubleTopic(name + " Error").publish();
+            ratePublisher = readinessTable.getDoubleTopic(name + " Error Rate").publish();
+        }
+
+        public void reset () {
+            error = Double.NaN;
+            rate = 0;
+            hasRate = false;
+            inToleranceSince = Double.NaN;
+        }
+
+        public void update (double newError, double dt, double now) {
+            newError = Math.abs(newError);
+            if(!Double.isNaN(error) && Double.isFinite(newError) && Double.isFinite(error) && dt > 0) {
+                var rawRate = (newError - error) / dt;
+                //a little smoothing so one noisy sample doesn't look like it's converging
+                rate = hasRate ? rate + shotReadinessRateSmoothing * (rawRate - rate) : rawRate;
+                hasRate = true;
+            }
+            error = newError;
+            if(!(error <= tolerance)) inToleranceSince = Double.NaN;
+            else if(Double.isNaN(inToleranceSince)) inToleranceSince = now;
+
+            errorPublisher.accept(error);
+            ratePublisher.accept(rate);
+        }
+
+        /**
+         * @return how long until this error is in tolerance, 0 if it already is, infinite if it isn't converging
+         */
+        public double timeToTolerance () {
+            if(!Double.isFinite(error)) return Double.POSITIVE_INFINITY;
+            if(error <= tolerance) return 0;
+            if(rate >= 0) return Double.POSITIVE_INFINITY;
+            return (error - tolerance) / -rate;
+        }
+
+        /**
+         * @param time how far ahead to look in seconds
+         * @return what the error will be by then if it keeps changing at the same rate
+         */
+        public double predict (double time) {
+            if(!Double.isFinite(error)) return Double.POSITIVE_INFINITY;
+            return Math.max(0, error + rate * time);
+        }
+    }
+}
@@ -2,8 +2,9 @@ package frc.robot.statemachines;
 
 import java.util.function.DoubleSupplier;
 
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.lib.state.StateMachine;
+import frc.lib.telemetry.NetworkBudget;
+import frc.lib.telemetry.NetworkBudget.Priority;
 import frc.robot.subsystems.Climber;
 
 /**
@@ -26,7 +27,7 @@ public class ClimberStatemachine extends StateMachine<ClimberStatemachine.Climbe
 
     @Override
     public void update(){
-        SmartDashboard.putString("Climber State", state.name());
+        NetworkBudget.putString("Climber State", state.name(), Priority.NORMAL);
         climber.setClimberPosition(state.getPosition());
         return;
     }
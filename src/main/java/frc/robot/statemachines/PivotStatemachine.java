@@ -6,6 +6,8 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.lib.state.StateMachine;
+import frc.lib.telemetry.NetworkBudget;
+import frc.lib.telemetry.NetworkBudget.Priority;
 import frc.robot.OI;
 import frc.robot.planners.AimPlanner;
 import frc.robot.planners.MotionPlanner;
@@ -42,8 +44,9 @@ public class PivotStatemachine extends StateMachine<PivotStatemachine.PivotState
      */
     @Override
     public void update(){
+        pivot.publishState(); //last loop's target along with where it is now
         // if (state == PivotState.INTAKE && !intakeMotionPlanner.canFlattenPivot()) state = PivotState.REST;
-        SmartDashboard.putString("Pivot State", state.name());
+        NetworkBudget.putString("Pivot State", state.name(), Priority.NORMAL);
 
         if(state == PivotState.AUTO_AIM) {
             var angle = aimPlanner.getTargetPivotAngle();
@@ -3,11 +3,13 @@ package frc.robot.statemachines;
 import java.util.function.BooleanSupplier;
 
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.lib.state.StateMachine;
+import frc.lib.telemetry.NetworkBudget;
+import frc.lib.telemetry.NetworkBudget.Priority;
+import frc.lib.util.Console;
 import frc.robot.OI;
 import frc.robot.planners.AimPlanner;
+import frc.robot.planners.PrespinPlanner;
 import frc.robot.subsystems.Shooter;
 
 public class ShooterStatemachine extends StateMachine<ShooterStatemachine.ShooterState> {
@@ -17,13 +19,13 @@ public class ShooterStatemachine extends StateMachine<ShooterStatemachine.Shoote
 
     private final Shooter shooter;
     private final AimPlanner aimPlanner;
+    private final PrespinPlanner prespinPlanner;
     private final BooleanSupplier FIRE;
 
-    private final Timer sketchyTimer = new Timer();
-
-    public ShooterStatemachine(Shooter shooter, AimPlanner aimPlanner, BooleanSupplier FIRE){
+    public ShooterStatemachine(Shooter shooter, AimPlanner aimPlanner, PrespinPlanner prespinPlanner, BooleanSupplier FIRE){
         this.shooter = shooter;
         this.aimPlanner = aimPlanner;
+        this.prespinPlanner = prespinPlanner;
         this.FIRE = FIRE;
     }
 
@@ -32,18 +34,10 @@ public class ShooterStatemachine extends StateMachine<ShooterStatemachine.Shoote
      * e.g. intaking to indexing when the gamepiece is detected
      */
     private void updateState(){
-        SmartDashboard.putBoolean("flywheel switch", shooter.flywheelSwitchTripped());
-        SmartDashboard.putBoolean("trigger switch", shooter.triggerSwitchTripped());
-
         if(state == ShooterState.RAMP_DOWN) if(shooter.flywheelSwitchTripped()) state = ShooterState.INDEX;
         else if(state == ShooterState.INDEX) if(!(shooter.triggerSwitchTripped() || shooter.flywheelSwitchTripped())) state = ShooterState.RAMP_DOWN;
         if (
-              (state == ShooterState.AUTO_AIM
-            ||state == ShooterState.AIM_LAYUP
-            ||state == ShooterState.AIM_PROTECTED
-            ||state == ShooterState.AIM_UNDER_STAGE
-            ||state == ShooterState.AIM_WINGLINE
-            ||state == ShooterState.AIM_CENTERLINE)
+            state.isAiming()
             && FIRE.getAsBoolean()
             && DriverStation.isTeleop()
         ) {
@@ -82,8 +76,9 @@ public class ShooterStatemachine extends StateMachine<ShooterStatemachine.Shoote
      */
     @Override
     public void update(){
+        shooter.publishState(); //last loop's setpoints along with what the flywheels are doing now
         updateState();
-        SmartDashboard.putString("Shooter State", state.name());
+        NetworkBudget.putString("Shooter State", state.name(), Priority.NORMAL);
         
         if(state == ShooterState.AUTO_AIM) {
             shooter.setFlywheelVelocity(aimPlanner.getTargetFlywheelVelocityRPS());
@@ -100,8 +95,8 @@ public class ShooterStatemachine extends StateMachine<ShooterStatemachine.Shoote
 
         if (state == ShooterState.INTAKE_N_AIM){
             shooter.setFlywheelVelocity(aimPlanner.getTargetFlywheelVelocityRPS());
-            if(shooter.triggerSwitchTripped()) sketchyTimer.restart();
-            if(!shooter.triggerSwitchTripped() || sketchyTimer.get() < 0.3) {
+            //keep feeding for a bit after the note trips the switch, timed from the interrupt's edge rather than when a loop noticed it
+            if(!shooter.triggerSwitchTripped() || shooter.getTimeSinceTriggerSwitchTripped() < 0.3) {
                 shooter.setTriggerPercent(1);
             }
             else shooter.setTriggerPercent(0);
@@ -110,7 +105,7 @@ public class ShooterStatemachine extends StateMachine<ShooterStatemachine.Shoote
 
         if(state == ShooterState.INDEX){
             if(shooter.flywheelSwitchTripped()) shooter.setTriggerPercent(-state.getTriggerPercent());
-            else if (shooter.triggerSwitchTripped() && !shooter.flywheelSwitchTripped()) shooter.setTriggerPercent(state.getTriggerPercent());
+            else if (shooter.triggerSwitchTripped() && !shooter.flywheelSwitchTripped()) shooter.feedTriggerUntilFlywheelSwitch(state.getTriggerPercent());
             else shooter.setTriggerPercent(0);
 
             shooter.setFlywheelVelocity(state.flywheelVelocity);
@@ -124,7 +119,9 @@ public class ShooterStatemachine extends StateMachine<ShooterStatemachine.Shoote
         }
 
         if (state == ShooterState.RAMP_DOWN) {
-            shooter.brakeFlywheel();
+            //get the flywheels up to speed before we start aiming if we're about to shoot anyway
+            if(prespinPlanner.wantsPrespin()) shooter.setFlywheelVelocity(prespinPlanner.getPrespinVelocity());
+            else shooter.brakeFlywheel();
             shooter.setTriggerPercent(0.0);
             return;
         }
@@ -158,12 +155,12 @@ public class ShooterStatemachine extends StateMachine<ShooterStatemachine.Shoote
     private int shotsFired = 0;
     private void printShotData() {
         shotsFired++;
-        System.out.println("Firing Shot!");
-        System.out.println("Shots Fired: " + shotsFired);
-        System.out.println("Wanted Shot Angle: " + aimPlanner.getWantedShotAngle());
-        System.out.println("Measured Shot Angle: " + aimPlanner.getMeasuredShotAngle());
-        System.out.println("Using Shoot-on-the-move: " + aimPlanner.isSotm());
-        System.out.println("Localization Strategy: " + (aimPlanner.isSimpleLocalizer() ? "limelight tx/ty" : "pose estimation"));
+        Console.info("Firing Shot!");
+        Console.info("Shots Fired: " + shotsFired);
+        Console.info("Wanted Shot Angle: " + aimPlanner.getWantedShotAngle());
+        Console.info("Measured Shot Angle: " + aimPlanner.getMeasuredShotAngle());
+        Console.info("Using Shoot-on-the-move: " + aimPlanner.isSotm());
+        Console.info("Localization Strategy: " + (aimPlanner.isSimpleLocalizer() ? "limelight tx/ty" : "pose estimation"));
     }
 
     public enum ShooterState{
@@ -192,6 +189,18 @@ public class ShooterStatemachine extends StateMachine<ShooterStatemachine.Shoote
             return triggerPercent;
         }
 
+        /**
+         * @return whether this is a state we can fire from
+         */
+        public boolean isAiming(){
+            return this == AUTO_AIM
+                || this == AIM_LAYUP
+                || this == AIM_PROTECTED
+                || this == AIM_UNDER_STAGE
+                || this == AIM_WINGLINE
+                || this == AIM_CENTERLINE;
+        }
+
         private ShooterState (Double flywheelVelocity, Double triggerPercentage){
             this.flywheelVelocity = flywheelVelocity;
             this.triggerPercent = triggerPercentage;
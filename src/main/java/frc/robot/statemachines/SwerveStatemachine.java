@@ -18,11 +18,17 @@ import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.RobotState;
 import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.lib.state.StateMachine;
 import frc.lib.swerve.PeaccyRequest;
+import frc.lib.swerve.SecondOrderSwerveKinematics;
+import frc.lib.swerve.SwerveSetpointGenerator;
+import frc.lib.swerve.TractionController;
+import frc.lib.telemetry.NetworkBudget;
+import frc.lib.telemetry.NetworkBudget.Priority;
 import frc.lib.telemetry.SwerveTelemetry;
+import frc.lib.util.Console;
+import frc.lib.util.HIDSnapshot;
 import frc.robot.Constants;
 import frc.robot.OI;
 import frc.robot.Robot;
@@ -47,11 +53,11 @@ public class SwerveStatemachine extends StateMachine<SwerveStatemachine.SwerveSt
     private final PeaccyRequest request; //custom fancy request than handles everything
     private final SwerveRequest.SwerveDriveBrake lockInRequest = new SwerveRequest.SwerveDriveBrake().withDriveRequestType(DriveRequestType.Velocity); //for X-locking the wheels
 
-    /* Acceleration limiters for a consistent feel and to reduce power draw. */
-    private final SlewRateLimiter linearSpeedLimiter = new SlewRateLimiter(Constants.Swerve.teleopLinearSpeedLimit); //limit the change in speed
-    private final SlewRateLimiter agressiveLimiter = new SlewRateLimiter(Constants.Swerve.teleopLowBatteryLinearSpeedLimit); //more aggresive to prevent brownouts
-    private final SlewRateLimiter linearAngleLimiter = new SlewRateLimiter(Constants.Swerve.teleopLinearAngleLimit); //limit the change in direction
-    private final SlewRateLimiter angularVelocityLimiter = new SlewRateLimiter(Constants.Swerve.teleopAngularRateLimit); //limit the change in angular velocity
+    /* Input smoothing for a consistent feel and to reduce power draw. */
+    private final InputSmoother inputSmoother = new InputSmoother();
+    //reads the sticks on the odometry thread instead, if Constants.Swerve.teleopSampleOnOdometryThread
+    private final OdometryThreadSampler odometryThreadSampler = new OdometryThreadSampler();
+    private volatile boolean useAggresiveLimiter = false; //decided on the main thread, used by whichever thread is smoothing
 
     private SwerveState state = SwerveState.OPEN_LOOP_TELEOP;
 
@@ -94,9 +100,25 @@ public class SwerveStatemachine extends StateMachine<SwerveStatemachine.SwerveSt
             Constants.Swerve.softHeadingCurrentLimit
         ).withRotationalDeadband(Constants.Swerve.teleopAngularVelocityDeadband)
         .withSoftHoldHeading(Constants.Swerve.useSoftHoldHeading)
-        .withPositionCorrectionIterations(Constants.Swerve.teleopPositionCorrectionIters);
-
-        System.out.println("PeacyDrive initialized");
+        .withPositionCorrectionIterations(Constants.Swerve.teleopPositionCorrectionIters)
+        .withSetpointGenerator(new SwerveSetpointGenerator(
+            Constants.Swerve.physics,
+            Constants.Swerve.setpointMaxModuleAcceleration,
+            Constants.Swerve.setpointMaxSteerVelocity,
+            new SecondOrderSwerveKinematics(Constants.Swerve.secondOrderActuationDelay)
+        ))
+        .withTractionController(Constants.Swerve.useTractionControl ? new TractionController(
+            Constants.Swerve.tractionMaxSlipRatio,
+            Constants.Swerve.tractionSpeedFloor,
+            Constants.Swerve.tractionSmoothing,
+            Constants.Swerve.tractionGroundSpeedTimeConstant,
+            driveTrain::getLinearAccelerationX,
+            driveTrain::getLinearAccelerationY,
+            driveTrain::getYawRate
+        ) : null)
+        .withTeleopSampler(odometryThreadSampler);
+
+        Console.info("PeacyDrive initialized");
     }
 
 
@@ -175,7 +197,7 @@ public class SwerveStatemachine extends StateMachine<SwerveStatemachine.SwerveSt
         driveTrain.periodic();
         updateState();
 
-        SmartDashboard.putString("Swerve State", state.name());
+        NetworkBudget.putString("Swerve State", state.name(), Priority.NORMAL);
 
         if(Robot.isSimulation()) driveTrain.simulationPeriodic();
         /* PATH FOLLOWING */
@@ -226,9 +248,19 @@ public class SwerveStatemachine extends StateMachine<SwerveStatemachine.SwerveSt
         if(OI.Swerve.isAttemptProperZero.getAsBoolean()) driveTrain.attemptProperFieldCentricZeroing();
 
         // handle smoothing and deadbanding
+        useAggresiveLimiter = RobotController.getBatteryVoltage() < 10.5 
+                            || OI.Inputs.enableShootWhileMoving.getAsBoolean();
         Translation2d rawLinearVelocity = new Translation2d(xVelocity, yVelocity);
-        Translation2d linearVelocity = smoothAndDeadband(rawLinearVelocity).times(Constants.Swerve.teleopLinearMultiplier);
-        angularVelocity = smoothAndDeadband(angularVelocity) * Constants.Swerve.teleopAngularMultiplier;
+        Translation2d linearVelocity;
+        if(Constants.Swerve.teleopSampleOnOdometryThread) {
+            //the request smooths the sticks itself on the odometry thread, this is just what it did last for logging
+            linearVelocity = new Translation2d(odometryThreadSampler.lastX, odometryThreadSampler.lastY);
+            angularVelocity = odometryThreadSampler.lastAngular;
+        } else {
+            inputSmoother.calculate(xVelocity, yVelocity, angularVelocity, useAggresiveLimiter);
+            linearVelocity = new Translation2d(inputSmoother.linearX, inputSmoother.linearY);
+            angularVelocity = inputSmoother.angular;
+        }
 
         rawLinearVelocity = rawLinearVelocity.times(Constants.Swerve.teleopLinearMultiplier); //apples to apples comparison for logging
 
@@ -265,7 +297,8 @@ public class SwerveStatemachine extends StateMachine<SwerveStatemachine.SwerveSt
                //rather than holding whatever direction you're facing :)
                .withHoldHeading(holdHeading)
                .withLockHeading(false)
-               .withPositionCorrectionIterations(Constants.Swerve.teleopPositionCorrectionIters);
+               .withPositionCorrectionIterations(Constants.Swerve.teleopPositionCorrectionIters)
+               .withSampleTeleop(Constants.Swerve.teleopSampleOnOdometryThread);
 
         //update the robot's target heading if we're using auto heading
         if(useHeading) {
@@ -332,7 +365,8 @@ public class SwerveStatemachine extends StateMachine<SwerveStatemachine.SwerveSt
         //and make me happy,
         //for the rest of my life.
         // -peaccy
-        driveTrain.drive(request);
+        //(hand it all to the odometry thread at once, so it never sees half of this loop's setup)
+        driveTrain.drive(request.publish());
 
         //create drive to note command:
         //if we're in the right state and the note is detected, create a command to drive to the note
@@ -347,7 +381,7 @@ public class SwerveStatemachine extends StateMachine<SwerveStatemachine.SwerveSt
     }
 
     public void zeroAutoHeading() {
-        request.withHeading(driveTrain.getPose().getRotation().getRadians());
+        request.withHeading(driveTrain.getPose().getRotation().getRadians()).publish();
     }
 
     @Override
@@ -362,61 +396,115 @@ public class SwerveStatemachine extends StateMachine<SwerveStatemachine.SwerveSt
     }
 
     /**
-     * Handle deadbanding and smoothing of the linear velocity.
-     * Does a nice deadband to get rid of joystick drift while minimizing loss of precise control.
-     * Also does a nice rate limiter to make the robot feel nice to drive.
-     * Rate limits are on the speed and angle of the velocity rather than X and Y components to prevent
-     * the angle of the velocity feeling inconsistent, 
-     * and help you (me) pretend to be a good driver who can make the robot go straight.
-     * Oh yeah it also does a nice curve to make the robot feel nice to drive,
-     * and hopefully stop me from driving thru any more large metal workbenches
-     * @param linearVelocity the raw linear velocity as a Translation2d
-     * @return the much more gooder linear velocity
+     * The deadband, curve and rate limiters for the sticks. The rate limiters remember the last output,
+     * so the main thread and the odometry thread each need their own.
+     * Doesn't allocate, so it's fine to run on the odometry thread.
      */
-    private Translation2d smoothAndDeadband (Translation2d linearVelocity) {
-        //handle deadband and reset the rate limiter if we're in the deadband
-        double rawLinearSpeed = handleDeadbandFixSlope(0.001,0.1,linearVelocity.getNorm());
-        if(Math.abs(rawLinearSpeed) < Constants.Swerve.teleopLinearSpeedDeadband) linearSpeedLimiter.reset(0);
-        rawLinearSpeed = Constants.Swerve.teleopLinearSpeedCurve.apply(rawLinearSpeed);
-
-        boolean useAggresiveLimiter = RobotController.getBatteryVoltage() < 10.5 
-                                    || OI.Inputs.enableShootWhileMoving.getAsBoolean();
-
-        double lowSpeed = agressiveLimiter.calculate(rawLinearSpeed);
-        //limit the linear acceleration
-        double linearSpeed = linearSpeedLimiter.calculate(rawLinearSpeed);
-        if(useAggresiveLimiter) linearSpeed = lowSpeed;
-
-        //limit the change in direction
-        double rawLinearAngle = linearVelocity.getAngle().getRadians();
-        double linearAngle = linearAngleLimiter.calculate(rawLinearAngle);
-
-        // override the smoothing of the direction if it lags too far behind the raw value
-        // (mainly after stopping and changing direction)
-        if (Math.abs(linearAngle - rawLinearAngle) > Math.PI/4) {
-            linearAngleLimiter.reset(rawLinearAngle);
-            linearAngle = rawLinearAngle;
+    private class InputSmoother {
+        /* Acceleration limiters for a consistent feel and to reduce power draw. */
+        private final SlewRateLimiter linearSpeedLimiter = new SlewRateLimiter(Constants.Swerve.teleopLinearSpeedLimit); //limit the change in speed
+        private final SlewRateLimiter agressiveLimiter = new SlewRateLimiter(Constants.Swerve.teleopLowBatteryLinearSpeedLimit); //more aggresive to prevent brownouts
+        private final SlewRateLimiter linearAngleLimiter = new SlewRateLimiter(Constants.Swerve.teleopLinearAngleLimit); //limit the change in direction
+        private final SlewRateLimiter angularVelocityLimiter = new SlewRateLimiter(Constants.Swerve.teleopAngularRateLimit); //limit the change in angular velocity
+
+        //the outputs, in m/s and rad/s (probably)
+        double linearX = 0, linearY = 0, angular = 0;
+
+        /**
+         * smooth and deadband the raw stick values, and scale them to speeds.
+         * @param rawX the raw forward stick value
+         * @param rawY the raw sideways stick value
+         * @param rawAngular the raw rotation stick value
+         * @param useAggresiveLimiter whether to use the more aggressive acceleration limit
+         */
+        void calculate (double rawX, double rawY, double rawAngular, boolean useAggresiveLimiter) {
+            smoothAndDeadband(rawX, rawY, useAggresiveLimiter);
+            angular = smoothAndDeadband(rawAngular) * Constants.Swerve.teleopAngularMultiplier;
         }
 
-        return new Translation2d(linearSpeed, new Rotation2d(linearAngle));
-    }
+        /**
+         * Handle deadbanding and smoothing of the linear velocity.
+         * Does a nice deadband to get rid of joystick drift while minimizing loss of precise control.
+         * Also does a nice rate limiter to make the robot feel nice to drive.
+         * Rate limits are on the speed and angle of the velocity rather than X and Y components to prevent
+         * the angle of the velocity feeling inconsistent, 
+         * and help you (me) pretend to be a good driver who can make the robot go straight.
+         * Oh yeah it also does a nice curve to make the robot feel nice to drive,
+         * and hopefully stop me from driving thru any more large metal workbenches
+         * Puts the much more gooder linear velocity in linearX and linearY.
+         * @param x the raw x linear velocity
+         * @param y the raw y linear velocity
+         * @param useAggresiveLimiter whether to use the more aggressive acceleration limit
+         */
+        private void smoothAndDeadband (double x, double y, boolean useAggresiveLimiter) {
+            //handle deadband and reset the rate limiter if we're in the deadband
+            double rawLinearSpeed = handleDeadbandFixSlope(0.001,0.1,Math.hypot(x, y));
+            if(Math.abs(rawLinearSpeed) < Constants.Swerve.teleopLinearSpeedDeadband) linearSpeedLimiter.reset(0);
+            rawLinearSpeed = Constants.Swerve.teleopLinearSpeedCurve.apply(rawLinearSpeed);
+
+            double lowSpeed = agressiveLimiter.calculate(rawLinearSpeed);
+            //limit the linear acceleration
+            double linearSpeed = linearSpeedLimiter.calculate(rawLinearSpeed);
+            if(useAggresiveLimiter) linearSpeed = lowSpeed;
+
+            //limit the change in direction
+            double rawLinearAngle = Math.atan2(y, x);
+            double linearAngle = linearAngleLimiter.calculate(rawLinearAngle);
+
+            // override the smoothing of the direction if it lags too far behind the raw value
+            // (mainly after stopping and changing direction)
+            if (Math.abs(linearAngle - rawLinearAngle) > Math.PI/4) {
+                linearAngleLimiter.reset(rawLinearAngle);
+                linearAngle = rawLinearAngle;
+            }
 
-    /**
-     * super simple lil deadbander and smoother for the spinny part.
-     * just a deadband, curve and rate limiter.
-     * @param angularVelocity the raw angular velocity
-     * @return the vastly superior angular velocity
-     */
-    private double smoothAndDeadband (double angularVelocity) {
-        //apply deadband to angular velocity
-        angularVelocity = handleDeadbandFixSlope(0.001, 0.1, angularVelocity);
+            linearX = linearSpeed * Math.cos(linearAngle) * Constants.Swerve.teleopLinearMultiplier;
+            linearY = linearSpeed * Math.sin(linearAngle) * Constants.Swerve.teleopLinearMultiplier;
+        }
 
-        angularVelocity = Constants.Swerve.teleopAngularVelocityCurve.apply(angularVelocity);
+        /**
+         * super simple lil deadbander and smoother for the spinny part.
+         * just a deadband, curve and rate limiter.
+         * @param angularVelocity the raw angular velocity
+         * @return the vastly superior angular velocity
+         */
+        private double smoothAndDeadband (double angularVelocity) {
+            //apply deadband to angular velocity
+            angularVelocity = handleDeadbandFixSlope(0.001, 0.1, angularVelocity);
 
-        //limit the angular acceleration
-        angularVelocity = angularVelocityLimiter.calculate(angularVelocity);
+            angularVelocity = Constants.Swerve.teleopAngularVelocityCurve.apply(angularVelocity);
 
-        return angularVelocity;
+            //limit the angular acceleration
+            angularVelocity = angularVelocityLimiter.calculate(angularVelocity);
+
+            return angularVelocity;
+        }
+    }
+
+    /**
+     * Reads the driver's sticks straight from the driver station and smooths them, on the odometry thread.
+     * Has its own smoother since the main thread's isn't safe to share.
+     */
+    private class OdometryThreadSampler implements PeaccyRequest.TeleopSampler {
+        private final HIDSnapshot driver = new HIDSnapshot(OI.Swerve.driverPort);
+        private final InputSmoother smoother = new InputSmoother();
+
+        //what it sent last, for logging on the main thread
+        volatile double lastX = 0, lastY = 0, lastAngular = 0;
+
+        @Override
+        public void sample(double[] velocities) {
+            driver.refresh();
+            smoother.calculate(
+                OI.Swerve.axisSign * driver.getAxis(OI.Swerve.translationAxis),
+                OI.Swerve.axisSign * driver.getAxis(OI.Swerve.strafeAxis),
+                OI.Swerve.axisSign * driver.getAxis(OI.Swerve.rotationAxis),
+                useAggresiveLimiter
+            );
+            velocities[0] = lastX = smoother.linearX;
+            velocities[1] = lastY = smoother.linearY;
+            velocities[2] = lastAngular = smoother.angular;
+        }
     }
 
     /**
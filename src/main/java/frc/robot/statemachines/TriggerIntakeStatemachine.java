@@ -1,8 +1,9 @@
 package frc.robot.statemachines;
 
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.lib.state.StateMachine;
+import frc.lib.telemetry.NetworkBudget;
+import frc.lib.telemetry.NetworkBudget.Priority;
 import frc.robot.planners.MotionPlanner;
 import frc.robot.subsystems.Shooter;
 import frc.robot.subsystems.TriggerIntake;
@@ -46,7 +47,7 @@ public class TriggerIntakeStatemachine extends StateMachine<TriggerIntakeStatema
     public void update(){
         updateState();
 
-        SmartDashboard.putString("Trigger Intake State", state.name());
+        NetworkBudget.putString("Trigger Intake State", state.name(), Priority.NORMAL);
 
         triggerIntake.setDeploymentAngle(state.deployAngle);
         triggerIntake.setRollerSpeed(state.speed);
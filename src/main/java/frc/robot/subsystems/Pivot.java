@@ -10,12 +10,12 @@ import com.ctre.phoenix6.hardware.ParentDevice;
 import com.ctre.phoenix6.hardware.TalonFX;
 import edu.wpi.first.math.controller.ArmFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.networktables.DoublePublisher;
-import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.smartdashboard.Mechanism2d;
 import edu.wpi.first.wpilibj.smartdashboard.MechanismLigament2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.telemetry.TelemetryStruct;
 import frc.lib.util.Reporter;
 import frc.lib.util.Util;
 import frc.robot.Robot;
@@ -23,6 +23,10 @@ import frc.robot.Robot;
 import static frc.robot.Constants.Pivot.*;
 
 public class Pivot {
+    //these get checked every loop, so they report by call site ID
+    private static final int SET_POSITION_REPORT = Reporter.register("couldn't set pivot position");
+    private static final int READ_POSITION_REPORT = Reporter.register("Couldn't read pivot position");
+
     /* HARDWARE */
     private final TalonFX pivotMaster = new TalonFX(pivotMasterID);
     private final TalonFX pivotFollower = new TalonFX(pivotFollowerID);
@@ -36,14 +40,22 @@ public class Pivot {
     /* TELEMETRY */
     private final Mechanism2d pivotMech = new Mechanism2d(100, 100);
     private final MechanismLigament2d pivotLigament = pivotMech.getRoot("pivot", 50, 50).append(new MechanismLigament2d("pivot", 30, 0));
-    private final NetworkTable pivotTable = NetworkTableInstance.getDefault().getTable("Pivot");
-    private final DoublePublisher pivotAnglePublisher = pivotTable.getDoubleTopic("pivot angle").publish();
-    private final DoublePublisher targetPivotAnglePublisher = pivotTable.getDoubleTopic("target pivot angle").publish();
+    private static final TelemetryStruct stateStruct = new TelemetryStruct("PivotState");
+    private static final int ANGLE = stateStruct.addDouble("angleDeg");
+    private static final int TARGET_ANGLE = stateStruct.addDouble("targetAngleDeg");
+    private static final int VELOCITY = stateStruct.addDouble("velocity");
+    private static final int CLOSED_LOOP_ERROR = stateStruct.addDouble("closedLoopError");
+    private static final int AT_SETPOINT = stateStruct.addBoolean("atSetpoint");
+    private final TelemetryStruct.Channel stateChannel = stateStruct.open(
+        NetworkTableInstance.getDefault().getTable("Pivot"), "State",
+        DataLogManager.getLog(), "Pivot/State"
+    );
 
     /* STATUS SIGNALS */
     private final StatusSignal <Double> positionSignal;
     private final StatusSignal <Double> velocitySignal;
     private final StatusSignal <Double> errorSignal;
+    private final BaseStatusSignal[] telemetrySignals;
 
     private Pivot () {
         Reporter.report(
@@ -70,6 +82,7 @@ public class Pivot {
         positionSignal = pivotEncoder.getPosition();
         velocitySignal = pivotEncoder.getVelocity();
         errorSignal = pivotMaster.getClosedLoopError();
+        telemetrySignals = new BaseStatusSignal[] {velocitySignal, errorSignal};
         BaseStatusSignal.setUpdateFrequencyForAll(
             100, 
             positionSignal, 
@@ -97,9 +110,9 @@ public class Pivot {
 
         pivotControl.withFeedForward(gravity).withPosition(position.getRotations() + 0.005).withSlot(position.getDegrees() > 60 ? 1 : 0); //fudge factor because of goddamnclimber
 
-        Reporter.log(pivotMaster.setControl(pivotControl), "couldn't set pivot position");
+        Reporter.log(SET_POSITION_REPORT, pivotMaster.setControl(pivotControl));
 
-        targetPivotAnglePublisher.accept(position.getDegrees());
+        stateChannel.set(TARGET_ANGLE, position.getDegrees());
 
         if(Robot.isSimulation()) {
             pivotEncoder.getSimState().setRawPosition(position.getRotations());
@@ -120,17 +133,37 @@ public class Pivot {
      */
     public Rotation2d getPivotPosition () {
         positionSignal.refresh();
-        Reporter.report(positionSignal.getStatus(), "Couldn't read pivot position");
+        Reporter.report(READ_POSITION_REPORT, positionSignal.getStatus());
         var compensatedRotations = positionSignal.getValue();
 
         var angle = Rotation2d.fromRotations(compensatedRotations);
-        pivotAnglePublisher.accept(angle.getDegrees());
+        stateChannel.set(ANGLE, angle.getDegrees());
         return angle;
     }
 
+    /**
+     * send the pivot's state as one struct, call once a loop.
+     * the angle and target are whatever they were last read/set as.
+     */
+    public void publishState () {
+        BaseStatusSignal.refreshAll(telemetrySignals);
+        var error = errorSignal.getValue();
+        stateChannel.set(VELOCITY, velocitySignal.getValue())
+                    .set(CLOSED_LOOP_ERROR, error)
+                    .set(AT_SETPOINT, Util.inRange(error, pivotTolerance))
+                    .send();
+    }
+
     public boolean atSetpoint () {
+        return Util.inRange(getClosedLoopError(), pivotTolerance);
+    }
+
+    /**
+     * @return the error of the pivot's closed loop, in the same units as pivotTolerance
+     */
+    public double getClosedLoopError () {
         errorSignal.refresh();
-        return Util.inRange(errorSignal.getValue(), pivotTolerance);
+        return errorSignal.getValue();
     }
 
     private static final Pivot instance = new Pivot();
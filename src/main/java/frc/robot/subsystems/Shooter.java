@@ -12,21 +12,30 @@ import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.controller.LinearQuadraticRegulator;
 import edu.wpi.first.math.estimator.KalmanFilter;
 import edu.wpi.first.math.numbers.N1;
-import edu.wpi.first.math.system.LinearSystem;
 import edu.wpi.first.math.system.LinearSystemLoop;
 import edu.wpi.first.math.system.plant.LinearSystemId;
-import edu.wpi.first.networktables.BooleanPublisher;
-import edu.wpi.first.networktables.DoublePublisher;
-import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.wpilibj.AsynchronousInterrupt;
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DigitalInput;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.Timer;
+import frc.lib.telemetry.TelemetryStruct;
+import frc.lib.util.EdgeEventQueue;
+import frc.lib.util.RecursiveLeastSquares;
 import frc.lib.util.Reporter;
 import frc.lib.util.Util;
-import frc.robot.Constants;
 
 import static frc.robot.Constants.Shooter.*;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class Shooter {
     /* HARDWARE */
     private final TalonFX topFlywheelMotor = new TalonFX(upperFlywheelMotorId);
@@ -37,45 +46,31 @@ public class Shooter {
     private final DigitalInput flywheelSwitch = new DigitalInput(flywheelSwitchId);
     private final DigitalInput triggerSwitch = new DigitalInput(triggerSwitchId);
 
-    /* CONTROLLERS */
-    private final LinearSystem<N1, N1, N1> topFlywheelSystem = LinearSystemId.identifyVelocitySystem(flywheelKv, flywheelKa);
-
-    private final KalmanFilter<N1, N1, N1> topFlywheelObserver = new KalmanFilter<>(
-        Nat.N1(), Nat.N1(),
-        topFlywheelSystem,
-        VecBuilder.fill(flywheelModelStDev),
-        VecBuilder.fill(flywheelEncoderStDev),
-        Constants.period
-    );
-
-    private final LinearQuadraticRegulator<N1, N1, N1> topFlywheelController = new LinearQuadraticRegulator<>(
-        topFlywheelSystem,
-        VecBuilder.fill(flywheelErrorTolerance),
-        VecBuilder.fill(flywheelControlEffort),
-        Constants.period
-    );
-
-    private final LinearSystemLoop<N1, N1, N1> topFlywheelLoop = new LinearSystemLoop<>(topFlywheelSystem, topFlywheelController, topFlywheelObserver, 12.0, Constants.period);
+    /* BEAM BREAK INTERRUPTS */
+    //the beam breaks are read with interrupts so we get FPGA timestamped edges, not whatever the loop happened to sample.
+    //the interrupt threads push edges onto a lock-free queue that the main thread drains.
+    private static final int FLYWHEEL_SWITCH = 0;
+    private static final int TRIGGER_SWITCH = 1;
+    private final AsynchronousInterrupt flywheelSwitchInterrupt = new AsynchronousInterrupt(flywheelSwitch, this::onFlywheelSwitchEdge);
+    private final AsynchronousInterrupt triggerSwitchInterrupt = new AsynchronousInterrupt(triggerSwitch, this::onTriggerSwitchEdge);
+    private final EdgeEventQueue switchEdges = new EdgeEventQueue(beamBreakQueueCapacity);
+    private final EdgeEventQueue.EdgeEvent switchEdge = new EdgeEventQueue.EdgeEvent();
+
+    //shared with the interrupt threads
+    private volatile boolean stopTriggerOnFlywheelSwitch = false;
+    private volatile double triggerOutput = 0;
+    private volatile double lastShotTime = Double.NEGATIVE_INFINITY;
+
+    //main thread only, updated once a loop in update()
+    private double lastTriggerTrippedTime = Double.NEGATIVE_INFINITY;
+    private double lastHandledShotTime = Double.NEGATIVE_INFINITY;
+    private boolean shotDetected = false;
 
-    private final LinearSystem<N1, N1, N1> bottomFlywheelSystem = LinearSystemId.identifyVelocitySystem(flywheelKv, flywheelKa);
-
-    private final KalmanFilter<N1, N1, N1> bottomFlywheelObserver = new KalmanFilter<>(
-        Nat.N1(), Nat.N1(),
-        bottomFlywheelSystem,
-        VecBuilder.fill(flywheelModelStDev),
-        VecBuilder.fill(flywheelEncoderStDev),
-        Constants.period
-    );
-
-    private final LinearQuadraticRegulator<N1, N1, N1> bottomFlywheelController = new LinearQuadraticRegulator<>(
-        bottomFlywheelSystem,
-        VecBuilder.fill(flywheelErrorTolerance),
-        VecBuilder.fill(flywheelControlEffort),
-        Constants.period
-    );
+    /* CONTROLLERS */
+    //only touched by the flywheel thread, swapped out for rebuilt loops when the identified model drifts
+    private LinearSystemLoop<N1, N1, N1> topFlywheelLoop = createFlywheelLoop(flywheelKv, flywheelKa);
+    private LinearSystemLoop<N1, N1, N1> bottomFlywheelLoop = createFlywheelLoop(flywheelKv, flywheelKa);
 
-    private final LinearSystemLoop<N1, N1, N1> bottomFlywheelLoop = new LinearSystemLoop<>(bottomFlywheelSystem, bottomFlywheelController, bottomFlywheelObserver, 12.0, Constants.period);
-   
     /* CONTROL REQUESTS */
     private final VoltageOut topControl = new VoltageOut(0).withEnableFOC(true);
     private final VoltageOut bottomControl = new VoltageOut(0).withEnableFOC(true);
@@ -86,21 +81,64 @@ public class Shooter {
     private final StatusSignal <Double> topFlywheelAcceleration;
     private final StatusSignal <Double> bottomFlywheelAcceleration;
 
+    /* FLYWHEEL CONTROL THREAD */
+    //the flywheel loops run on their own notifier so they don't wait on (or jitter with) the main loop.
+    //the main thread only hands off a setpoint, the notifier owns the flywheel motors and status signals.
+    private final Notifier flywheelNotifier = new Notifier(this::updateFlywheels);
+    private final AtomicReference<FlywheelRequest> flywheelRequest = new AtomicReference<>(FlywheelRequest.BRAKE);
+    private double lastFlywheelUpdateTime = 0;
+
+    //written by the flywheel thread, read by the main thread
+    private volatile double topVelocity = 0;
+    private volatile double bottomVelocity = 0;
+    private volatile double topAcceleration = 0;
+    private volatile double bottomAcceleration = 0;
+    private volatile double flywheelLoopPeriod = flywheelControlPeriod;
+
     private final Timer shotTimer = new Timer();
     private final Timer timeSinceTriggerRun = new Timer();
 
     /* TELEMETRY */
-    private final NetworkTable shooterTable = NetworkTableInstance.getDefault().getTable("Shooter");
-    private final DoublePublisher topVelocityPub = shooterTable.getDoubleTopic("Top Flywheel Velocity").publish();
-    private final DoublePublisher bottomVelocityPub = shooterTable.getDoubleTopic("Bottom Flywheel Velocity").publish();
-    private final DoublePublisher targetTopVelocityPub = shooterTable.getDoubleTopic("Top Flywheel Target Velocity").publish();
-    private final DoublePublisher targetBottomVelocityPub = shooterTable.getDoubleTopic("Bottom Flywheel Target Velocity").publish();
-    private final DoublePublisher triggerPub = shooterTable.getDoubleTopic("Trigger Percent").publish();
-    private final BooleanPublisher shotDetectedPub = shooterTable.getBooleanTopic("Shot Detected").publish();
-
+    //the whole shooter goes out as one struct so every field is from the same loop
+    private static final TelemetryStruct stateStruct = new TelemetryStruct("ShooterState");
+    private static final int TOP_VELOCITY = stateStruct.addDouble("topFlywheelVelocity");
+    private static final int BOTTOM_VELOCITY = stateStruct.addDouble("bottomFlywheelVelocity");
+    private static final int TARGET_TOP_VELOCITY = stateStruct.addDouble("topFlywheelTargetVelocity");
+    private static final int TARGET_BOTTOM_VELOCITY = stateStruct.addDouble("bottomFlywheelTargetVelocity");
+    private static final int TRIGGER_PERCENT = stateStruct.addDouble("triggerPercent");
+    private static final int SHOT_DETECTED = stateStruct.addBoolean("shotDetected");
+    private static final int FLYWHEEL_SWITCH_FIELD = stateStruct.addBoolean("flywheelSwitch");
+    private static final int TRIGGER_SWITCH_FIELD = stateStruct.addBoolean("triggerSwitch");
+    private static final int FLYWHEEL_LOOP_PERIOD = stateStruct.addDouble("flywheelLoopPeriod");
+    private static final int DROPPED_EDGES = stateStruct.addDouble("droppedBeamBreakEdges");
+    private static final int TOP_KS = stateStruct.addDouble("topIdentifiedKs");
+    private static final int TOP_KV = stateStruct.addDouble("topIdentifiedKv");
+    private static final int TOP_KA = stateStruct.addDouble("topIdentifiedKa");
+    private static final int TOP_REBUILDS = stateStruct.addDouble("topModelRebuilds");
+    private static final int BOTTOM_KS = stateStruct.addDouble("bottomIdentifiedKs");
+    private static final int BOTTOM_KV = stateStruct.addDouble("bottomIdentifiedKv");
+    private static final int BOTTOM_KA = stateStruct.addDouble("bottomIdentifiedKa");
+    private static final int BOTTOM_REBUILDS = stateStruct.addDouble("bottomModelRebuilds");
+    private final TelemetryStruct.Channel stateChannel = stateStruct.open(
+        NetworkTableInstance.getDefault().getTable("Shooter"), "State",
+        DataLogManager.getLog(), "Shooter/State"
+    );
 
-    private double topSetpoint = 0;
-    private double bottomSetpoint = 0;
+    private final DataLog log = DataLogManager.getLog();
+    private final BooleanLogEntry flywheelSwitchLog = new BooleanLogEntry(log, "Shooter/Flywheel Switch");
+    private final BooleanLogEntry triggerSwitchLog = new BooleanLogEntry(log, "Shooter/Trigger Switch");
+
+    /* ONLINE MODEL IDENTIFICATION */
+    private final ExecutorService modelRebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "Flywheel Model Rebuild");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final FlywheelIdentifier topFlywheelIdentifier = new FlywheelIdentifier();
+    private final FlywheelIdentifier bottomFlywheelIdentifier = new FlywheelIdentifier();
+    private double lastTopVoltage = Double.NaN;
+    private double lastBottomVoltage = Double.NaN;
 
     private Shooter () {
         Reporter.report(
@@ -127,17 +165,180 @@ public class Shooter {
 
         triggerMotor.setSmartCurrentLimit(20);
 
-        BaseStatusSignal.setUpdateFrequencyForAll(100, 
+        //signals need to come in at least as fast as the flywheel loop runs or we're just re-reading old data
+        BaseStatusSignal.setUpdateFrequencyForAll(flywheelControlFrequency, 
             topFlywheelVelocity,
             bottomFlywheelVelocity,
             topFlywheelAcceleration,
             bottomFlywheelAcceleration
         );
 
-        topControl.withUpdateFreqHz(100);
-        bottomControl.withUpdateFreqHz(100);
+        topControl.withUpdateFreqHz(flywheelControlFrequency);
+        bottomControl.withUpdateFreqHz(flywheelControlFrequency);
 
         triggerMotor.burnFlash();
+
+        flywheelNotifier.setName("Flywheel Control");
+        flywheelNotifier.startPeriodic(flywheelControlPeriod);
+
+        flywheelSwitchInterrupt.setInterruptEdges(true, true);
+        triggerSwitchInterrupt.setInterruptEdges(true, true);
+        flywheelSwitchInterrupt.enable();
+        triggerSwitchInterrupt.enable();
+    }
+
+    private void onFlywheelSwitchEdge (boolean rising, boolean falling) {
+        //the switches are active low, so falling is a note arriving and rising is it leaving
+        if(falling) handleSwitchEdge(FLYWHEEL_SWITCH, false, flywheelSwitchInterrupt.getFallingTimestamp());
+        if(rising) handleSwitchEdge(FLYWHEEL_SWITCH, true, flywheelSwitchInterrupt.getRisingTimestamp());
+    }
+
+    private void onTriggerSwitchEdge (boolean rising, boolean falling) {
+        if(falling) handleSwitchEdge(TRIGGER_SWITCH, false, triggerSwitchInterrupt.getFallingTimestamp());
+        if(rising) handleSwitchEdge(TRIGGER_SWITCH, true, triggerSwitchInterrupt.getRisingTimestamp());
+    }
+
+    /**
+     * Runs on the interrupt threads. Does the latency critical stuff right away
+     * (stopping the trigger, timestamping shots) and queues the edge for everything else.
+     */
+    private void handleSwitchEdge (int source, boolean rising, double timestamp) {
+        if(source == FLYWHEEL_SWITCH) {
+            if(!rising && stopTriggerOnFlywheelSwitch) {
+                //stop now rather than up to a loop later, so the note doesn't get pushed into the flywheels
+                stopTriggerOnFlywheelSwitch = false;
+                triggerOutput = 0; //so shot detection and telemetry don't think it's still feeding
+                triggerMotor.set(0);
+            }
+            if(rising && triggerOutput > 0.1 && getFlywheelVelocity() > shotDetectionMinVelocity) {
+                lastShotTime = timestamp; //the note left the flywheel switch because we fed it into the flywheels
+            }
+        }
+        switchEdges.push(source, rising, timestamp);
+    }
+
+    /**
+     * Drain the beam break edges and update shot detection.
+     * Call once at the start of every loop, so everything that reads the shooter during the loop sees the same edges.
+     */
+    public void update () {
+        drainSwitchEdges();
+
+        //a shot from the interrupt only counts for the loop that sees it, so it can't clear a note indexed right after
+        var shotTime = lastShotTime;
+        var edgeShot = shotTime > lastHandledShotTime;
+        lastHandledShotTime = shotTime;
+
+        if (getFlywheelVelocity() > shotDetectionMinVelocity && getFlywheelAcceleration() < shotDetectionAccelerationThreshold && timeSinceTriggerRun.get() < 0.5) {
+            shotTimer.start();
+        } 
+        if (shotTimer.hasElapsed(shotDetectionResetTime)) {
+            shotTimer.stop();
+            shotTimer.reset();
+        }
+        var accelerationShot = shotTimer.hasElapsed(shotDetectionTimeThreshold);
+
+        shotDetected = edgeShot || accelerationShot;
+    }
+
+    /**
+     * Pull all the queued beam break edges off the queue (main thread only).
+     */
+    private void drainSwitchEdges () {
+        while(switchEdges.poll(switchEdge)) {
+            var tripped = !switchEdge.rising;
+            var timestampMicros = (long) (switchEdge.timestamp * 1e6);
+            if(switchEdge.source == TRIGGER_SWITCH) {
+                triggerSwitchLog.append(tripped, timestampMicros);
+                if(tripped) lastTriggerTrippedTime = switchEdge.timestamp;
+            } else {
+                flywheelSwitchLog.append(tripped, timestampMicros);
+            }
+        }
+    }
+
+    /**
+     * Runs the flywheel LQR/kalman loops on the flywheel notifier.
+     * Uses the measured time since the last update rather than the nominal period,
+     * so a late wakeup doesn't make the observer think less time has passed than really did.
+     */
+    private void updateFlywheels () {
+        var now = Timer.getFPGATimestamp();
+        var dt = lastFlywheelUpdateTime == 0 ? flywheelControlPeriod : now - lastFlywheelUpdateTime;
+        lastFlywheelUpdateTime = now;
+        dt = Util.limit(dt, flywheelControlPeriod * 0.5, flywheelControlPeriod * 4); //don't let a huge stall blow up the observer
+        flywheelLoopPeriod = dt;
+
+        BaseStatusSignal.refreshAll(
+            topFlywheelVelocity,
+            bottomFlywheelVelocity,
+            topFlywheelAcceleration,
+            bottomFlywheelAcceleration
+        );
+        var top = BaseStatusSignal.getLatencyCompensatedValue(topFlywheelVelocity, topFlywheelAcceleration);
+        var bottom = BaseStatusSignal.getLatencyCompensatedValue(bottomFlywheelVelocity, bottomFlywheelAcceleration);
+        topVelocity = top;
+        bottomVelocity = bottom;
+        topAcceleration = topFlywheelAcceleration.getValue();
+        bottomAcceleration = bottomFlywheelAcceleration.getValue();
+
+        //the voltage we applied over the last period is what produced this velocity and acceleration
+        if(!Double.isNaN(lastTopVoltage)) topFlywheelIdentifier.update(now, lastTopVoltage, top, topAcceleration);
+        if(!Double.isNaN(lastBottomVoltage)) bottomFlywheelIdentifier.update(now, lastBottomVoltage, bottom, bottomAcceleration);
+        lastTopVoltage = Double.NaN;
+        lastBottomVoltage = Double.NaN;
+
+        topFlywheelLoop = topFlywheelIdentifier.swapInRebuiltLoop(topFlywheelLoop, top);
+        bottomFlywheelLoop = bottomFlywheelIdentifier.swapInRebuiltLoop(bottomFlywheelLoop, bottom);
+
+        var request = flywheelRequest.get();
+
+        //keep the loops tracking the real flywheel when we aren't using them, so there's no jump when we switch back
+        if(DriverStation.isDisabled() || request.mode != FlywheelMode.VELOCITY) {
+            topFlywheelLoop.reset(VecBuilder.fill(top));
+            bottomFlywheelLoop.reset(VecBuilder.fill(bottom));
+        }
+
+        if(DriverStation.isDisabled()) return;
+
+        switch (request.mode) {
+            case VELOCITY:
+                topFlywheelLoop.setNextR(VecBuilder.fill(request.top));
+                topFlywheelLoop.correct(VecBuilder.fill(top));
+                topFlywheelLoop.predict(dt);
+
+                bottomFlywheelLoop.setNextR(VecBuilder.fill(request.bottom));
+                bottomFlywheelLoop.correct(VecBuilder.fill(bottom));
+                bottomFlywheelLoop.predict(dt);
+
+                lastTopVoltage = topFlywheelLoop.getU(0);
+                lastBottomVoltage = bottomFlywheelLoop.getU(0);
+                topFlywheelMotor.setControl(topControl.withOutput(lastTopVoltage).withOverrideBrakeDurNeutral(true));
+                bottomFlywheelMotor.setControl(bottomControl.withOutput(lastBottomVoltage).withOverrideBrakeDurNeutral(true));
+                break;
+            case PERCENT:
+                topFlywheelMotor.set(request.top);
+                bottomFlywheelMotor.set(request.bottom);
+                break;
+            case COAST:
+                topFlywheelMotor.setControl(topControl.withOutput(0).withOverrideBrakeDurNeutral(false));
+                bottomFlywheelMotor.setControl(bottomControl.withOutput(0).withOverrideBrakeDurNeutral(false));
+                break;
+            case BRAKE:
+                topFlywheelMotor.setControl(topControl.withOutput(0).withOverrideBrakeDurNeutral(true));
+                bottomFlywheelMotor.setControl(bottomControl.withOutput(0).withOverrideBrakeDurNeutral(true));
+                break;
+        }
+    }
+
+    /**
+     * Hand a new request off to the flywheel thread.
+     * Only allocates when the request actually changes.
+     */
+    private void requestFlywheels (FlywheelMode mode, double top, double bottom) {
+        var current = flywheelRequest.get();
+        if(current.mode == mode && current.top == top && current.bottom == bottom) return;
+        flywheelRequest.set(new FlywheelRequest(mode, top, bottom));
     }
 
     /**
@@ -154,31 +355,34 @@ public class Shooter {
      * @param bottom the velocity to set the bottom flywheel to in RPS
      */
     public void setFlywheelVelocity (double top, double bottom) {
-        var topVelocityCompensated = getTopFlywheelVelocity();
-        var bottomVelocityCompensated = getBottomFlywheelVelocity();
-
-        topSetpoint = top;
-        bottomSetpoint = bottom;
-
-        topVelocityPub.accept(topVelocityCompensated);
-        bottomVelocityPub.accept(bottomVelocityCompensated);
-
-        targetTopVelocityPub.accept(top);
-        targetBottomVelocityPub.accept(bottom);
-
-        topFlywheelLoop.setNextR(VecBuilder.fill(top));
-        topFlywheelLoop.correct(VecBuilder.fill(topVelocityCompensated));
-        topFlywheelLoop.predict(Constants.period);
-
-        bottomFlywheelLoop.setNextR(VecBuilder.fill(bottom));
-        bottomFlywheelLoop.correct(VecBuilder.fill(bottomVelocityCompensated));
-        bottomFlywheelLoop.predict(Constants.period);
-
-        topControl.withOutput(topFlywheelLoop.getU(0));
-        bottomControl.withOutput(bottomFlywheelLoop.getU(0));
+        requestFlywheels(FlywheelMode.VELOCITY, top, bottom);
+    }
 
-        topFlywheelMotor.setControl(topControl.withOverrideBrakeDurNeutral(true));
-        bottomFlywheelMotor.setControl(bottomControl.withOverrideBrakeDurNeutral(true));
+    /**
+     * Send the shooter's state as one struct, call once a loop.
+     */
+    public void publishState () {
+        var request = flywheelRequest.get();
+        var velocityControl = request.mode == FlywheelMode.VELOCITY;
+        stateChannel.set(TOP_VELOCITY, topVelocity)
+                    .set(BOTTOM_VELOCITY, bottomVelocity)
+                    .set(TARGET_TOP_VELOCITY, velocityControl ? request.top : 0)
+                    .set(TARGET_BOTTOM_VELOCITY, velocityControl ? request.bottom : 0)
+                    .set(TRIGGER_PERCENT, triggerOutput)
+                    .set(SHOT_DETECTED, shotDetected)
+                    .set(FLYWHEEL_SWITCH_FIELD, flywheelSwitchTripped())
+                    .set(TRIGGER_SWITCH_FIELD, triggerSwitchTripped())
+                    .set(FLYWHEEL_LOOP_PERIOD, flywheelLoopPeriod)
+                    .set(DROPPED_EDGES, switchEdges.getDroppedCount())
+                    .set(TOP_KS, topFlywheelIdentifier.kS)
+                    .set(TOP_KV, topFlywheelIdentifier.kV)
+                    .set(TOP_KA, topFlywheelIdentifier.kA)
+                    .set(TOP_REBUILDS, topFlywheelIdentifier.rebuilds)
+                    .set(BOTTOM_KS, bottomFlywheelIdentifier.kS)
+                    .set(BOTTOM_KV, bottomFlywheelIdentifier.kV)
+                    .set(BOTTOM_KA, bottomFlywheelIdentifier.kA)
+                    .set(BOTTOM_REBUILDS, bottomFlywheelIdentifier.rebuilds)
+                    .send();
     }
 
     /**
@@ -186,26 +390,21 @@ public class Shooter {
      * @param percent the percent output to set the flywheels to
      */
     public void setFlywheelPercent (double percent) {
-        topFlywheelMotor.set(percent);
-        bottomFlywheelMotor.set(percent);
-        topFlywheelLoop.reset(VecBuilder.fill(topFlywheelVelocity.getValue()));
-        bottomFlywheelLoop.reset(VecBuilder.fill(bottomFlywheelVelocity.getValue()));
+        requestFlywheels(FlywheelMode.PERCENT, percent, percent);
     }
 
     /**
      * Set the flywheels to coast (for handoff)
      */
     public void coastFlywheel () {
-        topFlywheelMotor.setControl(topControl.withOutput(0).withOverrideBrakeDurNeutral(false));
-        bottomFlywheelMotor.setControl(topControl.withOutput(0).withOverrideBrakeDurNeutral(false));
+        requestFlywheels(FlywheelMode.COAST, 0, 0);
     }
 
     /**
      * Set the flywheels to brake for ramping down without wasting power
      */
     public void brakeFlywheel () {
-        topFlywheelMotor.setControl(topControl.withOutput(0).withOverrideBrakeDurNeutral(true));
-        bottomFlywheelMotor.setControl(topControl.withOutput(0).withOverrideBrakeDurNeutral(true));
+        requestFlywheels(FlywheelMode.BRAKE, 0, 0);
     }
 
     /**
@@ -213,7 +412,29 @@ public class Shooter {
      * @param percent the percent output to set the trigger to
      */
     public void setTriggerPercent (double percent) {
-        triggerPub.accept(percent);
+        stopTriggerOnFlywheelSwitch = false;
+        setTriggerOutput(percent);
+    }
+
+    /**
+     * Run the trigger until the note reaches the flywheel switch.
+     * The flywheel switch interrupt stops the trigger the moment the edge comes in,
+     * instead of waiting for the next loop to notice.
+     * @param percent the percent output to run the trigger at
+     */
+    public void feedTriggerUntilFlywheelSwitch (double percent) {
+        stopTriggerOnFlywheelSwitch = true;
+        setTriggerOutput(percent);
+        //the edge might have come in before we armed the stop, in which case the interrupt won't catch it
+        if(flywheelSwitchTripped()) {
+            stopTriggerOnFlywheelSwitch = false;
+            triggerOutput = 0;
+            triggerMotor.set(0);
+        }
+    }
+
+    private void setTriggerOutput (double percent) {
+        triggerOutput = percent;
         triggerMotor.set(percent);
         if(percent > 0.1){
             timeSinceTriggerRun.start();
@@ -222,21 +443,17 @@ public class Shooter {
     }
 
     /**
-     * @return latency-compensated flywheel velocity in rotations/second
+     * @return latency-compensated flywheel velocity in rotations/second, as of the last flywheel loop
      */
     public double getTopFlywheelVelocity () {
-        topFlywheelVelocity.refresh();
-        topFlywheelAcceleration.refresh();
-        return BaseStatusSignal.getLatencyCompensatedValue(topFlywheelVelocity, topFlywheelAcceleration);
+        return topVelocity;
     }
 
     /**
-     * @return latency-compensated flywheel velocity in rotations/second
+     * @return latency-compensated flywheel velocity in rotations/second, as of the last flywheel loop
      */
     public double getBottomFlywheelVelocity () {
-        bottomFlywheelVelocity.refresh();
-        topFlywheelAcceleration.refresh();
-        return BaseStatusSignal.getLatencyCompensatedValue(bottomFlywheelVelocity, bottomFlywheelAcceleration);
+        return bottomVelocity;
     }
 
     /**
@@ -252,9 +469,7 @@ public class Shooter {
      * @return the average acceleration of the flywheels in rotations/s^2
      */
     public double getFlywheelAcceleration () {
-        topFlywheelAcceleration.refresh();
-        bottomFlywheelAcceleration.refresh();
-        return (topFlywheelAcceleration.getValue() + bottomFlywheelAcceleration.getValue()) / 2;
+        return (topAcceleration + bottomAcceleration) / 2;
     }
 
     /**
@@ -262,8 +477,18 @@ public class Shooter {
      * @return true if the flywheels are at their target velocity
      */
     public boolean flywheelAtTargetVelocity () {
-        
-        return Util.inRange(Math.abs(topSetpoint - getTopFlywheelVelocity()), flywheelTolerance) && Util.inRange(Math.abs(bottomSetpoint - getBottomFlywheelVelocity()), flywheelTolerance);
+        var request = flywheelRequest.get();
+        return Util.inRange(Math.abs(request.top - getTopFlywheelVelocity()), flywheelTolerance) && Util.inRange(Math.abs(request.bottom - getBottomFlywheelVelocity()), flywheelTolerance);
+    }
+
+    /**
+     * How far the flywheels are from their target velocity, the worse of the two
+     * @return the error in RPS, infinite if the flywheels aren't being velocity controlled
+     */
+    public double getFlywheelError () {
+        var request = flywheelRequest.get();
+        if(request.mode != FlywheelMode.VELOCITY) return Double.POSITIVE_INFINITY;
+        return Math.max(Math.abs(request.top - getTopFlywheelVelocity()), Math.abs(request.bottom - getBottomFlywheelVelocity()));
     }
 
     /**
@@ -283,23 +508,147 @@ public class Shooter {
     }
 
     /**
-     * Check if a shot has been detected based on the acceleration of the flywheels
-     * @return true if a shot has been detected in the past 0.1 seconds
+     * The FPGA timestamp of the last time a note tripped the trigger switch, from the interrupt.
+     * Catches notes that go past the switch faster than the loop can sample it.
+     * Only updated by {@link #update()}, so it's the same all loop.
+     * @return the timestamp in seconds, or negative infinity if it's never been tripped
+     */
+    public double getLastTriggerSwitchTrippedTime () {
+        return lastTriggerTrippedTime;
+    }
+
+    /**
+     * @return seconds since a note last tripped the trigger switch
+     */
+    public double getTimeSinceTriggerSwitchTripped () {
+        return Timer.getFPGATimestamp() - getLastTriggerSwitchTrippedTime();
+    }
+
+    /**
+     * Check if a shot has been detected, either from the note leaving the flywheel switch while we
+     * were feeding it (timestamped by the interrupt), or from the acceleration of the flywheels as a backup.
+     * Worked out once a loop in {@link #update()}.
+     * @return true for the loop the note left the flywheel switch, or while the flywheel acceleration says we shot in the past 0.5 seconds
      */
     public boolean shotDetected() {
-        if (getFlywheelVelocity() > shotDetectionMinVelocity && getFlywheelAcceleration() < shotDetectionAccelerationThreshold && timeSinceTriggerRun.get() < 0.5) {
-            shotTimer.start();
-        } 
-        if (shotTimer.hasElapsed(shotDetectionResetTime)) {
-            shotTimer.stop();
-            shotTimer.reset();
+        return shotDetected;
+    }
+
+    private static LinearSystemLoop<N1, N1, N1> createFlywheelLoop (double kV, double kA) {
+        var system = LinearSystemId.identifyVelocitySystem(kV, kA);
+
+        var observer = new KalmanFilter<>(
+            Nat.N1(), Nat.N1(),
+            system,
+            VecBuilder.fill(flywheelModelStDev),
+            VecBuilder.fill(flywheelEncoderStDev),
+            flywheelControlPeriod
+        );
+
+        var controller = new LinearQuadraticRegulator<>(
+            system,
+            VecBuilder.fill(flywheelErrorTolerance),
+            VecBuilder.fill(flywheelControlEffort),
+            flywheelControlPeriod
+        );
+
+        return new LinearSystemLoop<>(system, controller, observer, 12.0, flywheelControlPeriod);
+    }
+
+    /**
+     * Identifies one flywheel's model online with recursive least squares on V = kS*sign(v) + kV*v + kA*a,
+     * so the LQR keeps matching the real flywheel as the battery, wear and temperature change it.
+     * When kV or kA drift far enough from the model the current loop was built with,
+     * a new loop is built on the rebuild thread and handed back to be swapped in atomically.
+     */
+    private class FlywheelIdentifier {
+        private final RecursiveLeastSquares model = new RecursiveLeastSquares(
+            new double[] {0, flywheelKv, flywheelKa},
+            flywheelIdentificationInitialCovariance,
+            flywheelIdentificationForgettingFactor,
+            flywheelIdentificationMaxCovarianceTrace
+        );
+        private final double[] regressor = new double[3];
+        private final AtomicReference<LinearSystemLoop<N1, N1, N1>> rebuiltLoop = new AtomicReference<>();
+        private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+        //flywheel thread only
+        private double loopKv = flywheelKv;
+        private double loopKa = flywheelKa;
+        private double lastRebuildTime = 0;
+
+        //written by the flywheel thread, published by the main thread
+        private volatile double kS = 0;
+        private volatile double kV = flywheelKv;
+        private volatile double kA = flywheelKa;
+        private volatile int rebuilds = 0;
+
+        /**
+         * Add a sample (flywheel thread only)
+         */
+        public void update (double now, double voltage, double velocity, double acceleration) {
+            //slow or saturated samples are mostly friction / battery sag and would just pull the estimate around
+            if(Math.abs(velocity) < flywheelIdentificationMinVelocity || Math.abs(voltage) > flywheelIdentificationMaxVoltage) return;
+
+            regressor[0] = Math.signum(velocity);
+            regressor[1] = velocity;
+            regressor[2] = acceleration;
+            model.update(regressor, voltage);
+
+            //keep it to something physically reasonable in case it goes off the rails
+            var newKv = Util.limit(model.getEstimate(1), flywheelKv * 0.5, flywheelKv * 2);
+            var newKa = Util.limit(model.getEstimate(2), flywheelKa * 0.1, flywheelKa * 10);
+            kS = model.getEstimate(0);
+            kV = newKv;
+            kA = newKa;
+
+            var drift = Math.max(Math.abs(newKv - loopKv) / loopKv, Math.abs(newKa - loopKa) / loopKa);
+            if(drift < flywheelModelRebuildThreshold || now - lastRebuildTime < flywheelModelMinRebuildInterval) return;
+            if(!rebuilding.compareAndSet(false, true)) return;
+
+            loopKv = newKv;
+            loopKa = newKa;
+            lastRebuildTime = now;
+            //the riccati solves are too slow to do on the flywheel thread
+            modelRebuilder.execute(() -> {
+                rebuiltLoop.set(createFlywheelLoop(newKv, newKa));
+                rebuilds++;
+                rebuilding.set(false);
+            });
         }
-        if (shotTimer.hasElapsed(shotDetectionTimeThreshold)) {
-            shotDetectedPub.accept(true);
-            return true;
+
+        /**
+         * Swap a freshly rebuilt loop in if there is one (flywheel thread only)
+         * @param current the loop currently in use
+         * @param velocity the current velocity, to start the new loop's observer at
+         * @return the loop to use from now on
+         */
+        public LinearSystemLoop<N1, N1, N1> swapInRebuiltLoop (LinearSystemLoop<N1, N1, N1> current, double velocity) {
+            var rebuilt = rebuiltLoop.getAndSet(null);
+            if(rebuilt == null) return current;
+            rebuilt.reset(VecBuilder.fill(velocity));
+            return rebuilt;
+        }
+    }
+
+    private enum FlywheelMode {
+        VELOCITY, PERCENT, COAST, BRAKE
+    }
+
+    /**
+     * Immutable so the flywheel thread always sees a matching mode and pair of setpoints.
+     */
+    private static class FlywheelRequest {
+        public static final FlywheelRequest BRAKE = new FlywheelRequest(FlywheelMode.BRAKE, 0, 0);
+
+        public final FlywheelMode mode;
+        public final double top, bottom;
+
+        public FlywheelRequest(FlywheelMode mode, double top, double bottom) {
+            this.mode = mode;
+            this.top = top;
+            this.bottom = bottom;
         }
-        shotDetectedPub.accept(false);
-        return false;
     }
 
     private static final Shooter instance = new Shooter();
@@ -1,16 +1,20 @@
 package frc.robot.subsystems;
 
-import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.mechanisms.swerve.SwerveRequest;
 import com.ctre.phoenix6.mechanisms.swerve.SwerveDrivetrain.SwerveDriveState;
 import com.ctre.phoenix6.mechanisms.swerve.SwerveModule.DriveRequestType;
 import com.pathplanner.lib.auto.AutoBuilder;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.wpilibj.Joystick;
@@ -20,10 +24,18 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.lib.safety.Inspiration;
 import frc.lib.swerve.PeaccefulSwerve;
+import frc.lib.swerve.SecondOrderChassisSpeedsRequest;
+import frc.lib.swerve.SecondOrderSwerveKinematics;
 import frc.lib.swerve.SwerveDescription;
 import frc.lib.swerve.SwerveDescription.PidGains;
+import frc.lib.swerve.UnscentedPoseEstimator;
+import frc.lib.swerve.WheelSlipDetector;
+import frc.lib.telemetry.JvmTelemetry;
+import frc.lib.telemetry.NetworkBudget;
+import frc.lib.telemetry.NetworkBudget.Priority;
 import frc.lib.telemetry.SwerveTelemetry;
 import frc.lib.util.AllianceFlipUtil;
+import frc.lib.util.Console;
 import frc.lib.vision.ApriltagCamera;
 import frc.lib.vision.LimelightHelpers;
 import frc.lib.vision.PeaccyVision;
@@ -33,13 +45,27 @@ import frc.robot.auto.Autonomous;
 import static frc.robot.Constants.Swerve.*;
 
 import java.util.Optional;
+import java.util.function.Supplier;
 
 public class Swerve extends SubsystemBase {
     protected final PeaccefulSwerve swerve;
     
-    private final SwerveRequest.ApplyChassisSpeeds autonomousRequest = new SwerveRequest.ApplyChassisSpeeds()
+    private final SecondOrderChassisSpeedsRequest autonomousRequest = new SecondOrderChassisSpeedsRequest(new SecondOrderSwerveKinematics(secondOrderActuationDelay))
     .withDriveRequestType(DriveRequestType.Velocity);
     private final SendableChooser<Pose2d> poseSeedChooser = new SendableChooser<>();
+    private final WheelSlipDetector wheelSlipDetector = new WheelSlipDetector(wheelSkidThreshold, wheelSlipSpeedFloor, wheelSlipSmoothing);
+    private final UnscentedPoseEstimator poseEstimator = new UnscentedPoseEstimator(
+        poseEstimatorAccelerationStdDev,
+        poseEstimatorAngularAccelerationStdDev,
+        poseEstimatorWheelVelocityStdDev,
+        poseEstimatorWheelOmegaStdDev,
+        poseEstimatorGyroStdDev,
+        (int) Math.ceil(poseEstimatorHistory * odometryFrequency)
+    );
+    private volatile double linearAcceleration = 0; //from the odometry thread, m/s^2
+    //made once so the telemetry callback doesn't make new lambdas every update, only called when networktables is due
+    private final Supplier<ChassisSpeeds> fieldRelativeSpeedsSupplier = () -> ChassisSpeeds.fromRobotRelativeSpeeds(getChassisSpeeds(), getPose().getRotation());
+    private final Supplier<Pose3d> pose3dSupplier = () -> swerve.getPose3d();
 
     private final NetworkTableEntry floorNoteWidth = LimelightHelpers.getLimelightNTTableEntry(Constants.Cameras.rearLimelight, "thor");
     private final NetworkTableEntry floorNoteHeight = LimelightHelpers.getLimelightNTTableEntry(Constants.Cameras.rearLimelight, "tvert");
@@ -71,7 +97,8 @@ public class Swerve extends SubsystemBase {
             driveGains, 
             angleGains, 
             pigeonCANId, 
-            invertSteerMotors
+            invertSteerMotors,
+            odometryFrequency
         );
 
         swerve.setSteerCurrentLimit(steerMotorCurrentLimit);
@@ -81,7 +108,29 @@ public class Swerve extends SubsystemBase {
 
         //log swerve state data as fast as it comes in
         swerve.registerTelemetry((SwerveDriveState state) -> {
-            SwerveTelemetry.updateSwerveState(state, ChassisSpeeds.fromRobotRelativeSpeeds(getChassisSpeeds(), getPose().getRotation()), swerve.getPose3d());
+            JvmTelemetry.registerOdometryThread();
+            if(state.Pose != null) swerve.update3d(state.Pose);
+            SwerveTelemetry.updateSwerveState(state, fieldRelativeSpeedsSupplier, pose3dSupplier);
+            if(state.ModuleStates != null) {
+                wheelSlipDetector.update(swerve.getModuleLocations(), state.ModuleStates);
+                SwerveTelemetry.updateWheelSlip(wheelSlipDetector.getSlipScores(), wheelSlipDetector.isSkidding(), wheelSlipDetector.getSkidModule(), wheelSlipDetector.getSkidCount());
+
+                swerve.refreshImuSignals();
+                var accelerationX = swerve.getLinearAccelerationX();
+                var accelerationY = swerve.getLinearAccelerationY();
+                linearAcceleration = Math.hypot(accelerationX, accelerationY);
+                poseEstimator.update(
+                    Timer.getFPGATimestamp(),
+                    state.OdometryPeriod,
+                    accelerationX,
+                    accelerationY,
+                    wheelSlipDetector.getFitVx(),
+                    wheelSlipDetector.getFitVy(),
+                    wheelSlipDetector.getFitOmega(),
+                    wheelSlipDetector.isSkidding() ? poseEstimatorSkidStdDevScale : 1 + wheelSlipDetector.getMaxSlipScore(),
+                    swerve.getYawRate()
+                );
+            }
         });
 
         poseSeedChooser.setDefaultOption("zero", new Pose2d());
@@ -95,7 +144,7 @@ public class Swerve extends SubsystemBase {
         SmartDashboard.putData("POSE SEED", poseSeedChooser);
         SmartDashboard.putBoolean("seed pose", false);
 
-        System.out.println("DriveTrain Initialized");
+        Console.info("DriveTrain Initialized");
     }
 
     /**
@@ -122,6 +171,7 @@ public class Swerve extends SubsystemBase {
      * @return the pose of the robot.
      */
     public Pose2d getPose () {
+        if(useUnscentedPoseEstimator) return poseEstimator.getPose();
         var pose = swerve.getState().Pose;
         if (pose == null) return new Pose2d();
         return pose;
@@ -144,12 +194,21 @@ public class Swerve extends SubsystemBase {
      */
     public void resetOdometry() {
         swerve.seedFieldRelative();
+        //seedFieldRelative points the robot at 0 and keeps the translation
+        poseEstimator.resetHeading(new Rotation2d());
     }
 
     public PeaccyVision getEyes(){
         return eyes;
     }
 
+    /**
+     * the pose estimator that fuses the modules, the pigeon and vision (runs whether or not getPose uses it)
+     */
+    public UnscentedPoseEstimator getPoseEstimator(){
+        return poseEstimator;
+    }
+
     /**
      * Hopefully a potential workaround for CTRE's moronic zeroing behavior.
      */
@@ -168,6 +227,7 @@ public class Swerve extends SubsystemBase {
      */
     public void resetOdometry(Pose2d pose) {
         swerve.seedFieldRelative(pose);
+        poseEstimator.resetPose(pose);
     }
 
     public Rotation3d getGyroAngle() {
@@ -178,6 +238,27 @@ public class Swerve extends SubsystemBase {
         return swerve.getTotalDriveCurrent();
     }
 
+    /**
+     * @return robot relative x acceleration from the pigeon in m/s^2, refreshed on the odometry thread (only read it there)
+     */
+    public double getLinearAccelerationX(){
+        return swerve.getLinearAccelerationX();
+    }
+
+    /**
+     * @return robot relative y acceleration from the pigeon in m/s^2, refreshed on the odometry thread (only read it there)
+     */
+    public double getLinearAccelerationY(){
+        return swerve.getLinearAccelerationY();
+    }
+
+    /**
+     * @return yaw rate from the pigeon in rad/s, refreshed on the odometry thread (only read it there)
+     */
+    public double getYawRate(){
+        return swerve.getYawRate();
+    }
+
     public void updateDriveGains(PidGains gains){
         swerve.applyDriveConfigs(gains);
     }
@@ -187,8 +268,31 @@ public class Swerve extends SubsystemBase {
     }
 
 
+    /**
+     * How much the pose estimator should trust the latest vision pose, from only what the tags look like:
+     * worse with distance squared, better with more tags, and a single tag barely says anything about heading.
+     * PeaccyVision's stdev has odometry drift folded into it, which the pose estimator already tracks in its covariance,
+     * so using it would count the drift twice.
+     */
+    private Matrix<N3, N1> getPoseEstimatorVisionStdDev() {
+        var distance = eyes.getAverageTagDistance();
+        if(Double.isNaN(distance)) distance = poseEstimatorVisionDefaultTagDistance;
+        var numTags = Math.max(1, eyes.getNumTags());
+        var scale = (1 + distance * distance) / numTags;
+        var thetaScale = numTags > 1 ? scale : scale * poseEstimatorVisionSingleTagThetaScale;
+        return VecBuilder.fill(
+            poseEstimatorVisionXYStdDev * scale,
+            poseEstimatorVisionXYStdDev * scale,
+            poseEstimatorVisionThetaStdDev * thetaScale
+        );
+    }
+
     @Override
     public void periodic() {
+        //every module signal at once, everything else reads from this
+        swerve.refreshModuleSnapshot();
+        SwerveTelemetry.updateModuleSnapshot(swerve.getModuleSnapshot());
+
         if(SmartDashboard.getBoolean("seed pose", false)) {
             var startPose = poseSeedChooser.getSelected();
             resetOdometry(new Pose2d(
@@ -198,16 +302,20 @@ public class Swerve extends SubsystemBase {
             SmartDashboard.putBoolean("seed pose", false);
         }
 
-        BaseStatusSignal.refreshAll(swerve.getPigeon2().getAccelerationX(), swerve.getPigeon2().getAccelerationY(), swerve.getPigeon2().getAccelerationZ());
-        var acceleration = swerve.getPigeon2().getAccelerationX().getValue() + swerve.getPigeon2().getAccelerationY().getValue() + swerve.getPigeon2().getAccelerationZ().getValue();
-        eyes.update(getPose(), acceleration, new Translation2d(getChassisSpeeds().vxMetersPerSecond, getChassisSpeeds().vyMetersPerSecond).getNorm());
+        eyes.update(getPose(), linearAcceleration, new Translation2d(getChassisSpeeds().vxMetersPerSecond, getChassisSpeeds().vyMetersPerSecond).getNorm(), wheelSlipDetector.pollSkidSeverity());
         if(eyes.hasUpdated()){
-            swerve.addVisionMeasurement(
+            SwerveTelemetry.countVisionMeasurement();
+            var stDev = eyes.getStDev();
+            swerve.updateVision(
                 eyes.getPose(),
+                eyes.getPose3d(),
                 eyes.getTimestamp(),
-                eyes.getStDev()
+                stDev,
+                eyes.getNumTags()
             );
+            poseEstimator.addVisionMeasurement(eyes.getPose(), eyes.getTimestamp(), getPoseEstimatorVisionStdDev());
         }
+        SwerveTelemetry.updatePoseEstimator(poseEstimator.getPose(), poseEstimator.getPositionStdDev(), poseEstimator.getHeadingStdDev(), poseEstimator.getDroppedVisionCount());
 
         //update floor note tracking:
         var width = floorNoteWidth.getDouble(-1);
@@ -219,15 +327,15 @@ public class Swerve extends SubsystemBase {
             noteFromRobot = Optional.of(new Translation2d(distance, Rotation2d.fromDegrees(angle)));
             noteFromField = Optional.of(getPose().getTranslation().plus(noteFromRobot.get()));
             timeSinceFloorNoteUpdate.restart();
-            SmartDashboard.putNumber("distance to note", distance);
-            SmartDashboard.putNumber("angle to note", angle);
+            NetworkBudget.putNumber("distance to note", distance, Priority.LOW, 0.02);
+            NetworkBudget.putNumber("angle to note", angle, Priority.LOW, 0.5);
         }
         if(timeSinceFloorNoteUpdate.get() > 0.2) {
             noteFromRobot = Optional.empty();
             noteFromField = Optional.empty();
         }
 
-        SmartDashboard.putString("note translation", noteFromField.toString());
+        NetworkBudget.putString("note translation", noteFromField.toString(), Priority.LOW);
 
         //TODO: update limelight telemetry
         // LimelightTelemetry.update(Constants.Cameras.frontLimelight, swerve.getPose3d());
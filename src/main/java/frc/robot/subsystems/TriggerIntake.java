@@ -25,6 +25,7 @@ import com.revrobotics.CANSparkBase.ControlType;
 import com.revrobotics.CANSparkBase.SoftLimitDirection;
 
 public class TriggerIntake {
+    private static final int DEPLOY_ANGLE_REPORT = Reporter.register("couldn't set rear intake deploy angle"); //gets checked every loop
     /* HARDWARE */
     private CANSparkMax deployMotor = new CANSparkMax(triggerIntakeDeployMotorId, MotorType.kBrushless);
     private WPI_TalonSRX rollerMotor = new WPI_TalonSRX(triggerIntakeRollerMotorId);
@@ -113,8 +114,8 @@ public class TriggerIntake {
         targetRotation = angle.getRotations(); 
         targetDeployAngleLog.append(angle.getRotations());
         Reporter.report(
-            deployController.setReference(angle.getRotations(), CANSparkMax.ControlType.kPosition),
-            "couldn't set rear intake deploy angle"
+            DEPLOY_ANGLE_REPORT,
+            deployController.setReference(angle.getRotations(), CANSparkMax.ControlType.kPosition)
         );
     }
 
@@ -0,0 +1,122 @@
+package frc.lib.swerve;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+class SecondOrderSwerveKinematicsTest {
+    private static final double EPSILON = 1e-9;
+    private static final Translation2d[] MODULES = {
+        new Translation2d(0.3, 0.3),
+        new Translation2d(0.3, -0.3),
+        new Translation2d(-0.3, 0.3),
+        new Translation2d(-0.3, -0.3)
+    };
+
+    @Test
+    void pureTranslation () {
+        var kinematics = new SecondOrderSwerveKinematics(0.01);
+        kinematics.calculate(MODULES, 2, -1, 0, 0, 0, 0, 0.02);
+
+        var states = kinematics.getModuleStates();
+        for (int i = 0; i < MODULES.length; i++) {
+            assertEquals(2, kinematics.getModuleVx(i), EPSILON);
+            assertEquals(-1, kinematics.getModuleVy(i), EPSILON);
+            assertEquals(0, kinematics.getModuleSteerVelocity(i), EPSILON);
+            assertEquals(0, kinematics.getModuleAcceleration(i), EPSILON);
+            assertEquals(Math.hypot(2, 1), states[i].speedMetersPerSecond, EPSILON);
+            assertEquals(Math.atan2(-1, 2), states[i].angle.getRadians(), EPSILON);
+        }
+    }
+
+    @Test
+    void pureRotation () {
+        var kinematics = new SecondOrderSwerveKinematics(0.01);
+        var omega = 2.0;
+        kinematics.calculate(MODULES, 0, 0, omega, 0, 0, 0, 0.02);
+
+        var states = kinematics.getModuleStates();
+        for (int i = 0; i < MODULES.length; i++) {
+            var x = MODULES[i].getX();
+            var y = MODULES[i].getY();
+            //omega cross r, tangent to the circle through the module
+            assertEquals(-omega * y, kinematics.getModuleVx(i), EPSILON);
+            assertEquals(omega * x, kinematics.getModuleVy(i), EPSILON);
+            assertEquals(0, kinematics.getModuleVx(i) * x + kinematics.getModuleVy(i) * y, EPSILON);
+            assertEquals(omega * MODULES[i].getNorm(), states[i].speedMetersPerSecond, EPSILON);
+            //spinning at a constant rate the modules never need to steer
+            assertEquals(0, kinematics.getModuleSteerVelocity(i), EPSILON);
+        }
+    }
+
+    @Test
+    void angularAccelerationLooksAhead () {
+        var kinematics = new SecondOrderSwerveKinematics(0.01);
+        kinematics.calculate(MODULES, 0, 0, 1, 0, 0, 4, 0.02);
+
+        //omega a lookahead (half of dt plus the delay) from now
+        var lookaheadOmega = 1 + 4 * (0.02 / 2 + 0.01);
+        for (int i = 0; i < MODULES.length; i++) {
+            assertEquals(-lookaheadOmega * MODULES[i].getY(), kinematics.getModuleVx(i), EPSILON);
+            assertEquals(lookaheadOmega * MODULES[i].getX(), kinematics.getModuleVy(i), EPSILON);
+            //speeding up along the direction the module is already driving
+            assertEquals(4 * MODULES[i].getNorm(), kinematics.getModuleAcceleration(i), EPSILON);
+        }
+    }
+
+    @Test
+    void sidewaysAccelerationSteers () {
+        var kinematics = new SecondOrderSwerveKinematics(0);
+        kinematics.calculate(MODULES, 1, 0, 0, 0, 1, 0, 0);
+        for (int i = 0; i < MODULES.length; i++) {
+            assertEquals(1, kinematics.getModuleSteerVelocity(i), EPSILON);
+            assertEquals(0, kinematics.getModuleAcceleration(i), EPSILON);
+        }
+
+        kinematics.calculate(MODULES, 1, 0, 0, 1, 0, 0, 0);
+        for (int i = 0; i < MODULES.length; i++) {
+            assertEquals(0, kinematics.getModuleSteerVelocity(i), EPSILON);
+            assertEquals(1, kinematics.getModuleAcceleration(i), EPSILON);
+        }
+    }
+
+    @Test
+    void fieldRelativeTranslationWhileRotatingIsSkewCompensated () {
+        var kinematics = new SecondOrderSwerveKinematics(0.01);
+        var omega = 1.0;
+        var vx = 2.0;
+        //holding a field relative velocity, the robot relative command turns backwards as the robot rotates
+        kinematics.calculate(MODULES, vx, 0, omega, 0, -omega * vx, 0, 0.02);
+
+        //the symmetric modules' rotation parts cancel out, leaving the translation
+        var averageVx = 0.0;
+        var averageVy = 0.0;
+        for (int i = 0; i < MODULES.length; i++) {
+            averageVx += kinematics.getModuleVx(i) / MODULES.length;
+            averageVy += kinematics.getModuleVy(i) / MODULES.length;
+        }
+        //rotated back by the heading change over the lookahead
+        var skew = omega * (0.02 / 2 + 0.01);
+        assertEquals(vx * Math.cos(skew), averageVx, EPSILON);
+        assertEquals(-vx * Math.sin(skew), averageVy, EPSILON);
+    }
+
+    @Test
+    void stoppedModulesKeepTheirAngle () {
+        var kinematics = new SecondOrderSwerveKinematics(0);
+        kinematics.calculate(MODULES, 1, 1, 0, 0, 0, 0, 0.02);
+        var states = kinematics.getModuleStates();
+        assertEquals(45, states[0].angle.getDegrees(), 1e-6);
+
+        kinematics.calculate(MODULES, 0, 0, 0, 0, 0, 0, 0.02);
+        var stopped = kinematics.getModuleStates();
+        assertSame(states, stopped);
+        for (int i = 0; i < MODULES.length; i++) {
+            assertEquals(0, stopped[i].speedMetersPerSecond);
+            assertEquals(45, stopped[i].angle.getDegrees(), 1e-6);
+            assertEquals(0, kinematics.getModuleSteerVelocity(i));
+        }
+    }
+}
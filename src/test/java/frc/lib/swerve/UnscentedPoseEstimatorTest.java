@@ -0,0 +1,261 @@
+package frc.lib.swerve;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+class UnscentedPoseEstimatorTest {
+    private static final double DT = 0.02;
+    private static final int HISTORY = 50;
+
+    private UnscentedPoseEstimator estimator;
+    private final double[] state = new double[6];
+
+    /* the pose the robot really has, field relative */
+    private double time, trueX, trueY, trueTheta;
+
+    @BeforeEach
+    void setup () {
+        estimator = new UnscentedPoseEstimator(1, 1, 0.05, 0.05, 0.01, HISTORY);
+        time = 0;
+    }
+
+    /**
+     * Move the real robot along at a constant field relative velocity for a number of updates,
+     * feeding the estimator the wheel and gyro measurements it would see (no noise, no acceleration).
+     */
+    private void drive (double vx, double vy, double omega, int updates) {
+        for (int i = 0; i < updates; i++) {
+            time += DT;
+            trueX += vx * DT;
+            trueY += vy * DT;
+            trueTheta = MathUtil.angleModulus(trueTheta + omega * DT);
+            var cos = Math.cos(trueTheta);
+            var sin = Math.sin(trueTheta);
+            estimator.update(time, DT, 0, 0, vx * cos + vy * sin, -vx * sin + vy * cos, omega, 1, omega);
+        }
+    }
+
+    private void startAt (double x, double y, double theta) {
+        trueX = x;
+        trueY = y;
+        trueTheta = theta;
+        estimator.resetPose(new Pose2d(x, y, new Rotation2d(theta)));
+    }
+
+    @Test
+    void startsUnsure () {
+        assertEquals(10, estimator.getPositionStdDev(), 1e-9);
+        assertEquals(Math.PI, estimator.getHeadingStdDev(), 1e-9);
+    }
+
+    @Test
+    void tracksConstantVelocity () {
+        startAt(1, 2, 0);
+        drive(1.5, -0.5, 0, 250);
+
+        var pose = estimator.getPose();
+        assertEquals(trueX, pose.getX(), 0.05);
+        assertEquals(trueY, pose.getY(), 0.05);
+        assertEquals(0, pose.getRotation().getRadians(), 0.01);
+        estimator.getState(state);
+        assertEquals(1.5, state[3], 0.01);
+        assertEquals(-0.5, state[4], 0.01);
+        assertEquals(0, state[5], 0.01);
+    }
+
+    @Test
+    void tracksVelocityWhileRotating () {
+        startAt(0, 0, 0);
+        drive(1, 0, 1, 150);
+
+        var pose = estimator.getPose();
+        assertEquals(trueX, pose.getX(), 0.1);
+        assertEquals(trueY, pose.getY(), 0.1);
+        assertEquals(0, MathUtil.angleModulus(trueTheta - pose.getRotation().getRadians()), 0.02);
+        var speeds = estimator.getFieldRelativeSpeeds();
+        assertEquals(1, speeds.vxMetersPerSecond, 0.02);
+        assertEquals(0, speeds.vyMetersPerSecond, 0.02);
+        assertEquals(1, speeds.omegaRadiansPerSecond, 0.01);
+    }
+
+    @Test
+    void headingWrapsAcrossPi () {
+        startAt(0, 0, Math.PI - 0.2);
+        //turn through pi and keep going
+        drive(0, 0, 1, 25);
+
+        assertTrue(trueTheta < 0, "the real heading should have wrapped");
+        var heading = estimator.getPose().getRotation().getRadians();
+        assertEquals(0, MathUtil.angleModulus(trueTheta - heading), 0.01);
+        assertTrue(heading >= -Math.PI && heading <= Math.PI);
+        //wrapping shouldn't look like a huge heading error
+        assertTrue(estimator.getHeadingStdDev() < 0.05);
+    }
+
+    @Test
+    void visionAcrossPiPullsTheShortWay () {
+        startAt(0, 0, Math.PI - 0.01);
+        drive(0, 0, 0, 1);
+
+        //just on the other side of pi, 0.02 rad away the short way
+        estimator.addVisionMeasurement(new Pose2d(0, 0, new Rotation2d(-Math.PI + 0.01)), time, VecBuilder.fill(0.1, 0.1, 0.001));
+        drive(0, 0, 0, 1);
+
+        var heading = estimator.getPose().getRotation().getRadians();
+        //should end up right around pi, not dragged through 0
+        assertEquals(0, MathUtil.angleModulus(heading - Math.PI), 0.02);
+    }
+
+    @Test
+    void visionLocalizes () {
+        drive(0, 0, 0, 1);
+        estimator.addVisionMeasurement(new Pose2d(2, 3, new Rotation2d(0.5)), time, VecBuilder.fill(0.05, 0.05, 0.02));
+        drive(0, 0, 0, 1);
+
+        var pose = estimator.getPose();
+        assertEquals(2, pose.getX(), 0.01);
+        assertEquals(3, pose.getY(), 0.01);
+        assertEquals(0.5, pose.getRotation().getRadians(), 0.01);
+        assertTrue(estimator.getPositionStdDev() < 0.1);
+    }
+
+    @Test
+    void lateVisionIsReplayedOntoHistory () {
+        //the estimate starts half a meter behind the real robot
+        startAt(0, 0, 0);
+        trueX = 0.5;
+        drive(1, 0, 0, 25);
+        var pictureTime = time;
+        var pictureX = trueX;
+        drive(1, 0, 0, 25);
+
+        //a picture from half a second ago shows up now
+        estimator.addVisionMeasurement(new Pose2d(pictureX, 0, new Rotation2d()), pictureTime, VecBuilder.fill(0.001, 0.001, 0.001));
+        drive(1, 0, 0, 1);
+
+        //the correction gets carried forward to now, not pulled back to where the robot was in the picture
+        assertEquals(trueX, estimator.getPose().getX(), 0.05);
+        assertEquals(0, estimator.getDroppedVisionCount());
+    }
+
+    @Test
+    void visionOlderThanHistoryIsDropped () {
+        startAt(0, 0, 0);
+        drive(1, 0, 0, HISTORY + 10);
+
+        estimator.addVisionMeasurement(new Pose2d(100, 100, new Rotation2d()), DT * 5, VecBuilder.fill(0.01, 0.01, 0.01));
+        drive(1, 0, 0, 1);
+
+        assertEquals(1, estimator.getDroppedVisionCount());
+        assertEquals(trueX, estimator.getPose().getX(), 0.05);
+    }
+
+    @Test
+    void visionQueueOverflowIsDropped () {
+        drive(0, 0, 0, 1);
+        for (int i = 0; i < 10; i++) {
+            estimator.addVisionMeasurement(new Pose2d(1, 1, new Rotation2d()), time, VecBuilder.fill(0.1, 0.1, 0.1));
+        }
+        assertEquals(2, estimator.getDroppedVisionCount());
+        drive(0, 0, 0, 1);
+        assertEquals(1, estimator.getPose().getX(), 0.05);
+    }
+
+    @Test
+    void resetPose () {
+        startAt(0, 0, 0);
+        drive(1, 0, 0, 50);
+
+        startAt(3, 4, 1);
+        drive(0, 0, 0, 1);
+
+        var pose = estimator.getPose();
+        assertEquals(3, pose.getX(), 0.05);
+        assertEquals(4, pose.getY(), 0.05);
+        assertEquals(1, pose.getRotation().getRadians(), 0.01);
+        assertTrue(estimator.getPositionStdDev() < 0.05);
+        assertTrue(estimator.getHeadingStdDev() < 0.05);
+    }
+
+    @Test
+    void resetHeadingKeepsPositionUncertainty () {
+        //nobody has told it where it is yet, zeroing the gyro shouldn't change that
+        drive(0, 0, 0, 1);
+        estimator.resetHeading(new Rotation2d(0.5));
+        drive(0, 0, 0, 1);
+
+        assertEquals(0.5, estimator.getPose().getRotation().getRadians(), 0.01);
+        assertTrue(estimator.getHeadingStdDev() < 0.05);
+        assertTrue(estimator.getPositionStdDev() > 5);
+    }
+
+    @Test
+    void resetHeadingKeepsPosition () {
+        startAt(1, 2, 0);
+        drive(1, 0, 0, 50);
+        var x = estimator.getPose().getX();
+        var positionStdDev = estimator.getPositionStdDev();
+
+        estimator.resetHeading(new Rotation2d(Math.PI / 2));
+        //the robot keeps going the same way it was, which is now +y on the field as far as the estimate knows
+        trueTheta = Math.PI / 2;
+        drive(0, 1, 0, 1);
+
+        var pose = estimator.getPose();
+        assertEquals(x, pose.getX(), 0.01);
+        assertEquals(Math.PI / 2, pose.getRotation().getRadians(), 0.01);
+        assertEquals(positionStdDev, estimator.getPositionStdDev(), 0.01);
+        estimator.getState(state);
+        assertEquals(0, state[3], 0.01);
+        assertEquals(1, state[4], 0.01);
+    }
+
+    @Test
+    void resetPoseOverridesOlderHeadingReset () {
+        estimator.resetHeading(new Rotation2d(1));
+        startAt(3, 4, 0);
+        drive(0, 0, 0, 1);
+        assertEquals(0, estimator.getPose().getRotation().getRadians(), 0.01);
+    }
+
+    @Test
+    void resetForgetsQueuedVisionAndHistory () {
+        startAt(0, 0, 0);
+        drive(0, 0, 0, 10);
+        var beforeReset = time;
+
+        estimator.addVisionMeasurement(new Pose2d(5, 5, new Rotation2d()), time, VecBuilder.fill(0.01, 0.01, 0.01));
+        startAt(1, 1, 0);
+        drive(0, 0, 0, 1);
+        //the queued measurement is from before the reset, it's thrown away
+        assertEquals(1, estimator.getPose().getX(), 0.05);
+
+        //and so is one that comes in late from before the reset
+        estimator.addVisionMeasurement(new Pose2d(5, 5, new Rotation2d()), beforeReset, VecBuilder.fill(0.01, 0.01, 0.01));
+        drive(0, 0, 0, 1);
+        assertEquals(1, estimator.getPose().getX(), 0.05);
+        assertEquals(1, estimator.getDroppedVisionCount());
+    }
+
+    @Test
+    void covarianceStaysSymmetricPositive () {
+        startAt(0, 0, 0);
+        drive(1, 0.5, 0.7, 100);
+        estimator.addVisionMeasurement(new Pose2d(trueX, trueY, new Rotation2d(trueTheta)), time, VecBuilder.fill(0.1, 0.1, 0.05));
+        drive(1, 0.5, 0.7, 100);
+
+        var covariance = new double[36];
+        estimator.getCovariance(covariance);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(covariance[i * 6 + i] > 0);
+            for (int j = 0; j < 6; j++) assertEquals(covariance[i * 6 + j], covariance[j * 6 + i], 1e-12);
+        }
+    }
+}
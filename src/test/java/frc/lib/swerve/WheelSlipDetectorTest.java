@@ -0,0 +1,120 @@
+package frc.lib.swerve;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+class WheelSlipDetectorTest {
+    private static final double EPSILON = 1e-9;
+    private static final Translation2d[] MODULES = {
+        new Translation2d(0.3, 0.3),
+        new Translation2d(0.3, -0.3),
+        new Translation2d(-0.3, 0.3),
+        new Translation2d(-0.3, -0.3)
+    };
+
+    /**
+     * The module states a rigid robot moving at this chassis speed would measure
+     */
+    private static SwerveModuleState[] rigidBody (double vx, double vy, double omega) {
+        var states = new SwerveModuleState[MODULES.length];
+        for (int i = 0; i < MODULES.length; i++) {
+            var moduleVx = vx - omega * MODULES[i].getY();
+            var moduleVy = vy + omega * MODULES[i].getX();
+            var speed = Math.hypot(moduleVx, moduleVy);
+            states[i] = new SwerveModuleState(speed, speed == 0 ? new Rotation2d() : new Rotation2d(moduleVx, moduleVy));
+        }
+        return states;
+    }
+
+    @Test
+    void fitsRigidBodyMotion () {
+        var detector = new WheelSlipDetector(0.6, 0.1, 1);
+        detector.update(MODULES, rigidBody(1, 0.5, 2));
+
+        assertEquals(1, detector.getFitVx(), EPSILON);
+        assertEquals(0.5, detector.getFitVy(), EPSILON);
+        assertEquals(2, detector.getFitOmega(), EPSILON);
+        for (var score : detector.getSlipScores()) assertEquals(0, score, 1e-9);
+        assertFalse(detector.isSkidding());
+        assertEquals(-1, detector.getSkidModule());
+    }
+
+    @Test
+    void fitsOffCenterModules () {
+        //modules not centered on the robot origin, so the normal equations aren't diagonal
+        var modules = new Translation2d[] {
+            new Translation2d(0.5, 0.2),
+            new Translation2d(0.4, -0.3),
+            new Translation2d(-0.1, 0.3),
+        };
+        var states = new SwerveModuleState[modules.length];
+        for (int i = 0; i < modules.length; i++) {
+            var moduleVx = -0.7 - 1.5 * modules[i].getY();
+            var moduleVy = 1.2 + 1.5 * modules[i].getX();
+            states[i] = new SwerveModuleState(Math.hypot(moduleVx, moduleVy), new Rotation2d(moduleVx, moduleVy));
+        }
+
+        var detector = new WheelSlipDetector(0.6, 0.1, 1);
+        detector.update(modules, states);
+        assertEquals(-0.7, detector.getFitVx(), EPSILON);
+        assertEquals(1.2, detector.getFitVy(), EPSILON);
+        assertEquals(1.5, detector.getFitOmega(), EPSILON);
+    }
+
+    @Test
+    void flagsOneSpinningWheel () {
+        var detector = new WheelSlipDetector(0.6, 0.1, 1);
+        var states = rigidBody(1, 0, 0);
+        //front left spinning way faster than the robot is moving
+        states[0] = new SwerveModuleState(4, new Rotation2d());
+        detector.update(MODULES, states);
+
+        assertTrue(detector.isSkidding());
+        assertEquals(0, detector.getSkidModule());
+        assertEquals(1, detector.getSkidCount());
+        var scores = detector.getSlipScores();
+        for (int i = 1; i < scores.length; i++) assertTrue(scores[0] > scores[i]);
+        assertEquals(scores[0], detector.getMaxSlipScore(), EPSILON);
+        var skidScore = scores[0]; //the array gets reused next update
+
+        //still the same skid, not a new one
+        detector.update(MODULES, states);
+        assertEquals(1, detector.getSkidCount());
+
+        //grip comes back
+        detector.update(MODULES, rigidBody(1, 0, 0));
+        assertFalse(detector.isSkidding());
+        assertEquals(-1, detector.getSkidModule());
+        assertEquals(1, detector.getSkidCount());
+
+        //the worst score while skidding is handed off once
+        assertEquals(skidScore, detector.pollSkidSeverity(), EPSILON);
+        assertEquals(0, detector.pollSkidSeverity());
+    }
+
+    @Test
+    void smoothingDelaysSkid () {
+        var detector = new WheelSlipDetector(0.6, 0.1, 0.3);
+        var states = rigidBody(1, 0, 0);
+        states[0] = new SwerveModuleState(4, new Rotation2d());
+
+        detector.update(MODULES, states);
+        assertFalse(detector.isSkidding());
+        for (int i = 0; i < 10; i++) detector.update(MODULES, states);
+        assertTrue(detector.isSkidding());
+        assertEquals(0, detector.getSkidModule());
+    }
+
+    @Test
+    void stoppedRobotDoesntSkid () {
+        var detector = new WheelSlipDetector(0.6, 0.1, 1);
+        detector.update(MODULES, rigidBody(0, 0, 0));
+        assertEquals(0, detector.getMaxSlipScore(), EPSILON);
+        assertFalse(detector.isSkidding());
+    }
+}
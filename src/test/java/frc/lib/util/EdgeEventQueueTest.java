@@ -0,0 +1,119 @@
+package frc.lib.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import frc.lib.util.EdgeEventQueue.EdgeEvent;
+
+class EdgeEventQueueTest {
+    @Test
+    void pollsInOrder () {
+        var queue = new EdgeEventQueue(4);
+        assertTrue(queue.push(0, true, 1.0));
+        assertTrue(queue.push(1, false, 2.0));
+
+        var event = new EdgeEvent();
+        assertTrue(queue.poll(event));
+        assertEquals(0, event.source);
+        assertTrue(event.rising);
+        assertEquals(1.0, event.timestamp);
+
+        assertTrue(queue.poll(event));
+        assertEquals(1, event.source);
+        assertFalse(event.rising);
+        assertEquals(2.0, event.timestamp);
+
+        assertFalse(queue.poll(event));
+    }
+
+    @Test
+    void dropsWhenFull () {
+        var queue = new EdgeEventQueue(4);
+        for (int i = 0; i < 4; i++) assertTrue(queue.push(i, true, i));
+        assertFalse(queue.push(4, true, 4));
+        assertFalse(queue.push(5, true, 5));
+        assertEquals(2, queue.getDroppedCount());
+
+        //the ones that made it in are still there, in order
+        var event = new EdgeEvent();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.poll(event));
+            assertEquals(i, event.source);
+        }
+        assertFalse(queue.poll(event));
+
+        //and there's room again once it's been drained
+        assertTrue(queue.push(6, false, 6));
+        assertTrue(queue.poll(event));
+        assertEquals(6, event.source);
+    }
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo () {
+        var queue = new EdgeEventQueue(5);
+        for (int i = 0; i < 8; i++) assertTrue(queue.push(i, true, i));
+        assertFalse(queue.push(8, true, 8));
+    }
+
+    @Test
+    void wrapsAround () {
+        var queue = new EdgeEventQueue(4);
+        var event = new EdgeEvent();
+        //go around the ring a bunch of times with it partly full
+        for (int i = 0; i < 50; i++) {
+            assertTrue(queue.push(i, i % 2 == 0, i * 0.01));
+            assertTrue(queue.push(i + 1000, i % 2 != 0, i * 0.01 + 0.005));
+            assertTrue(queue.poll(event));
+            assertEquals(i, event.source);
+            assertEquals(i % 2 == 0, event.rising);
+            assertEquals(i * 0.01, event.timestamp);
+            assertTrue(queue.poll(event));
+            assertEquals(i + 1000, event.source);
+        }
+        assertFalse(queue.poll(event));
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    void multipleProducersDontLoseEdges () throws InterruptedException {
+        var producers = 4;
+        var perProducer = 10000;
+        var queue = new EdgeEventQueue(1024);
+        var start = new CountDownLatch(1);
+        var threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final var source = p;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    //spin until there's room, the consumer is draining as fast as it can
+                    while (!queue.push(source, true, i)) Thread.onSpinWait();
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+
+        var event = new EdgeEvent();
+        var lastTimestamps = new double[producers];
+        Arrays.fill(lastTimestamps, -1);
+        var received = 0;
+        while (received < producers * perProducer) {
+            if(!queue.poll(event)) continue;
+            //each producer's edges come out in the order it pushed them
+            assertEquals(lastTimestamps[event.source] + 1, event.timestamp);
+            lastTimestamps[event.source] = event.timestamp;
+            received++;
+        }
+        for (var thread : threads) thread.join();
+        assertFalse(queue.poll(event));
+    }
+}
@@ -0,0 +1,143 @@
+package frc.lib.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class HistogramTest {
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * 0-10 in 1 wide bins, with one sample in the middle of every bin
+     */
+    private static Histogram onePerBin () {
+        var histogram = new Histogram(0, 10, 10);
+        for (int i = 0; i < 10; i++) histogram.record(i + 0.5);
+        return histogram;
+    }
+
+    @Test
+    void emptyIsNaN () {
+        var histogram = new Histogram(0, 10, 10);
+        assertEquals(0, histogram.getCount());
+        assertTrue(Double.isNaN(histogram.getPercentile(50)));
+        assertTrue(Double.isNaN(histogram.getMean()));
+        assertTrue(Double.isNaN(histogram.getMax()));
+    }
+
+    @Test
+    void percentiles () {
+        var histogram = onePerBin();
+        assertEquals(4.5, histogram.getPercentile(50), EPSILON);
+        assertEquals(8.5, histogram.getPercentile(90), EPSILON);
+        assertEquals(9.5, histogram.getPercentile(99), EPSILON);
+        assertEquals(9.5, histogram.getPercentile(100), EPSILON);
+        //0 still has to land on a sample
+        assertEquals(0.5, histogram.getPercentile(0), EPSILON);
+        assertEquals(5, histogram.getMean(), EPSILON);
+        assertEquals(9.5, histogram.getMax(), EPSILON);
+    }
+
+    @Test
+    void singleSampleIsEveryPercentile () {
+        var histogram = new Histogram(0, 10, 10);
+        histogram.record(3.2);
+        assertEquals(3.5, histogram.getPercentile(0), EPSILON);
+        assertEquals(3.5, histogram.getPercentile(50), EPSILON);
+        assertEquals(3.5, histogram.getPercentile(100), EPSILON);
+        assertEquals(3.2, histogram.getMax(), EPSILON);
+    }
+
+    @Test
+    void outOfRangeGoesInEndBins () {
+        var histogram = new Histogram(0, 10, 10);
+        histogram.record(-5);
+        histogram.record(50);
+        histogram.record(10); //the top edge is past the last bin too
+
+        var counts = new double[histogram.getBinCount()];
+        histogram.getCounts(counts);
+        assertEquals(1, counts[0]);
+        assertEquals(2, counts[9]);
+        assertEquals(0.5, histogram.getPercentile(0), EPSILON);
+        assertEquals(9.5, histogram.getPercentile(100), EPSILON);
+        //the real values still count for the mean and max
+        assertEquals(55 / 3.0, histogram.getMean(), EPSILON);
+        assertEquals(50, histogram.getMax(), EPSILON);
+    }
+
+    @Test
+    void ignoresNaN () {
+        var histogram = new Histogram(0, 10, 10);
+        histogram.record(Double.NaN);
+        assertEquals(0, histogram.getCount());
+        histogram.record(1);
+        histogram.record(Double.NaN);
+        assertEquals(1, histogram.getCount());
+        assertEquals(1, histogram.getMean(), EPSILON);
+    }
+
+    @Test
+    void binCenters () {
+        var histogram = new Histogram(-1, 1, 4);
+        assertEquals(4, histogram.getBinCount());
+        assertEquals(-0.75, histogram.getBinCenter(0), EPSILON);
+        assertEquals(0.75, histogram.getBinCenter(3), EPSILON);
+    }
+
+    @Test
+    void merge () {
+        var low = new Histogram(0, 10, 10);
+        for (int i = 0; i < 5; i++) low.record(i + 0.5);
+        var high = new Histogram(0, 10, 10);
+        for (int i = 5; i < 10; i++) high.record(i + 0.5);
+
+        low.merge(high);
+        var all = onePerBin();
+        assertEquals(all.getCount(), low.getCount());
+        assertEquals(all.getMean(), low.getMean(), EPSILON);
+        assertEquals(all.getMax(), low.getMax(), EPSILON);
+        for (var percentile : new double[] {0, 10, 50, 90, 100}) {
+            assertEquals(all.getPercentile(percentile), low.getPercentile(percentile), EPSILON);
+        }
+        //the one merged in isn't touched
+        assertEquals(5, high.getCount());
+    }
+
+    @Test
+    void mergeEmpty () {
+        var histogram = onePerBin();
+        histogram.merge(new Histogram(0, 10, 10));
+        assertEquals(10, histogram.getCount());
+        assertEquals(9.5, histogram.getMax(), EPSILON);
+
+        var empty = new Histogram(0, 10, 10);
+        empty.merge(onePerBin());
+        assertEquals(10, empty.getCount());
+        assertEquals(4.5, empty.getPercentile(50), EPSILON);
+        assertEquals(9.5, empty.getMax(), EPSILON);
+
+        var bothEmpty = new Histogram(0, 10, 10);
+        bothEmpty.merge(new Histogram(0, 10, 10));
+        assertTrue(Double.isNaN(bothEmpty.getMax()));
+    }
+
+    @Test
+    void mergeDifferentBinsThrows () {
+        var histogram = new Histogram(0, 10, 10);
+        assertThrows(IllegalArgumentException.class, () -> histogram.merge(new Histogram(0, 10, 20)));
+        assertThrows(IllegalArgumentException.class, () -> histogram.merge(new Histogram(1, 11, 10)));
+        assertThrows(IllegalArgumentException.class, () -> histogram.merge(new Histogram(0, 20, 10)));
+    }
+
+    @Test
+    void reset () {
+        var histogram = onePerBin();
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertTrue(Double.isNaN(histogram.getPercentile(50)));
+        histogram.record(7.7);
+        assertEquals(7.7, histogram.getMax(), EPSILON);
+        assertEquals(7.5, histogram.getPercentile(50), EPSILON);
+    }
+}
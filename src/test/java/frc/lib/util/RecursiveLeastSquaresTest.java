@@ -0,0 +1,104 @@
+package frc.lib.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RecursiveLeastSquaresTest {
+    private static final double DT = 0.005;
+
+    /**
+     * A flywheel following V = kS*sign(v) + kV*v + kA*a, driven with a random voltage so every parameter is excited.
+     */
+    private static class SimulatedFlywheel {
+        private final Random random = new Random(42);
+        double kS, kV, kA;
+        double velocity = 20;
+        double voltage = 6;
+        double acceleration = 0;
+
+        SimulatedFlywheel (double kS, double kV, double kA) {
+            this.kS = kS;
+            this.kV = kV;
+            this.kA = kA;
+        }
+
+        void step () {
+            voltage = Math.max(2, Math.min(11, voltage + random.nextGaussian() * 0.5));
+            acceleration = (voltage - kS * Math.signum(velocity) - kV * velocity) / kA;
+            velocity += acceleration * DT;
+        }
+    }
+
+    private static void feed (RecursiveLeastSquares rls, SimulatedFlywheel flywheel, int samples, double noise) {
+        var random = new Random(7);
+        var regressor = new double[3];
+        for (int i = 0; i < samples; i++) {
+            flywheel.step();
+            regressor[0] = Math.signum(flywheel.velocity);
+            regressor[1] = flywheel.velocity;
+            regressor[2] = flywheel.acceleration;
+            rls.update(regressor, flywheel.voltage + random.nextGaussian() * noise);
+        }
+    }
+
+    @Test
+    void convergesOnKnownKvKa () {
+        var flywheel = new SimulatedFlywheel(0.3, 0.12, 0.02);
+        var rls = new RecursiveLeastSquares(new double[] {0, 0.08, 0.01}, 10, 0.999, 100);
+        feed(rls, flywheel, 4000, 0);
+
+        assertEquals(0.3, rls.getEstimate(0), 0.01);
+        assertEquals(0.12, rls.getEstimate(1), 0.001);
+        assertEquals(0.02, rls.getEstimate(2), 0.001);
+        assertEquals(0, rls.getLastError(), 1e-6);
+    }
+
+    @Test
+    void convergesWithNoise () {
+        var flywheel = new SimulatedFlywheel(0.3, 0.12, 0.02);
+        var rls = new RecursiveLeastSquares(new double[] {0, 0.08, 0.01}, 10, 0.999, 100);
+        feed(rls, flywheel, 10000, 0.05);
+
+        assertEquals(0.12, rls.getEstimate(1), 0.12 * 0.05);
+        assertEquals(0.02, rls.getEstimate(2), 0.02 * 0.1);
+    }
+
+    @Test
+    void followsDriftingParameters () {
+        var flywheel = new SimulatedFlywheel(0.3, 0.12, 0.02);
+        var rls = new RecursiveLeastSquares(new double[] {0.3, 0.12, 0.02}, 10, 0.999, 100);
+        feed(rls, flywheel, 2000, 0);
+
+        //the flywheel gets harder to spin (like a worn bearing), the estimate should follow
+        flywheel.kV = 0.15;
+        feed(rls, flywheel, 8000, 0);
+        assertEquals(0.15, rls.getEstimate(1), 0.002);
+    }
+
+    @Test
+    void resetGoesBackToInitialEstimate () {
+        var flywheel = new SimulatedFlywheel(0.3, 0.12, 0.02);
+        var rls = new RecursiveLeastSquares(new double[] {0, 0.08, 0.01}, 10, 0.999, 100);
+        feed(rls, flywheel, 500, 0);
+        rls.reset();
+
+        assertEquals(0, rls.getEstimate(0));
+        assertEquals(0.08, rls.getEstimate(1));
+        assertEquals(0.01, rls.getEstimate(2));
+        assertEquals(0, rls.getLastError());
+    }
+
+    @Test
+    void staysFiniteWithoutExcitation () {
+        //holding one speed only excites kS + kV*v, the covariance limit should keep it from blowing up
+        var rls = new RecursiveLeastSquares(new double[] {0, 0.12, 0.02}, 10, 0.99, 100);
+        var regressor = new double[] {1, 50, 0};
+        for (int i = 0; i < 100000; i++) rls.update(regressor, 0.3 + 0.12 * 50);
+
+        for (int i = 0; i < 3; i++) assertTrue(Double.isFinite(rls.getEstimate(i)));
+        assertEquals(0.3 + 0.12 * 50, rls.getEstimate(0) + rls.getEstimate(1) * 50, 1e-6);
+    }
+}